@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link FieldFormatters} with the {@link InetAddress}, {@link String#format} and {@link Hex} based
+ * formatting the parser used before. Run with {@code -prof gc} (the default of the benchmarks profile) and compare
+ * {@code gc.alloc.rate.norm}, the allocated bytes per formatted value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldFormatterBenchmark {
+
+    private ByteBuf ipv4;
+    private ByteBuf ipv6;
+    private ByteBuf mac;
+    private ByteBuf string;
+    private AddressCache addressCache;
+
+    @Setup
+    public void setUp() {
+        ipv4 = Unpooled.wrappedBuffer(new byte[]{(byte) 192, (byte) 168, 100, 23});
+        ipv6 = Unpooled.wrappedBuffer(new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0x12, 0x34});
+        mac = Unpooled.wrappedBuffer(new byte[]{0x00, 0x1b, 0x21, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc});
+        string = Unpooled.wrappedBuffer("server-1020002.example.int.\0\0\0\0\0".getBytes(StandardCharsets.UTF_8));
+        addressCache = AddressCache.create(IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE);
+    }
+
+    @Benchmark
+    public String ipv4Legacy() throws UnknownHostException {
+        final byte[] bytes = new byte[4];
+        ipv4.getBytes(0, bytes);
+        return InetAddress.getByAddress(bytes).getHostAddress();
+    }
+
+    @Benchmark
+    public String ipv4Formatter() {
+        return FieldFormatters.ipv4(ipv4.getInt(0));
+    }
+
+    @Benchmark
+    public String ipv4Cached() {
+        return addressCache.ipv4(ipv4.getInt(0));
+    }
+
+    @Benchmark
+    public String ipv6Legacy() throws UnknownHostException {
+        final byte[] bytes = new byte[16];
+        ipv6.getBytes(0, bytes);
+        return InetAddress.getByAddress(bytes).getHostAddress();
+    }
+
+    @Benchmark
+    public String ipv6Formatter() {
+        return FieldFormatters.ipv6(ipv6.getLong(0), ipv6.getLong(8));
+    }
+
+    @Benchmark
+    public String ipv6Cached() {
+        return addressCache.ipv6(ipv6.getLong(0), ipv6.getLong(8));
+    }
+
+    @Benchmark
+    public String macLegacy() {
+        final byte[] macBytes = new byte[6];
+        mac.getBytes(0, macBytes);
+        return String.format(Locale.ROOT, "%02x:%02x:%02x:%02x:%02x:%02x",
+                             macBytes[0], macBytes[1], macBytes[2], macBytes[3], macBytes[4], macBytes[5]);
+    }
+
+    @Benchmark
+    public String macFormatter() {
+        return FieldFormatters.mac(mac.readerIndex(0));
+    }
+
+    @Benchmark
+    public String octetArrayLegacy() {
+        final byte[] octetArray = new byte[string.capacity()];
+        string.getBytes(0, octetArray);
+        return Hex.encodeHexString(octetArray);
+    }
+
+    @Benchmark
+    public String octetArrayFormatter() {
+        return FieldFormatters.hex(string.readerIndex(0), string.capacity());
+    }
+
+    @Benchmark
+    public String stringLegacy() {
+        final CharSequence charSequence = string.getCharSequence(0, string.capacity(), StandardCharsets.UTF_8);
+        return String.valueOf(charSequence).replace("\0", "");
+    }
+
+    @Benchmark
+    public String stringFormatter() {
+        return FieldFormatters.string(string.readerIndex(0), string.capacity());
+    }
+}
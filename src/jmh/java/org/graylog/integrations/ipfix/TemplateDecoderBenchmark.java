@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a data set of the {@code templates-data.ipfix} sample, repeated to the configured number of records.
+ * <p>
+ * {@code compiledDecoder} measures the steady state where the decoder plan comes from the parser's cache, while
+ * {@code compileAndDecode} pays for resolving the template for every data set, like the parser used to do for every field.
+ * {@code projectedDecoder} only keeps the handful of fields typically indexed and skips all others.
+ * {@code baselineDecoder} runs the per-field decoding the parser used before decoders were compiled per template.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateDecoderBenchmark {
+
+    @Param({"1", "20"})
+    public int records;
+
+    private IpfixParser parser;
+    private IpfixParser projectedParser;
+    private BaselineDataSetDecoder baselineDecoder;
+    private TemplateRecord template;
+    private Map<Integer, TemplateRecord> templateMap;
+    private byte[] dataSetContent;
+
+    @Setup
+    public void setUp() throws IOException {
+        final InformationElementDefinitions definitions = new InformationElementDefinitions(
+                Resources.getResource("ipfix-iana-elements.json"),
+                Resources.getResource("ixia-ied.json"));
+        parser = new IpfixParser(definitions);
+        baselineDecoder = new BaselineDataSetDecoder(definitions);
+        projectedParser = new IpfixParser(definitions, IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE, FieldFilter.of(ImmutableList.of(
+                "sourceIPv4Address", "destinationIPv4Address", "sourceTransportPort", "destinationTransportPort",
+                "protocolIdentifier", "packetDeltaCount", "octetDeltaCount", "3054:111")));
+
+        final IpfixParser.MessageDescription description = parser.shallowParseMessage(Utils.readPacket("templates-data.ipfix"));
+        final ShallowDataSet dataSet = description.dataSets().iterator().next();
+        template = parser.parseTemplateRecord(description.getTemplateRecord(dataSet.templateId()).getRecordBytes());
+        templateMap = ImmutableMap.of(template.templateId(), template);
+
+        final byte[] singleRecord = ByteBufUtil.getBytes(dataSet.content());
+        final ByteBuf repeated = Unpooled.buffer(singleRecord.length * records);
+        for (int i = 0; i < records; i++) {
+            repeated.writeBytes(singleRecord);
+        }
+        dataSetContent = ByteBufUtil.getBytes(repeated);
+    }
+
+    @Benchmark
+    public Set<Flow> compiledDecoder() {
+        return parser.parseDataSet(template.informationElements(), templateMap, Unpooled.wrappedBuffer(dataSetContent));
+    }
+
+    @Benchmark
+    public Set<Flow> compileAndDecode() {
+        return TemplateDecoder.compile(template.informationElements(), parser, FieldFilter.ALL)
+                              .decode(Unpooled.wrappedBuffer(dataSetContent), templateMap);
+    }
+
+    @Benchmark
+    public Set<Flow> projectedDecoder() {
+        return projectedParser.parseDataSet(template.informationElements(), templateMap, Unpooled.wrappedBuffer(dataSetContent));
+    }
+
+    @Benchmark
+    public Set<Flow> baselineDecoder() {
+        return baselineDecoder.parseDataSet(template.informationElements(), templateMap, Unpooled.wrappedBuffer(dataSetContent));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feeds data sets with known templates into a single aggregator from several threads.
+ * <p>
+ * With {@code sharedExporter} all threads send packets of the same exporter and therefore contend for the same
+ * exporter lock, otherwise every thread is a different exporter.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpfixAggregatorBenchmark {
+
+    private static final InetSocketAddress SHARED_EXPORTER = new InetSocketAddress("192.168.1.1", 4739);
+
+    @Param({"false", "true"})
+    public boolean sharedExporter;
+
+    private final AtomicInteger exporterPorts = new AtomicInteger(10_000);
+    private IpfixAggregator aggregator;
+    private byte[] templatesPacket;
+    private byte[] dataPacket;
+
+    @Setup
+    public void setUp() throws IOException {
+        aggregator = new IpfixAggregator();
+        templatesPacket = ByteBufUtil.getBytes(Utils.readPacket("templates-data.ipfix"));
+        dataPacket = ByteBufUtil.getBytes(Utils.readPacket("dataset-only.ipfix"));
+    }
+
+    @State(Scope.Thread)
+    public static class Exporter {
+        private InetSocketAddress address;
+
+        @Setup
+        public void setUp(IpfixAggregatorBenchmark benchmark) {
+            address = benchmark.sharedExporter
+                    ? SHARED_EXPORTER
+                    : new InetSocketAddress("192.168.1.1", benchmark.exporterPorts.incrementAndGet());
+            benchmark.aggregator.addChunk(Unpooled.wrappedBuffer(benchmark.templatesPacket), address);
+        }
+    }
+
+    private IpfixAggregator.JournalEntries aggregate(Exporter exporter) {
+        return aggregator.addChunks(Unpooled.wrappedBuffer(dataPacket), exporter.address);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public IpfixAggregator.JournalEntries oneThread(Exporter exporter) {
+        return aggregate(exporter);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IpfixAggregator.JournalEntries fourThreads(Exporter exporter) {
+        return aggregate(exporter);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public IpfixAggregator.JournalEntries sixteenThreads(Exporter exporter) {
+        return aggregate(exporter);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.IpfixPacketGenerator;
+import org.graylog.integrations.ipfix.IpfixParser;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs generated IPFIX messages through the stages of the input, on their own and end to end.
+ * <p>
+ * The messages come from {@link IpfixPacketGenerator}, with IPv4 and IPv6 flows, variable length strings, enterprise
+ * specific elements and subTemplateLists. Every operation is a single flow, so the throughput is in flows per second
+ * and {@code gc.alloc.rate.norm} of the GC profiler is the allocation per flow.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpfixPipelineBenchmark {
+    private static final int RECORDS_PER_DATA_SET = 10;
+    // IpfixPacketGenerator.flowsPerDataMessage(RECORDS_PER_DATA_SET), as a constant for @OperationsPerInvocation
+    private static final int FLOWS_PER_MESSAGE = 40;
+    private static final InetSocketAddress EXPORTER = new InetSocketAddress("192.168.1.1", 4739);
+
+    private IpfixCodec codec;
+    private IpfixAggregator aggregator;
+    private IpfixParser parser;
+    private byte[] dataMessage;
+    private byte[] journalEntry;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (IpfixPacketGenerator.flowsPerDataMessage(RECORDS_PER_DATA_SET) != FLOWS_PER_MESSAGE) {
+            throw new IllegalStateException("FLOWS_PER_MESSAGE does not match the generated messages");
+        }
+        final String ixiaDefinitions = new File(Resources.getResource("ixia-ied.json").getFile()).getAbsolutePath();
+        codec = new IpfixCodec(new Configuration(ImmutableMap.<String, Object>of(
+                IpfixCodec.CK_IPFIX_DEFINITION_PATH, Collections.singletonList(ixiaDefinitions))), null);
+        aggregator = (IpfixAggregator) codec.getAggregator();
+        parser = new IpfixParser(codec.getInfoElementDefs());
+
+        final IpfixPacketGenerator generator = new IpfixPacketGenerator(42, 1);
+        aggregator.addChunks(Unpooled.wrappedBuffer(generator.templateMessage()), EXPORTER);
+        dataMessage = generator.dataMessage(RECORDS_PER_DATA_SET);
+
+        final List<ByteBuf> entries = aggregator.addChunks(Unpooled.wrappedBuffer(dataMessage), EXPORTER).messages();
+        if (entries.size() != 1) {
+            throw new IllegalStateException("Expected a single journal entry, got " + entries.size());
+        }
+        journalEntry = ByteBufUtil.getBytes(entries.get(0));
+        final int flows = codec.decodeMessages(new RawMessage(journalEntry, EXPORTER)).size();
+        if (flows != FLOWS_PER_MESSAGE) {
+            throw new IllegalStateException("Expected " + FLOWS_PER_MESSAGE + " flows, decoded " + flows);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        codec.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_MESSAGE)
+    public IpfixParser.MessageDescription shallowParse() {
+        return parser.shallowParseMessage(Unpooled.wrappedBuffer(dataMessage));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_MESSAGE)
+    public IpfixAggregator.JournalEntries aggregate() {
+        return aggregator.addChunks(Unpooled.wrappedBuffer(dataMessage), EXPORTER);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_MESSAGE)
+    public Collection<Message> decode() {
+        return codec.decodeMessages(new RawMessage(journalEntry, EXPORTER));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_MESSAGE)
+    public void endToEnd(Blackhole blackhole) {
+        for (ByteBuf entry : aggregator.addChunks(Unpooled.wrappedBuffer(dataMessage), EXPORTER).messages()) {
+            // the journal stores a copy of the entry, like the input does
+            blackhole.consume(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(entry), EXPORTER)));
+        }
+    }
+}
@@ -33,7 +33,12 @@ import org.graylog.integrations.inputs.paloalto.PaloAltoTCPInput;
 import org.graylog.integrations.inputs.paloalto9.PaloAlto9xCodec;
 import org.graylog.integrations.inputs.paloalto9.PaloAlto9xInput;
 import org.graylog.integrations.ipfix.codecs.IpfixCodec;
+import org.graylog.integrations.ipfix.inputs.IpfixFileInput;
+import org.graylog.integrations.ipfix.inputs.IpfixTcpInput;
 import org.graylog.integrations.ipfix.inputs.IpfixUdpInput;
+import org.graylog.integrations.ipfix.resources.IpfixResource;
+import org.graylog.integrations.ipfix.transports.IpfixFileTransport;
+import org.graylog.integrations.ipfix.transports.IpfixTcpTransport;
 import org.graylog.integrations.ipfix.transports.IpfixUdpTransport;
 import org.graylog.integrations.migrations.V20220622071600_MigratePagerDutyV1;
 import org.graylog.integrations.migrations.V20230522201200_NotificationForDeprecatedGreyNoiseCommunityDataAdapters;
@@ -158,8 +163,13 @@ public class IntegrationsModule extends PluginModule {
     private void configureUniversalBindings() {
         // IPFIX
         addMessageInput(IpfixUdpInput.class);
+        addMessageInput(IpfixTcpInput.class);
+        addMessageInput(IpfixFileInput.class);
         addCodec("ipfix", IpfixCodec.class);
         addTransport("ipfix-udp", IpfixUdpTransport.class);
+        addTransport("ipfix-tcp", IpfixTcpTransport.class);
+        addTransport("ipfix-file", IpfixFileTransport.class);
+        addRestResource(IpfixResource.class);
 
         // Palo Alto Networks 8x
         LOG.debug("Registering message input: {}", PaloAltoTCPInput.NAME);
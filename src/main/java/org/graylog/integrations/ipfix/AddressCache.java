@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Small cache of recently formatted IP addresses.
+ * <p>
+ * Flows repeat the same endpoints heavily, so reusing the formatted strings saves both the formatting work and the
+ * allocation. The cache is direct-mapped: every address has exactly one slot, and a newer address simply replaces the
+ * one in its slot, which approximates LRU without any bookkeeping or locking. Entries are immutable, so racing
+ * processor threads can at worst overwrite each other's entries.
+ * </p>
+ * <p>
+ * Addresses are formatted the same way for every input, so all parsers share the {@link #shared(int) process-wide}
+ * cache of their size and it stays warm no matter which codec instance decodes a journal entry.
+ * </p>
+ */
+class AddressCache {
+    private static final AddressCache DISABLED = new AddressCache(0);
+    // keyed by the rounded size, so there are only a handful of them
+    private static final ConcurrentMap<Integer, AddressCache> SHARED = new ConcurrentHashMap<>();
+
+    private final Entry[] ipv4Entries;
+    private final Entry[] ipv6Entries;
+    private final int mask;
+
+    private AddressCache(int size) {
+        this.ipv4Entries = new Entry[size];
+        this.ipv6Entries = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param size the number of cached addresses per address family, rounded up to a power of two, 0 disables caching
+     * @return the address cache
+     */
+    static AddressCache create(int size) {
+        if (size <= 0) {
+            return DISABLED;
+        }
+        return new AddressCache(roundedSize(size));
+    }
+
+    /**
+     * @param size the number of cached addresses per address family, rounded up to a power of two, 0 disables caching
+     * @return the address cache of this size shared by all parsers
+     */
+    static AddressCache shared(int size) {
+        if (size <= 0) {
+            return DISABLED;
+        }
+        return SHARED.computeIfAbsent(roundedSize(size), AddressCache::new);
+    }
+
+    private static int roundedSize(int size) {
+        return Integer.highestOneBit(Math.min(size - 1, 1 << 29)) << 1;
+    }
+
+    String ipv4(int address) {
+        if (mask < 0) {
+            return FieldFormatters.ipv4(address);
+        }
+        final int slot = slot(address) & mask;
+        final Entry entry = ipv4Entries[slot];
+        if (entry != null && entry.low == address) {
+            return entry.formatted;
+        }
+        final String formatted = FieldFormatters.ipv4(address);
+        ipv4Entries[slot] = new Entry(0, address, formatted);
+        return formatted;
+    }
+
+    String ipv6(long high, long low) {
+        if (mask < 0) {
+            return FieldFormatters.ipv6(high, low);
+        }
+        final int slot = slot(high ^ low * 31) & mask;
+        final Entry entry = ipv6Entries[slot];
+        if (entry != null && entry.high == high && entry.low == low) {
+            return entry.formatted;
+        }
+        final String formatted = FieldFormatters.ipv6(high, low);
+        ipv6Entries[slot] = new Entry(high, low, formatted);
+        return formatted;
+    }
+
+    private static int slot(long value) {
+        final long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static class Entry {
+        private final long high;
+        private final long low;
+        private final String formatted;
+
+        Entry(long high, long low, String formatted) {
+            this.high = high;
+            this.low = low;
+            this.formatted = formatted;
+        }
+    }
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.google.common.collect.ImmutableList;
+import io.netty.buffer.ByteBuf;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads the value of a single information element from a data record.
+ * <p>
+ * Instances are resolved once per template by {@link TemplateDecoder#compile}, so that the field name, data type and
+ * encoded length of the information element are fixed and decoding a record does not need to look up definitions or
+ * switch over data types and reduced-size encodings anymore.
+ * </p>
+ */
+abstract class FieldDecoder {
+    private static final Logger LOG = LoggerFactory.getLogger(FieldDecoder.class);
+
+    /**
+     * Information element length signalling variable length encoding (RFC 7011 Sec 7)
+     */
+    static final int VARIABLE_LENGTH = 65535;
+
+    /**
+     * Seconds between the NTP epoch, 1900-01-01, and the Unix epoch
+     */
+    private static final long NTP_EPOCH_OFFSET_SECONDS = 2_208_988_800L;
+
+    /**
+     * Maximum nesting depth of lists in lists, protects the decoder from recursive templates.
+     */
+    static final int MAX_LIST_DEPTH = 4;
+
+    /**
+     * Maximum number of elements or records in a single list.
+     */
+    static final int MAX_LIST_ELEMENTS = 1024;
+
+    /**
+     * Number of element decoders each list field keeps, must be a power of two.
+     */
+    private static final int ELEMENT_DECODER_SLOTS = 4;
+
+    private final String fieldName;
+    private final InformationElementDefinition.DataType dataType;
+    private final int length;
+
+    FieldDecoder(String fieldName, InformationElementDefinition.DataType dataType, int length) {
+        this.fieldName = fieldName;
+        this.dataType = dataType;
+        this.length = length;
+    }
+
+    String fieldName() {
+        return fieldName;
+    }
+
+    InformationElementDefinition.DataType dataType() {
+        return dataType;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Reads the field value from the buffer and passes it to the visitor of the current record.
+     *
+     * @param buffer      the data set buffer, positioned at the start of the field
+     * @param templateMap map from template id to template record, used for subtemplateLists
+     * @param visitor     receives the decoded field value
+     */
+    abstract void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor);
+
+    /**
+     * Creates a decoder that skips the field by its length, without decoding its value.
+     *
+     * @param informationElement the template field
+     * @param desc               the definition of the information element, possibly {@link InformationElementDefinition#UNKNOWN}
+     * @return the decoder skipping the field
+     */
+    static SkipDecoder skip(InformationElement informationElement, InformationElementDefinition desc) {
+        final String fieldName = desc.isUnknown()
+                ? informationElement.enterpriseNumber() + ":" + informationElement.id()
+                : desc.fieldName();
+        return new SkipDecoder(fieldName, desc.dataType(), informationElement.length());
+    }
+
+    static FieldDecoder create(InformationElement informationElement, InformationElementDefinition desc, IpfixParser parser) {
+        final String fieldName = desc.fieldName();
+        final InformationElementDefinition.DataType dataType = desc.dataType();
+        final int length = informationElement.length();
+        switch (dataType) {
+            // these are special because they can use reduced-size encoding (RFC 7011 Sec 6.2)
+            case UNSIGNED8:
+            case UNSIGNED16:
+            case UNSIGNED32:
+            case UNSIGNED64:
+                return unsigned(fieldName, dataType, length);
+            case SIGNED8:
+            case SIGNED16:
+            case SIGNED32:
+            case SIGNED64:
+                return signed(fieldName, dataType, length);
+            case FLOAT32:
+            case FLOAT64:
+                return floatingPoint(fieldName, dataType, length);
+            // the remaining types aren't subject to reduced-size encoding
+            case MACADDRESS:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, FieldFormatters.mac(buffer));
+                    }
+                };
+            case IPV4ADDRESS:
+                final AddressCache ipv4Cache = parser.addressCache();
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, ipv4Cache.ipv4(buffer.readInt()));
+                    }
+                };
+            case IPV6ADDRESS:
+                final AddressCache ipv6Cache = parser.addressCache();
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final long high = buffer.readLong();
+                        final long low = buffer.readLong();
+                        visitor.field(fieldName, ipv6Cache.ipv6(high, low));
+                    }
+                };
+            case BOOLEAN:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final byte booleanByte = buffer.readByte();
+                        switch (booleanByte) {
+                            case 1:
+                                visitor.field(fieldName, true);
+                                break;
+                            case 2:
+                                visitor.field(fieldName, false);
+                                break;
+                            default:
+                                throw new IpfixException("Invalid value for boolean: " + booleanByte);
+                        }
+                    }
+                };
+            case STRING:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final int stringLength = length == VARIABLE_LENGTH ? getVarLength(buffer) : length;
+                        visitor.field(fieldName, FieldFormatters.string(buffer, stringLength));
+                    }
+                };
+            case OCTETARRAY:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final int octetArrayLength = length == VARIABLE_LENGTH ? getVarLength(buffer) : length;
+                        visitor.field(fieldName, FieldFormatters.hex(buffer, octetArrayLength));
+                    }
+                };
+            // Joda DateTime is the type Graylog indexes dates as, so the values are created in their final form right away
+            case DATETIMESECONDS:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final long dateTimeSeconds = buffer.readUnsignedInt();
+                        visitor.field(fieldName, new DateTime(dateTimeSeconds * 1000L, DateTimeZone.UTC));
+                    }
+                };
+            case DATETIMEMILLISECONDS:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final long dateTimeMills = buffer.readLong();
+                        visitor.field(fieldName, new DateTime(dateTimeMills, DateTimeZone.UTC));
+                    }
+                };
+            case DATETIMEMICROSECONDS:
+            case DATETIMENANOSECONDS:
+                // NTP timestamps, seconds since 1900 and a fraction in units of 2^-32 seconds (RFC 7011 Sec 6.1.9 and 6.1.10),
+                // the bottom 11 bits of the fraction must be ignored for micros.
+                // Graylog dates have millisecond precision, so that is all we keep.
+                final long fractionMask = dataType == InformationElementDefinition.DataType.DATETIMEMICROSECONDS ? ~0x7FFL : ~0L;
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        final long seconds = buffer.readUnsignedInt() - NTP_EPOCH_OFFSET_SECONDS;
+                        final long fraction = buffer.readUnsignedInt() & fractionMask;
+                        visitor.field(fieldName, new DateTime(seconds * 1000L + ((fraction * 1000L) >>> 32), DateTimeZone.UTC));
+                    }
+                };
+            case BASICLIST:
+                return new BasicListDecoder(fieldName, length, parser);
+            case SUBTEMPLATELIST:
+                return new SubTemplateListDecoder(fieldName, length, parser);
+            case SUBTEMPLATEMULTILIST:
+                return new SubTemplateMultiListDecoder(fieldName, length, parser);
+            case UNKNOWN:
+                return skip(informationElement, desc);
+            default:
+                throw new IpfixException("Unsupported data type " + dataType + " for information element " + fieldName);
+        }
+    }
+
+    private static FieldDecoder unsigned(String fieldName, InformationElementDefinition.DataType dataType, int length) {
+        switch (length) {
+            case 1:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readUnsignedByte());
+                    }
+                };
+            case 2:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readUnsignedShort());
+                    }
+                };
+            case 3:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readUnsignedMedium());
+                    }
+                };
+            case 4:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, buffer.readUnsignedInt());
+                    }
+                };
+            case 5:
+            case 6:
+            case 7:
+            case 8:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, readLong(buffer, length));
+                    }
+                };
+            default:
+                throw new IpfixException("Unexpected length for unsigned integer: " + length);
+        }
+    }
+
+    private static FieldDecoder signed(String fieldName, InformationElementDefinition.DataType dataType, int length) {
+        switch (length) {
+            case 1:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readByte());
+                    }
+                };
+            case 2:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readShort());
+                    }
+                };
+            case 3:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readMedium());
+                    }
+                };
+            case 4:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (long) buffer.readInt());
+                    }
+                };
+            case 5:
+            case 6:
+            case 7:
+            case 8:
+                // shift the value into the upper bits and back to sign-extend reduced-size encoded values
+                final int shift = 64 - 8 * length;
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (readLong(buffer, length) << shift) >> shift);
+                    }
+                };
+            default:
+                throw new IpfixException("Unexpected length for signed integer: " + length);
+        }
+    }
+
+    private static FieldDecoder floatingPoint(String fieldName, InformationElementDefinition.DataType dataType, int length) {
+        switch (length) {
+            case 4:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, (double) buffer.readFloat());
+                    }
+                };
+            case 8:
+                return new FieldDecoder(fieldName, dataType, length) {
+                    @Override
+                    void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+                        visitor.field(fieldName, buffer.readDouble());
+                    }
+                };
+            default:
+                throw new IpfixException("Unexpected length for float value: " + length);
+        }
+    }
+
+    /**
+     * Reads a big endian integer of 5 to 8 bytes, zero-extended to a long.
+     */
+    private static long readLong(ByteBuf buffer, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | buffer.readUnsignedByte();
+        }
+        return value;
+    }
+
+    static int getVarLength(ByteBuf buffer) {
+        int length;
+        final short firstLengthByte = buffer.readUnsignedByte();
+        if (firstLengthByte == 255) {
+            // > 255 bytes in length, parse two more bytes for actual length
+            length = buffer.readUnsignedShort();
+        } else {
+            length = firstLengthByte;
+        }
+        return length;
+    }
+
+    /**
+     * Skips fields which are not selected by the {@link FieldFilter}, including variable length fields and lists.
+     */
+    static class SkipDecoder extends FieldDecoder {
+
+        SkipDecoder(String fieldName, InformationElementDefinition.DataType dataType, int length) {
+            super(fieldName, dataType, length);
+        }
+
+        @Override
+        void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+            skip(buffer);
+        }
+
+        /**
+         * @param buffer the data set buffer, positioned at the start of the field
+         * @return the number of skipped bytes, including the variable length prefix
+         */
+        int skip(ByteBuf buffer) {
+            final int startIndex = buffer.readerIndex();
+            buffer.skipBytes(length() == VARIABLE_LENGTH ? getVarLength(buffer) : length());
+            return buffer.readerIndex() - startIndex;
+        }
+    }
+
+    /**
+     * Base class of the structured data types (RFC 6313), whose elements are flattened into the enclosing record.
+     */
+    private abstract static class ListDecoder extends FieldDecoder {
+        private final IpfixParser parser;
+        private final FlattenedNames flattenedNames;
+        // the element type or sub-template of a list is only known from its content, but a list field practically
+        // always carries the same ones, so their decoders are resolved on first use and kept, indexed by element or
+        // template id, instead of being looked up in the parser's decoder cache for every record
+        private final AtomicReferenceArray<ElementDecoder> elementDecoders = new AtomicReferenceArray<>(ELEMENT_DECODER_SLOTS);
+
+        ListDecoder(String fieldName, InformationElementDefinition.DataType dataType, int length, IpfixParser parser) {
+            super(fieldName, dataType, length);
+            this.parser = parser;
+            this.flattenedNames = new FlattenedNames(fieldName);
+        }
+
+        /**
+         * @param element the information element of a basicList
+         * @return the decoder reading the list elements as records with a single field
+         */
+        TemplateDecoder elementDecoder(InformationElement element) {
+            final int slot = element.id() & (ELEMENT_DECODER_SLOTS - 1);
+            final ElementDecoder resolved = elementDecoders.get(slot);
+            if (resolved != null && resolved.informationElements.size() == 1 && resolved.informationElements.get(0).equals(element)) {
+                return resolved.decoder;
+            }
+            return resolve(slot, ImmutableList.of(element));
+        }
+
+        /**
+         * @param templateId     the id of the sub-template
+         * @param templateRecord the sub-template
+         * @return the decoder reading the records of the sub-template
+         */
+        TemplateDecoder elementDecoder(int templateId, TemplateRecord templateRecord) {
+            final int slot = templateId & (ELEMENT_DECODER_SLOTS - 1);
+            final ImmutableList<InformationElement> informationElements = templateRecord.informationElements();
+            final ElementDecoder resolved = elementDecoders.get(slot);
+            // journal entries of the same template share the parsed template records, so this is usually the same list
+            if (resolved != null && (resolved.informationElements == informationElements || resolved.informationElements.equals(informationElements))) {
+                return resolved.decoder;
+            }
+            return resolve(slot, informationElements);
+        }
+
+        private TemplateDecoder resolve(int slot, ImmutableList<InformationElement> informationElements) {
+            final TemplateDecoder decoder = parser.decoderFor(informationElements);
+            elementDecoders.set(slot, new ElementDecoder(informationElements, decoder));
+            return decoder;
+        }
+
+        /**
+         * Reads the list length and returns the list content, starting with the semantic.
+         */
+        ByteBuf readList(ByteBuf buffer) {
+            // there are three possibilities here (compare https://tools.ietf.org/html/rfc6313#section-4.5.2):
+            //  1. the data set's template has an explicit length
+            //  2. the length is < 255 encoded as 1 byte, in variable length format (not recommended)
+            //  3. the length is encoded as 3 bytes, in variable length format (recommended per RFC 6313)
+            return buffer.readSlice(length() == VARIABLE_LENGTH ? getVarLength(buffer) : length());
+        }
+
+        /**
+         * @param parent the visitor of the enclosing record, possibly the flattening visitor of an enclosing list
+         * @return the visitor flattening the list elements into the enclosing record
+         * @throws IpfixException if the list is nested too deeply
+         */
+        FlatteningVisitor flatten(FlowVisitor parent) {
+            final int depth = parent instanceof FlatteningVisitor ? ((FlatteningVisitor) parent).depth + 1 : 1;
+            if (depth > MAX_LIST_DEPTH) {
+                // templates can reference themselves in their lists, so this also stops endless recursion
+                throw new IpfixException("Lists nested more than " + MAX_LIST_DEPTH + " levels deep in " + fieldName());
+            }
+            return new FlatteningVisitor(flattenedNames, parent, depth);
+        }
+    }
+
+    private static class BasicListDecoder extends ListDecoder {
+
+        BasicListDecoder(String fieldName, int length, IpfixParser parser) {
+            super(fieldName, InformationElementDefinition.DataType.BASICLIST, length, parser);
+        }
+
+        @Override
+        void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+            /* encoding format according to https://tools.ietf.org/html/rfc6313#section-4.5.1, Figure 3:
+                0                   1                   2                   3
+                0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |    Semantic   |E|          Field ID           |   Element...  |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               | ...Length     |           Enterprise Number ...               |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |      ...      |              basicList Content ...            |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+             */
+            final ByteBuf listContent = readList(buffer);
+            listContent.skipBytes(1);
+            final InformationElement element = IpfixParser.parseInformationElement(listContent);
+            // if this is not readable, it's an empty list
+            if (listContent.isReadable()) {
+                // every list element is decoded as a record with a single field
+                elementDecoder(element).decode(listContent, templateMap, flatten(visitor));
+            }
+        }
+    }
+
+    private static class SubTemplateListDecoder extends ListDecoder {
+
+        SubTemplateListDecoder(String fieldName, int length, IpfixParser parser) {
+            super(fieldName, InformationElementDefinition.DataType.SUBTEMPLATELIST, length, parser);
+        }
+
+        @Override
+        void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+            /* encoding format in this case is according to Figure 5:
+                0                   1                   2                   3
+                0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |   Semantic    |         Template ID           |     ...       |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |                subTemplateList Content    ...                 |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |                              ...                              |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+              Semantic is one of:
+                * 0xFF - undefined
+                * 0x00 - noneOf
+                * 0x01 - exactlyOneOf
+                * 0x02 - oneOrMoreOf
+                * 0x03 - allOf
+                * 0x04 - ordered
+             */
+            final ByteBuf listContent = readList(buffer);
+            listContent.skipBytes(1);
+            final int templateId = listContent.readUnsignedShort();
+            final TemplateRecord templateRecord = templateMap.get(templateId);
+            if (templateRecord == null) {
+                LOG.error("Unable to parse subtemplateList, because we don't have the template for it: {}, skipping data ({} bytes)", templateId, listContent.readableBytes());
+                return;
+            }
+            // if this is not readable, it's an empty list
+            if (listContent.isReadable()) {
+                elementDecoder(templateId, templateRecord).decode(listContent, templateMap, flatten(visitor));
+            }
+        }
+    }
+
+    private static class SubTemplateMultiListDecoder extends ListDecoder {
+        private static final int RECORDS_HEADER_LENGTH = 4;
+
+        SubTemplateMultiListDecoder(String fieldName, int length, IpfixParser parser) {
+            super(fieldName, InformationElementDefinition.DataType.SUBTEMPLATEMULTILIST, length, parser);
+        }
+
+        @Override
+        void decode(ByteBuf buffer, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+            /* encoding format according to https://tools.ietf.org/html/rfc6313#section-4.5.3, Figure 7:
+                0                   1                   2                   3
+                0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |   Semantic    |         Template ID X         |Data Records...|
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               | ... Length X  |     Data Record X.1 Content ...               |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+               |                              ...                              |
+               +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
+              The data records length includes the template id and the length itself.
+             */
+            final ByteBuf listContent = readList(buffer);
+            listContent.skipBytes(1);
+            FlatteningVisitor flatteningVisitor = null;
+            while (listContent.isReadable()) {
+                final int templateId = listContent.readUnsignedShort();
+                final int recordsLength = listContent.readUnsignedShort() - RECORDS_HEADER_LENGTH;
+                if (recordsLength < 0 || recordsLength > listContent.readableBytes()) {
+                    throw new IpfixException("Invalid data records length " + recordsLength + " in subTemplateMultiList " + fieldName());
+                }
+                final ByteBuf records = listContent.readSlice(recordsLength);
+                final TemplateRecord templateRecord = templateMap.get(templateId);
+                if (templateRecord == null) {
+                    LOG.error("Unable to parse subTemplateMultiList records, because we don't have the template for it: {}, skipping data ({} bytes)", templateId, recordsLength);
+                    continue;
+                }
+                if (records.isReadable()) {
+                    // the records of all templates are numbered consecutively, like the records of a subTemplateList
+                    if (flatteningVisitor == null) {
+                        flatteningVisitor = flatten(visitor);
+                    }
+                    elementDecoder(templateId, templateRecord).decode(records, templateMap, flatteningVisitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * A decoder of list elements, together with the elements it has been compiled for. Immutable, so racing threads at
+     * worst resolve the same decoder twice.
+     */
+    private static class ElementDecoder {
+        private final ImmutableList<InformationElement> informationElements;
+        private final TemplateDecoder decoder;
+
+        ElementDecoder(ImmutableList<InformationElement> informationElements, TemplateDecoder decoder) {
+            this.informationElements = informationElements;
+            this.decoder = decoder;
+        }
+    }
+
+    /**
+     * The flattened field names of a list, computed once for each record index and field name instead of for every
+     * decoded field. Shared by all threads decoding the list field.
+     */
+    private static class FlattenedNames {
+        // bounds the names kept per record index, in case deeply nested lists produce lots of distinct names
+        private static final int MAX_NAMES_PER_INDEX = 256;
+
+        private final String listFieldName;
+        private final AtomicReferenceArray<ConcurrentMap<String, String>> names = new AtomicReferenceArray<>(MAX_LIST_ELEMENTS);
+
+        FlattenedNames(String listFieldName) {
+            this.listFieldName = listFieldName;
+        }
+
+        String name(int index, String fieldName) {
+            ConcurrentMap<String, String> indexNames = names.get(index);
+            if (indexNames == null) {
+                names.compareAndSet(index, null, new ConcurrentHashMap<>());
+                indexNames = names.get(index);
+            }
+            final String name = indexNames.get(fieldName);
+            if (name != null) {
+                return name;
+            }
+            final String flattenedName = listFieldName + "_" + index + "_" + fieldName;
+            if (indexNames.size() < MAX_NAMES_PER_INDEX) {
+                indexNames.putIfAbsent(fieldName, flattenedName);
+            }
+            return flattenedName;
+        }
+    }
+
+    /**
+     * Flattens the records of a list into the fields of the enclosing record, by prefixing the field names with the
+     * list field name and record index, until we have support for nested objects.
+     */
+    private static class FlatteningVisitor implements FlowVisitor {
+        private final FlattenedNames flattenedNames;
+        private final FlowVisitor parent;
+        private final int depth;
+        private int index = -1;
+
+        FlatteningVisitor(FlattenedNames flattenedNames, FlowVisitor parent, int depth) {
+            this.flattenedNames = flattenedNames;
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        @Override
+        public void beginRecord() {
+            if (++index >= MAX_LIST_ELEMENTS) {
+                // also stops zero length records from looping forever
+                throw new IpfixException("More than " + MAX_LIST_ELEMENTS + " elements in list " + flattenedNames.listFieldName);
+            }
+        }
+
+        @Override
+        public void field(String name, Object value) {
+            parent.field(flattenedNames.name(index, name), value);
+        }
+
+        @Override
+        public void endRecord() {
+        }
+    }
+}
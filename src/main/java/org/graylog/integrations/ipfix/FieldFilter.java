@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Selects the information elements whose values are decoded from data records.
+ * <p>
+ * Fields are selected either by their name, or by their private enterprise number and id, written as
+ * {@code <enterprise number>:<id>}. A plain number selects the IANA information element with that id.
+ * All other fields are skipped by their length, without decoding or formatting their values.
+ * </p>
+ */
+public final class FieldFilter {
+
+    /**
+     * Keeps all fields.
+     */
+    public static final FieldFilter ALL = new FieldFilter(ImmutableSet.of(), ImmutableSet.of());
+
+    private final ImmutableSet<String> names;
+    private final ImmutableSet<Long> elementKeys;
+
+    private FieldFilter(ImmutableSet<String> names, ImmutableSet<Long> elementKeys) {
+        this.names = names;
+        this.elementKeys = elementKeys;
+    }
+
+    /**
+     * Parses the selected fields.
+     *
+     * @param fields field names or {@code <enterprise number>:<id>} pairs, {@code null} or empty to keep all fields
+     * @return the filter
+     */
+    public static FieldFilter of(@Nullable Collection<String> fields) {
+        if (fields == null) {
+            return ALL;
+        }
+        final ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        final ImmutableSet.Builder<Long> elementKeys = ImmutableSet.builder();
+        for (String field : fields) {
+            final String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            final int separator = trimmed.indexOf(':');
+            if (separator >= 0) {
+                elementKeys.add(elementKey(parseNumber(trimmed, trimmed.substring(0, separator)),
+                                           (int) parseNumber(trimmed, trimmed.substring(separator + 1))));
+            } else if (Character.isDigit(trimmed.charAt(0))) {
+                elementKeys.add(elementKey(0, (int) parseNumber(trimmed, trimmed)));
+            } else {
+                names.add(trimmed);
+            }
+        }
+        final FieldFilter filter = new FieldFilter(names.build(), elementKeys.build());
+        return filter.keepsAll() ? ALL : filter;
+    }
+
+    private static long parseNumber(String field, String number) {
+        try {
+            return Long.parseLong(number.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid information element " + field + ", expected a name or <enterprise number>:<id>", e);
+        }
+    }
+
+    private static long elementKey(long enterpriseNumber, int id) {
+        return (enterpriseNumber << 16) | id;
+    }
+
+    /**
+     * @return true if no fields are skipped
+     */
+    public boolean keepsAll() {
+        return names.isEmpty() && elementKeys.isEmpty();
+    }
+
+    /**
+     * @param informationElement the template field
+     * @param definition         the definition of the information element, possibly {@link InformationElementDefinition#UNKNOWN}
+     * @return true if the value of the field should be decoded
+     */
+    public boolean keeps(InformationElement informationElement, InformationElementDefinition definition) {
+        if (keepsAll()) {
+            return true;
+        }
+        if (elementKeys.contains(elementKey(informationElement.enterpriseNumber(), informationElement.id()))) {
+            return true;
+        }
+        return !definition.isUnknown() && names.contains(definition.fieldName());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats address, MAC, octet array and string values straight from the data set buffer.
+ * <p>
+ * The output is identical to what {@link java.net.InetAddress#getHostAddress()}, {@code String.format("%02x:...")} and
+ * {@link org.apache.commons.codec.binary.Hex#encodeHexString(byte[])} produce, but the values are read as primitives
+ * and written into a reusable per-thread char buffer, so that the resulting {@link String} is the only allocation.
+ * </p>
+ */
+final class FieldFormatters {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // large enough for IPv6 and MAC addresses, grown on demand for octet arrays and strings
+    private static final ThreadLocal<char[]> CHAR_BUFFER = ThreadLocal.withInitial(() -> new char[64]);
+
+    private FieldFormatters() {
+    }
+
+    private static char[] charBuffer(int length) {
+        char[] chars = CHAR_BUFFER.get();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+            CHAR_BUFFER.set(chars);
+        }
+        return chars;
+    }
+
+    /**
+     * @param address the IPv4 address in network byte order
+     * @return the address in dotted decimal notation
+     */
+    static String ipv4(int address) {
+        final char[] chars = charBuffer(15);
+        int pos = 0;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            pos = writeDecimalOctet(chars, pos, (address >>> shift) & 0xff);
+            if (shift > 0) {
+                chars[pos++] = '.';
+            }
+        }
+        return new String(chars, 0, pos);
+    }
+
+    private static int writeDecimalOctet(char[] chars, int pos, int value) {
+        if (value >= 100) {
+            chars[pos++] = (char) ('0' + value / 100);
+            chars[pos++] = (char) ('0' + (value / 10) % 10);
+        } else if (value >= 10) {
+            chars[pos++] = (char) ('0' + value / 10);
+        }
+        chars[pos++] = (char) ('0' + value % 10);
+        return pos;
+    }
+
+    /**
+     * Formats an IPv6 address like {@link java.net.Inet6Address#getHostAddress()}, i.e. eight colon separated groups of
+     * hex digits without leading zeros and without zero compression. IPv4-mapped addresses are formatted as IPv4
+     * addresses, like {@link java.net.InetAddress#getByAddress(byte[])} does.
+     *
+     * @param high the upper 64 bits of the address
+     * @param low  the lower 64 bits of the address
+     * @return the formatted address
+     */
+    static String ipv6(long high, long low) {
+        if (high == 0 && (low >>> 32) == 0xffffL) {
+            return ipv4((int) low);
+        }
+        final char[] chars = charBuffer(39);
+        int pos = writeHexGroups(chars, 0, high);
+        chars[pos++] = ':';
+        pos = writeHexGroups(chars, pos, low);
+        return new String(chars, 0, pos);
+    }
+
+    private static int writeHexGroups(char[] chars, int pos, long value) {
+        for (int shift = 48; shift >= 0; shift -= 16) {
+            final int group = (int) (value >>> shift) & 0xffff;
+            boolean leading = true;
+            for (int nibbleShift = 12; nibbleShift >= 0; nibbleShift -= 4) {
+                final int nibble = (group >>> nibbleShift) & 0xf;
+                if (nibble != 0 || !leading || nibbleShift == 0) {
+                    chars[pos++] = HEX_DIGITS[nibble];
+                    leading = false;
+                }
+            }
+            if (shift > 0) {
+                chars[pos++] = ':';
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Reads a MAC address from the buffer.
+     *
+     * @param buffer the buffer positioned at the address
+     * @return the address as colon separated lower case hex digits
+     */
+    static String mac(ByteBuf buffer) {
+        final char[] chars = charBuffer(17);
+        int pos = 0;
+        for (int i = 0; i < 6; i++) {
+            final int octet = buffer.readUnsignedByte();
+            if (i > 0) {
+                chars[pos++] = ':';
+            }
+            chars[pos++] = HEX_DIGITS[octet >>> 4];
+            chars[pos++] = HEX_DIGITS[octet & 0xf];
+        }
+        return new String(chars, 0, pos);
+    }
+
+    /**
+     * Reads an octet array from the buffer.
+     *
+     * @param buffer the buffer positioned at the octet array
+     * @param length the number of bytes to read
+     * @return the bytes as lower case hex digits
+     */
+    static String hex(ByteBuf buffer, int length) {
+        final char[] chars = charBuffer(2 * length);
+        final int readerIndex = buffer.readerIndex();
+        for (int i = 0; i < length; i++) {
+            final int octet = buffer.getUnsignedByte(readerIndex + i);
+            chars[2 * i] = HEX_DIGITS[octet >>> 4];
+            chars[2 * i + 1] = HEX_DIGITS[octet & 0xf];
+        }
+        buffer.skipBytes(length);
+        return new String(chars, 0, 2 * length);
+    }
+
+    /**
+     * Reads an UTF-8 string from the buffer, removing any NUL characters used as padding.
+     *
+     * @param buffer the buffer positioned at the string
+     * @param length the number of bytes to read
+     * @return the decoded string
+     */
+    static String string(ByteBuf buffer, int length) {
+        final char[] chars = charBuffer(length);
+        final int readerIndex = buffer.readerIndex();
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            final byte b = buffer.getByte(readerIndex + i);
+            if (b < 0) {
+                // not plain ASCII, let the charset decoder deal with multi-byte sequences and malformed input
+                final String decoded = buffer.toString(readerIndex, length, StandardCharsets.UTF_8);
+                buffer.skipBytes(length);
+                return decoded.indexOf('\0') < 0 ? decoded : decoded.replace("\0", "");
+            }
+            if (b != 0) {
+                chars[pos++] = (char) b;
+            }
+        }
+        buffer.skipBytes(length);
+        return new String(chars, 0, pos);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+/**
+ * Receives the decoded data records of a data set, field by field.
+ * <p>
+ * This allows building the target representation of a flow, e.g. a Graylog message, directly while decoding, without
+ * any intermediate field maps or {@link Flow} objects.
+ * </p>
+ *
+ * @see TemplateDecoder#decode(io.netty.buffer.ByteBuf, java.util.Map, FlowVisitor)
+ */
+public interface FlowVisitor {
+    /**
+     * Called before the first field of each data record.
+     */
+    void beginRecord();
+
+    /**
+     * Called for each decoded field of the current data record.
+     *
+     * @param name  the field name of the information element
+     * @param value the decoded value
+     */
+    void field(String name, Object value);
+
+    /**
+     * Called after the last field of each data record.
+     */
+    void endRecord();
+}
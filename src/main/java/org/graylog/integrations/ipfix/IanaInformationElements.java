@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.google.common.collect.ImmutableMap;
+import org.graylog.integrations.ipfix.InformationElementDefinition.DataType;
+
+/**
+ * The IANA assigned information element definitions (private enterprise number 0).
+ * <p>
+ * Generated from {@code ipfix-iana-elements.json} by {@code IanaInformationElementsGenerator}, so that the standard
+ * definitions do not have to be parsed from JSON whenever an input starts. {@code IanaInformationElementsTest} verifies
+ * that both stay in sync.
+ * </p>
+ */
+final class IanaInformationElements {
+
+    static final ImmutableMap<Integer, InformationElementDefinition> DEFINITIONS = definitions();
+
+    private IanaInformationElements() {
+    }
+
+    private static void add(ImmutableMap.Builder<Integer, InformationElementDefinition> builder, int id, String fieldName, DataType dataType) {
+        builder.put(id, InformationElementDefinition.create(dataType, fieldName, id));
+    }
+
+    private static ImmutableMap<Integer, InformationElementDefinition> definitions() {
+        final ImmutableMap.Builder<Integer, InformationElementDefinition> builder = ImmutableMap.builder();
+        add(builder, 1, "octetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 2, "packetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 3, "deltaFlowCount", DataType.UNSIGNED64);
+        add(builder, 4, "protocolIdentifier", DataType.UNSIGNED8);
+        add(builder, 5, "ipClassOfService", DataType.UNSIGNED8);
+        add(builder, 6, "tcpControlBits", DataType.UNSIGNED16);
+        add(builder, 7, "sourceTransportPort", DataType.UNSIGNED16);
+        add(builder, 8, "sourceIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 9, "sourceIPv4PrefixLength", DataType.UNSIGNED8);
+        add(builder, 10, "ingressInterface", DataType.UNSIGNED32);
+        add(builder, 11, "destinationTransportPort", DataType.UNSIGNED16);
+        add(builder, 12, "destinationIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 13, "destinationIPv4PrefixLength", DataType.UNSIGNED8);
+        add(builder, 14, "egressInterface", DataType.UNSIGNED32);
+        add(builder, 15, "ipNextHopIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 16, "bgpSourceAsNumber", DataType.UNSIGNED32);
+        add(builder, 17, "bgpDestinationAsNumber", DataType.UNSIGNED32);
+        add(builder, 18, "bgpNextHopIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 19, "postMCastPacketDeltaCount", DataType.UNSIGNED64);
+        add(builder, 20, "postMCastOctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 21, "flowEndSysUpTime", DataType.UNSIGNED32);
+        add(builder, 22, "flowStartSysUpTime", DataType.UNSIGNED32);
+        add(builder, 23, "postOctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 24, "postPacketDeltaCount", DataType.UNSIGNED64);
+        add(builder, 25, "minimumIpTotalLength", DataType.UNSIGNED64);
+        add(builder, 26, "maximumIpTotalLength", DataType.UNSIGNED64);
+        add(builder, 27, "sourceIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 28, "destinationIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 29, "sourceIPv6PrefixLength", DataType.UNSIGNED8);
+        add(builder, 30, "destinationIPv6PrefixLength", DataType.UNSIGNED8);
+        add(builder, 31, "flowLabelIPv6", DataType.UNSIGNED32);
+        add(builder, 32, "icmpTypeCodeIPv4", DataType.UNSIGNED16);
+        add(builder, 33, "igmpType", DataType.UNSIGNED8);
+        add(builder, 34, "samplingInterval", DataType.UNSIGNED32);
+        add(builder, 35, "samplingAlgorithm", DataType.UNSIGNED8);
+        add(builder, 36, "flowActiveTimeout", DataType.UNSIGNED16);
+        add(builder, 37, "flowIdleTimeout", DataType.UNSIGNED16);
+        add(builder, 38, "engineType", DataType.UNSIGNED8);
+        add(builder, 39, "engineId", DataType.UNSIGNED8);
+        add(builder, 40, "exportedOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 41, "exportedMessageTotalCount", DataType.UNSIGNED64);
+        add(builder, 42, "exportedFlowRecordTotalCount", DataType.UNSIGNED64);
+        add(builder, 43, "ipv4RouterSc", DataType.IPV4ADDRESS);
+        add(builder, 44, "sourceIPv4Prefix", DataType.IPV4ADDRESS);
+        add(builder, 45, "destinationIPv4Prefix", DataType.IPV4ADDRESS);
+        add(builder, 46, "mplsTopLabelType", DataType.UNSIGNED8);
+        add(builder, 47, "mplsTopLabelIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 48, "samplerId", DataType.UNSIGNED8);
+        add(builder, 49, "samplerMode", DataType.UNSIGNED8);
+        add(builder, 50, "samplerRandomInterval", DataType.UNSIGNED32);
+        add(builder, 51, "classId", DataType.UNSIGNED8);
+        add(builder, 52, "minimumTTL", DataType.UNSIGNED8);
+        add(builder, 53, "maximumTTL", DataType.UNSIGNED8);
+        add(builder, 54, "fragmentIdentification", DataType.UNSIGNED32);
+        add(builder, 55, "postIpClassOfService", DataType.UNSIGNED8);
+        add(builder, 56, "sourceMacAddress", DataType.MACADDRESS);
+        add(builder, 57, "postDestinationMacAddress", DataType.MACADDRESS);
+        add(builder, 58, "vlanId", DataType.UNSIGNED16);
+        add(builder, 59, "postVlanId", DataType.UNSIGNED16);
+        add(builder, 60, "ipVersion", DataType.UNSIGNED8);
+        add(builder, 61, "flowDirection", DataType.UNSIGNED8);
+        add(builder, 62, "ipNextHopIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 63, "bgpNextHopIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 64, "ipv6ExtensionHeaders", DataType.UNSIGNED32);
+        add(builder, 70, "mplsTopLabelStackSection", DataType.OCTETARRAY);
+        add(builder, 71, "mplsLabelStackSection2", DataType.OCTETARRAY);
+        add(builder, 72, "mplsLabelStackSection3", DataType.OCTETARRAY);
+        add(builder, 73, "mplsLabelStackSection4", DataType.OCTETARRAY);
+        add(builder, 74, "mplsLabelStackSection5", DataType.OCTETARRAY);
+        add(builder, 75, "mplsLabelStackSection6", DataType.OCTETARRAY);
+        add(builder, 76, "mplsLabelStackSection7", DataType.OCTETARRAY);
+        add(builder, 77, "mplsLabelStackSection8", DataType.OCTETARRAY);
+        add(builder, 78, "mplsLabelStackSection9", DataType.OCTETARRAY);
+        add(builder, 79, "mplsLabelStackSection10", DataType.OCTETARRAY);
+        add(builder, 80, "destinationMacAddress", DataType.MACADDRESS);
+        add(builder, 81, "postSourceMacAddress", DataType.MACADDRESS);
+        add(builder, 82, "interfaceName", DataType.STRING);
+        add(builder, 83, "interfaceDescription", DataType.STRING);
+        add(builder, 84, "samplerName", DataType.STRING);
+        add(builder, 85, "octetTotalCount", DataType.UNSIGNED64);
+        add(builder, 86, "packetTotalCount", DataType.UNSIGNED64);
+        add(builder, 87, "flagsAndSamplerId", DataType.UNSIGNED32);
+        add(builder, 88, "fragmentOffset", DataType.UNSIGNED16);
+        add(builder, 89, "forwardingStatus", DataType.UNSIGNED8);
+        add(builder, 90, "mplsVpnRouteDistinguisher", DataType.OCTETARRAY);
+        add(builder, 91, "mplsTopLabelPrefixLength", DataType.UNSIGNED8);
+        add(builder, 92, "srcTrafficIndex", DataType.UNSIGNED32);
+        add(builder, 93, "dstTrafficIndex", DataType.UNSIGNED32);
+        add(builder, 94, "applicationDescription", DataType.STRING);
+        add(builder, 95, "applicationId", DataType.OCTETARRAY);
+        add(builder, 96, "applicationName", DataType.STRING);
+        add(builder, 98, "postIpDiffServCodePoint", DataType.UNSIGNED8);
+        add(builder, 99, "multicastReplicationFactor", DataType.UNSIGNED32);
+        add(builder, 100, "className", DataType.STRING);
+        add(builder, 101, "classificationEngineId", DataType.UNSIGNED8);
+        add(builder, 102, "layer2packetSectionOffset", DataType.UNSIGNED16);
+        add(builder, 103, "layer2packetSectionSize", DataType.UNSIGNED16);
+        add(builder, 104, "layer2packetSectionData", DataType.OCTETARRAY);
+        add(builder, 128, "bgpNextAdjacentAsNumber", DataType.UNSIGNED32);
+        add(builder, 129, "bgpPrevAdjacentAsNumber", DataType.UNSIGNED32);
+        add(builder, 130, "exporterIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 131, "exporterIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 132, "droppedOctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 133, "droppedPacketDeltaCount", DataType.UNSIGNED64);
+        add(builder, 134, "droppedOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 135, "droppedPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 136, "flowEndReason", DataType.UNSIGNED8);
+        add(builder, 137, "commonPropertiesId", DataType.UNSIGNED64);
+        add(builder, 138, "observationPointId", DataType.UNSIGNED64);
+        add(builder, 139, "icmpTypeCodeIPv6", DataType.UNSIGNED16);
+        add(builder, 140, "mplsTopLabelIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 141, "lineCardId", DataType.UNSIGNED32);
+        add(builder, 142, "portId", DataType.UNSIGNED32);
+        add(builder, 143, "meteringProcessId", DataType.UNSIGNED32);
+        add(builder, 144, "exportingProcessId", DataType.UNSIGNED32);
+        add(builder, 145, "templateId", DataType.UNSIGNED16);
+        add(builder, 146, "wlanChannelId", DataType.UNSIGNED8);
+        add(builder, 147, "wlanSSID", DataType.STRING);
+        add(builder, 148, "flowId", DataType.UNSIGNED64);
+        add(builder, 149, "observationDomainId", DataType.UNSIGNED32);
+        add(builder, 150, "flowStartSeconds", DataType.DATETIMESECONDS);
+        add(builder, 151, "flowEndSeconds", DataType.DATETIMESECONDS);
+        add(builder, 152, "flowStartMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 153, "flowEndMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 154, "flowStartMicroseconds", DataType.DATETIMEMICROSECONDS);
+        add(builder, 155, "flowEndMicroseconds", DataType.DATETIMEMICROSECONDS);
+        add(builder, 156, "flowStartNanoseconds", DataType.DATETIMENANOSECONDS);
+        add(builder, 157, "flowEndNanoseconds", DataType.DATETIMENANOSECONDS);
+        add(builder, 158, "flowStartDeltaMicroseconds", DataType.UNSIGNED32);
+        add(builder, 159, "flowEndDeltaMicroseconds", DataType.UNSIGNED32);
+        add(builder, 160, "systemInitTimeMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 161, "flowDurationMilliseconds", DataType.UNSIGNED32);
+        add(builder, 162, "flowDurationMicroseconds", DataType.UNSIGNED32);
+        add(builder, 163, "observedFlowTotalCount", DataType.UNSIGNED64);
+        add(builder, 164, "ignoredPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 165, "ignoredOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 166, "notSentFlowTotalCount", DataType.UNSIGNED64);
+        add(builder, 167, "notSentPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 168, "notSentOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 169, "destinationIPv6Prefix", DataType.IPV6ADDRESS);
+        add(builder, 170, "sourceIPv6Prefix", DataType.IPV6ADDRESS);
+        add(builder, 171, "postOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 172, "postPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 173, "flowKeyIndicator", DataType.UNSIGNED64);
+        add(builder, 174, "postMCastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 175, "postMCastOctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 176, "icmpTypeIPv4", DataType.UNSIGNED8);
+        add(builder, 177, "icmpCodeIPv4", DataType.UNSIGNED8);
+        add(builder, 178, "icmpTypeIPv6", DataType.UNSIGNED8);
+        add(builder, 179, "icmpCodeIPv6", DataType.UNSIGNED8);
+        add(builder, 180, "udpSourcePort", DataType.UNSIGNED16);
+        add(builder, 181, "udpDestinationPort", DataType.UNSIGNED16);
+        add(builder, 182, "tcpSourcePort", DataType.UNSIGNED16);
+        add(builder, 183, "tcpDestinationPort", DataType.UNSIGNED16);
+        add(builder, 184, "tcpSequenceNumber", DataType.UNSIGNED32);
+        add(builder, 185, "tcpAcknowledgementNumber", DataType.UNSIGNED32);
+        add(builder, 186, "tcpWindowSize", DataType.UNSIGNED16);
+        add(builder, 187, "tcpUrgentPointer", DataType.UNSIGNED16);
+        add(builder, 188, "tcpHeaderLength", DataType.UNSIGNED8);
+        add(builder, 189, "ipHeaderLength", DataType.UNSIGNED8);
+        add(builder, 190, "totalLengthIPv4", DataType.UNSIGNED16);
+        add(builder, 191, "payloadLengthIPv6", DataType.UNSIGNED16);
+        add(builder, 192, "ipTTL", DataType.UNSIGNED8);
+        add(builder, 193, "nextHeaderIPv6", DataType.UNSIGNED8);
+        add(builder, 194, "mplsPayloadLength", DataType.UNSIGNED32);
+        add(builder, 195, "ipDiffServCodePoint", DataType.UNSIGNED8);
+        add(builder, 196, "ipPrecedence", DataType.UNSIGNED8);
+        add(builder, 197, "fragmentFlags", DataType.UNSIGNED8);
+        add(builder, 198, "octetDeltaSumOfSquares", DataType.UNSIGNED64);
+        add(builder, 199, "octetTotalSumOfSquares", DataType.UNSIGNED64);
+        add(builder, 200, "mplsTopLabelTTL", DataType.UNSIGNED8);
+        add(builder, 201, "mplsLabelStackLength", DataType.UNSIGNED32);
+        add(builder, 202, "mplsLabelStackDepth", DataType.UNSIGNED32);
+        add(builder, 203, "mplsTopLabelExp", DataType.UNSIGNED8);
+        add(builder, 204, "ipPayloadLength", DataType.UNSIGNED32);
+        add(builder, 205, "udpMessageLength", DataType.UNSIGNED16);
+        add(builder, 206, "isMulticast", DataType.UNSIGNED8);
+        add(builder, 207, "ipv4IHL", DataType.UNSIGNED8);
+        add(builder, 208, "ipv4Options", DataType.UNSIGNED32);
+        add(builder, 209, "tcpOptions", DataType.UNSIGNED64);
+        add(builder, 210, "paddingOctets", DataType.OCTETARRAY);
+        add(builder, 211, "collectorIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 212, "collectorIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 213, "exportInterface", DataType.UNSIGNED32);
+        add(builder, 214, "exportProtocolVersion", DataType.UNSIGNED8);
+        add(builder, 215, "exportTransportProtocol", DataType.UNSIGNED8);
+        add(builder, 216, "collectorTransportPort", DataType.UNSIGNED16);
+        add(builder, 217, "exporterTransportPort", DataType.UNSIGNED16);
+        add(builder, 218, "tcpSynTotalCount", DataType.UNSIGNED64);
+        add(builder, 219, "tcpFinTotalCount", DataType.UNSIGNED64);
+        add(builder, 220, "tcpRstTotalCount", DataType.UNSIGNED64);
+        add(builder, 221, "tcpPshTotalCount", DataType.UNSIGNED64);
+        add(builder, 222, "tcpAckTotalCount", DataType.UNSIGNED64);
+        add(builder, 223, "tcpUrgTotalCount", DataType.UNSIGNED64);
+        add(builder, 224, "ipTotalLength", DataType.UNSIGNED64);
+        add(builder, 225, "postNATSourceIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 226, "postNATDestinationIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 227, "postNAPTSourceTransportPort", DataType.UNSIGNED16);
+        add(builder, 228, "postNAPTDestinationTransportPort", DataType.UNSIGNED16);
+        add(builder, 229, "natOriginatingAddressRealm", DataType.UNSIGNED8);
+        add(builder, 230, "natEvent", DataType.UNSIGNED8);
+        add(builder, 231, "initiatorOctets", DataType.UNSIGNED64);
+        add(builder, 232, "responderOctets", DataType.UNSIGNED64);
+        add(builder, 233, "firewallEvent", DataType.UNSIGNED8);
+        add(builder, 234, "ingressVRFID", DataType.UNSIGNED32);
+        add(builder, 235, "egressVRFID", DataType.UNSIGNED32);
+        add(builder, 236, "VRFname", DataType.STRING);
+        add(builder, 237, "postMplsTopLabelExp", DataType.UNSIGNED8);
+        add(builder, 238, "tcpWindowScale", DataType.UNSIGNED16);
+        add(builder, 239, "biflowDirection", DataType.UNSIGNED8);
+        add(builder, 240, "ethernetHeaderLength", DataType.UNSIGNED8);
+        add(builder, 241, "ethernetPayloadLength", DataType.UNSIGNED16);
+        add(builder, 242, "ethernetTotalLength", DataType.UNSIGNED16);
+        add(builder, 243, "dot1qVlanId", DataType.UNSIGNED16);
+        add(builder, 244, "dot1qPriority", DataType.UNSIGNED8);
+        add(builder, 245, "dot1qCustomerVlanId", DataType.UNSIGNED16);
+        add(builder, 246, "dot1qCustomerPriority", DataType.UNSIGNED8);
+        add(builder, 247, "metroEvcId", DataType.STRING);
+        add(builder, 248, "metroEvcType", DataType.UNSIGNED8);
+        add(builder, 249, "pseudoWireId", DataType.UNSIGNED32);
+        add(builder, 250, "pseudoWireType", DataType.UNSIGNED16);
+        add(builder, 251, "pseudoWireControlWord", DataType.UNSIGNED32);
+        add(builder, 252, "ingressPhysicalInterface", DataType.UNSIGNED32);
+        add(builder, 253, "egressPhysicalInterface", DataType.UNSIGNED32);
+        add(builder, 254, "postDot1qVlanId", DataType.UNSIGNED16);
+        add(builder, 255, "postDot1qCustomerVlanId", DataType.UNSIGNED16);
+        add(builder, 256, "ethernetType", DataType.UNSIGNED16);
+        add(builder, 257, "postIpPrecedence", DataType.UNSIGNED8);
+        add(builder, 258, "collectionTimeMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 259, "exportSctpStreamId", DataType.UNSIGNED16);
+        add(builder, 260, "maxExportSeconds", DataType.DATETIMESECONDS);
+        add(builder, 261, "maxFlowEndSeconds", DataType.DATETIMESECONDS);
+        add(builder, 262, "messageMD5Checksum", DataType.OCTETARRAY);
+        add(builder, 263, "messageScope", DataType.UNSIGNED8);
+        add(builder, 264, "minExportSeconds", DataType.DATETIMESECONDS);
+        add(builder, 265, "minFlowStartSeconds", DataType.DATETIMESECONDS);
+        add(builder, 266, "opaqueOctets", DataType.OCTETARRAY);
+        add(builder, 267, "sessionScope", DataType.UNSIGNED8);
+        add(builder, 268, "maxFlowEndMicroseconds", DataType.DATETIMEMICROSECONDS);
+        add(builder, 269, "maxFlowEndMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 270, "maxFlowEndNanoseconds", DataType.DATETIMENANOSECONDS);
+        add(builder, 271, "minFlowStartMicroseconds", DataType.DATETIMEMICROSECONDS);
+        add(builder, 272, "minFlowStartMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 273, "minFlowStartNanoseconds", DataType.DATETIMENANOSECONDS);
+        add(builder, 274, "collectorCertificate", DataType.OCTETARRAY);
+        add(builder, 275, "exporterCertificate", DataType.OCTETARRAY);
+        add(builder, 276, "dataRecordsReliability", DataType.BOOLEAN);
+        add(builder, 277, "observationPointType", DataType.UNSIGNED8);
+        add(builder, 278, "newConnectionDeltaCount", DataType.UNSIGNED32);
+        add(builder, 279, "connectionSumDurationSeconds", DataType.UNSIGNED64);
+        add(builder, 280, "connectionTransactionId", DataType.UNSIGNED64);
+        add(builder, 281, "postNATSourceIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 282, "postNATDestinationIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 283, "natPoolId", DataType.UNSIGNED32);
+        add(builder, 284, "natPoolName", DataType.STRING);
+        add(builder, 285, "anonymizationFlags", DataType.UNSIGNED16);
+        add(builder, 286, "anonymizationTechnique", DataType.UNSIGNED16);
+        add(builder, 287, "informationElementIndex", DataType.UNSIGNED16);
+        add(builder, 288, "p2pTechnology", DataType.STRING);
+        add(builder, 289, "tunnelTechnology", DataType.STRING);
+        add(builder, 290, "encryptedTechnology", DataType.STRING);
+        add(builder, 291, "basicList", DataType.BASICLIST);
+        add(builder, 292, "subTemplateList", DataType.SUBTEMPLATELIST);
+        add(builder, 293, "subTemplateMultiList", DataType.SUBTEMPLATEMULTILIST);
+        add(builder, 294, "bgpValidityState", DataType.UNSIGNED8);
+        add(builder, 295, "IPSecSPI", DataType.UNSIGNED32);
+        add(builder, 296, "greKey", DataType.UNSIGNED32);
+        add(builder, 297, "natType", DataType.UNSIGNED8);
+        add(builder, 298, "initiatorPackets", DataType.UNSIGNED64);
+        add(builder, 299, "responderPackets", DataType.UNSIGNED64);
+        add(builder, 300, "observationDomainName", DataType.STRING);
+        add(builder, 301, "selectionSequenceId", DataType.UNSIGNED64);
+        add(builder, 302, "selectorId", DataType.UNSIGNED64);
+        add(builder, 303, "informationElementId", DataType.UNSIGNED16);
+        add(builder, 304, "selectorAlgorithm", DataType.UNSIGNED16);
+        add(builder, 305, "samplingPacketInterval", DataType.UNSIGNED32);
+        add(builder, 306, "samplingPacketSpace", DataType.UNSIGNED32);
+        add(builder, 307, "samplingTimeInterval", DataType.UNSIGNED32);
+        add(builder, 308, "samplingTimeSpace", DataType.UNSIGNED32);
+        add(builder, 309, "samplingSize", DataType.UNSIGNED32);
+        add(builder, 310, "samplingPopulation", DataType.UNSIGNED32);
+        add(builder, 311, "samplingProbability", DataType.FLOAT64);
+        add(builder, 312, "dataLinkFrameSize", DataType.UNSIGNED16);
+        add(builder, 313, "ipHeaderPacketSection", DataType.OCTETARRAY);
+        add(builder, 314, "ipPayloadPacketSection", DataType.OCTETARRAY);
+        add(builder, 315, "dataLinkFrameSection", DataType.OCTETARRAY);
+        add(builder, 316, "mplsLabelStackSection", DataType.OCTETARRAY);
+        add(builder, 317, "mplsPayloadPacketSection", DataType.OCTETARRAY);
+        add(builder, 318, "selectorIdTotalPktsObserved", DataType.UNSIGNED64);
+        add(builder, 319, "selectorIdTotalPktsSelected", DataType.UNSIGNED64);
+        add(builder, 320, "absoluteError", DataType.FLOAT64);
+        add(builder, 321, "relativeError", DataType.FLOAT64);
+        add(builder, 322, "observationTimeSeconds", DataType.DATETIMESECONDS);
+        add(builder, 323, "observationTimeMilliseconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 324, "observationTimeMicroseconds", DataType.DATETIMEMICROSECONDS);
+        add(builder, 325, "observationTimeNanoseconds", DataType.DATETIMENANOSECONDS);
+        add(builder, 326, "digestHashValue", DataType.UNSIGNED64);
+        add(builder, 327, "hashIPPayloadOffset", DataType.UNSIGNED64);
+        add(builder, 328, "hashIPPayloadSize", DataType.UNSIGNED64);
+        add(builder, 329, "hashOutputRangeMin", DataType.UNSIGNED64);
+        add(builder, 330, "hashOutputRangeMax", DataType.UNSIGNED64);
+        add(builder, 331, "hashSelectedRangeMin", DataType.UNSIGNED64);
+        add(builder, 332, "hashSelectedRangeMax", DataType.UNSIGNED64);
+        add(builder, 333, "hashDigestOutput", DataType.BOOLEAN);
+        add(builder, 334, "hashInitialiserValue", DataType.UNSIGNED64);
+        add(builder, 335, "selectorName", DataType.STRING);
+        add(builder, 336, "upperCILimit", DataType.FLOAT64);
+        add(builder, 337, "lowerCILimit", DataType.FLOAT64);
+        add(builder, 338, "confidenceLevel", DataType.FLOAT64);
+        add(builder, 339, "informationElementDataType", DataType.UNSIGNED8);
+        add(builder, 340, "informationElementDescription", DataType.STRING);
+        add(builder, 341, "informationElementName", DataType.STRING);
+        add(builder, 342, "informationElementRangeBegin", DataType.UNSIGNED64);
+        add(builder, 343, "informationElementRangeEnd", DataType.UNSIGNED64);
+        add(builder, 344, "informationElementSemantics", DataType.UNSIGNED8);
+        add(builder, 345, "informationElementUnits", DataType.UNSIGNED16);
+        add(builder, 346, "privateEnterpriseNumber", DataType.UNSIGNED32);
+        add(builder, 347, "virtualStationInterfaceId", DataType.OCTETARRAY);
+        add(builder, 348, "virtualStationInterfaceName", DataType.STRING);
+        add(builder, 349, "virtualStationUUID", DataType.OCTETARRAY);
+        add(builder, 350, "virtualStationName", DataType.STRING);
+        add(builder, 351, "layer2SegmentId", DataType.UNSIGNED64);
+        add(builder, 352, "layer2OctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 353, "layer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 354, "ingressUnicastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 355, "ingressMulticastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 356, "ingressBroadcastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 357, "egressUnicastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 358, "egressBroadcastPacketTotalCount", DataType.UNSIGNED64);
+        add(builder, 359, "monitoringIntervalStartMilliSeconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 360, "monitoringIntervalEndMilliSeconds", DataType.DATETIMEMILLISECONDS);
+        add(builder, 361, "portRangeStart", DataType.UNSIGNED16);
+        add(builder, 362, "portRangeEnd", DataType.UNSIGNED16);
+        add(builder, 363, "portRangeStepSize", DataType.UNSIGNED16);
+        add(builder, 364, "portRangeNumPorts", DataType.UNSIGNED16);
+        add(builder, 365, "staMacAddress", DataType.MACADDRESS);
+        add(builder, 366, "staIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 367, "wtpMacAddress", DataType.MACADDRESS);
+        add(builder, 368, "ingressInterfaceType", DataType.UNSIGNED32);
+        add(builder, 369, "egressInterfaceType", DataType.UNSIGNED32);
+        add(builder, 370, "rtpSequenceNumber", DataType.UNSIGNED16);
+        add(builder, 371, "userName", DataType.STRING);
+        add(builder, 372, "applicationCategoryName", DataType.STRING);
+        add(builder, 373, "applicationSubCategoryName", DataType.STRING);
+        add(builder, 374, "applicationGroupName", DataType.STRING);
+        add(builder, 375, "originalFlowsPresent", DataType.UNSIGNED64);
+        add(builder, 376, "originalFlowsInitiated", DataType.UNSIGNED64);
+        add(builder, 377, "originalFlowsCompleted", DataType.UNSIGNED64);
+        add(builder, 378, "distinctCountOfSourceIPAddress", DataType.UNSIGNED64);
+        add(builder, 379, "distinctCountOfDestinationIPAddress", DataType.UNSIGNED64);
+        add(builder, 380, "distinctCountOfSourceIPv4Address", DataType.UNSIGNED32);
+        add(builder, 381, "distinctCountOfDestinationIPv4Address", DataType.UNSIGNED32);
+        add(builder, 382, "distinctCountOfSourceIPv6Address", DataType.UNSIGNED64);
+        add(builder, 383, "distinctCountOfDestinationIPv6Address", DataType.UNSIGNED64);
+        add(builder, 384, "valueDistributionMethod", DataType.UNSIGNED8);
+        add(builder, 385, "rfc3550JitterMilliseconds", DataType.UNSIGNED32);
+        add(builder, 386, "rfc3550JitterMicroseconds", DataType.UNSIGNED32);
+        add(builder, 387, "rfc3550JitterNanoseconds", DataType.UNSIGNED32);
+        add(builder, 388, "dot1qDEI", DataType.BOOLEAN);
+        add(builder, 389, "dot1qCustomerDEI", DataType.BOOLEAN);
+        add(builder, 390, "flowSelectorAlgorithm", DataType.UNSIGNED16);
+        add(builder, 391, "flowSelectedOctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 392, "flowSelectedPacketDeltaCount", DataType.UNSIGNED64);
+        add(builder, 393, "flowSelectedFlowDeltaCount", DataType.UNSIGNED64);
+        add(builder, 394, "selectorIDTotalFlowsObserved", DataType.UNSIGNED64);
+        add(builder, 395, "selectorIDTotalFlowsSelected", DataType.UNSIGNED64);
+        add(builder, 396, "samplingFlowInterval", DataType.UNSIGNED64);
+        add(builder, 397, "samplingFlowSpacing", DataType.UNSIGNED64);
+        add(builder, 398, "flowSamplingTimeInterval", DataType.UNSIGNED64);
+        add(builder, 399, "flowSamplingTimeSpacing", DataType.UNSIGNED64);
+        add(builder, 400, "hashFlowDomain", DataType.UNSIGNED16);
+        add(builder, 401, "transportOctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 402, "transportPacketDeltaCount", DataType.UNSIGNED64);
+        add(builder, 403, "originalExporterIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 404, "originalExporterIPv6Address", DataType.IPV6ADDRESS);
+        add(builder, 405, "originalObservationDomainId", DataType.UNSIGNED32);
+        add(builder, 406, "intermediateProcessId", DataType.UNSIGNED32);
+        add(builder, 407, "ignoredDataRecordTotalCount", DataType.UNSIGNED64);
+        add(builder, 408, "dataLinkFrameType", DataType.UNSIGNED16);
+        add(builder, 409, "sectionOffset", DataType.UNSIGNED16);
+        add(builder, 410, "sectionExportedOctets", DataType.UNSIGNED16);
+        add(builder, 411, "dot1qServiceInstanceTag", DataType.OCTETARRAY);
+        add(builder, 412, "dot1qServiceInstanceId", DataType.UNSIGNED32);
+        add(builder, 413, "dot1qServiceInstancePriority", DataType.UNSIGNED8);
+        add(builder, 414, "dot1qCustomerSourceMacAddress", DataType.MACADDRESS);
+        add(builder, 415, "dot1qCustomerDestinationMacAddress", DataType.MACADDRESS);
+        add(builder, 417, "postLayer2OctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 418, "postMCastLayer2OctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 420, "postLayer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 421, "postMCastLayer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 422, "minimumLayer2TotalLength", DataType.UNSIGNED64);
+        add(builder, 423, "maximumLayer2TotalLength", DataType.UNSIGNED64);
+        add(builder, 424, "droppedLayer2OctetDeltaCount", DataType.UNSIGNED64);
+        add(builder, 425, "droppedLayer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 426, "ignoredLayer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 427, "notSentLayer2OctetTotalCount", DataType.UNSIGNED64);
+        add(builder, 428, "layer2OctetDeltaSumOfSquares", DataType.UNSIGNED64);
+        add(builder, 429, "layer2OctetTotalSumOfSquares", DataType.UNSIGNED64);
+        add(builder, 430, "layer2FrameDeltaCount", DataType.UNSIGNED64);
+        add(builder, 431, "layer2FrameTotalCount", DataType.UNSIGNED64);
+        add(builder, 432, "pseudoWireDestinationIPv4Address", DataType.IPV4ADDRESS);
+        add(builder, 433, "ignoredLayer2FrameTotalCount", DataType.UNSIGNED64);
+        add(builder, 434, "mibObjectValueInteger", DataType.SIGNED32);
+        add(builder, 435, "mibObjectValueOctetString", DataType.OCTETARRAY);
+        add(builder, 436, "mibObjectValueOID", DataType.OCTETARRAY);
+        add(builder, 437, "mibObjectValueBits", DataType.OCTETARRAY);
+        add(builder, 438, "mibObjectValueIPAddress", DataType.IPV4ADDRESS);
+        add(builder, 439, "mibObjectValueCounter", DataType.UNSIGNED64);
+        add(builder, 440, "mibObjectValueGauge", DataType.UNSIGNED32);
+        add(builder, 441, "mibObjectValueTimeTicks", DataType.UNSIGNED32);
+        add(builder, 442, "mibObjectValueUnsigned", DataType.UNSIGNED32);
+        add(builder, 443, "mibObjectValueTable", DataType.SUBTEMPLATELIST);
+        add(builder, 444, "mibObjectValueRow", DataType.SUBTEMPLATELIST);
+        add(builder, 445, "mibObjectIdentifier", DataType.OCTETARRAY);
+        add(builder, 446, "mibSubIdentifier", DataType.UNSIGNED32);
+        add(builder, 447, "mibIndexIndicator", DataType.UNSIGNED64);
+        add(builder, 448, "mibCaptureTimeSemantics", DataType.UNSIGNED8);
+        add(builder, 449, "mibContextEngineID", DataType.OCTETARRAY);
+        add(builder, 450, "mibContextName", DataType.STRING);
+        add(builder, 451, "mibObjectName", DataType.STRING);
+        add(builder, 452, "mibObjectDescription", DataType.STRING);
+        add(builder, 453, "mibObjectSyntax", DataType.STRING);
+        add(builder, 454, "mibModuleName", DataType.STRING);
+        add(builder, 455, "mobileIMSI", DataType.STRING);
+        add(builder, 456, "mobileMSISDN", DataType.STRING);
+        add(builder, 457, "httpStatusCode", DataType.UNSIGNED16);
+        add(builder, 458, "sourceTransportPortsLimit", DataType.UNSIGNED16);
+        add(builder, 459, "httpRequestMethod", DataType.STRING);
+        add(builder, 460, "httpRequestHost", DataType.STRING);
+        add(builder, 461, "httpRequestTarget", DataType.STRING);
+        add(builder, 462, "httpMessageVersion", DataType.STRING);
+        add(builder, 463, "natInstanceID", DataType.UNSIGNED32);
+        add(builder, 464, "internalAddressRealm", DataType.OCTETARRAY);
+        add(builder, 465, "externalAddressRealm", DataType.OCTETARRAY);
+        add(builder, 466, "natQuotaExceededEvent", DataType.UNSIGNED32);
+        add(builder, 467, "natThresholdEvent", DataType.UNSIGNED32);
+        add(builder, 468, "httpUserAgent", DataType.STRING);
+        add(builder, 469, "httpContentType", DataType.STRING);
+        add(builder, 470, "httpReasonPhrase", DataType.STRING);
+        add(builder, 471, "maxSessionEntries", DataType.UNSIGNED32);
+        add(builder, 472, "maxBIBEntries", DataType.UNSIGNED32);
+        add(builder, 473, "maxEntriesPerUser", DataType.UNSIGNED32);
+        add(builder, 474, "maxSubscribers", DataType.UNSIGNED32);
+        add(builder, 475, "maxFragmentsPendingReassembly", DataType.UNSIGNED32);
+        add(builder, 476, "addressPoolHighThreshold", DataType.UNSIGNED32);
+        add(builder, 477, "addressPoolLowThreshold", DataType.UNSIGNED32);
+        add(builder, 478, "addressPortMappingHighThreshold", DataType.UNSIGNED32);
+        add(builder, 479, "addressPortMappingLowThreshold", DataType.UNSIGNED32);
+        add(builder, 480, "addressPortMappingPerUserHighThreshold", DataType.UNSIGNED32);
+        add(builder, 481, "globalAddressMappingHighThreshold", DataType.UNSIGNED32);
+        add(builder, 482, "vpnIdentifier", DataType.OCTETARRAY);
+        add(builder, 483, "bgpCommunity", DataType.UNSIGNED32);
+        add(builder, 484, "bgpSourceCommunityList", DataType.BASICLIST);
+        add(builder, 485, "bgpDestinationCommunityList", DataType.BASICLIST);
+        add(builder, 486, "bgpExtendedCommunity", DataType.OCTETARRAY);
+        add(builder, 487, "bgpSourceExtendedCommunityList", DataType.BASICLIST);
+        add(builder, 488, "bgpDestinationExtendedCommunityList", DataType.BASICLIST);
+        add(builder, 489, "bgpLargeCommunity", DataType.OCTETARRAY);
+        add(builder, 490, "bgpSourceLargeCommunityList", DataType.BASICLIST);
+        add(builder, 491, "bgpDestinationLargeCommunityList", DataType.BASICLIST);
+        return builder.build();
+    }
+}
@@ -22,9 +22,18 @@ import java.util.Locale;
 
 @AutoValue
 public abstract class InformationElementDefinition {
+    /**
+     * Definition returned for all information elements without a known definition, their values are skipped by length.
+     */
+    public static final InformationElementDefinition UNKNOWN = new AutoValue_InformationElementDefinition(DataType.UNKNOWN, "unknown", -1);
+
     public static InformationElementDefinition create(String dataType, String fieldName, int id) {
         final String cleanDataType = dataType.trim().toUpperCase(Locale.ENGLISH);
-        return new AutoValue_InformationElementDefinition(DataType.valueOf(cleanDataType), fieldName, id);
+        return create(DataType.valueOf(cleanDataType), fieldName, id);
+    }
+
+    public static InformationElementDefinition create(DataType dataType, String fieldName, int id) {
+        return new AutoValue_InformationElementDefinition(dataType, fieldName, id);
     }
 
     public abstract DataType dataType();
@@ -33,6 +42,9 @@ public abstract class InformationElementDefinition {
 
     public abstract int id();
 
+    public boolean isUnknown() {
+        return dataType() == DataType.UNKNOWN;
+    }
 
     public enum DataType {
         UNSIGNED8,
@@ -58,5 +70,7 @@ public abstract class InformationElementDefinition {
         BASICLIST,
         SUBTEMPLATELIST,
         SUBTEMPLATEMULTILIST,
+        // not an IPFIX data type, marks elements without a definition
+        UNKNOWN,
     }
 }
@@ -25,7 +25,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Holds the information element definitions for the IANA assigned IPFIX information elements, as well as the
@@ -37,32 +39,46 @@ import java.util.Map;
 public class InformationElementDefinitions {
     private static final Logger LOG = LoggerFactory.getLogger(InformationElementDefinitions.class);
 
+    private static final InformationElementDefinition[] NO_DEFINITIONS = new InformationElementDefinition[0];
+    private static final long[] NO_KEYS = new long[0];
+    // rough heap usage of a definition, its field name and its entries in the lookup tables, excluding the name's characters
+    private static final int DEFINITION_OVERHEAD_BYTES = 120;
+
     private Map<Long, Map<Integer, InformationElementDefinition>> penToIedsMap = Maps.newHashMap();
 
+    // lookup tables built from penToIedsMap, so that looking up a definition does not box the id and enterprise number:
+    // IANA element ids are small and dense, so they index an array directly, while the enterprise specific definitions
+    // are sorted by their combined enterprise number and element id for a binary search
+    private InformationElementDefinition[] ianaDefinitions = NO_DEFINITIONS;
+    private long[] enterpriseKeys = NO_KEYS;
+    private InformationElementDefinition[] enterpriseDefinitions = NO_DEFINITIONS;
+
     public InformationElementDefinitions(URL... definitionFiles) {
+        this(ImmutableMap.of(), definitionFiles);
+    }
+
+    private InformationElementDefinitions(Map<Long, Map<Integer, InformationElementDefinition>> initialDefinitions, URL... definitionFiles) {
+        penToIedsMap.putAll(initialDefinitions);
         LOG.debug("Reading information element definition file with private enterprise numbers.");
         final ObjectMapper objectMapper = new ObjectMapper();
         for (URL file : definitionFiles) {
             try {
                 final JsonNode jsonNode = objectMapper.readTree(file);
-                final long enterpriseNumber = jsonNode.get("enterprise_number").asLong();
-                ImmutableMap.Builder<Integer, InformationElementDefinition> iedBuilder = ImmutableMap.builder();
-                jsonNode.path("information_elements").elements()
-                        .forEachRemaining(ied -> {
-                            final int elementId = ied.get("element_id").asInt();
-                            final String dataType = ied.get("data_type").asText();
-                            final String fieldName = ied.get("name").asText();
-                            iedBuilder.put(elementId, InformationElementDefinition.create(dataType, fieldName, elementId));
-                        });
-                penToIedsMap.put(enterpriseNumber, iedBuilder.build());
+                addDefinitions(jsonNode);
             } catch (IOException e) {
                 LOG.error("Unable to read information element definition file", e);
             }
         }
+        buildLookupTables();
     }
 
     Map<Long, Map<Integer, InformationElementDefinition>> buildPenToIedsMap(JsonNode jsonNode) {
+        addDefinitions(jsonNode);
+        buildLookupTables();
+        return penToIedsMap;
+    }
 
+    private void addDefinitions(JsonNode jsonNode) {
         final long enterpriseNumber = jsonNode.get("enterprise_number").asLong();
         ImmutableMap.Builder<Integer, InformationElementDefinition> iedBuilder = ImmutableMap.builder();
         jsonNode.path("information_elements").elements()
@@ -73,18 +89,87 @@ public class InformationElementDefinitions {
                     iedBuilder.put(elementId, InformationElementDefinition.create(dataType, fieldName, elementId));
                 });
         penToIedsMap.put(enterpriseNumber, iedBuilder.build());
-        return penToIedsMap;
+    }
+
+    private void buildLookupTables() {
+        final Map<Integer, InformationElementDefinition> iana = penToIedsMap.getOrDefault(0L, ImmutableMap.of());
+        final int maxId = iana.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        final InformationElementDefinition[] ianaTable = new InformationElementDefinition[maxId + 1];
+        iana.forEach((id, definition) -> ianaTable[id] = definition);
+
+        final TreeMap<Long, InformationElementDefinition> enterprise = new TreeMap<>();
+        penToIedsMap.forEach((enterpriseNumber, definitions) -> {
+            if (enterpriseNumber != 0L) {
+                definitions.forEach((id, definition) -> enterprise.put(key(enterpriseNumber, id), definition));
+            }
+        });
+        final long[] keys = new long[enterprise.size()];
+        final InformationElementDefinition[] definitions = new InformationElementDefinition[enterprise.size()];
+        int i = 0;
+        for (Map.Entry<Long, InformationElementDefinition> entry : enterprise.entrySet()) {
+            keys[i] = entry.getKey();
+            definitions[i] = entry.getValue();
+            i++;
+        }
+
+        this.ianaDefinitions = ianaTable;
+        this.enterpriseKeys = keys;
+        this.enterpriseDefinitions = definitions;
+    }
+
+    private static long key(long enterpriseNumber, int id) {
+        // element ids only have 15 bits, the enterprise bit is not part of the id
+        return (enterpriseNumber << 16) | id;
     }
 
     public static InformationElementDefinitions empty() {
         return new InformationElementDefinitions();
     }
 
+    /**
+     * Creates the definitions from the built-in IANA information elements, which are compiled into the plugin and shared,
+     * extended by the given definition files.
+     *
+     * @param definitionFiles additional definition files, typically for private enterprise numbers
+     * @return the definitions
+     */
+    public static InformationElementDefinitions withStandardDefinitions(URL... definitionFiles) {
+        return new InformationElementDefinitions(ImmutableMap.of(0L, IanaInformationElements.DEFINITIONS), definitionFiles);
+    }
+
+    /**
+     * @return a rough estimate of the heap used by the definitions, in bytes
+     */
+    public long estimatedSizeBytes() {
+        long bytes = 0;
+        for (Map<Integer, InformationElementDefinition> definitions : penToIedsMap.values()) {
+            for (InformationElementDefinition definition : definitions.values()) {
+                bytes += DEFINITION_OVERHEAD_BYTES + definition.fieldName().length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Looks up the definition of an information element.
+     *
+     * @param id               the element id, without the enterprise bit
+     * @param enterpriseNumber the private enterprise number, 0 for IANA assigned elements
+     * @return the definition, or {@link InformationElementDefinition#UNKNOWN} if the element is unknown
+     */
     public InformationElementDefinition getDefinition(int id, long enterpriseNumber) {
-        final Map<Integer, InformationElementDefinition> penMapping = penToIedsMap.get(enterpriseNumber);
-        if (penMapping == null) {
-            throw new IpfixException("Missing information element definitions for private enterprise number " + enterpriseNumber);
+        InformationElementDefinition definition = null;
+        if (enterpriseNumber == 0L) {
+            final InformationElementDefinition[] iana = ianaDefinitions;
+            if (id >= 0 && id < iana.length) {
+                definition = iana[id];
+            }
+        } else {
+            final int index = Arrays.binarySearch(enterpriseKeys, key(enterpriseNumber, id));
+            if (index >= 0) {
+                definition = enterpriseDefinitions[index];
+            }
         }
-        return penMapping.get(id);
+        return definition == null ? InformationElementDefinition.UNKNOWN : definition;
     }
 }
@@ -16,26 +16,22 @@
  */
 package org.graylog.integrations.ipfix;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
-import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.util.Locale;
+import javax.annotation.Nonnull;
 import java.util.Map;
 import java.util.Set;
 
@@ -59,10 +55,39 @@ public class IpfixParser {
     private static final int SETID_TEMPLATE = 2;
     private static final int SETID_OPTIONSTEMPLATE = 3;
 
+    // upper bound for the number of distinct templates we keep compiled decoders for
+    private static final int MAX_CACHED_DECODERS = 10_000;
+
+    // number of recently formatted IP addresses to keep by default
+    public static final int DEFAULT_ADDRESS_CACHE_SIZE = 1024;
+
     private final InformationElementDefinitions infoElemDefs;
+    private final LoadingCache<ImmutableList<InformationElement>, TemplateDecoder> decoders;
+    private final AddressCache addressCache;
+    private final FieldFilter fieldFilter;
 
     public IpfixParser(InformationElementDefinitions informationElementDefinitions) {
+        this(informationElementDefinitions, DEFAULT_ADDRESS_CACHE_SIZE, FieldFilter.ALL);
+    }
+
+    /**
+     * @param informationElementDefinitions the information element definitions
+     * @param addressCacheSize              the number of recently formatted IP addresses to reuse, 0 disables the cache,
+     *                                      the cache is shared with all other parsers using the same size
+     * @param fieldFilter                   selects the fields to decode from data records, all other fields are skipped
+     */
+    public IpfixParser(InformationElementDefinitions informationElementDefinitions, int addressCacheSize, FieldFilter fieldFilter) {
         this.infoElemDefs = informationElementDefinitions;
+        this.addressCache = AddressCache.shared(addressCacheSize);
+        this.fieldFilter = fieldFilter;
+        this.decoders = CacheBuilder.newBuilder()
+                                    .maximumSize(MAX_CACHED_DECODERS)
+                                    .build(new CacheLoader<ImmutableList<InformationElement>, TemplateDecoder>() {
+                                        @Override
+                                        public TemplateDecoder load(@Nonnull ImmutableList<InformationElement> informationElements) {
+                                            return TemplateDecoder.compile(informationElements, IpfixParser.this, fieldFilter);
+                                        }
+                                    });
     }
 
     /**
@@ -105,7 +130,7 @@ public class IpfixParser {
                     messageDescription.addOptionsTemplateSet(optionsTemplateSet);
                     break;
                 default:
-                    final ShallowDataSet dataSet = shallowParseDataSet(setId, setLength, setContent, header.exportTime());
+                    final ShallowDataSet dataSet = shallowParseDataSet(setId, setLength, setContent, header.exportTimeEpochSeconds());
                     messageDescription.addDataSet(dataSet);
                     break;
             }
@@ -123,8 +148,7 @@ public class IpfixParser {
         LOG.debug("Attempting a shallow parse on template set.");
         final ImmutableList.Builder<ShallowTemplateSet.Record> builder = ImmutableList.builder();
         while (setContent.isReadable()) {
-            // remember current read index so we can make a copy of the entire template record after parsing it
-            setContent.markReaderIndex();
+            // remember current read index so we can slice the entire template record after parsing it
             final int lowerReaderIndex = setContent.readerIndex();
             final int templateId = setContent.readUnsignedShort();
             final int fieldCount = setContent.readUnsignedShort();
@@ -133,11 +157,9 @@ public class IpfixParser {
                 // record length from just the header :/
                 parseInformationElement(setContent);
             }
-            // copy entire template record for later
+            // keep entire template record for later, without copying it
             final int upperReaderIndex = setContent.readerIndex();
-            final byte[] recordBytes = new byte[upperReaderIndex - lowerReaderIndex];
-            setContent.resetReaderIndex();
-            setContent.readBytes(recordBytes);
+            final ByteBuf recordBytes = setContent.slice(lowerReaderIndex, upperReaderIndex - lowerReaderIndex);
 
             builder.add(new ShallowTemplateSet.Record(templateId, recordBytes));
         }
@@ -153,8 +175,7 @@ public class IpfixParser {
         LOG.debug("Attempting a shallow parse on options template set.");
         final ImmutableList.Builder<ShallowOptionsTemplateSet.Record> builder = ImmutableList.builder();
         while (setContent.isReadable()) {
-            // remember current read index so we can make a copy of the entire template record after parsing it
-            setContent.markReaderIndex();
+            // remember current read index so we can slice the entire template record after parsing it
             final int lowerReaderIndex = setContent.readerIndex();
             final int templateId = setContent.readUnsignedShort();
             final int fieldCount = setContent.readUnsignedShort();
@@ -164,27 +185,25 @@ public class IpfixParser {
                 // record length from just the header :/
                 parseInformationElement(setContent);
             }
-            // copy entire template record for later
+            // keep entire template record for later, without copying it
             final int upperReaderIndex = setContent.readerIndex();
-            final byte[] recordBytes = new byte[upperReaderIndex - lowerReaderIndex];
-            setContent.resetReaderIndex();
-            setContent.readBytes(recordBytes);
+            final ByteBuf recordBytes = setContent.slice(lowerReaderIndex, upperReaderIndex - lowerReaderIndex);
 
             builder.add(new ShallowOptionsTemplateSet.Record(templateId, recordBytes));
         }
         return ShallowOptionsTemplateSet.create(builder.build());
     }
 
-    private ShallowDataSet shallowParseDataSet(int id, int length, ByteBuf setContent, ZonedDateTime exportTime) {
+    private ShallowDataSet shallowParseDataSet(int id, int length, ByteBuf setContent, long exportTimeEpochSeconds) {
         // the entire data set content minus the template id and length field
         // contains all data records, for which we need the corresponding template records to parse them
+        // the set content already is a slice of the packet, so we can simply hold on to it
         LOG.debug("Attempting a shallow parse on dataset.");
-        final byte[] setBytes = new byte[length - 4];
-        setContent.readBytes(setBytes);
-        return ShallowDataSet.create(id, exportTime.toEpochSecond(), setBytes);
+        final ByteBuf setBytes = setContent.readSlice(length - 4);
+        return ShallowDataSet.create(id, exportTimeEpochSeconds, setBytes);
     }
 
-    private InformationElement parseInformationElement(ByteBuf buffer) {
+    static InformationElement parseInformationElement(ByteBuf buffer) {
         final int idAndEnterpriseBit = buffer.readUnsignedShort();
         int id = idAndEnterpriseBit;
         long enterpriseNumber = 0;
@@ -206,10 +225,7 @@ public class IpfixParser {
         final long exportTime = buffer.readUnsignedInt();
         final long sequenceNumber = buffer.readUnsignedInt();
         final long observationDomainId = buffer.readUnsignedInt();
-        return MessageHeader.create(packetLength,
-                                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(exportTime), ZoneOffset.UTC),
-                                    sequenceNumber,
-                                    observationDomainId);
+        return MessageHeader.create(packetLength, exportTime, sequenceNumber, observationDomainId);
     }
 
     /**
@@ -330,268 +346,48 @@ public class IpfixParser {
      * @return collection of parsed flows
      */
     public Set<Flow> parseDataSet(ImmutableList<InformationElement> informationElements, Map<Integer, TemplateRecord> templateMap, ByteBuf setContent) {
-        ImmutableSet.Builder<Flow> flowBuilder = ImmutableSet.builder();
-        while (setContent.isReadable()) {
-            final ImmutableMap.Builder<String, Object> fields = ImmutableMap.builder();
-            for (InformationElement informationElement : informationElements) {
-                InformationElementDefinition desc = infoElemDefs.getDefinition(informationElement.id(), informationElement.enterpriseNumber());
-                switch (desc.dataType()) {
-                    // these are special because they can use reduced-size encoding (RFC 7011 Sec 6.2)
-                    case UNSIGNED8:
-                    case UNSIGNED16:
-                    case UNSIGNED32:
-                    case UNSIGNED64:
-                        long unsignedValue;
-                        switch (informationElement.length()) {
-                            case 1:
-                                unsignedValue = setContent.readUnsignedByte();
-                                break;
-                            case 2:
-                                unsignedValue = setContent.readUnsignedShort();
-                                break;
-                            case 3:
-                                unsignedValue = setContent.readUnsignedMedium();
-                                break;
-                            case 4:
-                                unsignedValue = setContent.readUnsignedInt();
-                                break;
-                            case 5:
-                            case 6:
-                            case 7:
-                            case 8:
-                                byte[] bytesBigEndian = {0, 0, 0, 0, 0, 0, 0, 0};
-                                int firstIndex = 8 - informationElement.length();
-                                setContent.readBytes(bytesBigEndian, firstIndex, informationElement.length());
-                                unsignedValue = Longs.fromByteArray(bytesBigEndian);
-                                break;
-                            default:
-                                throw new IpfixException("Unexpected length for unsigned integer");
-                        }
-                        fields.put(desc.fieldName(), unsignedValue);
-                        break;
-                    case SIGNED8:
-                    case SIGNED16:
-                    case SIGNED32:
-                    case SIGNED64:
-                        long signedValue;
-                        switch (informationElement.length()) {
-                            case 1:
-                                signedValue = setContent.readByte();
-                                break;
-                            case 2:
-                                signedValue = setContent.readShort();
-                                break;
-                            case 3:
-                                signedValue = setContent.readMedium();
-                                break;
-                            case 4:
-                                signedValue = setContent.readUnsignedInt();
-                                break;
-                            case 5:
-                            case 6:
-                            case 7:
-                            case 8:
-                                byte[] bytesBigEndian = {0, 0, 0, 0, 0, 0, 0, 0};
-                                int firstIndex = 8 - informationElement.length() - 1;
-                                setContent.readBytes(bytesBigEndian, firstIndex, informationElement.length());
-                                signedValue = Longs.fromByteArray(bytesBigEndian);
-                                break;
-                            default:
-                                throw new IpfixException("Unexpected length for unsigned integer");
-                        }
-                        fields.put(desc.fieldName(), signedValue);
-                        break;
-                    case FLOAT32:
-                    case FLOAT64:
-                        double floatValue;
-                        switch (informationElement.length()) {
-                            case 4:
-                                floatValue = setContent.readFloat();
-                                break;
-                            case 8:
-                                floatValue = setContent.readDouble();
-                                break;
-                            default:
-                                throw new IpfixException("Unexpected length for float value: " + informationElement.length());
-                        }
-                        fields.put(desc.fieldName(), floatValue);
-                        break;
-                    // the remaining types aren't subject to reduced-size encoding
-                    case MACADDRESS:
-                        byte[] macBytes = new byte[6];
-                        setContent.readBytes(macBytes);
-                        fields.put(desc.fieldName(),
-                                   String.format(Locale.ROOT, "%02x:%02x:%02x:%02x:%02x:%02x",
-                                                 macBytes[0], macBytes[1], macBytes[2], macBytes[3], macBytes[4], macBytes[5]));
-
-                        break;
-                    case IPV4ADDRESS:
-                        byte[] ipv4Bytes = new byte[4];
-                        setContent.readBytes(ipv4Bytes);
-                        try {
-                            fields.put(desc.fieldName(), InetAddress.getByAddress(ipv4Bytes).getHostAddress());
-                        } catch (UnknownHostException e) {
-                            throw new IpfixException("Unable to parse IPV4 address", e);
-                        }
-                        break;
-                    case IPV6ADDRESS:
-                        byte[] ipv6Bytes = new byte[16];
-                        setContent.readBytes(ipv6Bytes);
-                        try {
-                            fields.put(desc.fieldName(), InetAddress.getByAddress(ipv6Bytes).getHostAddress());
-                        } catch (UnknownHostException e) {
-                            throw new IpfixException("Unable to parse IPV6 address", e);
-                        }
-                        break;
-                    case BOOLEAN:
-                        final byte booleanByte = setContent.readByte();
-                        switch (booleanByte) {
-                            case 1:
-                                fields.put(desc.fieldName(), true);
-                                break;
-                            case 2:
-                                fields.put(desc.fieldName(), false);
-                                break;
-                            default:
-                                throw new IpfixException("Invalid value for boolean: " + booleanByte);
-                        }
-                        break;
-                    case STRING:
-                        final CharSequence charSequence;
-                        if (informationElement.length() == 65535) {
-                            // variable length element, parse accordingly
-                            int length = getVarLength(setContent);
-                            charSequence = setContent.readCharSequence(length, StandardCharsets.UTF_8);
-                        } else {
-                            // fixed length element, just read the string from the buffer
-                            charSequence = setContent.readCharSequence(informationElement.length(), StandardCharsets.UTF_8);
-                        }
-
-                        fields.put(desc.fieldName(), String.valueOf(charSequence).replace("\0", ""));
-                        break;
-                    case OCTETARRAY:
-                        final byte[] octetArray;
-                        if (informationElement.length() == 65535) {
-                            int length = getVarLength(setContent);
-                            octetArray = new byte[length];
-                        } else {
-                            octetArray = new byte[informationElement.length()];
-                        }
-                        setContent.readBytes(octetArray);
-                        fields.put(desc.fieldName(), Hex.encodeHexString(octetArray));
-                        break;
-                    case DATETIMESECONDS:
-                        final long dateTimeSeconds = setContent.readUnsignedInt();
-                        fields.put(desc.fieldName(), ZonedDateTime.ofInstant(Instant.ofEpochSecond(dateTimeSeconds), ZoneOffset.UTC));
-                        break;
-                    case DATETIMEMILLISECONDS:
-                        final long dateTimeMills = setContent.readLong();
-                        fields.put(desc.fieldName(), ZonedDateTime.ofInstant(Instant.ofEpochMilli(dateTimeMills), ZoneOffset.UTC));
-                        break;
-                    case DATETIMEMICROSECONDS:
-                    case DATETIMENANOSECONDS:
-                        final long seconds = setContent.readUnsignedInt();
-                        long fraction = setContent.readUnsignedInt();
-                        if (desc.dataType() == InformationElementDefinition.DataType.DATETIMEMICROSECONDS) {
-                            // bottom 11 bits must be cleared for micros to ensure the precision is correct (RFC 7011 Sec 6.1.9)
-                            fraction = fraction & ~0x7FF;
-                        }
-                        fields.put(desc.fieldName(), ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, fraction), ZoneOffset.UTC));
-                        break;
-                    case BASICLIST: {
-                        // TODO add to field somehow
-                        int length = informationElement.length() == 65535 ? getVarLength(setContent) : setContent.readUnsignedByte();
-                        ByteBuf listBuffer = setContent.readSlice(length);
-                        final short semantic = listBuffer.readUnsignedByte();
-                        final InformationElement element = parseInformationElement(listBuffer);
-                        InformationElementDefinition def = infoElemDefs.getDefinition(element.id(), element.enterpriseNumber());
-                        if (def == null) {
-                            LOG.error("Unable to find information element definition in basicList: id {} PEN {}, this is a bug, cannot parse packet.", element.id(), element.enterpriseNumber());
-                            break;
-                        } else {
-                            LOG.warn("Skipping basicList data ({} bytes)", informationElement.length());
-                            while (listBuffer.isReadable()) {
-                                // simply discard the bytes for now
-                                listBuffer.skipBytes(element.length());
-                            }
-                        }
-                        break;
-                    }
-                    case SUBTEMPLATELIST: {
-                        // there are three possibilities here (compare https://tools.ietf.org/html/rfc6313#section-4.5.2):
-                        //  1. the data set's template has an explicit length
-                        //  2. the length is < 255 encoded as 1 byte, in variable length format (not recommended)
-                        //  3. the length is encoded as 3 bytes, in variable length format (recommended per RFC 6313)
-                        /* encoding format in this case is according to Figure 5:
-                            0                   1                   2                   3
-                            0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1 2 3 4 5 6 7 8 9 0 1
-                           +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                           |   Semantic    |         Template ID           |     ...       |
-                           +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                           |                subTemplateList Content    ...                 |
-                           +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                           |                              ...                              |
-                           +-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+-+
-                          Semantic is one of:
-                            * 0xFF - undefined
-                            * 0x00 - noneOf
-                            * 0x01 - exactlyOneOf
-                            * 0x02 - oneOrMoreOf
-                            * 0x03 - allOf
-                            * 0x04 - ordered
-                         */
-                        int length = informationElement.length() == 65535 ? getVarLength(setContent) : setContent.readUnsignedByte();
-                        // adjust length for semantic + templateId
-                        length -= 3;
-                        LOG.debug("Remaining data buffer:\n{}", ByteBufUtil.prettyHexDump(setContent));
-                        // TODO add to field somehow
-                        final short semantic = setContent.readUnsignedByte();
-                        final int templateId = setContent.readUnsignedShort();
-                        final TemplateRecord templateRecord = templateMap.get(templateId);
-                        if (templateRecord == null) {
-                            LOG.error("Unable to parse subtemplateList, because we don't have the template for it: {}, skipping data ({} bytes)", templateId, length);
-                            setContent.skipBytes(length);
-                            break;
-                        }
-                        final ByteBuf listContent = setContent.readSlice(length);
-                        // if this is not readable, it's an empty list
-                        final ImmutableList.Builder<Flow> flowsBuilder = ImmutableList.builder();
-                        if (listContent.isReadable()) {
-                            flowsBuilder.addAll(parseDataSet(templateRecord.informationElements(), templateMap, listContent));
-                        }
-                        final ImmutableList<Flow> flows = flowsBuilder.build();
-                        // flatten arrays and fields into the field name until we have support for nested objects
-                        for (int i = 0; i < flows.size(); i++) {
-                            final String fieldPrefix = desc.fieldName() + "_" + i + "_";
-                            flows.get(i).fields().forEach((field, value) -> {
-                                fields.put(fieldPrefix + field, value);
-                            });
-                        }
-                        break;
-                    }
-                    case SUBTEMPLATEMULTILIST: {
-                        int length = informationElement.length() == 65535 ? getVarLength(setContent) : setContent.readUnsignedByte();
-                        setContent.skipBytes(length);
-                        LOG.warn("subtemplateMultilist support is not implemented, skipping data ({} bytes)", length);
-                        break;
-                    }
-                }
-            }
-            flowBuilder.add(Flow.create(fields.build()));
-        }
-        return flowBuilder.build();
+        return decoderFor(informationElements).decode(setContent, templateMap);
     }
 
-    private int getVarLength(ByteBuf setContent) {
-        int length;
-        final short firstLengthByte = setContent.readUnsignedByte();
-        if (firstLengthByte == 255) {
-            // > 255 bytes in length, parse two more bytes for actual length
-            length = setContent.readUnsignedShort();
-        } else {
-            length = firstLengthByte;
+    /**
+     * Parses a data set, passing each of its records to the visitor.
+     *
+     * @param informationElements the field information from the template used by this data set
+     * @param templateMap map from template id to its information elements, used for subtemplateLists
+     * @param setContent the data set bytes to parse
+     * @param visitor receives every data record, field by field
+     * @return the number of bytes skipped for fields which are not selected by the field filter
+     * @see #parseDataSet(ImmutableList, Map, ByteBuf)
+     */
+    public long parseDataSet(ImmutableList<InformationElement> informationElements, Map<Integer, TemplateRecord> templateMap, ByteBuf setContent, FlowVisitor visitor) {
+        return decoderFor(informationElements).decode(setContent, templateMap, visitor);
+    }
+
+    /**
+     * Returns the compiled decoder for data records using the given template fields.
+     * <p>
+     * Decoders are compiled on first use and cached, so that all data sets referencing the same template share a single
+     * decoder plan.
+     * </p>
+     *
+     * @param informationElements the field information from the template
+     * @return the compiled decoder
+     */
+    public TemplateDecoder decoderFor(ImmutableList<InformationElement> informationElements) {
+        try {
+            return decoders.getUnchecked(informationElements);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
-        return length;
+    }
+
+    AddressCache addressCache() {
+        return addressCache;
+    }
+
+    InformationElementDefinition getDefinition(int id, long enterpriseNumber) {
+        return infoElemDefs.getDefinition(id, enterpriseNumber);
     }
 
     public TemplateRecord parseTemplateRecord(ByteBuf bytes) {
@@ -18,8 +18,6 @@ package org.graylog.integrations.ipfix;
 
 import com.google.auto.value.AutoValue;
 
-import java.time.ZonedDateTime;
-
 @AutoValue
 public abstract class MessageHeader {
     /**
@@ -29,13 +27,16 @@ public abstract class MessageHeader {
 
     public abstract int length();
 
-    public abstract ZonedDateTime exportTime();
+    /**
+     * @return the export time in seconds since the epoch
+     */
+    public abstract long exportTimeEpochSeconds();
 
     public abstract long sequenceNumber();
 
     public abstract long observationDomainId();
 
-    public static MessageHeader create(int length, ZonedDateTime exportTime, long sequenceNumber, long observationDomainId) {
-        return new AutoValue_MessageHeader(length, exportTime, sequenceNumber, observationDomainId);
+    public static MessageHeader create(int length, long exportTimeEpochSeconds, long sequenceNumber, long observationDomainId) {
+        return new AutoValue_MessageHeader(length, exportTimeEpochSeconds, sequenceNumber, observationDomainId);
     }
 }
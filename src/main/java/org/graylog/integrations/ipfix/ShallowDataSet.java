@@ -17,7 +17,16 @@
 package org.graylog.integrations.ipfix;
 
 import com.google.auto.value.AutoValue;
+import io.netty.buffer.ByteBuf;
 
+/**
+ * A data set whose records have not been parsed yet.
+ * <p>
+ * The content is a slice of the received packet, i.e. it is only valid as long as the packet buffer is. Data sets that
+ * need to outlive the packet must be {@link #retain() retained} or {@link #copy() copied}, and
+ * {@link #release() released} again once they have been processed.
+ * </p>
+ */
 @AutoValue
 public abstract class ShallowDataSet {
 
@@ -25,11 +34,36 @@ public abstract class ShallowDataSet {
 
     public abstract long epochSeconds();
 
-    @SuppressWarnings("mutable")
-    public abstract byte[] content();
+    public abstract ByteBuf content();
 
-    public static ShallowDataSet create(int templateId, long epochSeconds, byte[] content) {
+    public static ShallowDataSet create(int templateId, long epochSeconds, ByteBuf content) {
         return new AutoValue_ShallowDataSet(templateId, epochSeconds, content);
     }
 
+    /**
+     * Creates a copy of this data set whose content is a retained slice of the underlying packet buffer.
+     *
+     * @return the retained data set, which needs to be {@link #release() released} after use
+     */
+    public ShallowDataSet retain() {
+        return create(templateId(), epochSeconds(), content().retainedSlice());
+    }
+
+    /**
+     * Creates a copy of this data set whose content is copied out of the packet buffer, so that it doesn't keep the
+     * whole packet alive. Use this for data sets which may be held on to for a long time.
+     *
+     * @return the copied data set, which needs to be {@link #release() released} after use
+     */
+    public ShallowDataSet copy() {
+        return create(templateId(), epochSeconds(), content().copy());
+    }
+
+    /**
+     * Releases the content of a previously {@link #retain() retained} or {@link #copy() copied} data set.
+     */
+    public void release() {
+        content().release();
+    }
+
 }
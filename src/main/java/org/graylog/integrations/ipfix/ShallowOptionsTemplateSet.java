@@ -18,6 +18,7 @@ package org.graylog.integrations.ipfix;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import io.netty.buffer.ByteBuf;
 
 @AutoValue
 public abstract class ShallowOptionsTemplateSet {
@@ -29,9 +30,9 @@ public abstract class ShallowOptionsTemplateSet {
 
     public static class Record {
         private final int templateId;
-        private final byte[] recordBytes;
+        private final ByteBuf recordBytes;
 
-        public Record(int templateId, byte[] recordBytes) {
+        public Record(int templateId, ByteBuf recordBytes) {
 
             this.templateId = templateId;
             this.recordBytes = recordBytes;
@@ -41,7 +42,10 @@ public abstract class ShallowOptionsTemplateSet {
             return templateId;
         }
 
-        public byte[] getRecordBytes() {
+        /**
+         * @return the bytes of the template record, a slice of the received packet
+         */
+        public ByteBuf getRecordBytes() {
             return recordBytes;
         }
     }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable decoder plan for the data records of one template.
+ * <p>
+ * The information elements of the template are resolved against the information element definitions exactly once,
+ * yielding one {@link FieldDecoder} per field. Decoding a data record then simply runs the field decoders in order,
+ * without any definition lookups or data type dispatch.
+ * Instances are thread-safe and are meant to be cached and shared for all data sets using the same template.
+ * </p>
+ */
+public class TemplateDecoder {
+    private static final Logger LOG = LoggerFactory.getLogger(TemplateDecoder.class);
+
+    private final FieldDecoder[] fieldDecoders;
+    private final int keptFieldCount;
+
+    private TemplateDecoder(FieldDecoder[] fieldDecoders, int keptFieldCount) {
+        this.fieldDecoders = fieldDecoders;
+        this.keptFieldCount = keptFieldCount;
+    }
+
+    /**
+     * Compiles the decoder plan for the given template fields.
+     *
+     * @param informationElements the field information from the template
+     * @param parser              the parser providing the information element definitions, also used to look up the
+     *                            decoders of templates referenced in subtemplateLists
+     * @param fieldFilter         selects the fields to decode, all other fields are skipped
+     * @return the compiled decoder
+     */
+    static TemplateDecoder compile(List<InformationElement> informationElements, IpfixParser parser, FieldFilter fieldFilter) {
+        final FieldDecoder[] fieldDecoders = new FieldDecoder[informationElements.size()];
+        int keptFieldCount = 0;
+        for (int i = 0; i < fieldDecoders.length; i++) {
+            final InformationElement informationElement = informationElements.get(i);
+            final InformationElementDefinition desc = parser.getDefinition(informationElement.id(), informationElement.enterpriseNumber());
+            if (desc.isUnknown()) {
+                LOG.warn("Missing information element definition for id {} and private enterprise number {}, skipping its values.",
+                         informationElement.id(), informationElement.enterpriseNumber());
+                fieldDecoders[i] = FieldDecoder.skip(informationElement, desc);
+                continue;
+            }
+            if (!fieldFilter.keeps(informationElement, desc)) {
+                fieldDecoders[i] = FieldDecoder.skip(informationElement, desc);
+                continue;
+            }
+            fieldDecoders[i] = FieldDecoder.create(informationElement, desc, parser);
+            keptFieldCount++;
+        }
+        return new TemplateDecoder(fieldDecoders, keptFieldCount);
+    }
+
+    /**
+     * Decodes all data records contained in the given data set content and passes them to the visitor.
+     *
+     * @param setContent  the data set bytes to parse
+     * @param templateMap map from template id to its information elements, used for subtemplateLists
+     * @param visitor     receives every data record, field by field
+     * @return the number of bytes skipped for fields which are not selected by the field filter
+     */
+    public long decode(ByteBuf setContent, Map<Integer, TemplateRecord> templateMap, FlowVisitor visitor) {
+        if (keptFieldCount == fieldDecoders.length) {
+            while (setContent.isReadable()) {
+                visitor.beginRecord();
+                for (FieldDecoder fieldDecoder : fieldDecoders) {
+                    fieldDecoder.decode(setContent, templateMap, visitor);
+                }
+                visitor.endRecord();
+            }
+            return 0;
+        }
+        long skippedBytes = 0;
+        while (setContent.isReadable()) {
+            visitor.beginRecord();
+            for (FieldDecoder fieldDecoder : fieldDecoders) {
+                if (fieldDecoder instanceof FieldDecoder.SkipDecoder) {
+                    skippedBytes += ((FieldDecoder.SkipDecoder) fieldDecoder).skip(setContent);
+                } else {
+                    fieldDecoder.decode(setContent, templateMap, visitor);
+                }
+            }
+            visitor.endRecord();
+        }
+        return skippedBytes;
+    }
+
+    /**
+     * Decodes all data records contained in the given data set content.
+     * <p>
+     * Note that identical data records are collapsed into a single flow, use
+     * {@link #decode(ByteBuf, Map, FlowVisitor)} to receive every record.
+     * </p>
+     *
+     * @param setContent  the data set bytes to parse
+     * @param templateMap map from template id to its information elements, used for subtemplateLists
+     * @return collection of parsed flows
+     */
+    public Set<Flow> decode(ByteBuf setContent, Map<Integer, TemplateRecord> templateMap) {
+        final FlowCollector flowCollector = new FlowCollector();
+        decode(setContent, templateMap, flowCollector);
+        return flowCollector.flows.build();
+    }
+
+    /**
+     * @return the number of fields in each data record
+     */
+    public int fieldCount() {
+        return fieldDecoders.length;
+    }
+
+    /**
+     * @return the number of fields in each data record which are decoded, the others are skipped
+     */
+    public int keptFieldCount() {
+        return keptFieldCount;
+    }
+
+    private static class FlowCollector implements FlowVisitor {
+        private final ImmutableSet.Builder<Flow> flows = ImmutableSet.builder();
+        private ImmutableMap.Builder<String, Object> fields;
+
+        @Override
+        public void beginRecord() {
+            fields = ImmutableMap.builder();
+        }
+
+        @Override
+        public void field(String name, Object value) {
+            fields.put(name, value);
+        }
+
+        @Override
+        public void endRecord() {
+            flows.add(Flow.create(fields.build()));
+        }
+    }
+}
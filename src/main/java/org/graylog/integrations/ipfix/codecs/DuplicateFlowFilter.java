@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.graylog2.plugin.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects flows which have already been reported by another exporter, e.g. by a router further along the flow's path.
+ * <p>
+ * The flows seen recently are kept in a Bloom filter over the configured key fields, which rotates every window: a
+ * flow counts as seen if it is in the current or the previous generation, so the memory is fixed and flows are
+ * remembered for one to two windows. The filter is lock-free, concurrent decoders only use atomic bit operations.
+ * </p>
+ * <p>
+ * A flow is only a duplicate if a different exporter has reported it, so the interim records one exporter sends for a
+ * long-lived flow are kept. Like any Bloom filter it can mistake a new flow for a duplicate, the estimated rate is
+ * exposed by {@link #estimatedFalsePositiveRate()}.
+ * </p>
+ */
+class DuplicateFlowFilter {
+    static final List<String> DEFAULT_KEY_FIELDS = ImmutableList.of(
+            "sourceIPv4Address", "destinationIPv4Address",
+            "sourceIPv6Address", "destinationIPv6Address",
+            "sourceTransportPort", "destinationTransportPort",
+            "protocolIdentifier",
+            "flowStartSeconds", "flowStartMilliseconds");
+    private static final int HASH_FUNCTIONS = 4;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final List<String> keyFields;
+    private final int words;
+    private final long windowNanos;
+    private final Ticker ticker;
+    private final AtomicReference<Generations> generations;
+
+    /**
+     * @param keyFields   the fields whose values identify a flow
+     * @param bytes       the size of each of the two filter generations
+     * @param windowNanos how long a generation is the current one
+     * @param ticker      the time source
+     */
+    DuplicateFlowFilter(List<String> keyFields, long bytes, long windowNanos, Ticker ticker) {
+        this.keyFields = ImmutableList.copyOf(keyFields);
+        this.words = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / Long.BYTES));
+        this.windowNanos = windowNanos;
+        this.ticker = ticker;
+        this.generations = new AtomicReference<>(new Generations(new Bits(words), new Bits(words), ticker.read()));
+    }
+
+    /**
+     * Checks whether another exporter has reported the flow recently, and remembers it otherwise.
+     *
+     * @param flow the decoded flow record, with the exporter as its source
+     * @return true if the flow is a duplicate and should be dropped
+     */
+    boolean isDuplicate(Message flow) {
+        final Generations current = currentGenerations();
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        for (String keyField : keyFields) {
+            hasher.putUnencodedChars(String.valueOf(flow.getField(keyField))).putByte((byte) 0);
+        }
+        final HashCode flowHash = hasher.hash();
+        final HashCode exporterFlowHash = Hashing.combineOrdered(ImmutableList.of(
+                flowHash, HASH_FUNCTION.hashUnencodedChars(String.valueOf(flow.getSource()))));
+
+        if (current.contains(flowHash) && !current.contains(exporterFlowHash)) {
+            return true;
+        }
+        current.current.put(flowHash);
+        current.current.put(exporterFlowHash);
+        return false;
+    }
+
+    /**
+     * @return the estimated probability that a new flow is mistaken for a duplicate, based on how full the filter is
+     */
+    double estimatedFalsePositiveRate() {
+        final Generations current = generations.get();
+        final double currentRate = Math.pow(current.current.fillRatio(), HASH_FUNCTIONS);
+        final double previousRate = Math.pow(current.previous.fillRatio(), HASH_FUNCTIONS);
+        return 1.0 - (1.0 - currentRate) * (1.0 - previousRate);
+    }
+
+    private Generations currentGenerations() {
+        final Generations current = generations.get();
+        final long now = ticker.read();
+        final long elapsed = now - current.startedAtNanos;
+        if (elapsed < windowNanos) {
+            return current;
+        }
+        // if nothing arrived for a whole window, the previous generation is too old as well
+        final Bits previous = elapsed < 2 * windowNanos ? current.current : new Bits(words);
+        final Generations rotated = new Generations(new Bits(words), previous, now);
+        // only one thread rotates, the others use whatever generations won
+        generations.compareAndSet(current, rotated);
+        return generations.get();
+    }
+
+    private static class Generations {
+        private final Bits current;
+        private final Bits previous;
+        private final long startedAtNanos;
+
+        Generations(Bits current, Bits previous, long startedAtNanos) {
+            this.current = current;
+            this.previous = previous;
+            this.startedAtNanos = startedAtNanos;
+        }
+
+        boolean contains(HashCode hash) {
+            return current.contains(hash) || previous.contains(hash);
+        }
+    }
+
+    private static class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        // striped counter, so concurrent decoders do not contend on it
+        private final LongAdder setBits = new LongAdder();
+
+        Bits(int words) {
+            this.words = new AtomicLongArray(words);
+            this.bitCount = (long) words * Long.SIZE;
+        }
+
+        boolean contains(HashCode hash) {
+            final ByteBuffer bytes = ByteBuffer.wrap(hash.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            final long hash1 = bytes.getLong();
+            final long hash2 = bytes.getLong();
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                final long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(HashCode hash) {
+            final ByteBuffer bytes = ByteBuffer.wrap(hash.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            final long hash1 = bytes.getLong();
+            final long hash2 = bytes.getLong();
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                final long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                final long mask = 1L << bit;
+                final long previous = words.getAndUpdate((int) (bit >>> 6), word -> word | mask);
+                if ((previous & mask) == 0) {
+                    setBits.increment();
+                }
+            }
+        }
+
+        double fillRatio() {
+            return (double) setBits.sum() / bitCount;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.base.Ticker;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.ShallowDataSet;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The ready data sets of each exporter which are held back to be written as a single journal entry.
+ * <p>
+ * A batch is complete once it reaches the journal entry size or once its first data set has waited for the maximum
+ * delay. The records of the batched data sets are copied into a buffer of the batch, because slices would keep the
+ * whole receive buffers alive while only the bytes of the records count towards the batch size. Whoever removes a
+ * batch has to {@link Batch#release() release} it once it has been journaled.
+ * </p>
+ */
+class ExporterBatches {
+    private final long maxBytes;
+    private final long maxDelayNanos;
+    private final Ticker ticker;
+    // in creation order, so the oldest batch always comes first
+    private final LinkedHashMap<TemplateKey, Batch> batches = new LinkedHashMap<>();
+
+    ExporterBatches(long maxBytes, long maxDelayNanos, Ticker ticker) {
+        this.maxBytes = maxBytes;
+        this.maxDelayNanos = maxDelayNanos;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Adds the data sets to the exporter's batch.
+     *
+     * @param exporterKey       the exporter
+     * @param exporterTemplates the templates of the exporter
+     * @param dataSets          the ready data sets, they are copied into the batch
+     * @return the exporter's batch if it is complete now, {@code null} otherwise
+     */
+    @Nullable
+    synchronized Batch add(TemplateKey exporterKey, ExporterTemplates exporterTemplates, Collection<ShallowDataSet> dataSets) {
+        final Batch batch = batches.computeIfAbsent(exporterKey, key -> new Batch(key, exporterTemplates, ticker.read()));
+        for (ShallowDataSet dataSet : dataSets) {
+            batch.add(dataSet);
+        }
+        if (batch.bytes() >= maxBytes) {
+            batches.remove(exporterKey);
+            return batch;
+        }
+        return null;
+    }
+
+    /**
+     * @param exporterKey the exporter
+     * @return the exporter's batch, or {@code null} if there is none
+     */
+    @Nullable
+    synchronized Batch remove(TemplateKey exporterKey) {
+        return batches.remove(exporterKey);
+    }
+
+    /**
+     * @param all whether to remove all batches, instead of only the ones which have waited for the maximum delay
+     * @return the removed batches, oldest first
+     */
+    synchronized List<Batch> removeComplete(boolean all) {
+        final List<Batch> complete = new ArrayList<>();
+        final long now = ticker.read();
+        final Iterator<Batch> iterator = batches.values().iterator();
+        while (iterator.hasNext()) {
+            final Batch batch = iterator.next();
+            if (!all && now - batch.createdAtNanos < maxDelayNanos) {
+                break;
+            }
+            iterator.remove();
+            complete.add(batch);
+        }
+        return complete;
+    }
+
+    /**
+     * @return the nanoseconds until the oldest batch is complete, or -1 if there are no batches
+     */
+    synchronized long nanosUntilNextComplete() {
+        final Iterator<Batch> iterator = batches.values().iterator();
+        if (!iterator.hasNext()) {
+            return -1;
+        }
+        return Math.max(0, iterator.next().createdAtNanos + maxDelayNanos - ticker.read());
+    }
+
+    /**
+     * Drops all batches, releasing their data sets.
+     */
+    synchronized void clear() {
+        batches.values().forEach(Batch::release);
+        batches.clear();
+    }
+
+    static class Batch {
+        private final TemplateKey exporterKey;
+        private final ExporterTemplates exporterTemplates;
+        private final long createdAtNanos;
+        private final List<ShallowDataSet> dataSets = new ArrayList<>();
+        private final ByteBuf records = Unpooled.buffer();
+
+        Batch(TemplateKey exporterKey, ExporterTemplates exporterTemplates, long createdAtNanos) {
+            this.exporterKey = exporterKey;
+            this.exporterTemplates = exporterTemplates;
+            this.createdAtNanos = createdAtNanos;
+        }
+
+        private void add(ShallowDataSet dataSet) {
+            final int offset = records.writerIndex();
+            final ByteBuf content = dataSet.content();
+            records.writeBytes(content, content.readerIndex(), content.readableBytes());
+            dataSets.add(ShallowDataSet.create(dataSet.templateId(), dataSet.epochSeconds(),
+                                               records.slice(offset, content.readableBytes())));
+        }
+
+        TemplateKey exporterKey() {
+            return exporterKey;
+        }
+
+        ExporterTemplates exporterTemplates() {
+            return exporterTemplates;
+        }
+
+        List<ShallowDataSet> dataSets() {
+            return dataSets;
+        }
+
+        long bytes() {
+            return records.readableBytes();
+        }
+
+        /**
+         * Releases the records of the batch, its data sets must not be used afterwards.
+         */
+        void release() {
+            dataSets.clear();
+            if (records.refCnt() > 0) {
+                records.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Metrics of the individual exporters of an input and the templates they use.
+ * <p>
+ * The metrics are registered as {@code exporters.<address>.<metric>} and
+ * {@code templates.<address>.<template id>.decodeTime}, with the dots of the address replaced by underscores, e.g.
+ * {@code exporters.10_0_0_1.packets}, so that the address stays a single component of the metric name. Only the most
+ * recently active exporters and templates have metrics, the others are unregistered, so the number of metrics stays
+ * bounded no matter how many exporters send to the input.
+ * </p>
+ */
+public class ExporterMetrics {
+    public static final String EXPORTERS = "exporters";
+    public static final String TEMPLATES = "templates";
+    private static final String UNKNOWN_EXPORTER = "unknown";
+    private static final List<String> METRICS = ImmutableList.of("packets", "bytes", "flows", "invalidPackets", "missingTemplates", "lostRecords");
+    // the number of transport sessions and observation domains whose sequence numbers are tracked per exporter address
+    private static final int MAX_SEQUENCE_STREAMS_PER_EXPORTER = 1024;
+
+    private final MetricRegistry metricRegistry;
+    private final Cache<String, Exporter> exporters;
+    private final Cache<TemplateName, Timer> decodeTimes;
+
+    /**
+     * @param metricRegistry the registry to register the metrics with
+     * @param maxExporters   the maximum number of exporters with metrics
+     * @param maxTemplates   the maximum number of templates with decode time metrics, across all exporters
+     */
+    ExporterMetrics(MetricRegistry metricRegistry, long maxExporters, long maxTemplates) {
+        this.metricRegistry = metricRegistry;
+        this.exporters = CacheBuilder.newBuilder()
+                                     .maximumSize(maxExporters)
+                                     .removalListener((RemovalListener<String, Exporter>) notification -> {
+                                         final Exporter exporter = notification.getValue();
+                                         if (exporter != null) {
+                                             exporter.unregister();
+                                         }
+                                     })
+                                     .build();
+        this.decodeTimes = CacheBuilder.newBuilder()
+                                       .maximumSize(maxTemplates)
+                                       .removalListener((RemovalListener<TemplateName, Timer>) notification -> {
+                                           final TemplateName templateName = notification.getKey();
+                                           if (templateName != null) {
+                                               metricRegistry.remove(templateName.metricName);
+                                           }
+                                       })
+                                       .build();
+    }
+
+    /**
+     * @param remoteAddress the address of the exporter
+     * @return the metrics of the exporter
+     */
+    Exporter exporter(@Nullable SocketAddress remoteAddress) {
+        return exporter(exporterName(remoteAddress));
+    }
+
+    /**
+     * @param exporterName the host address of the exporter
+     * @return the metrics of the exporter
+     */
+    Exporter exporter(@Nullable String exporterName) {
+        final String name = exporterName == null ? UNKNOWN_EXPORTER : exporterName;
+        return get(exporters, name, () -> new Exporter(name));
+    }
+
+    /**
+     * @param exporterName the host address of the exporter
+     * @param templateId   the template id
+     * @return the timer for decoding the data sets of the template
+     */
+    Timer decodeTime(@Nullable String exporterName, int templateId) {
+        final TemplateName templateName = new TemplateName(exporterName == null ? UNKNOWN_EXPORTER : exporterName, templateId);
+        return get(decodeTimes, templateName, () -> metricRegistry.timer(templateName.metricName));
+    }
+
+    /**
+     * @param exporterName the host address of the exporter
+     * @return the exporter's part of its metric names
+     */
+    public static String metricName(String exporterName) {
+        return exporterName.replace('.', '_');
+    }
+
+    static String exporterName(@Nullable SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress) {
+            final InetSocketAddress address = (InetSocketAddress) remoteAddress;
+            return address.isUnresolved() ? address.getHostString() : address.getAddress().getHostAddress();
+        }
+        return remoteAddress == null ? UNKNOWN_EXPORTER : remoteAddress.toString();
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // the loaders only register metrics, which cannot fail
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * The metrics of a single exporter.
+     */
+    class Exporter {
+        private final String prefix;
+        final Meter packets;
+        final Meter bytes;
+        final Meter flows;
+        final Meter invalidPackets;
+        final Meter missingTemplates;
+        final Meter lostRecords;
+        // the sequence number expected for the next message of each transport session and observation domain, the ones
+        // which haven't been seen for the longest time are dropped
+        private final Map<TemplateKey, Long> expectedSequenceNumbers =
+                new LinkedHashMap<TemplateKey, Long>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<TemplateKey, Long> eldest) {
+                        return size() > MAX_SEQUENCE_STREAMS_PER_EXPORTER;
+                    }
+                };
+
+        Exporter(String name) {
+            this.prefix = MetricRegistry.name(EXPORTERS, metricName(name));
+            this.packets = metricRegistry.meter(MetricRegistry.name(prefix, "packets"));
+            this.bytes = metricRegistry.meter(MetricRegistry.name(prefix, "bytes"));
+            this.flows = metricRegistry.meter(MetricRegistry.name(prefix, "flows"));
+            this.invalidPackets = metricRegistry.meter(MetricRegistry.name(prefix, "invalidPackets"));
+            this.missingTemplates = metricRegistry.meter(MetricRegistry.name(prefix, "missingTemplates"));
+            this.lostRecords = metricRegistry.meter(MetricRegistry.name(prefix, "lostRecords"));
+        }
+
+        /**
+         * Checks the sequence number of a message for data records the exporter sent but which never arrived.
+         * <p>
+         * The sequence number of a message is the number of data records the observation domain sent before it in the
+         * same transport session, so the sequence numbers are tracked by the full address of the exporter, including
+         * its port, and the observation domain. Messages arriving out of order are not counted as losses.
+         * </p>
+         *
+         * @param exporterKey    the exporter address and observation domain of the message
+         * @param sequenceNumber the sequence number from the message header
+         * @param dataRecords    the number of data records in the message, or -1 if it is unknown, in which case the
+         *                       next message cannot be checked
+         */
+        synchronized void sequence(TemplateKey exporterKey, long sequenceNumber, long dataRecords) {
+            final Long expected = expectedSequenceNumbers.get(exporterKey);
+            if (expected != null) {
+                // sequence numbers wrap around at 2^32
+                final long gap = (sequenceNumber - expected) & 0xffffffffL;
+                if (gap >= 0x80000000L) {
+                    // an older message that arrived late, keep waiting for the expected one
+                    return;
+                }
+                if (gap > 0) {
+                    lostRecords.mark(gap);
+                }
+            }
+            if (dataRecords < 0) {
+                expectedSequenceNumbers.remove(exporterKey);
+            } else {
+                expectedSequenceNumbers.put(exporterKey, (sequenceNumber + dataRecords) & 0xffffffffL);
+            }
+        }
+
+        private void unregister() {
+            // removed by name, as the prefix of an exporter can be the prefix of another one, like 10.0.0.1 and 10.0.0.10
+            for (String metric : METRICS) {
+                metricRegistry.remove(MetricRegistry.name(prefix, metric));
+            }
+        }
+    }
+
+    private static class TemplateName {
+        private final String exporterName;
+        private final int templateId;
+        private final String metricName;
+
+        TemplateName(String exporterName, int templateId) {
+            this.exporterName = exporterName;
+            this.templateId = templateId;
+            this.metricName = MetricRegistry.name(TEMPLATES, metricName(exporterName), Integer.toString(templateId), "decodeTime");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final TemplateName that = (TemplateName) o;
+            return templateId == that.templateId && exporterName.equals(that.exporterName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * exporterName.hashCode() + templateId;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The template records of a single exporter, i.e. a remote address and observation domain id.
+ * <p>
+ * The templates are kept in least recently used order and evicted once their total size exceeds the exporter's
+ * memory budget. This keeps a single misbehaving exporter from pushing out the templates of all other exporters.
+ * </p>
+ */
+class ExporterTemplates {
+    // rough per-template overhead of the map entry, the ByteString and the Template object
+    private static final int TEMPLATE_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final Meter evictedTemplates;
+    private final LinkedHashMap<Integer, Template> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    ExporterTemplates(long maxBytes, Meter evictedTemplates) {
+        this.maxBytes = maxBytes;
+        this.evictedTemplates = evictedTemplates;
+    }
+
+    /**
+     * Adds or replaces a template record. The record is only copied if it is new or changed.
+     *
+     * @param templateId           the template id
+     * @param recordBytes          the template record, a slice of the received packet
+     * @param referencesTemplates  whether the template contains list fields that refer to other templates
+     */
+    synchronized void put(int templateId, ByteBuf recordBytes, boolean referencesTemplates) {
+        final Template existing = templates.get(templateId);
+        if (existing != null && existing.recordBytes().asReadOnlyByteBuffer().equals(recordBytes.nioBuffer())) {
+            return;
+        }
+        put(templateId, new Template(ByteString.copyFrom(recordBytes.nioBuffer()), referencesTemplates));
+    }
+
+    /**
+     * Adds or replaces a template, e.g. one restored from a {@link TemplateSnapshot}.
+     *
+     * @param templateId the template id
+     * @param template   the template
+     */
+    synchronized void put(int templateId, Template template) {
+        final Template replaced = templates.put(templateId, template);
+        if (replaced != null) {
+            bytes -= replaced.weight();
+        }
+        bytes += template.weight();
+        evictOverBudget(templateId);
+    }
+
+    private void evictOverBudget(int keepTemplateId) {
+        final Iterator<Map.Entry<Integer, Template>> iterator = templates.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<Integer, Template> eldest = iterator.next();
+            // never evict the template that was just added, even if it alone exceeds the budget
+            if (eldest.getKey() == keepTemplateId) {
+                continue;
+            }
+            bytes -= eldest.getValue().weight();
+            iterator.remove();
+            evictedTemplates.mark();
+        }
+    }
+
+    synchronized boolean contains(int templateId) {
+        return templates.containsKey(templateId);
+    }
+
+    synchronized Template get(int templateId) {
+        return templates.get(templateId);
+    }
+
+    /**
+     * @return a copy of all templates of this exporter
+     */
+    synchronized Map<Integer, Template> all() {
+        return new LinkedHashMap<>(templates);
+    }
+
+    synchronized int size() {
+        return templates.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    static class Template {
+        private static final int VARIABLE_LENGTH = 65535;
+
+        private final ByteString recordBytes;
+        private final boolean referencesTemplates;
+        private final int recordLength;
+        @Nullable
+        private final FlowSampler.FlowKey flowKey;
+
+        Template(ByteString recordBytes, boolean referencesTemplates) {
+            this.recordBytes = recordBytes;
+            this.referencesTemplates = referencesTemplates;
+            this.recordLength = recordLength(recordBytes);
+            this.flowKey = referencesTemplates ? null : FlowSampler.FlowKey.of(recordBytes);
+        }
+
+        /**
+         * @return the length of the data records of the template, or -1 if it has variable length fields
+         */
+        private static int recordLength(ByteString recordBytes) {
+            // template id and field count, followed by the field specifiers
+            if (recordBytes.size() < 4) {
+                return -1;
+            }
+            final int fieldCount = unsignedShort(recordBytes, 2);
+            int offset = 4;
+            int length = 0;
+            for (int i = 0; i < fieldCount; i++) {
+                if (offset + 4 > recordBytes.size()) {
+                    return -1;
+                }
+                final boolean enterprise = (recordBytes.byteAt(offset) & 0x80) != 0;
+                final int fieldLength = unsignedShort(recordBytes, offset + 2);
+                if (fieldLength == VARIABLE_LENGTH) {
+                    return -1;
+                }
+                length += fieldLength;
+                offset += enterprise ? 8 : 4;
+            }
+            return length;
+        }
+
+        private static int unsignedShort(ByteString bytes, int offset) {
+            return ((bytes.byteAt(offset) & 0xff) << 8) | (bytes.byteAt(offset + 1) & 0xff);
+        }
+
+        ByteString recordBytes() {
+            return recordBytes;
+        }
+
+        /**
+         * @return true if data records of this template can refer to other templates of the exporter via
+         * subTemplateLists or subTemplateMultiLists
+         */
+        boolean referencesTemplates() {
+            return referencesTemplates;
+        }
+
+        /**
+         * @param dataSetBytes the length of a data set's content
+         * @return the number of data records in the data set, or -1 if it cannot be told without parsing the records
+         */
+        long dataRecords(int dataSetBytes) {
+            // a data set may be padded, but the padding is always shorter than a record
+            return recordLength > 0 ? dataSetBytes / recordLength : -1;
+        }
+
+        /**
+         * @return where the flow key fields are in the data records of this template, or {@code null} if they cannot be
+         * sampled
+         */
+        @Nullable
+        FlowSampler.FlowKey flowKey() {
+            return flowKey;
+        }
+
+        long weight() {
+            return recordBytes.size() + TEMPLATE_OVERHEAD_BYTES;
+        }
+    }
+}
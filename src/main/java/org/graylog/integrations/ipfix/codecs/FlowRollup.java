@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+import org.graylog.integrations.ipfix.IpfixJournal;
+import org.graylog2.plugin.Message;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolls up flow records with the same key fields into a single message per exporter and time window, summing up their
+ * octet and packet counts. The counts of sampled flows are scaled up by their sampling rate.
+ * <p>
+ * Flows are assigned to windows by their export timestamp, and every exporter has windows of its own, so an exporter
+ * with a fast or slow clock does not complete the windows of the others. The rollups of an exporter's window are
+ * emitted as soon as a flow of a later window of the same exporter arrives, or once the window has been over for
+ * another window length, see {@link #flushExpired(long)}. Flows arriving late for an already emitted window simply start
+ * a new rollup for it, so the totals stay accurate, they are only spread over more than one message.
+ * </p>
+ * <p>
+ * The rollups completed in the background are returned as {@link IpfixJournal.Rollup journal records}, so the input
+ * can write them to its journal and they survive a restart just like the flows they were rolled up from.
+ * </p>
+ * <p>
+ * The number of rollups kept at once is bounded. When it is exceeded, the least active rollups of the exporter that
+ * has not been updated for the longest time are emitted early, again without losing any counts. The exporters are
+ * locked independently, so concurrent decoders only contend for flows of the same exporter, and the bound may be
+ * exceeded by a rollup per concurrent decoder for a moment.
+ * </p>
+ */
+class FlowRollup {
+    static final List<String> DEFAULT_KEY_FIELDS = ImmutableList.of(
+            "sourceIPv4Address", "destinationIPv4Address",
+            "sourceIPv6Address", "destinationIPv6Address",
+            "sourceTransportPort", "destinationTransportPort",
+            "protocolIdentifier");
+    static final String FIELD_FLOW_COUNT = "flowCount";
+    static final String FIELD_WINDOW_END = "rollupWindowEnd";
+    private static final String OCTETS = "octetDeltaCount";
+    private static final String PACKETS = "packetDeltaCount";
+
+    private final List<String> keyFields;
+    private final long windowMillis;
+    private final int maxKeys;
+    // evicting makes room for this many rollups at once, so not every new rollup of a full instance has to look for
+    // the least recently updated exporter
+    private final int evictionTarget;
+    private final Meter evictedKeys;
+    private final ConcurrentMap<String, ExporterRollups> exporters = new ConcurrentHashMap<>();
+    // the number of rollups of all exporters
+    private final AtomicInteger size = new AtomicInteger();
+    // orders the updates of the exporters, cheaper than reading the clock for every flow
+    private final AtomicLong updates = new AtomicLong();
+    // once closed, flows are emitted right away instead of being kept for a window nobody will flush anymore
+    private volatile boolean closed = false;
+
+    /**
+     * @param keyFields    the fields whose values identify the flows to roll up
+     * @param windowMillis the length of the time windows
+     * @param maxKeys      the maximum number of rollups kept at once
+     * @param evictedKeys  meter for the rollups emitted early because there were too many
+     */
+    FlowRollup(List<String> keyFields, long windowMillis, int maxKeys, Meter evictedKeys) {
+        this.keyFields = ImmutableList.copyOf(keyFields);
+        this.windowMillis = windowMillis;
+        this.maxKeys = maxKeys;
+        this.evictionTarget = maxKeys - maxKeys / 100;
+        this.evictedKeys = evictedKeys;
+    }
+
+    /**
+     * Adds the flows to their rollups.
+     *
+     * @param flows the decoded flow records
+     * @return the messages of all rollups which are complete now
+     */
+    List<Message> add(Collection<Message> flows) {
+        final List<IpfixJournal.Rollup> complete = new ArrayList<>();
+        ExporterRollups exporter = null;
+        for (Message flow : flows) {
+            final String source = String.valueOf(flow.getSource());
+            // the flows of a journal entry usually all come from the same exporter
+            if (exporter == null || !exporter.source.equals(source)) {
+                exporter = exporters.computeIfAbsent(source, ExporterRollups::new);
+            }
+            int added;
+            while ((added = exporter.add(flow, complete)) < 0) {
+                // the exporter has been removed by a flush in the meantime
+                exporter = exporters.computeIfAbsent(source, ExporterRollups::new);
+            }
+            if (added > 0 && size.get() > maxKeys) {
+                // no exporter lock is held here, so evicting from any exporter cannot deadlock with another decoder
+                evictLeastRecentlyUpdated(complete);
+            }
+        }
+        final List<Message> messages = new ArrayList<>(complete.size());
+        for (IpfixJournal.Rollup rollup : complete) {
+            messages.add(toMessage(rollup));
+        }
+        return messages;
+    }
+
+    /**
+     * Emits the rollups of all windows which have been over for at least another window length, so the rollups of
+     * exporters which stopped sending flows are not kept forever.
+     *
+     * @param nowMillis the current time
+     * @return the expired rollups
+     */
+    List<IpfixJournal.Rollup> flushExpired(long nowMillis) {
+        final List<IpfixJournal.Rollup> complete = new ArrayList<>();
+        final long expiredWindowsBefore = nowMillis - 2 * windowMillis + 1;
+        for (ExporterRollups exporter : exporters.values()) {
+            exporter.flush(expiredWindowsBefore, complete);
+        }
+        return complete;
+    }
+
+    /**
+     * Emits all rollups, e.g. because the input stops. Flows added afterwards are emitted right away.
+     *
+     * @return all rollups
+     */
+    List<IpfixJournal.Rollup> flushAll() {
+        closed = true;
+        final List<IpfixJournal.Rollup> complete = new ArrayList<>();
+        for (ExporterRollups exporter : exporters.values()) {
+            exporter.flush(Long.MAX_VALUE, complete);
+        }
+        return complete;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private void evictLeastRecentlyUpdated(List<IpfixJournal.Rollup> complete) {
+        while (size.get() > evictionTarget) {
+            ExporterRollups leastRecentlyUpdated = null;
+            for (ExporterRollups exporter : exporters.values()) {
+                if (exporter.rollupCount > 0 && (leastRecentlyUpdated == null || exporter.lastUpdate < leastRecentlyUpdated.lastUpdate)) {
+                    leastRecentlyUpdated = exporter;
+                }
+            }
+            if (leastRecentlyUpdated == null) {
+                return;
+            }
+            leastRecentlyUpdated.evict(evictionTarget, complete);
+        }
+    }
+
+    /**
+     * @param rollup a rollup emitted by this class, possibly read back from the journal
+     * @return the message of the rollup
+     */
+    static Message toMessage(IpfixJournal.Rollup rollup) {
+        final Message message = new Message("", rollup.getSource(), new DateTime(rollup.getWindowStartMillis(), DateTimeZone.UTC));
+        for (IpfixJournal.RollupField field : rollup.getKeyFieldsList()) {
+            message.addField(field.getName(), value(field));
+        }
+        message.addField(OCTETS, rollup.getOctetDeltaCount());
+        message.addField(PACKETS, rollup.getPacketDeltaCount());
+        message.addField(FIELD_FLOW_COUNT, rollup.getFlowCount());
+        message.addField(FIELD_WINDOW_END, new DateTime(rollup.getWindowEndMillis(), DateTimeZone.UTC));
+        message.addField(Message.FIELD_MESSAGE, IpfixCodec.toMessageString(message));
+        return message;
+    }
+
+    @Nullable
+    private static Object value(IpfixJournal.RollupField field) {
+        switch (field.getValueCase()) {
+            case INTVALUE:
+                return field.getIntValue();
+            case LONGVALUE:
+                return field.getLongValue();
+            case DOUBLEVALUE:
+                return field.getDoubleValue();
+            case STRINGVALUE:
+                return field.getStringValue();
+            default:
+                return null;
+        }
+    }
+
+    private IpfixJournal.Rollup toRollup(String source, Key key, Totals totals) {
+        final IpfixJournal.Rollup.Builder rollup = IpfixJournal.Rollup.newBuilder()
+                                                                      .setSource(source)
+                                                                      .setWindowStartMillis(key.windowStart)
+                                                                      .setWindowEndMillis(key.windowStart + windowMillis)
+                                                                      .setOctetDeltaCount(totals.octets)
+                                                                      .setPacketDeltaCount(totals.packets)
+                                                                      .setFlowCount(totals.flows);
+        for (int i = 0; i < keyFields.size(); i++) {
+            final Object value = key.values[i];
+            if (value == null) {
+                continue;
+            }
+            final IpfixJournal.RollupField.Builder field = IpfixJournal.RollupField.newBuilder().setName(keyFields.get(i));
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                field.setIntValue(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                field.setLongValue((Long) value);
+            } else if (value instanceof Number) {
+                field.setDoubleValue(((Number) value).doubleValue());
+            } else {
+                field.setStringValue(value.toString());
+            }
+            rollup.addKeyFields(field);
+        }
+        return rollup.build();
+    }
+
+    private static long longField(Message message, String field) {
+        final Object value = message.getField(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * The rollups of a single exporter, guarded by its own lock.
+     */
+    private class ExporterRollups {
+        private final String source;
+        // in access order, so the least active rollup comes first
+        private final LinkedHashMap<Key, Totals> rollups = new LinkedHashMap<>(16, 0.75f, true);
+        private long currentWindowStart = Long.MIN_VALUE;
+        private boolean removed = false;
+        // read without the lock to find the exporter to evict from
+        private volatile long lastUpdate;
+        private volatile int rollupCount;
+
+        ExporterRollups(String source) {
+            this.source = source;
+        }
+
+        /**
+         * @return the number of rollups the flow added, or -1 if the exporter has been removed and the flow has to be
+         * added to its replacement
+         */
+        synchronized int add(Message flow, List<IpfixJournal.Rollup> complete) {
+            if (removed) {
+                return -1;
+            }
+            lastUpdate = updates.incrementAndGet();
+            final long timestamp = flow.getTimestamp().getMillis();
+            final long windowStart = timestamp - Math.floorMod(timestamp, windowMillis);
+            if (windowStart > currentWindowStart) {
+                emitWindowsBefore(windowStart, complete);
+                currentWindowStart = windowStart;
+            }
+
+            final Object[] keyValues = new Object[keyFields.size()];
+            for (int i = 0; i < keyValues.length; i++) {
+                keyValues[i] = flow.getField(keyFields.get(i));
+            }
+            final Key key = new Key(windowStart, keyValues);
+            Totals totals = rollups.get(key);
+            int added = 0;
+            if (totals == null) {
+                totals = new Totals();
+                if (!closed) {
+                    rollups.put(key, totals);
+                    rollupCount = rollups.size();
+                    size.incrementAndGet();
+                    added = 1;
+                }
+            }
+            // sampled flows stand for all the flows that have been dropped
+            final Object samplingRate = flow.getField(FlowSampler.FIELD_SAMPLING_RATE);
+            final long scale = samplingRate instanceof Number ? ((Number) samplingRate).longValue() : 1L;
+            totals.octets += scale * longField(flow, OCTETS);
+            totals.packets += scale * longField(flow, PACKETS);
+            totals.flows += scale;
+            if (closed && !rollups.containsKey(key)) {
+                complete.add(toRollup(source, key, totals));
+            }
+            return added;
+        }
+
+        /**
+         * Emits the least active rollups of the exporter until there are no more than the given number of rollups.
+         */
+        synchronized void evict(int maxSize, List<IpfixJournal.Rollup> complete) {
+            final Iterator<Map.Entry<Key, Totals>> leastActive = rollups.entrySet().iterator();
+            while (size.get() > maxSize && leastActive.hasNext()) {
+                final Map.Entry<Key, Totals> evicted = leastActive.next();
+                leastActive.remove();
+                size.decrementAndGet();
+                complete.add(toRollup(source, evicted.getKey(), evicted.getValue()));
+                evictedKeys.mark();
+            }
+            rollupCount = rollups.size();
+        }
+
+        synchronized void flush(long windowsBefore, List<IpfixJournal.Rollup> complete) {
+            emitWindowsBefore(windowsBefore, complete);
+            if (rollups.isEmpty()) {
+                // idle exporters do not keep their entry, concurrent adders retry with a new one
+                removed = true;
+                exporters.remove(source, this);
+            }
+        }
+
+        private void emitWindowsBefore(long windowStart, List<IpfixJournal.Rollup> complete) {
+            final Iterator<Map.Entry<Key, Totals>> iterator = rollups.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Key, Totals> rollup = iterator.next();
+                if (rollup.getKey().windowStart < windowStart) {
+                    iterator.remove();
+                    size.decrementAndGet();
+                    complete.add(toRollup(source, rollup.getKey(), rollup.getValue()));
+                }
+            }
+            rollupCount = rollups.size();
+        }
+    }
+
+    // the rollups of each exporter are kept apart, so the key does not need the exporter
+    private static class Key {
+        private final long windowStart;
+        private final Object[] values;
+        private final int hashCode;
+
+        Key(long windowStart, Object[] values) {
+            this.windowStart = windowStart;
+            this.values = values;
+            this.hashCode = 31 * Long.hashCode(windowStart) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key that = (Key) o;
+            return windowStart == that.windowStart &&
+                   Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Totals {
+        private long octets;
+        private long packets;
+        private long flows;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.base.Ticker;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one in N flows when the input cannot keep up, instead of letting the kernel drop whole packets at random.
+ * <p>
+ * The data records are sampled by the aggregator before they are journaled, so the dropped flows neither take up
+ * journal space nor get decoded. Only data records of fixed length are sampled, the position of their key fields is
+ * known from the template without parsing them.
+ * Flows are selected by a hash of their addresses, ports and protocol which does not depend on the direction, so
+ * both directions of a connection are kept or dropped together, and the same flow is always treated the same way.
+ * The journaled data sets carry the sampling rate their records were selected with, so the counts of the decoded
+ * flows can be scaled back up.
+ * </p>
+ * <p>
+ * In adaptive mode the rate is doubled whenever journal entries wait longer than the maximum lag between being
+ * received and being decoded, and halved again down to the base rate once the lag is below half of the maximum.
+ * Since the rates are powers of two times the base rate, the flows kept at a higher rate are a subset of the flows
+ * kept at a lower one.
+ * </p>
+ */
+class FlowSampler {
+    static final String FIELD_SAMPLING_RATE = "inputSamplingRate";
+    static final int MAX_ADAPTIVE_RATE = 1024;
+    // the rate is adjusted at most this often, so a burst does not ramp it up all the way at once
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int VARIABLE_LENGTH = 65535;
+    // the flow key fields, in the order of FlowKey's offsets and lengths
+    private static final int SOURCE_ADDRESS = 0;
+    private static final int SOURCE_PORT = 1;
+    private static final int DESTINATION_ADDRESS = 2;
+    private static final int DESTINATION_PORT = 3;
+    private static final int PROTOCOL = 4;
+
+    private final int baseRate;
+    private final long maxLagMillis;
+    private final Ticker ticker;
+    private final AtomicLong lastAdjustedNanos;
+    private volatile int rate;
+
+    /**
+     * @param baseRate     keep one in this many flows, 1 to keep all flows unless adaptive sampling kicks in
+     * @param maxLagMillis the maximum time between receiving and decoding a journal entry before the rate is
+     *                     increased, 0 to always use the base rate
+     * @param ticker       the time source for adjusting the rate
+     */
+    FlowSampler(int baseRate, long maxLagMillis, Ticker ticker) {
+        this.baseRate = Math.max(1, baseRate);
+        this.maxLagMillis = maxLagMillis;
+        this.ticker = ticker;
+        this.lastAdjustedNanos = new AtomicLong(ticker.read() - ADJUST_INTERVAL_NANOS);
+        this.rate = this.baseRate;
+    }
+
+    /**
+     * Adjusts the rate to the current lag, if adaptive sampling is enabled.
+     *
+     * @param lagMillis the time between receiving and decoding the current journal entry
+     * @return the rate to sample the data records received from now on with
+     */
+    int update(long lagMillis) {
+        if (maxLagMillis <= 0) {
+            return rate;
+        }
+        final long now = ticker.read();
+        final long lastAdjusted = lastAdjustedNanos.get();
+        if (now - lastAdjusted >= ADJUST_INTERVAL_NANOS && lastAdjustedNanos.compareAndSet(lastAdjusted, now)) {
+            final int current = rate;
+            if (lagMillis > maxLagMillis && current < baseRate * MAX_ADAPTIVE_RATE) {
+                rate = current * 2;
+            } else if (lagMillis < maxLagMillis / 2 && current > baseRate) {
+                rate = current / 2;
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * @return the rate to sample the data records received from now on with
+     */
+    int rate() {
+        return rate;
+    }
+
+    /**
+     * @param dataRecords the data records of a data set, which is not consumed
+     * @param flowKey     where the flow key fields are in the data records
+     * @param rate        the rate to sample with
+     * @return the kept data records, the given buffer itself if all of them are kept
+     */
+    ByteBuf sample(ByteBuf dataRecords, FlowKey flowKey, int rate) {
+        if (rate <= 1) {
+            return dataRecords;
+        }
+        final int recordLength = flowKey.recordLength();
+        final ByteBuf kept = Unpooled.buffer(dataRecords.readableBytes() / rate + recordLength);
+        // a data set may be padded, but the padding is always shorter than a record
+        for (int record = dataRecords.readerIndex(); record + recordLength <= dataRecords.writerIndex(); record += recordLength) {
+            if (Integer.remainderUnsigned(flowHash(dataRecords, record, flowKey), rate) == 0) {
+                kept.writeBytes(dataRecords, record, recordLength);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return a hash of the flow's endpoints and protocol which is the same for both directions of the flow
+     */
+    static int flowHash(ByteBuf dataRecords, int record, FlowKey flowKey) {
+        final int source = 31 * hash(dataRecords, record, flowKey, SOURCE_ADDRESS) + hash(dataRecords, record, flowKey, SOURCE_PORT);
+        final int destination = 31 * hash(dataRecords, record, flowKey, DESTINATION_ADDRESS) + hash(dataRecords, record, flowKey, DESTINATION_PORT);
+        // order the endpoints, so both directions hash the same
+        final int hash = 31 * (31 * Math.min(source, destination) + Math.max(source, destination))
+                         + hash(dataRecords, record, flowKey, PROTOCOL);
+        return mix(hash);
+    }
+
+    private static int hash(ByteBuf dataRecords, int record, FlowKey flowKey, int field) {
+        final int offset = flowKey.offsets[field];
+        if (offset < 0) {
+            return 0;
+        }
+        int hash = 1;
+        for (int i = record + offset, end = i + flowKey.lengths[field]; i < end; i++) {
+            hash = 31 * hash + dataRecords.getByte(i);
+        }
+        return hash;
+    }
+
+    // the murmur3 finalizer, spreads the bits of the rather weak string and number hash codes
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Where the fields identifying a flow are within the data records of a template.
+     */
+    static class FlowKey {
+        private final int[] offsets;
+        private final int[] lengths;
+        private final int recordLength;
+
+        private FlowKey(int[] offsets, int[] lengths, int recordLength) {
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.recordLength = recordLength;
+        }
+
+        /**
+         * @param templateRecord the template record: template id, field count and the field specifiers
+         * @return where the flow key fields are, or {@code null} if the data records cannot be sampled because they
+         * have variable length fields or no flow addresses
+         */
+        @Nullable
+        static FlowKey of(ByteString templateRecord) {
+            if (templateRecord.size() < 4) {
+                return null;
+            }
+            final int[] offsets = {-1, -1, -1, -1, -1};
+            final int[] lengths = new int[offsets.length];
+            final int fieldCount = unsignedShort(templateRecord, 2);
+            int specifier = 4;
+            int recordLength = 0;
+            for (int i = 0; i < fieldCount; i++) {
+                if (specifier + 4 > templateRecord.size()) {
+                    return null;
+                }
+                final boolean enterprise = (templateRecord.byteAt(specifier) & 0x80) != 0;
+                final int fieldLength = unsignedShort(templateRecord, specifier + 2);
+                if (fieldLength == VARIABLE_LENGTH) {
+                    return null;
+                }
+                final int field = enterprise ? -1 : keyField(unsignedShort(templateRecord, specifier));
+                // IPv4 addresses win over IPv6 ones, like for the decoded flows
+                if (field >= 0 && (offsets[field] < 0 || lengths[field] > fieldLength)) {
+                    offsets[field] = recordLength;
+                    lengths[field] = fieldLength;
+                }
+                recordLength += fieldLength;
+                specifier += enterprise ? 8 : 4;
+            }
+            if (recordLength == 0 || (offsets[SOURCE_ADDRESS] < 0 && offsets[DESTINATION_ADDRESS] < 0)) {
+                return null;
+            }
+            return new FlowKey(offsets, lengths, recordLength);
+        }
+
+        private static int keyField(int elementId) {
+            switch (elementId) {
+                case 8:  // sourceIPv4Address
+                case 27: // sourceIPv6Address
+                    return SOURCE_ADDRESS;
+                case 7:  // sourceTransportPort
+                    return SOURCE_PORT;
+                case 12: // destinationIPv4Address
+                case 28: // destinationIPv6Address
+                    return DESTINATION_ADDRESS;
+                case 11: // destinationTransportPort
+                    return DESTINATION_PORT;
+                case 4:  // protocolIdentifier
+                    return PROTOCOL;
+                default:
+                    return -1;
+            }
+        }
+
+        private static int unsignedShort(ByteString bytes, int offset) {
+            return ((bytes.byteAt(offset) & 0xff) << 8) | (bytes.byteAt(offset + 1) & 0xff);
+        }
+
+        int recordLength() {
+            return recordLength;
+        }
+    }
+}
@@ -16,19 +16,25 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
-import com.github.joschi.jadconfig.util.Size;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
-import com.google.protobuf.ByteString;
+import com.google.common.util.concurrent.Striped;
+import com.google.protobuf.UnsafeByteOperations;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.InformationElement;
+import org.graylog.integrations.ipfix.InformationElementDefinition;
 import org.graylog.integrations.ipfix.InformationElementDefinitions;
 import org.graylog.integrations.ipfix.IpfixJournal;
 import org.graylog.integrations.ipfix.IpfixParser;
 import org.graylog.integrations.ipfix.ShallowDataSet;
 import org.graylog.integrations.ipfix.ShallowTemplateSet;
+import org.graylog.integrations.ipfix.TemplateRecord;
 import org.graylog.plugins.netflow.codecs.RemoteAddressCodecAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,185 +43,626 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.SocketAddress;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 public class IpfixAggregator implements RemoteAddressCodecAggregator {
     private static final Logger LOG = LoggerFactory.getLogger(IpfixAggregator.class);
-    private final Cache<TemplateKey, ShallowTemplateSet.Record> templateCache;
-    private final Cache<TemplateKey, Queue<ShallowDataSet>> packetCache;
+
+    // exporters regularly resend their templates over UDP, so the templates of an exporter that hasn't sent anything
+    // for this long are not worth keeping around
+    private static final long EXPORTER_IDLE_TIMEOUT_HOURS = 1;
+    // number of locks guarding the state of the exporters, exporters hashing to the same stripe are serialized
+    private static final int EXPORTER_LOCK_STRIPES = 64;
+
+    // the templates of each exporter, keyed by TemplateKey#idForExporter
+    private final Cache<TemplateKey, ExporterTemplates> templateCache;
+    // the data sets of each exporter waiting for their templates, keyed by TemplateKey#idForExporter
+    private final Cache<TemplateKey, PendingDataSets> packetCache;
     private final IpfixParser shallowParser = new IpfixParser(InformationElementDefinitions.empty());
+    private final InformationElementDefinitions definitions;
+    private final IpfixAggregatorSettings settings;
+    private final MetricRegistry metricRegistry;
+    private final Meter evictedTemplates;
+    private final Meter expiredExporters;
+    private final Meter evictedExporters;
+    private final Meter bufferedDataSets;
+    private final Meter releasedDataSets;
+    private final Meter overflowDroppedDataSets;
+    private final Meter expiredDataSets;
+    private final Meter evictedDataSets;
+    // the metrics of the individual exporters, shared by all shards
+    private final ExporterMetrics exporterMetrics;
+    // shared by all shards, so the rate adapts to the lag of the whole input
+    @Nullable
+    private final FlowSampler flowSampler;
+    private final Meter sampledOutFlows;
+    // the ready data sets held back to be journaled together, only used if batching is enabled
+    private final ExporterBatches batches;
+    private final Striped<Lock> exporterLocks = Striped.lock(EXPORTER_LOCK_STRIPES);
+    // all shards created from the same aggregator, including itself, so the templates of the input can be snapshotted
+    private final List<IpfixAggregator> shards;
+    // the templates restored from a snapshot, every shard created later starts out with them
+    private final AtomicReference<Map<TemplateKey, Map<Integer, ExporterTemplates.Template>>> restoredTemplates;
 
     public IpfixAggregator() {
+        this(IpfixAggregatorSettings.builder().build(), InformationElementDefinitions.empty(), new MetricRegistry());
+    }
+
+    /**
+     * @param settings       the aggregator tunables
+     * @param definitions    the information element definitions, used to find templates with subTemplateLists
+     * @param metricRegistry the registry to add the aggregator's metrics to
+     */
+    public IpfixAggregator(IpfixAggregatorSettings settings, InformationElementDefinitions definitions, MetricRegistry metricRegistry) {
+        this(settings, definitions, metricRegistry, new CopyOnWriteArrayList<>(), new AtomicReference<>(Collections.emptyMap()),
+             new ExporterMetrics(metricRegistry, settings.maxExporterMetrics(), settings.maxTemplateMetrics()), flowSampler(settings));
+    }
+
+    @Nullable
+    private static FlowSampler flowSampler(IpfixAggregatorSettings settings) {
+        if (settings.samplingRate() <= 1 && settings.samplingMaxLagSeconds() <= 0) {
+            return null;
+        }
+        return new FlowSampler(settings.samplingRate(), TimeUnit.SECONDS.toMillis(settings.samplingMaxLagSeconds()), Ticker.systemTicker());
+    }
+
+    private IpfixAggregator(IpfixAggregatorSettings settings,
+                            InformationElementDefinitions definitions,
+                            MetricRegistry metricRegistry,
+                            List<IpfixAggregator> shards,
+                            AtomicReference<Map<TemplateKey, Map<Integer, ExporterTemplates.Template>>> restoredTemplates,
+                            ExporterMetrics exporterMetrics,
+                            @Nullable FlowSampler flowSampler) {
+        this.settings = settings;
+        this.exporterMetrics = exporterMetrics;
+        this.flowSampler = flowSampler;
+        this.sampledOutFlows = metricRegistry.meter("sampledOutFlows");
+        this.definitions = definitions;
+        this.metricRegistry = metricRegistry;
+        this.evictedTemplates = metricRegistry.meter("evictedTemplates");
+        this.expiredExporters = metricRegistry.meter("expiredExporters");
+        this.evictedExporters = metricRegistry.meter("evictedExporters");
         this.templateCache = CacheBuilder.newBuilder()
-                                         .maximumSize(5000)
-                                         .removalListener(notification -> LOG.debug("Removed [{}] from template cache for reason [{}]", notification.getKey(), notification.getCause()))
+                                         .expireAfterAccess(EXPORTER_IDLE_TIMEOUT_HOURS, TimeUnit.HOURS)
+                                         .maximumSize(settings.maxExporters())
+                                         .removalListener((RemovalListener<TemplateKey, ExporterTemplates>) notification -> {
+                                             LOG.debug("Removed [{}] from template cache for reason [{}]", notification.getKey(), notification.getCause());
+                                             if (notification.getCause() == RemovalCause.EXPIRED) {
+                                                 expiredExporters.mark();
+                                             } else if (notification.getCause() == RemovalCause.SIZE) {
+                                                 evictedExporters.mark();
+                                             }
+                                         })
                                          .recordStats()
                                          .build();
+        this.bufferedDataSets = metricRegistry.meter("bufferedDataSets");
+        this.releasedDataSets = metricRegistry.meter("releasedDataSets");
+        this.overflowDroppedDataSets = metricRegistry.meter("overflowDroppedDataSets");
+        this.expiredDataSets = metricRegistry.meter("expiredDataSets");
+        this.evictedDataSets = metricRegistry.meter("evictedDataSets");
+        // the pending data sets of an exporter are dropped once the exporter has not sent anything for the maximum age,
+        // otherwise they are expired whenever the exporter sends another packet
         this.packetCache = CacheBuilder.newBuilder()
-                                       .expireAfterWrite(1, TimeUnit.MINUTES)
-                                       .maximumWeight(Size.megabytes(1).toBytes())
-                                       .removalListener((RemovalListener<TemplateKey, Queue<ShallowDataSet>>) notification -> LOG.debug("Removed [{}] from packet cache for reason [{}]", notification.getKey(), notification.getCause()))
-                                       .weigher((key, value) -> value.stream().map(shallowDataSet -> shallowDataSet.content().length).reduce(0, Integer::sum))
-                                       .recordStats()
+                                       .expireAfterAccess(settings.maxPendingAgeSeconds(), TimeUnit.SECONDS)
+                                       .maximumSize(settings.maxPendingExporters())
+                                       .removalListener((RemovalListener<TemplateKey, PendingDataSets>) notification -> {
+                                           LOG.debug("Removed [{}] from packet cache for reason [{}]", notification.getKey(), notification.getCause());
+                                           // the buffered data sets hold copies of their records, give them back
+                                           final PendingDataSets pendingDataSets = notification.getValue();
+                                           if (pendingDataSets != null) {
+                                               pendingDataSets.close(droppedDataSetsMeter(notification.getCause()));
+                                           }
+                                       })
                                        .build();
+        this.batches = new ExporterBatches(settings.maxJournalEntryBytes(), TimeUnit.MILLISECONDS.toNanos(settings.batchDelayMillis()), Ticker.systemTicker());
+        this.shards = shards;
+        this.restoredTemplates = restoredTemplates;
+        putTemplates(restoredTemplates.get());
+        shards.add(this);
+    }
+
+    @Nullable
+    private Meter droppedDataSetsMeter(RemovalCause cause) {
+        switch (cause) {
+            case EXPIRED:
+                return expiredDataSets;
+            case SIZE:
+                return evictedDataSets;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Creates an aggregator with the same settings and metrics, but its own template and packet caches.
+     * <p>
+     * Each receiving socket uses its own shard, so the state of an exporter is only ever touched by the event loop of
+     * the socket its packets arrive on. With SO_REUSEPORT the kernel hashes the exporter's address to pick the socket,
+     * so all packets of an exporter end up in the same shard.
+     * Restored templates are known to all shards, because the socket of an exporter can change across restarts.
+     * </p>
+     *
+     * @return the new shard
+     */
+    public IpfixAggregator newShard() {
+        return new IpfixAggregator(settings, definitions, metricRegistry, shards, restoredTemplates, exporterMetrics, flowSampler);
+    }
+
+    /**
+     * Creates an aggregator for a single transport session, e.g. a TCP connection, with the same settings and metrics.
+     * <p>
+     * Templates are scoped to the transport session they are sent in (RFC 7011, section 8), so the shard neither
+     * starts out with restored templates nor is it part of the template snapshots. Its state is gone with the session.
+     * </p>
+     *
+     * @return the new shard
+     */
+    public IpfixAggregator newSessionShard() {
+        return new IpfixAggregator(settings, definitions, metricRegistry, new CopyOnWriteArrayList<>(),
+                                   new AtomicReference<>(Collections.emptyMap()), exporterMetrics, flowSampler);
+    }
+
+    ExporterMetrics exporterMetrics() {
+        return exporterMetrics;
+    }
+
+    /**
+     * @return the sampler of the input's flows, or {@code null} if sampling is disabled
+     */
+    @Nullable
+    FlowSampler flowSampler() {
+        return flowSampler;
+    }
+
+    /**
+     * Adds the templates of a previous snapshot to this aggregator and all of its shards, including the ones created
+     * later. Templates an exporter sends again replace the restored ones, and restored templates of exporters which
+     * do not send anything anymore expire like any other template.
+     *
+     * @param templates the templates of each exporter, keyed by {@link TemplateKey#idForExporter}
+     * @see #templateSnapshot()
+     */
+    public void restoreTemplates(Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates) {
+        restoredTemplates.set(templates);
+        for (IpfixAggregator shard : shards) {
+            shard.putTemplates(templates);
+        }
     }
 
+    /**
+     * Collects the current templates of this aggregator and all of its shards.
+     *
+     * @return the templates of each exporter, keyed by {@link TemplateKey#idForExporter}
+     */
+    public Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templateSnapshot() {
+        final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> snapshot = new HashMap<>();
+        for (IpfixAggregator shard : shards) {
+            shard.templateCache.asMap().forEach((exporterKey, exporterTemplates) ->
+                    snapshot.computeIfAbsent(exporterKey, key -> new HashMap<>()).putAll(exporterTemplates.all()));
+        }
+        return snapshot;
+    }
+
+    private void putTemplates(Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates) {
+        templates.forEach((exporterKey, exporterTemplates) -> {
+            final Lock exporterLock = exporterLocks.get(exporterKey);
+            exporterLock.lock();
+            try {
+                final ExporterTemplates existing = templateCache.asMap().computeIfAbsent(exporterKey,
+                        key -> new ExporterTemplates(settings.maxTemplateBytesPerExporter(), evictedTemplates));
+                // templates received in the meantime are newer than the restored ones
+                exporterTemplates.forEach((templateId, template) -> {
+                    if (!existing.contains(templateId)) {
+                        existing.put(templateId, template);
+                    }
+                });
+            } finally {
+                exporterLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Adds the templates of the message to the exporter's templates, ignoring its data sets.
+     * <p>
+     * Used to find the templates in effect at any point of a recorded message stream, without the cost of journaling.
+     * </p>
+     *
+     * @param buf           the IPFIX message
+     * @param remoteAddress the address of the exporter
+     */
+    public void learnTemplates(ByteBuf buf, @Nullable SocketAddress remoteAddress) {
+        final IpfixParser.MessageDescription messageDescription = shallowParser.shallowParseMessage(buf);
+        final TemplateKey exporterKey = TemplateKey.idForExporter(remoteAddress, messageDescription.getHeader().observationDomainId());
+        final Lock exporterLock = exporterLocks.get(exporterKey);
+        exporterLock.lock();
+        try {
+            addTemplates(templateCache.asMap().computeIfAbsent(exporterKey,
+                    key -> new ExporterTemplates(settings.maxTemplateBytesPerExporter(), evictedTemplates)), messageDescription);
+        } finally {
+            exporterLock.unlock();
+        }
+    }
+
+    /**
+     * Drops all buffered data sets, releasing their copied records, and all batches which have not been journaled
+     * yet.
+     */
+    public void discardBufferedPackets() {
+        packetCache.invalidateAll();
+        batches.clear();
+    }
+
+    /**
+     * Journals the batches of all exporters which have waited for the maximum batching delay.
+     *
+     * @param all whether to journal all batches regardless of their age, e.g. because the channel is closed
+     * @return the journal entries of each exporter
+     */
+    @Nonnull
+    public List<JournalEntries> flushBatches(boolean all) {
+        final List<JournalEntries> flushed = new ArrayList<>();
+        for (ExporterBatches.Batch batch : batches.removeComplete(all)) {
+            final List<ByteBuf> messages = new ArrayList<>(1);
+            addJournalEntries(messages, batch);
+            flushed.add(new JournalEntries(messages, true, batch.exporterKey().getRemoteAddress()));
+        }
+        return flushed;
+    }
+
+    /**
+     * @return the nanoseconds until the next batch has to be journaled, or -1 if there are no batches
+     */
+    public long nanosUntilNextBatchFlush() {
+        return batches.nanosUntilNextComplete();
+    }
+
+    /**
+     * Aggregates the packet into a single journal entry, regardless of its size.
+     *
+     * @see #addChunks(ByteBuf, SocketAddress)
+     */
     @Nonnull
     @Override
     public Result addChunk(ByteBuf buf, @Nullable SocketAddress remoteAddress) {
+        final JournalEntries entries = aggregate(buf, remoteAddress, Long.MAX_VALUE, false);
+        return new Result(entries.messages().isEmpty() ? null : entries.messages().get(0), entries.isValid());
+    }
+
+    /**
+     * Aggregates the packet into journal entries of at most {@link IpfixAggregatorSettings#maxJournalEntryBytes()} data
+     * record bytes each, with a single data set being the smallest unit.
+     * <p>
+     * When a template arrives, all data sets buffered for it become ready at once. Splitting them into several journal
+     * entries allows them to be decoded by all processor threads instead of a single one.
+     * </p>
+     * <p>
+     * If {@link IpfixAggregatorSettings#batchDelayMillis() batching} is enabled, the ready data sets of an exporter are
+     * held back until they fill a journal entry, so its templates are written once for many packets. The caller has to
+     * {@link #flushBatches(boolean) flush} the batches which are not full once they have waited long enough.
+     * </p>
+     *
+     * @param buf           the received packet
+     * @param remoteAddress the address of the exporter
+     * @return the journal entries to write, possibly none
+     */
+    @Nonnull
+    public JournalEntries addChunks(ByteBuf buf, @Nullable SocketAddress remoteAddress) {
+        return aggregate(buf, remoteAddress, settings.maxJournalEntryBytes(), settings.batchDelayMillis() > 0);
+    }
+
+    private JournalEntries aggregate(ByteBuf buf, @Nullable SocketAddress remoteAddress, long maxEntryBytes, boolean batch) {
+        final ExporterMetrics.Exporter exporter = exporterMetrics.exporter(remoteAddress);
+        exporter.packets.mark();
+        exporter.bytes.mark(buf.readableBytes());
         if (!buf.isReadable(2)) {
-            return new Result(null, false);
+            exporter.invalidPackets.mark();
+            return JournalEntries.INVALID;
         }
+        // previously buffered data sets that are sent with this packet, they need to be released after journaling them
+        final List<ShallowDataSet> unbufferedPackets = new ArrayList<>();
         try {
             final IpfixParser.MessageDescription messageDescription = shallowParser.shallowParseMessage(buf);
             final long observationDomainId = messageDescription.getHeader().observationDomainId();
-            addTemplateKeyInCache(remoteAddress, messageDescription, observationDomainId);
-            // TODO handle options templates
+            final TemplateKey exporterKey = TemplateKey.idForExporter(remoteAddress, observationDomainId);
 
             // collects all data records that are now ready to be sent
-            final Set<ShallowDataSet> packetsToSendCollection = new HashSet<>();
+            final List<ShallowDataSet> packetsToSendCollection = new ArrayList<>();
+            final List<ByteBuf> messages = new ArrayList<>(1);
+            final ExporterTemplates exporterTemplates;
 
-            // the set of template records to include in the newly created message that is our "aggregate result"
-            final Set<Integer> bufferedTemplateIdList = new HashSet<>();
+            // adding templates, draining the buffered data sets and buffering the current ones must happen atomically
+            // for each exporter, otherwise a data set could be buffered right after its template arrived and the buffer
+            // has been drained, and it would be stuck until it expires
+            final Lock exporterLock = exporterLocks.get(exporterKey);
+            exporterLock.lock();
+            try {
+                exporterTemplates = templateCache.get(exporterKey,
+                        () -> new ExporterTemplates(settings.maxTemplateBytesPerExporter(), evictedTemplates));
+                if (batch && !messageDescription.declaredTemplateIds().isEmpty()) {
+                    // the batched data sets have to be journaled with the templates they were received with
+                    final ExporterBatches.Batch previousBatch = batches.remove(exporterKey);
+                    if (previousBatch != null) {
+                        addJournalEntries(messages, previousBatch);
+                    }
+                }
+                addTemplates(exporterTemplates, messageDescription);
+                exporter.sequence(exporterKey, messageDescription.getHeader().sequenceNumber(),
+                                  dataRecords(exporterTemplates, messageDescription));
+                // TODO handle options templates
 
-            if (!messageDescription.declaredTemplateIds().isEmpty()) {
-                // if we have new templates, look for buffered data records that we have all the templates for now
-                final Set<Integer> knownTemplateIdsList = new HashSet<>();
-                collectAllTemplateIds(remoteAddress, observationDomainId, knownTemplateIdsList);
+                final PendingDataSets pendingDataSets = packetCache.getIfPresent(exporterKey);
+                if (pendingDataSets != null) {
+                    pendingDataSets.expire();
+                    if (!messageDescription.declaredTemplateIds().isEmpty()) {
+                        // if we have new templates, look for buffered data records that we have all the templates for now
+                        final int drained = pendingDataSets.drainReady(exporterTemplates, packetsToSendCollection);
+                        LOG.debug("Processing [{}] previously buffered data sets, [{}] data sets require more templates.", drained, pendingDataSets.size());
+                        unbufferedPackets.addAll(packetsToSendCollection);
+                    }
+                }
 
-                final Queue<ShallowDataSet> bufferedPackets = packetCache.getIfPresent(TemplateKey.idForExporter(remoteAddress, observationDomainId));
-                handleBufferedPackets(packetsToSendCollection, bufferedTemplateIdList, knownTemplateIdsList, bufferedPackets);
-            }
-            boolean packetBuffered = false;
-
-            // the list of template keys to return in the result ( TODO this copies all of the templates all the time :( )
-            final Set<TemplateKey> templatesList = new HashSet<>(templateCache.asMap().keySet());
-
-            bufferedTemplateIdList.addAll(messageDescription.referencedTemplateIds());
-            LOG.debug("Finding the needed templates for the buffered and current packets");
-            for (int templateId : bufferedTemplateIdList) {
-                final TemplateKey templateKey = new TemplateKey(remoteAddress, observationDomainId, templateId);
-                final Object template = templateCache.getIfPresent(templateKey);
-
-                if (template == null) {
-                    LOG.debug("Template is null, packet needs to be buffered until templates have been received.");
-                    try {
-                        final TemplateKey newTemplateKey = TemplateKey.idForExporter(remoteAddress, observationDomainId);
-                        final Queue<ShallowDataSet> bufferedPackets = packetCache.get(newTemplateKey, ConcurrentLinkedQueue::new);
-                        final byte[] bytes = ByteBufUtil.getBytes(buf);
-                        bufferedPackets.addAll(messageDescription.dataSets());
+                LOG.debug("Finding the needed templates for the current packet");
+                boolean packetBuffered = false;
+                for (int templateId : messageDescription.referencedTemplateIds()) {
+                    if (!exporterTemplates.contains(templateId)) {
+                        LOG.debug("Template [{}] is unknown, packet needs to be buffered until templates have been received.", templateId);
+                        exporter.missingTemplates.mark();
+                        final PendingDataSets exporterPendingDataSets = packetCache.get(exporterKey, this::newPendingDataSets);
+                        // the data sets are slices of the packet, they are copied until their templates arrive
+                        for (ShallowDataSet dataSet : messageDescription.dataSets()) {
+                            exporterPendingDataSets.add(dataSet);
+                        }
                         packetBuffered = true;
-                    } catch (ExecutionException ignored) {
-                        // the loader cannot fail, it only creates a new queue
+                        break;
                     }
-                } else {
-                    LOG.debug("Template [{}] has been added to template list.", templateKey);
-                    templatesList.add(templateKey);
+                }
+                if (!packetBuffered) {
                     packetsToSendCollection.addAll(messageDescription.dataSets());
                 }
+            } finally {
+                exporterLock.unlock();
             }
 
-            // if we have buffered this packet, don't try to process it now. we still need all the templates for it
-            if (packetBuffered) {
-                LOG.debug("Packet has been buffered and will not be processed now, returning result.");
-                return new Result(null, true);
+            if (batch && !packetsToSendCollection.isEmpty()) {
+                final ExporterBatches.Batch fullBatch = batches.add(exporterKey, exporterTemplates, packetsToSendCollection);
+                if (fullBatch != null) {
+                    addJournalEntries(messages, fullBatch);
+                }
+            } else if (!packetsToSendCollection.isEmpty()) {
+                for (IpfixJournal.RawIpfix rawIpfix : buildJournalEntries(packetsToSendCollection, exporterTemplates, maxEntryBytes)) {
+                    messages.add(getCompleteResult(rawIpfix).getMessage());
+                }
             }
 
             // if we didn't buffer anything but also didn't have anything queued that can be processed, don't proceed.
-            if (packetsToSendCollection.isEmpty()) {
-                LOG.debug("Packet has not been buffered and no packet is queued.");
-                return new Result(null, true);
+            if (messages.isEmpty()) {
+                LOG.debug("No data sets can be processed now, returning result.");
+                return JournalEntries.EMPTY;
             }
-
-            final IpfixJournal.RawIpfix.Builder journalBuilder = IpfixJournal.RawIpfix.newBuilder();
-            buildJournalObject(packetsToSendCollection, templatesList, journalBuilder);
-            final IpfixJournal.RawIpfix rawIpfix = journalBuilder.build();
-            return getCompleteResult(rawIpfix);
+            return new JournalEntries(messages, true, remoteAddress);
 
         } catch (Exception e) {
             LOG.error("Unable to aggregate IPFIX message due to the following error ", e);
-            return new Result(null, false);
+            exporter.invalidPackets.mark();
+            return JournalEntries.INVALID;
+        } finally {
+            unbufferedPackets.forEach(ShallowDataSet::release);
+        }
+    }
+
+    /**
+     * Splits the data sets into journal entries of at most {@code maxEntryBytes} data record bytes, each of them
+     * carrying only the templates its own data sets need.
+     *
+     * @param dataSets          the data sets to journal, all from the same exporter
+     * @param exporterTemplates the templates of the exporter
+     * @param maxEntryBytes     the maximum number of data record bytes per entry, a larger data set gets its own entry
+     * @return the journal entries
+     */
+    List<IpfixJournal.RawIpfix> buildJournalEntries(Collection<ShallowDataSet> dataSets, ExporterTemplates exporterTemplates, long maxEntryBytes) {
+        final List<IpfixJournal.RawIpfix> entries = new ArrayList<>(1);
+        final List<ShallowDataSet> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (ShallowDataSet dataSet : dataSets) {
+            final int dataSetBytes = dataSet.content().readableBytes();
+            if (!batch.isEmpty() && batchBytes + dataSetBytes > maxEntryBytes) {
+                addJournalEntry(entries, batch, exporterTemplates);
+                batch.clear();
+                batchBytes = 0;
+            }
+            batch.add(dataSet);
+            batchBytes += dataSetBytes;
+        }
+        if (!batch.isEmpty()) {
+            addJournalEntry(entries, batch, exporterTemplates);
+        }
+        return entries;
+    }
+
+    private void addJournalEntry(List<IpfixJournal.RawIpfix> entries, Collection<ShallowDataSet> dataSets, ExporterTemplates exporterTemplates) {
+        final IpfixJournal.RawIpfix entry = buildJournalEntry(dataSets, exporterTemplates);
+        // all of the data records may have been sampled out
+        if (entry.getDataSetsCount() > 0) {
+            entries.add(entry);
+        }
+    }
+
+    private void addJournalEntries(List<ByteBuf> messages, ExporterBatches.Batch batch) {
+        try {
+            for (IpfixJournal.RawIpfix rawIpfix : buildJournalEntries(batch.dataSets(), batch.exporterTemplates(), settings.maxJournalEntryBytes())) {
+                messages.add(getCompleteResult(rawIpfix).getMessage());
+            }
+        } finally {
+            batch.release();
         }
     }
 
-    public void buildJournalObject(Set<ShallowDataSet> packetsToSendCollection, Set<TemplateKey> templatesList, IpfixJournal.RawIpfix.Builder journalBuilder) {
+    private IpfixJournal.RawIpfix buildJournalEntry(Collection<ShallowDataSet> dataSets, ExporterTemplates exporterTemplates) {
+        final IpfixJournal.RawIpfix.Builder journalBuilder = IpfixJournal.RawIpfix.newBuilder();
+        buildJournalObject(dataSets, exporterTemplates, journalBuilder);
+        return journalBuilder.build();
+    }
+
+    /**
+     * Adds the data sets and the templates they reference to the journal entry.
+     * <p>
+     * Only the templates of the data sets' exporter which are actually used are included. Templates with list fields
+     * can refer to any other template of the exporter from within their data records, which we cannot know without
+     * parsing them, so in that case all of the exporter's templates are included.
+     * </p>
+     *
+     * @param packetsToSendCollection the data sets to journal, all from the same exporter
+     * @param exporterTemplates       the templates of the exporter
+     * @param journalBuilder          the journal entry to add the data to
+     */
+    void buildJournalObject(Collection<ShallowDataSet> packetsToSendCollection, ExporterTemplates exporterTemplates, IpfixJournal.RawIpfix.Builder journalBuilder) {
         LOG.debug("Assembling the packet with necessary templates and data records which include the templates needed.");
-        for (TemplateKey templateKey : templatesList) {
-            final ShallowTemplateSet.Record record = templateCache.getIfPresent(templateKey);
-            journalBuilder.putTemplates(templateKey.getTemplateId(), ByteString.copyFrom(record.getRecordBytes()));
+        final Map<Integer, ExporterTemplates.Template> templates = new HashMap<>();
+        for (ShallowDataSet dataSet : packetsToSendCollection) {
+            final ExporterTemplates.Template template = exporterTemplates.get(dataSet.templateId());
+            if (template == null) {
+                // evicted between checking for and building the entry, the codec will report the data set
+                continue;
+            }
+            if (template.referencesTemplates()) {
+                templates.putAll(exporterTemplates.all());
+                break;
+            }
+            templates.put(dataSet.templateId(), template);
         }
+        templates.forEach((templateId, template) -> journalBuilder.putTemplates(templateId, template.recordBytes()));
 
         // TODO write out options template sets, too
 
         // in IPFIX a data set contains records for the same template id, so we can just dump the entire set and don't
-        // have to deal with records at all
+        // have to deal with records at all, unless they are sampled
+        // the data records are only wrapped, they are copied once when the journal entry is serialized
         LOG.debug("IPFIX data set has been processed for the same template id, adding data set to IPFIX journal.");
+        final int samplingRate = flowSampler == null ? 1 : flowSampler.rate();
         for (ShallowDataSet dataSet : packetsToSendCollection) {
-            journalBuilder.addDataSets(IpfixJournal.DataSet.newBuilder()
-                                                           .setTemplateId(dataSet.templateId())
-                                                           .setTimestampEpochSeconds(dataSet.epochSeconds())
-                                                           .setDataRecords(ByteString.copyFrom(dataSet.content()))
-                                                           .build());
+            final IpfixJournal.DataSet.Builder dataSetBuilder = IpfixJournal.DataSet.newBuilder()
+                                                                                    .setTemplateId(dataSet.templateId())
+                                                                                    .setTimestampEpochSeconds(dataSet.epochSeconds());
+            ByteBuf dataRecords = dataSet.content();
+            final ExporterTemplates.Template template = flowSampler == null ? null : templates.get(dataSet.templateId());
+            final FlowSampler.FlowKey flowKey = template == null ? null : template.flowKey();
+            // data sets which are not sampled are journaled just like without a sampler
+            if (flowKey != null && samplingRate > 1) {
+                final ByteBuf keptRecords = flowSampler.sample(dataRecords, flowKey, samplingRate);
+                sampledOutFlows.mark((dataRecords.readableBytes() - keptRecords.readableBytes()) / flowKey.recordLength());
+                if (!keptRecords.isReadable()) {
+                    continue;
+                }
+                dataRecords = keptRecords;
+                dataSetBuilder.setSamplingRate(samplingRate);
+            }
+            journalBuilder.addDataSets(dataSetBuilder.setDataRecords(UnsafeByteOperations.unsafeWrap(dataRecords.nioBuffer())).build());
         }
     }
 
     public Result getCompleteResult(IpfixJournal.RawIpfix rawIpfix) {
         LOG.debug("Raw ipfix object complete, returning result.");
+        // the serialized journal entry must not reference the packet buffers, which are released after aggregation.
+        // the result isn't released by the downstream handlers either, so it has to be an unpooled heap buffer.
         return new Result(Unpooled.wrappedBuffer(rawIpfix.toByteArray()), true);
     }
 
-    public void handleBufferedPackets(Set<ShallowDataSet> packetsToSendCollection, Set<Integer> bufferedTemplateIdList,
-                                      Set<Integer> knownTemplateIdsList, Queue<ShallowDataSet> bufferedPackets) {
-        if (bufferedPackets != null) {
-            LOG.debug("Buffered packets detected in the packet cache.");
-            final List<ShallowDataSet> tempQueue = new ArrayList<>(bufferedPackets.size());
-            ShallowDataSet previousPacket;
-            int addedPackets = 0;
-            while (null != (previousPacket = bufferedPackets.poll())) {
-                // are all templates the packet references there?
-                if (knownTemplateIdsList.contains(previousPacket.templateId())) {
-                    LOG.debug("Packet contains template id from a known template, adding to packets to send set.");
-                    packetsToSendCollection.add(previousPacket);
-                    bufferedTemplateIdList.add(previousPacket.templateId());
-                    addedPackets++;
-                } else {
-                    LOG.debug("Packet contains unknown template id, adding to temporary queue.");
-                    tempQueue.add(previousPacket);
-                }
-            }
-            LOG.debug("Processing [{}] previously buffered packets, [{}] packets require more templates.", addedPackets, tempQueue.size());
-            // if we couldn't process some of the buffered packets, add them back to the queue to wait for more templates to come in
-            if (!tempQueue.isEmpty()) {
-                LOG.debug("Buffered packets could not be processed, adding to temporary queue to wait for more templates.");
-                bufferedPackets.addAll(tempQueue);
+    private PendingDataSets newPendingDataSets() {
+        return new PendingDataSets(settings.maxPendingBytesPerExporter(),
+                                   TimeUnit.SECONDS.toNanos(settings.maxPendingAgeSeconds()),
+                                   Ticker.systemTicker(),
+                                   bufferedDataSets,
+                                   releasedDataSets,
+                                   overflowDroppedDataSets,
+                                   expiredDataSets);
+    }
+
+    /**
+     * @return the number of data records in the message, or -1 if it cannot be told without parsing them
+     */
+    private static long dataRecords(ExporterTemplates exporterTemplates, IpfixParser.MessageDescription messageDescription) {
+        long dataRecords = 0;
+        for (ShallowDataSet dataSet : messageDescription.dataSets()) {
+            final ExporterTemplates.Template template = exporterTemplates.get(dataSet.templateId());
+            final long records = template == null ? -1 : template.dataRecords(dataSet.content().readableBytes());
+            if (records < 0) {
+                return -1;
             }
+            dataRecords += records;
         }
+        return dataRecords;
     }
 
-    public void collectAllTemplateIds(@Nullable SocketAddress remoteAddress, long observationDomainId, Set<Integer> knownTemplateIdsList) {
-        LOG.debug("Collecting all templateIds from templateKeys stored in templateCache.");
-        for (TemplateKey templateKey : templateCache.asMap().keySet()) {
-            if (templateKey.getRemoteAddress() == remoteAddress && templateKey.getObservationDomainId() == observationDomainId) {
-                final Integer templateId = templateKey.getTemplateId();
-                knownTemplateIdsList.add(templateId);
+    private void addTemplates(ExporterTemplates exporterTemplates, IpfixParser.MessageDescription messageDescription) {
+        for (ShallowTemplateSet.Record record : messageDescription.templateRecords()) {
+            LOG.debug("Saving template [{}] (raw bytes) in template cache to combine in new message later.", record.getTemplateId());
+            final ByteBuf recordBytes = record.getRecordBytes();
+            final TemplateRecord templateRecord = shallowParser.parseTemplateRecord(recordBytes.duplicate());
+            exporterTemplates.put(record.getTemplateId(), recordBytes, referencesTemplates(templateRecord));
+        }
+    }
+
+    private boolean referencesTemplates(TemplateRecord templateRecord) {
+        for (InformationElement informationElement : templateRecord.informationElements()) {
+            final InformationElementDefinition definition = definitions.getDefinition(informationElement.id(), informationElement.enterpriseNumber());
+            // without a definition we have to assume the worst
+            if (definition.isUnknown()) {
+                return true;
+            }
+            switch (definition.dataType()) {
+                case SUBTEMPLATELIST:
+                case SUBTEMPLATEMULTILIST:
+                    return true;
+                default:
+                    break;
             }
         }
+        return false;
     }
 
-    public void addTemplateKeyInCache(@Nullable SocketAddress remoteAddress, IpfixParser.MessageDescription messageDescription, long observationDomainId) {
-        for (Integer templateId : messageDescription.declaredTemplateIds()) {
-            final TemplateKey templateKey = new TemplateKey(remoteAddress, observationDomainId, templateId);
-            LOG.debug("Created template key with remote address [{}], observation domain ID [{}] and " +
-                      "template ID [{}].", templateKey.getRemoteAddress(), templateKey.getObservationDomainId(), templateKey.getTemplateId());
+    /**
+     * The serialized journal entries resulting from a single packet.
+     */
+    public static class JournalEntries {
+        static final JournalEntries EMPTY = new JournalEntries(Collections.emptyList(), true, null);
+        static final JournalEntries INVALID = new JournalEntries(Collections.emptyList(), false, null);
+
+        private final List<ByteBuf> messages;
+        private final boolean valid;
+        private final SocketAddress remoteAddress;
+
+        JournalEntries(List<ByteBuf> messages, boolean valid, @Nullable SocketAddress remoteAddress) {
+            this.messages = messages;
+            this.valid = valid;
+            this.remoteAddress = remoteAddress;
+        }
+
+        /**
+         * @return the journal entries, empty if the packet's data sets have been buffered or the packet was invalid
+         */
+        public List<ByteBuf> messages() {
+            return messages;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
 
-            templateCache.put(templateKey, messageDescription.getTemplateRecord(templateId));
-            LOG.debug("Saving templates key (raw bytes) in template cache to combine in new message later.");
+        /**
+         * @return the address of the exporter the journal entries belong to
+         */
+        @Nullable
+        public SocketAddress remoteAddress() {
+            return remoteAddress;
         }
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.auto.value.AutoValue;
+import org.graylog2.plugin.configuration.Configuration;
+
+/**
+ * Tunables of the {@link IpfixAggregator}, taken from the input configuration.
+ */
+@AutoValue
+public abstract class IpfixAggregatorSettings {
+    static final int DEFAULT_TEMPLATE_KB_PER_EXPORTER = 64;
+    static final int DEFAULT_JOURNAL_ENTRY_KB = 32;
+    static final int DEFAULT_PENDING_KB_PER_EXPORTER = 256;
+    static final int DEFAULT_PENDING_MAX_AGE_SECONDS = 60;
+    static final int DEFAULT_MAX_EXPORTERS = 10_000;
+    static final int DEFAULT_MAX_PENDING_EXPORTERS = 1_000;
+    static final int DEFAULT_BATCH_DELAY_MILLIS = 0;
+    static final int DEFAULT_MAX_EXPORTER_METRICS = 100;
+    static final int DEFAULT_MAX_TEMPLATE_METRICS = 500;
+    static final int DEFAULT_SAMPLING_RATE = 1;
+    static final int DEFAULT_SAMPLING_MAX_LAG_SECONDS = 0;
+
+    /**
+     * @return the maximum number of bytes of template records kept for a single exporter, the least recently used
+     * templates are evicted when it is exceeded
+     */
+    public abstract long maxTemplateBytesPerExporter();
+
+    /**
+     * @return the maximum number of data record bytes in a single journal entry, larger batches of data sets are split
+     * into several entries so they can be decoded in parallel
+     */
+    public abstract long maxJournalEntryBytes();
+
+    /**
+     * @return the maximum number of bytes of data sets buffered for a single exporter while waiting for their templates,
+     * the oldest data sets are dropped when it is exceeded
+     */
+    public abstract long maxPendingBytesPerExporter();
+
+    /**
+     * @return the maximum number of seconds a data set waits for its template before it is dropped
+     */
+    public abstract long maxPendingAgeSeconds();
+
+    /**
+     * @return the maximum number of exporters whose templates are kept, the least recently active exporter is evicted
+     * when it is exceeded
+     */
+    public abstract long maxExporters();
+
+    /**
+     * @return the maximum number of exporters with data sets waiting for their templates, the data sets of the least
+     * recently active exporter are dropped when it is exceeded
+     */
+    public abstract long maxPendingExporters();
+
+    /**
+     * @return the maximum number of milliseconds the ready data sets of an exporter are held back to write them as a
+     * single journal entry of up to {@link #maxJournalEntryBytes()}, 0 to write the data sets of every packet right away
+     */
+    public abstract long batchDelayMillis();
+
+    /**
+     * @return the maximum number of exporters with their own metrics, the least recently active ones lose theirs
+     */
+    public abstract long maxExporterMetrics();
+
+    /**
+     * @return the maximum number of templates with their own decode time metrics, across all exporters
+     */
+    public abstract long maxTemplateMetrics();
+
+    /**
+     * @return keep one in this many flows, 1 to keep all flows unless adaptive sampling kicks in
+     */
+    public abstract int samplingRate();
+
+    /**
+     * @return the maximum number of seconds between receiving and decoding a journal entry before the sampling rate is
+     * increased, 0 to always sample with {@link #samplingRate()}
+     */
+    public abstract long samplingMaxLagSeconds();
+
+    public static IpfixAggregatorSettings fromConfiguration(Configuration configuration) {
+        return builder()
+                .maxTemplateBytesPerExporter(1024L * configuration.getInt(IpfixCodec.CK_TEMPLATE_KB_PER_EXPORTER, DEFAULT_TEMPLATE_KB_PER_EXPORTER))
+                .maxJournalEntryBytes(1024L * configuration.getInt(IpfixCodec.CK_JOURNAL_ENTRY_KB, DEFAULT_JOURNAL_ENTRY_KB))
+                .maxPendingBytesPerExporter(1024L * configuration.getInt(IpfixCodec.CK_PENDING_KB_PER_EXPORTER, DEFAULT_PENDING_KB_PER_EXPORTER))
+                .maxPendingAgeSeconds(configuration.getInt(IpfixCodec.CK_PENDING_MAX_AGE_SECONDS, DEFAULT_PENDING_MAX_AGE_SECONDS))
+                .maxExporters(configuration.getInt(IpfixCodec.CK_MAX_EXPORTERS, DEFAULT_MAX_EXPORTERS))
+                .maxPendingExporters(configuration.getInt(IpfixCodec.CK_MAX_PENDING_EXPORTERS, DEFAULT_MAX_PENDING_EXPORTERS))
+                .batchDelayMillis(configuration.getInt(IpfixCodec.CK_JOURNAL_BATCH_DELAY_MS, DEFAULT_BATCH_DELAY_MILLIS))
+                .maxExporterMetrics(configuration.getInt(IpfixCodec.CK_MAX_EXPORTER_METRICS, DEFAULT_MAX_EXPORTER_METRICS))
+                .maxTemplateMetrics(configuration.getInt(IpfixCodec.CK_MAX_TEMPLATE_METRICS, DEFAULT_MAX_TEMPLATE_METRICS))
+                .samplingRate(configuration.getInt(IpfixCodec.CK_SAMPLING_RATE, DEFAULT_SAMPLING_RATE))
+                .samplingMaxLagSeconds(configuration.getInt(IpfixCodec.CK_SAMPLING_MAX_LAG_SECONDS, DEFAULT_SAMPLING_MAX_LAG_SECONDS))
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_IpfixAggregatorSettings.Builder()
+                .maxTemplateBytesPerExporter(1024L * DEFAULT_TEMPLATE_KB_PER_EXPORTER)
+                .maxJournalEntryBytes(1024L * DEFAULT_JOURNAL_ENTRY_KB)
+                .maxPendingBytesPerExporter(1024L * DEFAULT_PENDING_KB_PER_EXPORTER)
+                .maxPendingAgeSeconds(DEFAULT_PENDING_MAX_AGE_SECONDS)
+                .maxExporters(DEFAULT_MAX_EXPORTERS)
+                .maxPendingExporters(DEFAULT_MAX_PENDING_EXPORTERS)
+                .batchDelayMillis(DEFAULT_BATCH_DELAY_MILLIS)
+                .maxExporterMetrics(DEFAULT_MAX_EXPORTER_METRICS)
+                .maxTemplateMetrics(DEFAULT_MAX_TEMPLATE_METRICS)
+                .samplingRate(DEFAULT_SAMPLING_RATE)
+                .samplingMaxLagSeconds(DEFAULT_SAMPLING_MAX_LAG_SECONDS);
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder maxTemplateBytesPerExporter(long maxTemplateBytesPerExporter);
+
+        public abstract Builder maxJournalEntryBytes(long maxJournalEntryBytes);
+
+        public abstract Builder maxPendingBytesPerExporter(long maxPendingBytesPerExporter);
+
+        public abstract Builder maxPendingAgeSeconds(long maxPendingAgeSeconds);
+
+        public abstract Builder maxExporters(long maxExporters);
+
+        public abstract Builder maxPendingExporters(long maxPendingExporters);
+
+        public abstract Builder batchDelayMillis(long batchDelayMillis);
+
+        public abstract Builder maxExporterMetrics(long maxExporterMetrics);
+
+        public abstract Builder maxTemplateMetrics(long maxTemplateMetrics);
+
+        public abstract Builder samplingRate(int samplingRate);
+
+        public abstract Builder samplingMaxLagSeconds(long samplingMaxLagSeconds);
+
+        public abstract IpfixAggregatorSettings build();
+    }
+}
@@ -16,18 +16,19 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.io.Resources;
+import com.google.common.collect.Maps;
 import com.google.inject.assistedinject.Assisted;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.netty.buffer.Unpooled;
-import org.graylog.integrations.ipfix.Flow;
+import org.graylog.integrations.ipfix.FlowVisitor;
 import org.graylog.integrations.ipfix.InformationElementDefinitions;
 import org.graylog.integrations.ipfix.IpfixException;
 import org.graylog.integrations.ipfix.IpfixJournal;
 import org.graylog.integrations.ipfix.IpfixParser;
+import org.graylog.integrations.ipfix.TemplateDecoder;
 import org.graylog.integrations.ipfix.TemplateRecord;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.ResolvableInetSocketAddress;
@@ -35,6 +36,8 @@ import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.plugin.configuration.fields.ConfigurationField;
 import org.graylog2.plugin.configuration.fields.ListField;
+import org.graylog2.plugin.configuration.fields.NumberField;
+import org.graylog2.plugin.configuration.fields.TextField;
 import org.graylog2.plugin.inputs.annotations.Codec;
 import org.graylog2.plugin.inputs.annotations.ConfigClass;
 import org.graylog2.plugin.inputs.annotations.FactoryClass;
@@ -44,8 +47,7 @@ import org.graylog2.plugin.inputs.codecs.MultiMessageCodec;
 import org.graylog2.plugin.inputs.transports.NettyTransport;
 import org.graylog2.plugin.journal.RawMessage;
 import org.joda.time.DateTime;
-import org.jooq.lambda.Seq;
-import org.jooq.lambda.tuple.Tuple2;
+import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,66 +57,158 @@ import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.nio.file.Paths;
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Codec(name = "ipfix", displayName = "IPFIX Codec")
 public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
 
     @VisibleForTesting
     static final String CK_IPFIX_DEFINITION_PATH = "ipfix_definition_path";
+    static final String CK_TEMPLATE_KB_PER_EXPORTER = "template_cache_kb_per_exporter";
+    static final String CK_ADDRESS_CACHE_SIZE = "address_cache_size";
+    static final String CK_INCLUDED_FIELDS = "included_fields";
+    static final String CK_JOURNAL_ENTRY_KB = "journal_entry_max_kb";
+    static final String CK_PENDING_KB_PER_EXPORTER = "pending_data_kb_per_exporter";
+    static final String CK_PENDING_MAX_AGE_SECONDS = "pending_data_max_age_seconds";
+    static final String CK_MAX_EXPORTERS = "template_cache_max_exporters";
+    static final String CK_MAX_PENDING_EXPORTERS = "pending_data_max_exporters";
+    static final String CK_JOURNAL_BATCH_DELAY_MS = "journal_batch_delay_ms";
+    static final String CK_ROLLUP_WINDOW_SECONDS = "rollup_window_seconds";
+    static final String CK_ROLLUP_KEY_FIELDS = "rollup_key_fields";
+    static final String CK_ROLLUP_MAX_KEYS = "rollup_max_keys";
+    static final String CK_SAMPLING_RATE = "sampling_rate";
+    static final String CK_SAMPLING_MAX_LAG_SECONDS = "adaptive_sampling_max_lag_seconds";
+    static final String CK_DUPLICATE_WINDOW_SECONDS = "duplicate_flow_window_seconds";
+    static final String CK_DUPLICATE_KEY_FIELDS = "duplicate_flow_key_fields";
+    static final String CK_DUPLICATE_FILTER_KB = "duplicate_flow_filter_kb";
+    static final String CK_MAX_EXPORTER_METRICS = "exporter_metrics_max_exporters";
+    static final String CK_MAX_TEMPLATE_METRICS = "exporter_metrics_max_templates";
+    static final String CK_TEMPLATE_SNAPSHOT_FILE = "template_snapshot_file";
+    static final String CK_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS = "template_snapshot_interval_seconds";
     private static final Logger LOG = LoggerFactory.getLogger(IpfixCodec.class);
 
     @VisibleForTesting
     static final String IPFIX_STANDARD_DEFINITION = "/ipfix-iana-elements.json";
+    static final int DEFAULT_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS = 300;
+    static final int DEFAULT_ROLLUP_MAX_KEYS = 100_000;
+    static final int DEFAULT_DUPLICATE_FILTER_KB = 1024;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    // the aggregator passed in by tests, otherwise the input state creates one
+    @Nullable
     private final IpfixAggregator ipfixAggregator;
-    private final IpfixParser parser;
-    private InformationElementDefinitions infoElementDefs;
+    // the state of the input, only set on the input's own codec while the input is running
+    @Nullable
+    private volatile IpfixInputState inputState;
+    // the state used while the codec's input is not running in this process, created on first use. Decoding journal
+    // entries uses the detached state shared by all codecs of the input instead, unless an aggregator is passed in.
+    @Nullable
+    private IpfixInputState detachedState;
 
     @Inject
-    protected IpfixCodec(@Assisted Configuration configuration, IpfixAggregator ipfixAggregator) throws IOException {
+    protected IpfixCodec(@Assisted Configuration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * Graylog creates a codec for every journal entry it decodes, so this must stay cheap: the information element
+     * definitions are acquired by the input when it launches and only looked up by the decoding codecs.
+     *
+     * @param configuration   the input configuration
+     * @param ipfixAggregator the aggregator to use, or {@code null} to create one from the configuration
+     */
+    @VisibleForTesting
+    IpfixCodec(Configuration configuration, @Nullable IpfixAggregator ipfixAggregator) {
         super(configuration);
         this.ipfixAggregator = ipfixAggregator;
-        final URL standardIPFixDefTemplate = Resources.getResource(IpfixCodec.class, IPFIX_STANDARD_DEFINITION);
-        final List<String> customDefFilePathList = configuration.getList(CK_IPFIX_DEFINITION_PATH);
-        final List<URL> filePaths = new ArrayList<>();
-        if (customDefFilePathList == null || customDefFilePathList.isEmpty()) {
-            infoElementDefs = new InformationElementDefinitions(standardIPFixDefTemplate);
-        } else {
-            checkValidFilePath(customDefFilePathList);
-            filePaths.add(standardIPFixDefTemplate);
-            for (String filePath : customDefFilePathList) {
-                URL customDefURL = url(filePath.trim());
-                filePaths.add(customDefURL);
-            }
-            URL[] urls = convertToArray(filePaths);
-            infoElementDefs = new InformationElementDefinitions(urls);
+    }
+
+    /**
+     * Starts the state of the input this codec belongs to: acquires the information element definitions shared with
+     * other inputs and restores the templates of the last run. Must be called when the input launches, before its
+     * transport starts.
+     *
+     * @param inputId           the id of the input
+     * @param processRawMessage writes a raw message through the input, used to emit the flow rollups completed in the
+     *                          background
+     * @throws IOException if the custom definition files cannot be read
+     */
+    public synchronized void launch(String inputId, Consumer<RawMessage> processRawMessage) throws IOException {
+        stop();
+        checkValidFilePath(definitionFiles(configuration));
+        inputState = IpfixInputState.start(inputId, processRawMessage, configuration, metricRegistry, ipfixAggregator);
+    }
+
+    /**
+     * Stops the state of the input, e.g. writes the final template snapshot and the open flow rollups, and releases the
+     * information element definitions shared with other inputs. Must be called once the input stops, but while it can
+     * still write raw messages.
+     */
+    public synchronized void stop() {
+        if (inputState != null) {
+            inputState.stop();
+            inputState = null;
         }
-        this.parser = new IpfixParser(this.infoElementDefs);
     }
 
+    static List<String> definitionFiles(Configuration configuration) {
+        final List<String> files = configuration.getList(CK_IPFIX_DEFINITION_PATH);
+        return files == null ? Collections.emptyList() : files;
+    }
+
+    /**
+     * @return the state of the running input if this is the input's codec, otherwise the detached state
+     */
+    private IpfixInputState currentState() {
+        final IpfixInputState state = inputState;
+        return state != null ? state : detachedState();
+    }
 
+    private synchronized IpfixInputState detachedState() {
+        if (detachedState == null) {
+            try {
+                detachedState = IpfixInputState.detached(configuration, metricRegistry, ipfixAggregator);
+            } catch (IOException e) {
+                throw new IpfixException("Unable to load the IPFIX field definitions", e);
+            }
+        }
+        return detachedState;
+    }
 
-    URL url(String s) throws MalformedURLException {
-        return Paths.get(s).toUri().toURL();
+    /**
+     * @return the state of the input which received the raw message, if it is running, otherwise the detached state
+     * shared by the codecs decoding the input's journal entries
+     */
+    private IpfixInputState inputState(RawMessage rawMessage) {
+        final String inputId = inputId(rawMessage);
+        final IpfixInputState running = IpfixInputState.running(inputId);
+        if (running != null) {
+            return running;
+        }
+        if (inputState != null || ipfixAggregator != null) {
+            return currentState();
+        }
+        try {
+            return IpfixInputState.detached(inputId, configuration);
+        } catch (IOException e) {
+            throw new IpfixException("Unable to load the IPFIX field definitions", e);
+        }
     }
 
-    URL[] convertToArray(List<URL> urls) {
-        URL[] urlArray = new URL[urls.size()];
-        return urls.toArray(urlArray);
+    /**
+     * @return the id of the input which received the raw message, {@code null} if unknown
+     */
+    @Nullable
+    private static String inputId(RawMessage rawMessage) {
+        final List<RawMessage.SourceNode> sourceNodes = rawMessage.getSourceNodes();
+        return sourceNodes == null || sourceNodes.isEmpty() ? null : sourceNodes.get(sourceNodes.size() - 1).inputId;
     }
 
     void checkValidFilePath(List<String> customDefFilePathList) throws IpfixException {
@@ -135,50 +229,61 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
     /**
      * Parses out the fields from the flow record, assigns v5 fixed format fields and create message
      *
-     * @param record
-     * @return
+     * @param message the message containing the fields of the flow record
+     * @return the message string
      */
-    private static String toMessageString(Flow record) {
-        LOG.debug("IPFIX message being assembled from flow record [{}].", record.fields());
-        final ImmutableMap<String, Object> fields = record.fields();
-        final long packetCount = (long) fields.getOrDefault("packetDeltaCount", 0L);
-        long octetCount = (long) fields.getOrDefault("octetDeltaCount", 0L);
+    static String toMessageString(Message message) {
+        LOG.debug("IPFIX message being assembled from flow record [{}].", message.getFields());
+        final long packetCount = longField(message, "packetDeltaCount");
+        long octetCount = longField(message, "octetDeltaCount");
         if (octetCount == 0L) {
-            octetCount = (long) fields.getOrDefault("fwd_flow_delta_bytes", 0L);
+            octetCount = longField(message, "fwd_flow_delta_bytes");
         }
 
-        String srcAddr = (String) fields.get("sourceIPv4Address");
-        String dstAddr = (String) fields.get("destinationIPv4Address");
+        String srcAddr = (String) message.getField("sourceIPv4Address");
+        String dstAddr = (String) message.getField("destinationIPv4Address");
         if (srcAddr == null) {
-            srcAddr = (String) fields.get("sourceIPv6Address");
+            srcAddr = (String) message.getField("sourceIPv6Address");
         }
         if (dstAddr == null) {
-            dstAddr = (String) fields.get("destinationIPv6Address");
+            dstAddr = (String) message.getField("destinationIPv6Address");
         }
 
-        final Number srcPort = (Number) fields.get("sourceTransportPort");
-        final Number dstPort = (Number) fields.get("destinationTransportPort");
-        final long protocol = Long.parseLong(String.valueOf(fields.getOrDefault("protocolIdentifier", 0L)));
+        final Number srcPort = (Number) message.getField("sourceTransportPort");
+        final Number dstPort = (Number) message.getField("destinationTransportPort");
+        final Object protocolIdentifier = message.getField("protocolIdentifier");
+        final long protocol = protocolIdentifier == null ? 0L : Long.parseLong(String.valueOf(protocolIdentifier));
 
         // TODO should this be configurable?
         return createMessageString(packetCount, octetCount, srcAddr, dstAddr, srcPort, dstPort, protocol);
     }
 
+    private static long longField(Message message, String field) {
+        final Object value = message.getField(field);
+        return value == null ? 0L : (long) value;
+    }
+
     private static String createMessageString(long packetCount, long octetCount, String srcAddr, String dstAddr,
                                               Number srcPort, Number dstPort, long protocol) {
-        String message = String.format(Locale.ROOT, "Ipfix [" + srcAddr + "]:" + srcPort + " <> [" + dstAddr + "]:" + dstPort + " " +
-                                                    "proto:" + protocol + " pkts:" + packetCount + " bytes:" + octetCount);
-        return message;
+        return "Ipfix [" + srcAddr + "]:" + srcPort + " <> [" + dstAddr + "]:" + dstPort + " " +
+               "proto:" + protocol + " pkts:" + packetCount + " bytes:" + octetCount;
     }
 
     @Nullable
     @Override
     public CodecAggregator getAggregator() {
-        return ipfixAggregator;
+        return currentState().aggregator();
     }
 
     public InformationElementDefinitions getInfoElementDefs() {
-        return infoElementDefs;
+        return currentState().definitions();
+    }
+
+    /**
+     * @return the metrics of the codec and its aggregator, to be registered with the input's metrics
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
     }
 
     @Nullable
@@ -189,40 +294,106 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
         final InetSocketAddress sender = remoteAddress != null ? remoteAddress.getInetSocketAddress() : null;
         try {
             final IpfixJournal.RawIpfix rawIpfix = IpfixJournal.RawIpfix.parseFrom(rawMessage.getPayload());
+            // the flow rollups the input completed in the background and wrote to its journal
+            final List<Message> rollups = new ArrayList<>(rawIpfix.getRollupsCount());
+            for (IpfixJournal.Rollup rollup : rawIpfix.getRollupsList()) {
+                rollups.add(FlowRollup.toMessage(rollup));
+            }
+            if (rawIpfix.getDataSetsCount() == 0) {
+                return rollups;
+            }
+            final IpfixInputState state = inputState(rawMessage);
             final Map<Integer, ByteString> templatesMap = rawIpfix.getTemplatesMap();
 
-            final Map<Integer, TemplateRecord> templateRecordMap = Seq.seq(templatesMap)
-                                                                      .map(entry -> entry.map2(byteString -> parser.parseTemplateRecord(Unpooled.wrappedBuffer(byteString.toByteArray()))))
-                                                                      .toMap(Tuple2::v1, Tuple2::v2);
-
-            return rawIpfix.getDataSetsList().stream()
-                           .map(dataSet -> {
-                               final int templateId = dataSet.getTemplateId();
-                               final ZonedDateTime flowExportTimestamp = ZonedDateTime.ofInstant(Instant.ofEpochSecond(dataSet.getTimestampEpochSeconds()), ZoneOffset.UTC);
-                               final TemplateRecord templateRecord = templateRecordMap.get(templateId);
-                               if (templateRecord == null) {
-                                   throw new IpfixException("Missing required template in journal entry for data records: template id " + templateId);
-                               }
-                               final Set<Flow> flows = parser.parseDataSet(templateRecord.informationElements(), templateRecordMap,
-                                                                           Unpooled.wrappedBuffer(dataSet.getDataRecords().toByteArray()));
-                               return flows.stream()
-                                           .map(flow -> formatFlow(flowExportTimestamp, sender, flow));
-                           })
-                           .flatMap(messageStream -> messageStream)
-                           .collect(Collectors.toList());
+            final Map<Integer, TemplateRecord> templateRecordMap = Maps.newHashMapWithExpectedSize(templatesMap.size());
+            final Map<Integer, TemplateDecoder> decoderMap = Maps.newHashMapWithExpectedSize(templatesMap.size());
+            for (Map.Entry<Integer, ByteString> entry : templatesMap.entrySet()) {
+                final IpfixInputState.ParsedTemplate parsedTemplate = state.parsedTemplate(entry.getValue());
+                templateRecordMap.put(entry.getKey(), parsedTemplate.templateRecord());
+                decoderMap.put(entry.getKey(), parsedTemplate.decoder());
+            }
+
+            final String source = sender == null ? null : sender.getAddress().getHostAddress();
+            final ExporterMetrics exporterMetrics = state.aggregator().exporterMetrics();
+            final List<Message> messages = new ArrayList<>();
+            long keptFieldCount = 0;
+            long skippedBytes = 0;
+            // the data sets of a journal entry usually share the export time of their packet, and all flows of a data set
+            // do, so they share a single timestamp instance
+            long timestampEpochSeconds = -1;
+            DateTime timestamp = null;
+            for (IpfixJournal.DataSet dataSet : rawIpfix.getDataSetsList()) {
+                final int templateId = dataSet.getTemplateId();
+                final TemplateDecoder decoder = decoderMap.get(templateId);
+                if (decoder == null) {
+                    throw new IpfixException("Missing required template in journal entry for data records: template id " + templateId);
+                }
+                if (timestamp == null || dataSet.getTimestampEpochSeconds() != timestampEpochSeconds) {
+                    timestampEpochSeconds = dataSet.getTimestampEpochSeconds();
+                    timestamp = new DateTime(timestampEpochSeconds * 1000L, DateTimeZone.UTC);
+                }
+                final int recordsBefore = messages.size();
+                final long decodeStartNanos = System.nanoTime();
+                skippedBytes += decoder.decode(Unpooled.wrappedBuffer(dataSet.getDataRecords().asReadOnlyByteBuffer()), templateRecordMap,
+                                               new MessageBuilder(source, timestamp, messages));
+                exporterMetrics.decodeTime(source, templateId).update(System.nanoTime() - decodeStartNanos, TimeUnit.NANOSECONDS);
+                if (dataSet.hasSamplingRate()) {
+                    for (int i = recordsBefore; i < messages.size(); i++) {
+                        messages.get(i).addField(FlowSampler.FIELD_SAMPLING_RATE, dataSet.getSamplingRate());
+                    }
+                }
+                keptFieldCount += (long) (messages.size() - recordsBefore) * decoder.keptFieldCount();
+            }
+            exporterMetrics.exporter(source).flows.mark(messages.size());
+            // update the counters once per journal entry instead of once per field
+            state.markDecodedFields(keptFieldCount, skippedBytes);
+            // the data records were sampled before they were journaled, the lag only adjusts the rate of the input's sampler
+            final FlowSampler flowSampler = state.aggregator().flowSampler();
+            if (flowSampler != null) {
+                final DateTime receivedAt = rawMessage.getTimestamp();
+                flowSampler.update(receivedAt == null ? 0 : System.currentTimeMillis() - receivedAt.getMillis());
+            }
+            state.removeDuplicates(messages);
+            final List<Message> result = state.rollUp(messages);
+            result.addAll(rollups);
+            return result;
         } catch (InvalidProtocolBufferException e) {
             LOG.error("Unable to parse ipfix journal message", e);
             return Collections.emptyList();
         }
     }
 
-    private Message formatFlow(ZonedDateTime flowExportTimestamp, InetSocketAddress sender, Flow flow) {
-        final ImmutableMap<String, Object> fields = flow.fields();
-        final DateTime timestamp = new DateTime(Date.from(flowExportTimestamp.toInstant()));
-        final String source = sender == null ? null : sender.getAddress().getHostAddress();
-        final Message message = new Message(toMessageString(flow), source, timestamp);
-        message.addFields(fields);
-        return message;
+    /**
+     * Adds the fields of each decoded flow record directly to a new message.
+     */
+    private static class MessageBuilder implements FlowVisitor {
+        private final String source;
+        private final DateTime timestamp;
+        private final List<Message> messages;
+        private Message message;
+
+        MessageBuilder(String source, DateTime timestamp, List<Message> messages) {
+            this.source = source;
+            this.timestamp = timestamp;
+            this.messages = messages;
+        }
+
+        @Override
+        public void beginRecord() {
+            // the message string is derived from the fields, so it can only be set once the record is complete
+            message = new Message("", source, timestamp);
+        }
+
+        @Override
+        public void field(String name, Object value) {
+            message.addField(name, value);
+        }
+
+        @Override
+        public void endRecord() {
+            message.addField(Message.FIELD_MESSAGE, toMessageString(message));
+            messages.add(message);
+        }
     }
 
     @Nullable
@@ -262,6 +433,176 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
                                   ConfigurationField.Optional.OPTIONAL,
                                   ListField.Attribute.ALLOW_CREATE)
             );
+            configuration.addField(
+                    new NumberField(CK_TEMPLATE_KB_PER_EXPORTER,
+                                    "Template cache size per exporter (KB)",
+                                    IpfixAggregatorSettings.DEFAULT_TEMPLATE_KB_PER_EXPORTER,
+                                    "Memory for the templates of a single exporter. The least recently used templates are evicted when it is exceeded.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_MAX_EXPORTERS,
+                                    "Template cache maximum exporters",
+                                    IpfixAggregatorSettings.DEFAULT_MAX_EXPORTERS,
+                                    "Number of exporters whose templates are kept. The templates of the least recently active exporter are evicted when it is exceeded.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_PENDING_KB_PER_EXPORTER,
+                                    "Pending data size per exporter (KB)",
+                                    IpfixAggregatorSettings.DEFAULT_PENDING_KB_PER_EXPORTER,
+                                    "Memory for the data records of a single exporter which are waiting for their templates. The oldest records are dropped when it is exceeded.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_PENDING_MAX_AGE_SECONDS,
+                                    "Pending data maximum age (seconds)",
+                                    IpfixAggregatorSettings.DEFAULT_PENDING_MAX_AGE_SECONDS,
+                                    "Data records which are waiting for their templates for longer than this are dropped.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_MAX_PENDING_EXPORTERS,
+                                    "Pending data maximum exporters",
+                                    IpfixAggregatorSettings.DEFAULT_MAX_PENDING_EXPORTERS,
+                                    "Number of exporters with data records waiting for their templates. The records of the least recently active exporter are dropped when it is exceeded.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_JOURNAL_ENTRY_KB,
+                                    "Maximum journal entry size (KB)",
+                                    IpfixAggregatorSettings.DEFAULT_JOURNAL_ENTRY_KB,
+                                    "Data records received at once, e.g. when buffered records can be processed after their template arrived, are split into journal entries of at most this size, so they can be decoded in parallel.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_JOURNAL_BATCH_DELAY_MS,
+                                    "Journal batching delay (ms)",
+                                    IpfixAggregatorSettings.DEFAULT_BATCH_DELAY_MILLIS,
+                                    "Data records of an exporter are held back for up to this long, to write them as a single journal entry of the maximum journal entry size. Writes every packet right away if 0.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_SAMPLING_RATE,
+                                    "Sampling rate",
+                                    1,
+                                    "Keep one in this many flows of fixed length data records before they are journaled, both directions of a connection are kept or dropped together. Kept flows carry the rate in the " + FlowSampler.FIELD_SAMPLING_RATE + " field. Keeps all flows if 1.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_SAMPLING_MAX_LAG_SECONDS,
+                                    "Adaptive sampling maximum lag (seconds)",
+                                    0,
+                                    "Doubles the sampling rate, up to " + FlowSampler.MAX_ADAPTIVE_RATE + " times the configured rate, while received data waits longer than this to be processed, and lowers it again once processing catches up. Disabled if 0.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_DUPLICATE_WINDOW_SECONDS,
+                                    "Duplicate flow window (seconds)",
+                                    0,
+                                    "Flows another exporter has already reported within this window are dropped, e.g. when several routers along the path export the same flow. Disabled if 0.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new ListField(CK_DUPLICATE_KEY_FIELDS,
+                                  "Duplicate flow key fields",
+                                  Collections.emptyList(),
+                                  Collections.emptyMap(),
+                                  "Fields identifying the same flow across exporters. Uses the addresses, ports, protocol and flow start if empty.",
+                                  ConfigurationField.Optional.OPTIONAL,
+                                  ListField.Attribute.ALLOW_CREATE)
+            );
+            configuration.addField(
+                    new NumberField(CK_DUPLICATE_FILTER_KB,
+                                    "Duplicate flow filter size (KB)",
+                                    DEFAULT_DUPLICATE_FILTER_KB,
+                                    "Memory for each of the two generations of the duplicate flow filter. A larger filter mistakes fewer new flows for duplicates.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_ROLLUP_WINDOW_SECONDS,
+                                    "Flow rollup window (seconds)",
+                                    0,
+                                    "Flows with the same rollup key fields are combined into one message per exporter and window, summing up their octet and packet counts. Rollups of an exporter are written when it sends flows of a later window, once their window has been over for another window length, or when the input stops. Disabled if 0.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new ListField(CK_ROLLUP_KEY_FIELDS,
+                                  "Flow rollup key fields",
+                                  Collections.emptyList(),
+                                  Collections.emptyMap(),
+                                  "Fields identifying the flows to combine. Uses the addresses, ports and protocol if empty.",
+                                  ConfigurationField.Optional.OPTIONAL,
+                                  ListField.Attribute.ALLOW_CREATE)
+            );
+            configuration.addField(
+                    new NumberField(CK_ROLLUP_MAX_KEYS,
+                                    "Flow rollup maximum keys",
+                                    DEFAULT_ROLLUP_MAX_KEYS,
+                                    "Number of rollups kept at once. When it is exceeded, the least recently updated rollup is written early.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_MAX_EXPORTER_METRICS,
+                                    "Exporters with metrics",
+                                    IpfixAggregatorSettings.DEFAULT_MAX_EXPORTER_METRICS,
+                                    "Number of exporters with their own packet, flow, missing template and sequence gap metrics. The least recently active exporters lose their metrics when it is exceeded.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_MAX_TEMPLATE_METRICS,
+                                    "Templates with metrics",
+                                    IpfixAggregatorSettings.DEFAULT_MAX_TEMPLATE_METRICS,
+                                    "Number of templates, across all exporters, with their own decode time metrics.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new TextField(CK_TEMPLATE_SNAPSHOT_FILE,
+                                  "Template snapshot file",
+                                  "",
+                                  "Local file to save the templates of all exporters to, periodically and when the input stops. They are restored when the input starts, so data can be decoded before the exporters resend their templates. Disabled if empty.",
+                                  ConfigurationField.Optional.OPTIONAL)
+            );
+            configuration.addField(
+                    new NumberField(CK_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS,
+                                    "Template snapshot interval (seconds)",
+                                    DEFAULT_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS,
+                                    "How often the template snapshot file is written.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new NumberField(CK_ADDRESS_CACHE_SIZE,
+                                    "Address cache size",
+                                    IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE,
+                                    "Number of recently seen IP addresses to keep formatted. Set to 0 to disable the cache.",
+                                    ConfigurationField.Optional.OPTIONAL,
+                                    NumberField.Attribute.ONLY_POSITIVE)
+            );
+            configuration.addField(
+                    new ListField(CK_INCLUDED_FIELDS,
+                                  "Included fields",
+                                  Collections.emptyList(),
+                                  Collections.emptyMap(),
+                                  "Information elements to keep, by name or as <enterprise number>:<id>. All other fields are skipped without decoding them. Keeps all fields if empty.",
+                                  ConfigurationField.Optional.OPTIONAL,
+                                  ListField.Attribute.ALLOW_CREATE)
+            );
             return configuration;
         }
     }
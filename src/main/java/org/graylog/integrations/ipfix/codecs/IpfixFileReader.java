@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketAddress;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads IPFIX files (RFC 5655), which contain IPFIX messages written one after the other, through memory mapped
+ * regions of the file.
+ * <p>
+ * The file is split into segments at message boundaries, which can be read in parallel. Each segment is aggregated by
+ * an aggregator session shard of its own, which starts out with the templates in effect at the start of the segment.
+ * Those are collected up front by a quick pass over the file, which only parses the messages containing template sets.
+ * </p>
+ */
+public class IpfixFileReader {
+    private static final Logger LOG = LoggerFactory.getLogger(IpfixFileReader.class);
+
+    private static final int VERSION = 10;
+    private static final int HEADER_LENGTH = 16;
+    private static final int SET_HEADER_LENGTH = 4;
+    private static final int TEMPLATE_SET_ID = 2;
+    private static final int OPTIONS_TEMPLATE_SET_ID = 3;
+    private static final int MAX_MESSAGE_LENGTH = 65535;
+    // a segment and the message crossing its end have to fit into a single mapped region
+    static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE - MAX_MESSAGE_LENGTH;
+
+    private final IpfixAggregator aggregator;
+    private final SocketAddress exporterAddress;
+    private final long segmentBytes;
+
+    /**
+     * @param aggregator      the aggregator to create the session shards from
+     * @param exporterAddress the address of the exporter which wrote the file, the files do not record it
+     * @param segmentBytes    the minimum size of the segments, only the last segment of a file is smaller
+     */
+    public IpfixFileReader(IpfixAggregator aggregator, @Nullable SocketAddress exporterAddress, long segmentBytes) {
+        if (segmentBytes <= 0 || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + MAX_SEGMENT_BYTES + " bytes: " + segmentBytes);
+        }
+        this.aggregator = aggregator;
+        this.exporterAddress = exporterAddress;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Splits the file into segments at message boundaries, and collects the templates in effect at their starts.
+     * <p>
+     * A truncated or corrupt message ends the file, the messages before it are still read.
+     * </p>
+     *
+     * @param channel the file
+     * @return the segments of the file, in file order
+     */
+    public List<Segment> segments(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final IpfixAggregator templateTracker = aggregator.newSessionShard();
+        final List<Segment> segments = new ArrayList<>();
+        long segmentStart = 0;
+        while (segmentStart < size) {
+            final int regionLength = (int) Math.min(size - segmentStart, segmentBytes + MAX_MESSAGE_LENGTH);
+            final ByteBuf region = Unpooled.wrappedBuffer(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, regionLength));
+            final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates = templateTracker.templateSnapshot();
+            int offset = 0;
+            int messageLength;
+            while (offset < segmentBytes && (messageLength = messageLength(region, offset)) > 0) {
+                final ByteBuf message = region.slice(offset, messageLength);
+                if (hasTemplateSets(message)) {
+                    templateTracker.learnTemplates(message, exporterAddress);
+                }
+                offset += messageLength;
+            }
+            if (offset > 0) {
+                segments.add(new Segment(segmentStart, offset, templates));
+            }
+            segmentStart += offset;
+            if (offset < segmentBytes && segmentStart < size) {
+                LOG.warn("Invalid or truncated IPFIX message at offset {}, ignoring the remaining {} bytes of the file.",
+                         segmentStart, size - segmentStart);
+                break;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Aggregates the messages of a segment into journal entries.
+     *
+     * @param channel        the file
+     * @param segment        a segment of the file
+     * @param journalEntries receives the journal entries
+     * @return the number of messages in the segment
+     * @throws InterruptedIOException if the thread is interrupted while reading
+     */
+    public long read(FileChannel channel, Segment segment, Consumer<ByteBuf> journalEntries) throws IOException {
+        final IpfixAggregator shard = aggregator.newSessionShard();
+        shard.restoreTemplates(segment.templates);
+        final ByteBuf region = Unpooled.wrappedBuffer(channel.map(FileChannel.MapMode.READ_ONLY, segment.start(), segment.length()));
+        long messages = 0;
+        try {
+            while (region.isReadable()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while reading IPFIX messages");
+                }
+                // the file may have changed since it was segmented
+                final int messageLength = messageLength(region, region.readerIndex());
+                if (messageLength <= 0) {
+                    LOG.warn("Invalid or truncated IPFIX message at offset {}, ignoring the remaining {} bytes of the segment.",
+                             segment.start() + region.readerIndex(), region.readableBytes());
+                    break;
+                }
+                final ByteBuf message = region.readSlice(messageLength);
+                shard.addChunks(message, exporterAddress).messages().forEach(journalEntries);
+                messages++;
+            }
+            for (IpfixAggregator.JournalEntries entries : shard.flushBatches(true)) {
+                entries.messages().forEach(journalEntries);
+            }
+        } finally {
+            // data sets whose templates are not in the file are lost
+            shard.discardBufferedPackets();
+        }
+        return messages;
+    }
+
+    /**
+     * @return the length of the message at the offset, or -1 if there is no valid and complete message
+     */
+    private static int messageLength(ByteBuf region, int offset) {
+        if (region.writerIndex() - offset < HEADER_LENGTH || region.getUnsignedShort(offset) != VERSION) {
+            return -1;
+        }
+        final int length = region.getUnsignedShort(offset + 2);
+        return length < HEADER_LENGTH || offset + length > region.writerIndex() ? -1 : length;
+    }
+
+    private static boolean hasTemplateSets(ByteBuf message) {
+        int offset = HEADER_LENGTH;
+        while (offset + SET_HEADER_LENGTH <= message.writerIndex()) {
+            final int setId = message.getUnsignedShort(offset);
+            if (setId == TEMPLATE_SET_ID || setId == OPTIONS_TEMPLATE_SET_ID) {
+                return true;
+            }
+            final int setLength = message.getUnsignedShort(offset + 2);
+            if (setLength < SET_HEADER_LENGTH) {
+                return false;
+            }
+            offset += setLength;
+        }
+        return false;
+    }
+
+    /**
+     * A part of a file, starting and ending at message boundaries.
+     */
+    public static class Segment {
+        private final long start;
+        private final int length;
+        // the templates in effect at the start of the segment
+        private final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates;
+
+        Segment(long start, int length, Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates) {
+            this.start = start;
+            this.length = length;
+            this.templates = templates;
+        }
+
+        public long start() {
+            return start;
+        }
+
+        public int length() {
+            return length;
+        }
+    }
+}
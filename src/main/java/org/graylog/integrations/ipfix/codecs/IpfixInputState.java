@@ -0,0 +1,464 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.FieldFilter;
+import org.graylog.integrations.ipfix.InformationElementDefinitions;
+import org.graylog.integrations.ipfix.IpfixException;
+import org.graylog.integrations.ipfix.IpfixJournal;
+import org.graylog.integrations.ipfix.IpfixParser;
+import org.graylog.integrations.ipfix.TemplateDecoder;
+import org.graylog.integrations.ipfix.TemplateRecord;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The state of a running IPFIX input which has to live exactly as long as the input.
+ * <p>
+ * Graylog creates a new codec for every journal entry it decodes and never stops those, only the codec handed to the
+ * input lives as long as the input does. Whatever touches files or needs a background thread is therefore started when
+ * the input launches and stopped with it, instead of in the codec.
+ * </p>
+ * <p>
+ * The codecs decoding the journal entries of a running input find its state by the input id of the entries. Codecs
+ * whose input is not running in this process share a detached state per input and configuration, which only looks up
+ * the definitions and neither touches any other files nor starts threads.
+ * </p>
+ */
+class IpfixInputState {
+    private static final Logger LOG = LoggerFactory.getLogger(IpfixInputState.class);
+    // the states of the running inputs, keyed by input id
+    private static final ConcurrentMap<String, IpfixInputState> RUNNING = new ConcurrentHashMap<>();
+    // the rollups completed in the background are written in journal entries of at most this many rollups
+    private static final int ROLLUPS_PER_JOURNAL_ENTRY = 1000;
+    // upper bound for the number of distinct template records we keep parsed
+    private static final int MAX_CACHED_TEMPLATES = 10_000;
+    private static final int MAX_DETACHED_STATES = 100;
+    // the detached states shared by all codecs of an input, keyed by input id and configuration. Graylog creates a
+    // codec per journal entry, so a state per codec would parse every template again for every entry.
+    private static final Cache<List<Object>, IpfixInputState> DETACHED = CacheBuilder.newBuilder()
+                                                                               .maximumSize(MAX_DETACHED_STATES)
+                                                                               .expireAfterAccess(10, TimeUnit.MINUTES)
+                                                                               .build();
+
+    @Nullable
+    private final String inputId;
+    private final MetricRegistry metricRegistry;
+    // the definitions acquired by the running input, null for a detached state
+    @Nullable
+    private final SharedDefinitions sharedDefinitions;
+    private final InformationElementDefinitions definitions;
+    // shared by all codecs decoding the input's journal entries, so that templates are compiled once per input
+    private final IpfixParser parser;
+    // keyed by the raw template record bytes, so a changed template with the same id simply is a different entry
+    private final Cache<ByteString, ParsedTemplate> templateCache = CacheBuilder.newBuilder()
+                                                                                .maximumSize(MAX_CACHED_TEMPLATES)
+                                                                                .build();
+    private final Meter templateCacheHits;
+    private final Meter templateCacheMisses;
+    private final Meter keptFields;
+    private final Meter skippedFieldBytes;
+    // the aggregator of the input's transport
+    private final IpfixAggregator aggregator;
+    // shared by all codecs decoding the input's journal entries, only running inputs filter duplicate flows
+    @Nullable
+    private final DuplicateFlowFilter duplicateFlowFilter;
+    private final Meter suppressedDuplicateFlows;
+    // shared by all codecs decoding the input's journal entries, only running inputs roll up flows
+    @Nullable
+    private final FlowRollup flowRollup;
+    private final Meter rolledUpFlows;
+    private final Meter rollupMessages;
+    // writes a raw message through the input, into its journal
+    private final Consumer<RawMessage> processRawMessage;
+    @Nullable
+    private final Path templateSnapshotFile;
+    @Nullable
+    private final ScheduledExecutorService executor;
+    // the gauges of the running input, which have to be removed again when it stops
+    private final List<String> gauges = new ArrayList<>();
+
+    private IpfixInputState(@Nullable String inputId,
+                            Consumer<RawMessage> processRawMessage,
+                            Configuration configuration,
+                            MetricRegistry metricRegistry,
+                            @Nullable SharedDefinitions sharedDefinitions,
+                            InformationElementDefinitions definitions,
+                            @Nullable IpfixAggregator aggregator,
+                            @Nullable Path templateSnapshotFile) {
+        this.inputId = inputId;
+        this.processRawMessage = processRawMessage;
+        this.metricRegistry = metricRegistry;
+        this.sharedDefinitions = sharedDefinitions;
+        this.definitions = definitions;
+        this.parser = new IpfixParser(definitions,
+                                      configuration.getInt(IpfixCodec.CK_ADDRESS_CACHE_SIZE, IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE),
+                                      FieldFilter.of(configuration.getList(IpfixCodec.CK_INCLUDED_FIELDS)));
+        this.templateCacheHits = metricRegistry.meter("templateCacheHits");
+        this.templateCacheMisses = metricRegistry.meter("templateCacheMisses");
+        this.keptFields = metricRegistry.meter("keptFields");
+        this.skippedFieldBytes = metricRegistry.meter("skippedFieldBytes");
+        this.aggregator = aggregator != null ? aggregator :
+                new IpfixAggregator(IpfixAggregatorSettings.fromConfiguration(configuration), definitions, metricRegistry);
+        this.duplicateFlowFilter = inputId == null ? null : duplicateFlowFilter(configuration);
+        this.suppressedDuplicateFlows = metricRegistry.meter("suppressedDuplicateFlows");
+        this.flowRollup = inputId == null ? null : flowRollup(configuration, metricRegistry);
+        this.rolledUpFlows = metricRegistry.meter("rolledUpFlows");
+        this.rollupMessages = metricRegistry.meter("rollupMessages");
+        this.templateSnapshotFile = templateSnapshotFile;
+        this.executor = templateSnapshotFile == null && flowRollup == null ? null : Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ipfix-input-" + inputId + "-%d")
+                .setUncaughtExceptionHandler((t, e) -> LOG.error("Uncaught exception in IPFIX input {}.", inputId, e))
+                .build());
+    }
+
+    /**
+     * Acquires the information element definitions, restores the templates of the last run and starts writing template
+     * snapshots and flushing expired rollups, if configured.
+     *
+     * @param inputId           the id of the input
+     * @param processRawMessage writes a raw message through the input, used to emit the rollups completed in the
+     *                          background
+     * @param configuration     the input configuration
+     * @param metricRegistry    the metrics of the input
+     * @param aggregator        the aggregator to use, or {@code null} to create one from the configuration
+     * @return the started state, which has to be {@link #stop() stopped} with the input
+     * @throws IOException if the custom definition files cannot be read
+     */
+    static IpfixInputState start(String inputId, Consumer<RawMessage> processRawMessage, Configuration configuration,
+                                 MetricRegistry metricRegistry, @Nullable IpfixAggregator aggregator) throws IOException {
+        final long startNanos = System.nanoTime();
+        final SharedDefinitions sharedDefinitions = SharedDefinitions.acquire(IpfixCodec.definitionFiles(configuration));
+        IpfixInputState state = null;
+        try {
+            final String snapshotFile = configuration.getString(IpfixCodec.CK_TEMPLATE_SNAPSHOT_FILE);
+            final Path templateSnapshotFile = snapshotFile == null || snapshotFile.trim().isEmpty() ? null : Paths.get(snapshotFile.trim());
+            state = new IpfixInputState(inputId, processRawMessage, configuration, metricRegistry, sharedDefinitions,
+                                         sharedDefinitions.definitions(), aggregator, templateSnapshotFile);
+            if (templateSnapshotFile != null) {
+                state.restoreTemplates();
+                final int intervalSeconds = configuration.getInt(IpfixCodec.CK_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS,
+                                                                 IpfixCodec.DEFAULT_TEMPLATE_SNAPSHOT_INTERVAL_SECONDS);
+                state.executor.scheduleAtFixedRate(state::snapshotTemplates, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+            }
+            if (state.flowRollup != null) {
+                final int windowSeconds = configuration.getInt(IpfixCodec.CK_ROLLUP_WINDOW_SECONDS, 0);
+                state.executor.scheduleAtFixedRate(state::flushExpiredRollups, windowSeconds, windowSeconds, TimeUnit.SECONDS);
+                state.registerGauge("rollupKeys", (Gauge<Integer>) state.flowRollup::size);
+            }
+
+            final long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            state.registerGauge("startupTime", (Gauge<Long>) () -> startupMillis);
+            state.registerGauge("sharedDefinitionsBytes", (Gauge<Long>) sharedDefinitions::estimatedSizeBytes);
+            state.registerGauge("sharedDefinitionsReferences", (Gauge<Integer>) sharedDefinitions::references);
+            final FlowSampler flowSampler = state.aggregator.flowSampler();
+            if (flowSampler != null) {
+                state.registerGauge("samplingRate", (Gauge<Integer>) flowSampler::rate);
+            }
+            if (state.duplicateFlowFilter != null) {
+                state.registerGauge("duplicateFlowFalsePositiveRate", (Gauge<Double>) state.duplicateFlowFilter::estimatedFalsePositiveRate);
+            }
+            LOG.debug("IPFIX input {} started in {} ms, information element definitions ({} bytes) are shared by {} inputs.",
+                      inputId, startupMillis, sharedDefinitions.estimatedSizeBytes(), sharedDefinitions.references());
+        } catch (RuntimeException e) {
+            // nothing else holds on to the definitions and the executor of an input which failed to start
+            if (state != null) {
+                state.discard();
+            } else {
+                sharedDefinitions.release();
+            }
+            throw e;
+        }
+        RUNNING.put(inputId, state);
+        return state;
+    }
+
+    /**
+     * Looks up the state shared by the codecs of an input which is not running in this process, creating it if needed.
+     *
+     * @param inputId       the id of the input, {@code null} if unknown
+     * @param configuration the input configuration
+     * @return the detached state, which does not need to be stopped
+     * @throws IOException if the definitions have to be loaded and the custom definition files cannot be read
+     */
+    static IpfixInputState detached(@Nullable String inputId, Configuration configuration) throws IOException {
+        try {
+            // a restarted input may have been reconfigured, so its old state must not be used for the new entries
+            return DETACHED.get(Arrays.asList(inputId, configuration.getSource()),
+                                () -> detached(configuration, new MetricRegistry(), null));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IpfixException("Unable to create the IPFIX input state", e.getCause());
+        }
+    }
+
+    /**
+     * Creates the state for codecs whose input is not running in this process.
+     *
+     * @param configuration  the input configuration
+     * @param metricRegistry the metrics of the codec
+     * @param aggregator     the aggregator to use, or {@code null} to create one from the configuration
+     * @return the detached state, which does not need to be stopped
+     * @throws IOException if the definitions have to be loaded and the custom definition files cannot be read
+     */
+    static IpfixInputState detached(Configuration configuration, MetricRegistry metricRegistry,
+                                    @Nullable IpfixAggregator aggregator) throws IOException {
+        final InformationElementDefinitions definitions = SharedDefinitions.lookup(IpfixCodec.definitionFiles(configuration));
+        return new IpfixInputState(null, rawMessage -> {}, configuration, metricRegistry, null, definitions, aggregator, null);
+    }
+
+    /**
+     * @param inputId the id of an input, may be {@code null}
+     * @return the state of the input if it is running in this process, {@code null} otherwise
+     */
+    @Nullable
+    static IpfixInputState running(@Nullable String inputId) {
+        return inputId == null ? null : RUNNING.get(inputId);
+    }
+
+    /**
+     * Stops the background tasks, writes the final template snapshot, emits the open rollups and releases the
+     * definitions.
+     */
+    void stop() {
+        if (inputId != null) {
+            RUNNING.remove(inputId, this);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (templateSnapshotFile != null) {
+            snapshotTemplates();
+        }
+        if (flowRollup != null) {
+            writeRollups(flowRollup.flushAll());
+        }
+        gauges.forEach(metricRegistry::remove);
+        gauges.clear();
+        if (sharedDefinitions != null) {
+            sharedDefinitions.release();
+        }
+    }
+
+    /**
+     * Stops the background tasks and releases the definitions without writing anything, for a state which failed to
+     * start.
+     */
+    private void discard() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        gauges.forEach(metricRegistry::remove);
+        gauges.clear();
+        if (sharedDefinitions != null) {
+            sharedDefinitions.release();
+        }
+    }
+
+    InformationElementDefinitions definitions() {
+        return definitions;
+    }
+
+    IpfixParser parser() {
+        return parser;
+    }
+
+    IpfixAggregator aggregator() {
+        return aggregator;
+    }
+
+    /**
+     * Looks up the parsed template and its decoder for the raw template record bytes.
+     * <p>
+     * Exporters use the same few templates over and over again, so they are parsed and compiled once and shared by all
+     * codecs decoding the input's journal entries.
+     * </p>
+     */
+    ParsedTemplate parsedTemplate(ByteString recordBytes) {
+        ParsedTemplate parsedTemplate = templateCache.getIfPresent(recordBytes);
+        if (parsedTemplate != null) {
+            templateCacheHits.mark();
+            return parsedTemplate;
+        }
+        templateCacheMisses.mark();
+        try {
+            return templateCache.get(recordBytes, () -> {
+                final TemplateRecord templateRecord = parser.parseTemplateRecord(Unpooled.wrappedBuffer(recordBytes.asReadOnlyByteBuffer()));
+                return new ParsedTemplate(templateRecord, parser.decoderFor(templateRecord.informationElements()));
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IpfixException("Unable to parse template record", e.getCause());
+        }
+    }
+
+    void markDecodedFields(long keptFieldCount, long skippedBytes) {
+        keptFields.mark(keptFieldCount);
+        skippedFieldBytes.mark(skippedBytes);
+    }
+
+    /**
+     * Removes the flows another exporter of the input has reported recently, if duplicate flows are filtered.
+     *
+     * @param messages the decoded flows, modified in place
+     */
+    void removeDuplicates(List<Message> messages) {
+        if (duplicateFlowFilter != null) {
+            final int decoded = messages.size();
+            messages.removeIf(duplicateFlowFilter::isDuplicate);
+            suppressedDuplicateFlows.mark(decoded - messages.size());
+        }
+    }
+
+    /**
+     * Adds the flows to the input's rollups, if flows are rolled up.
+     *
+     * @param messages the decoded flows
+     * @return the rolled up messages which are complete now, or the flows themselves if they are not rolled up
+     */
+    List<Message> rollUp(List<Message> messages) {
+        if (flowRollup == null) {
+            return messages;
+        }
+        rolledUpFlows.mark(messages.size());
+        final List<Message> rollups = flowRollup.add(messages);
+        rollupMessages.mark(rollups.size());
+        return rollups;
+    }
+
+    private void flushExpiredRollups() {
+        writeRollups(flowRollup.flushExpired(System.currentTimeMillis()));
+    }
+
+    /**
+     * Codecs only emit messages for journal entries, so the rollups completed in the background are written to the
+     * input's journal, where any codec turns them into messages, even after a restart.
+     */
+    private void writeRollups(List<IpfixJournal.Rollup> rollups) {
+        for (int from = 0; from < rollups.size(); from += ROLLUPS_PER_JOURNAL_ENTRY) {
+            final List<IpfixJournal.Rollup> entryRollups = rollups.subList(from, Math.min(rollups.size(), from + ROLLUPS_PER_JOURNAL_ENTRY));
+            processRawMessage.accept(new RawMessage(IpfixJournal.RawIpfix.newBuilder().addAllRollups(entryRollups).build().toByteArray()));
+        }
+        rollupMessages.mark(rollups.size());
+    }
+
+    @Nullable
+    private static FlowRollup flowRollup(Configuration configuration, MetricRegistry metricRegistry) {
+        final int rollupWindowSeconds = configuration.getInt(IpfixCodec.CK_ROLLUP_WINDOW_SECONDS, 0);
+        if (rollupWindowSeconds <= 0) {
+            return null;
+        }
+        final List<String> keyFields = configuration.getList(IpfixCodec.CK_ROLLUP_KEY_FIELDS);
+        return new FlowRollup(keyFields == null || keyFields.isEmpty() ? FlowRollup.DEFAULT_KEY_FIELDS : keyFields,
+                              TimeUnit.SECONDS.toMillis(rollupWindowSeconds),
+                              configuration.getInt(IpfixCodec.CK_ROLLUP_MAX_KEYS, IpfixCodec.DEFAULT_ROLLUP_MAX_KEYS),
+                              metricRegistry.meter("rollupEvictedKeys"));
+    }
+
+    @Nullable
+    private static DuplicateFlowFilter duplicateFlowFilter(Configuration configuration) {
+        final int duplicateWindowSeconds = configuration.getInt(IpfixCodec.CK_DUPLICATE_WINDOW_SECONDS, 0);
+        if (duplicateWindowSeconds <= 0) {
+            return null;
+        }
+        final List<String> keyFields = configuration.getList(IpfixCodec.CK_DUPLICATE_KEY_FIELDS);
+        return new DuplicateFlowFilter(keyFields == null || keyFields.isEmpty() ? DuplicateFlowFilter.DEFAULT_KEY_FIELDS : keyFields,
+                                       1024L * configuration.getInt(IpfixCodec.CK_DUPLICATE_FILTER_KB, IpfixCodec.DEFAULT_DUPLICATE_FILTER_KB),
+                                       TimeUnit.SECONDS.toNanos(duplicateWindowSeconds),
+                                       Ticker.systemTicker());
+    }
+
+    private void registerGauge(String name, Gauge<?> gauge) {
+        metricRegistry.register(name, gauge);
+        gauges.add(name);
+    }
+
+    private void restoreTemplates() {
+        if (!Files.exists(templateSnapshotFile)) {
+            LOG.debug("No IPFIX template snapshot at {}, starting input {} without templates.", templateSnapshotFile, inputId);
+            return;
+        }
+        try {
+            final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates = TemplateSnapshot.read(templateSnapshotFile);
+            aggregator.restoreTemplates(templates);
+            LOG.info("Restored the IPFIX templates of {} exporters from {}.", templates.size(), templateSnapshotFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to restore IPFIX templates from {}, starting input {} without templates.", templateSnapshotFile, inputId, e);
+        }
+    }
+
+    // the final snapshot must not interleave with a periodic one which is still running
+    private synchronized void snapshotTemplates() {
+        try {
+            final int templateCount = TemplateSnapshot.write(templateSnapshotFile, aggregator.templateSnapshot());
+            LOG.debug("Wrote {} IPFIX templates to {}.", templateCount, templateSnapshotFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to write IPFIX template snapshot to {}.", templateSnapshotFile, e);
+        }
+    }
+
+    static class ParsedTemplate {
+        private final TemplateRecord templateRecord;
+        private final TemplateDecoder decoder;
+
+        ParsedTemplate(TemplateRecord templateRecord, TemplateDecoder decoder) {
+            this.templateRecord = templateRecord;
+            this.decoder = decoder;
+        }
+
+        TemplateRecord templateRecord() {
+            return templateRecord;
+        }
+
+        TemplateDecoder decoder() {
+            return decoder;
+        }
+    }
+}
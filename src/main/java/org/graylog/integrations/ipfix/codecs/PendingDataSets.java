@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Ticker;
+import org.graylog.integrations.ipfix.ShallowDataSet;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The data sets of a single exporter which are waiting for their templates to arrive.
+ * <p>
+ * The data sets are kept in arrival order, bounded by the exporter's memory budget and a maximum age. When the budget
+ * is exceeded the oldest data sets are dropped, so a single exporter can only ever lose its own data.
+ * The buffered data sets are copied out of their packets, because a slice would keep the whole receive buffer alive
+ * for as long as the template is missing while only its own bytes are charged against the budget.
+ * </p>
+ */
+class PendingDataSets {
+    // rough per-data set overhead of the entry, the ShallowDataSet and its buffer
+    private static final int DATA_SET_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final long maxAgeNanos;
+    private final Ticker ticker;
+    private final Meter bufferedDataSets;
+    private final Meter releasedDataSets;
+    private final Meter overflowDroppedDataSets;
+    private final Meter expiredDataSets;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private long bytes = 0;
+    private boolean closed = false;
+
+    PendingDataSets(long maxBytes, long maxAgeNanos, Ticker ticker, Meter bufferedDataSets, Meter releasedDataSets,
+                    Meter overflowDroppedDataSets, Meter expiredDataSets) {
+        this.maxBytes = maxBytes;
+        this.maxAgeNanos = maxAgeNanos;
+        this.ticker = ticker;
+        this.bufferedDataSets = bufferedDataSets;
+        this.releasedDataSets = releasedDataSets;
+        this.overflowDroppedDataSets = overflowDroppedDataSets;
+        this.expiredDataSets = expiredDataSets;
+    }
+
+    /**
+     * Buffers a copy of the data set until its template arrives.
+     * The oldest data sets are dropped if the exporter's budget is exceeded.
+     *
+     * @param dataSet the data set, a slice of the received packet which is not retained
+     */
+    synchronized void add(ShallowDataSet dataSet) {
+        final long weight = weight(dataSet);
+        if (closed || weight > maxBytes) {
+            // the exporter has been removed concurrently, or the data set alone is over budget
+            overflowDroppedDataSets.mark();
+            return;
+        }
+        pending.addLast(new Pending(dataSet.copy(), ticker.read()));
+        bytes += weight;
+        bufferedDataSets.mark();
+        while (bytes > maxBytes) {
+            drop(pending.removeFirst(), overflowDroppedDataSets);
+        }
+    }
+
+    /**
+     * Drops all data sets which have been waiting for their template for longer than the maximum age.
+     */
+    synchronized void expire() {
+        final long now = ticker.read();
+        while (!pending.isEmpty() && now - pending.peekFirst().bufferedAtNanos > maxAgeNanos) {
+            drop(pending.removeFirst(), expiredDataSets);
+        }
+    }
+
+    /**
+     * Removes the data sets whose templates are known now.
+     * <p>
+     * The caller takes over the copied data sets and has to release the data sets once it is done with them.
+     * </p>
+     *
+     * @param exporterTemplates the templates of the exporter
+     * @param ready             receives the data sets which can be processed, in arrival order
+     * @return the number of data sets added to {@code ready}
+     */
+    synchronized int drainReady(ExporterTemplates exporterTemplates, List<ShallowDataSet> ready) {
+        int drained = 0;
+        final Iterator<Pending> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            final Pending next = iterator.next();
+            if (exporterTemplates.contains(next.dataSet.templateId())) {
+                iterator.remove();
+                bytes -= weight(next.dataSet);
+                ready.add(next.dataSet);
+                drained++;
+            }
+        }
+        releasedDataSets.mark(drained);
+        return drained;
+    }
+
+    /**
+     * Drops all data sets, any data sets added later are dropped right away.
+     *
+     * @param dropped the meter to count the dropped data sets in, or {@code null} to not count them
+     */
+    synchronized void close(@Nullable Meter dropped) {
+        closed = true;
+        while (!pending.isEmpty()) {
+            final Pending next = pending.removeFirst();
+            next.dataSet.release();
+            if (dropped != null) {
+                dropped.mark();
+            }
+        }
+        bytes = 0;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void drop(Pending dropped, Meter meter) {
+        bytes -= weight(dropped.dataSet);
+        dropped.dataSet.release();
+        meter.mark();
+    }
+
+    private static long weight(ShallowDataSet dataSet) {
+        return dataSet.content().readableBytes() + DATA_SET_OVERHEAD_BYTES;
+    }
+
+    private static class Pending {
+        private final ShallowDataSet dataSet;
+        private final long bufferedAtNanos;
+
+        Pending(ShallowDataSet dataSet, long bufferedAtNanos) {
+            this.dataSet = dataSet;
+            this.bufferedAtNanos = bufferedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.integrations.ipfix.InformationElementDefinitions;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Information element definitions shared by all inputs using the same custom definition files.
+ * <p>
+ * The definitions are keyed by the paths of the custom definition files and reference counted, so that they are
+ * dropped once the last input using them has stopped. Inputs {@link #acquire(List) acquire} them when they launch,
+ * which also picks up files modified since they were loaded, while the codecs decoding their journal entries only
+ * {@link #lookup(List) look them up}, without touching the files. The standard IANA definitions are compiled into the
+ * plugin and never read from a file.
+ * </p>
+ */
+class SharedDefinitions {
+    private static final Map<ImmutableList<String>, SharedDefinitions> REGISTRY = new HashMap<>();
+
+    private final ImmutableList<String> key;
+    // the modification times of the files the definitions were loaded from
+    private final ImmutableList<Long> lastModifiedMillis;
+    private final InformationElementDefinitions definitions;
+    private final long estimatedSizeBytes;
+    private int references = 0;
+
+    private SharedDefinitions(ImmutableList<String> key, ImmutableList<Long> lastModifiedMillis, InformationElementDefinitions definitions) {
+        this.key = key;
+        this.lastModifiedMillis = lastModifiedMillis;
+        this.definitions = definitions;
+        this.estimatedSizeBytes = definitions.estimatedSizeBytes();
+    }
+
+    /**
+     * Returns the definitions for the given custom definition files, loading them only if no other input uses the same
+     * unmodified files. Each call must be paired with a call to {@link #release()}.
+     *
+     * @param customDefinitionFiles paths of the custom definition files, in the order they are applied
+     * @return the shared definitions
+     * @throws IOException if the modification time of a file cannot be read
+     */
+    static SharedDefinitions acquire(List<String> customDefinitionFiles) throws IOException {
+        final ImmutableList<Path> paths = paths(customDefinitionFiles);
+        final ImmutableList.Builder<Long> lastModifiedBuilder = ImmutableList.builder();
+        for (Path path : paths) {
+            lastModifiedBuilder.add(Files.getLastModifiedTime(path).toMillis());
+        }
+        final ImmutableList<Long> lastModifiedMillis = lastModifiedBuilder.build();
+        final ImmutableList<String> key = key(paths);
+        synchronized (REGISTRY) {
+            SharedDefinitions shared = REGISTRY.get(key);
+            if (shared == null || !shared.lastModifiedMillis.equals(lastModifiedMillis)) {
+                // inputs still using the definitions of the previous files keep them until they stop
+                shared = new SharedDefinitions(key, lastModifiedMillis, load(paths));
+                REGISTRY.put(key, shared);
+            }
+            shared.references++;
+            return shared;
+        }
+    }
+
+    /**
+     * Looks up the definitions an input has acquired for the given custom definition files, without checking the files
+     * for modifications. The definitions are only loaded if no running input uses the files.
+     *
+     * @param customDefinitionFiles paths of the custom definition files, in the order they are applied
+     * @return the definitions
+     * @throws IOException if the definitions have to be loaded and a file cannot be read
+     */
+    static InformationElementDefinitions lookup(List<String> customDefinitionFiles) throws IOException {
+        final ImmutableList<Path> paths = paths(customDefinitionFiles);
+        synchronized (REGISTRY) {
+            final SharedDefinitions shared = REGISTRY.get(key(paths));
+            if (shared != null) {
+                return shared.definitions;
+            }
+        }
+        return load(paths);
+    }
+
+    private static ImmutableList<Path> paths(List<String> customDefinitionFiles) {
+        final ImmutableList.Builder<Path> paths = ImmutableList.builder();
+        for (String file : customDefinitionFiles) {
+            paths.add(Paths.get(file.trim()).toAbsolutePath().normalize());
+        }
+        return paths.build();
+    }
+
+    private static ImmutableList<String> key(List<Path> paths) {
+        final ImmutableList.Builder<String> key = ImmutableList.builder();
+        paths.forEach(path -> key.add(path.toString()));
+        return key.build();
+    }
+
+    private static InformationElementDefinitions load(List<Path> paths) throws IOException {
+        final URL[] urls = new URL[paths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = paths.get(i).toUri().toURL();
+        }
+        return InformationElementDefinitions.withStandardDefinitions(urls);
+    }
+
+    /**
+     * Releases one reference, the definitions are removed from the registry once they are no longer referenced.
+     */
+    void release() {
+        synchronized (REGISTRY) {
+            // the registry may already hold the definitions of modified files
+            if (references > 0 && --references == 0 && REGISTRY.get(key) == this) {
+                REGISTRY.remove(key);
+            }
+        }
+    }
+    InformationElementDefinitions definitions() {
+        return definitions;
+    }
+
+    /**
+     * @return the number of inputs currently sharing the definitions
+     */
+    int references() {
+        synchronized (REGISTRY) {
+            return references;
+        }
+    }
+
+    /**
+     * @return a rough estimate of the heap used by the definitions, in bytes
+     */
+    long estimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.io.CountingInputStream;
+import com.google.protobuf.ByteString;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads and writes the templates of all exporters of an input to a local file.
+ * <p>
+ * Exporters only resend their templates every few minutes, so restoring the templates known before a restart allows
+ * decoding their data sets right away instead of buffering or dropping them until then.
+ * </p>
+ * <p>
+ * The file starts with a magic number and a format version, followed by the number of exporters. Each exporter is
+ * written as its address, observation domain id and template count, followed by its templates as template id, whether
+ * it references other templates and the length prefixed template record.
+ * </p>
+ */
+class TemplateSnapshot {
+    private static final int MAGIC = 0x49504654; // "IPFT"
+    private static final int VERSION = 1;
+
+    private static final byte ADDRESS_RESOLVED = 0;
+    private static final byte ADDRESS_UNRESOLVED = 1;
+
+    // the smallest possible exporter and template entries, used to reject counts the file cannot hold
+    private static final int MIN_EXPORTER_BYTES = 1 + 2 + 2 + 8 + 4;
+    private static final int MIN_TEMPLATE_BYTES = 4 + 1 + 4;
+
+    private TemplateSnapshot() {
+    }
+
+    /**
+     * Writes the templates to the file, replacing it atomically so a crash never leaves a truncated snapshot behind.
+     * Exporters whose address is not an {@link InetSocketAddress} are skipped.
+     *
+     * @param file      the snapshot file
+     * @param templates the templates of each exporter, keyed by {@link TemplateKey#idForExporter}
+     * @return the number of templates written
+     * @throws IOException if the file cannot be written
+     */
+    static int write(Path file, Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates) throws IOException {
+        final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> writable = new HashMap<>();
+        templates.forEach((exporterKey, exporterTemplates) -> {
+            if (exporterKey.getRemoteAddress() instanceof InetSocketAddress && !exporterTemplates.isEmpty()) {
+                writable.put(exporterKey, exporterTemplates);
+            }
+        });
+
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        int templateCount = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(writable.size());
+            for (Map.Entry<TemplateKey, Map<Integer, ExporterTemplates.Template>> exporter : writable.entrySet()) {
+                writeAddress(out, (InetSocketAddress) exporter.getKey().getRemoteAddress());
+                out.writeLong(exporter.getKey().getObservationDomainId());
+                out.writeInt(exporter.getValue().size());
+                for (Map.Entry<Integer, ExporterTemplates.Template> template : exporter.getValue().entrySet()) {
+                    final ByteString recordBytes = template.getValue().recordBytes();
+                    out.writeInt(template.getKey());
+                    out.writeBoolean(template.getValue().referencesTemplates());
+                    out.writeInt(recordBytes.size());
+                    recordBytes.writeTo(out);
+                    templateCount++;
+                }
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return templateCount;
+    }
+
+    /**
+     * Reads the templates from the file.
+     *
+     * @param file the snapshot file
+     * @return the templates of each exporter, keyed by {@link TemplateKey#idForExporter}
+     * @throws IOException if the file cannot be read, is not a template snapshot or is corrupt
+     */
+    static Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> read(Path file) throws IOException {
+        final long fileSize = Files.size(file);
+        final CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        final LongSupplier remaining = () -> fileSize - counting.getCount();
+        try (DataInputStream in = new DataInputStream(counting)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an IPFIX template snapshot: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported IPFIX template snapshot version " + version + ": " + file);
+            }
+            final int exporterCount = checkLength(in.readInt(), MIN_EXPORTER_BYTES, remaining, "exporter count");
+            final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates = new HashMap<>(exporterCount);
+            for (int i = 0; i < exporterCount; i++) {
+                final SocketAddress remoteAddress = readAddress(in, remaining);
+                final long observationDomainId = in.readLong();
+                final int templateCount = checkLength(in.readInt(), MIN_TEMPLATE_BYTES, remaining, "template count");
+                final Map<Integer, ExporterTemplates.Template> exporterTemplates = new HashMap<>(templateCount);
+                for (int j = 0; j < templateCount; j++) {
+                    final int templateId = in.readInt();
+                    final boolean referencesTemplates = in.readBoolean();
+                    final byte[] recordBytes = new byte[checkLength(in.readInt(), 1, remaining, "template length")];
+                    in.readFully(recordBytes);
+                    exporterTemplates.put(templateId, new ExporterTemplates.Template(ByteString.copyFrom(recordBytes), referencesTemplates));
+                }
+                templates.put(TemplateKey.idForExporter(remoteAddress, observationDomainId), exporterTemplates);
+            }
+            return templates;
+        }
+    }
+
+    private static void writeAddress(DataOutputStream out, InetSocketAddress address) throws IOException {
+        if (address.isUnresolved()) {
+            final byte[] host = address.getHostString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(ADDRESS_UNRESOLVED);
+            out.writeShort(host.length);
+            out.write(host);
+        } else {
+            final byte[] host = address.getAddress().getAddress();
+            out.writeByte(ADDRESS_RESOLVED);
+            out.writeShort(host.length);
+            out.write(host);
+        }
+        out.writeShort(address.getPort());
+    }
+
+    private static SocketAddress readAddress(DataInputStream in, LongSupplier remaining) throws IOException {
+        final byte type = in.readByte();
+        final byte[] host = new byte[checkLength(in.readUnsignedShort(), 1, remaining, "address length")];
+        in.readFully(host);
+        final int port = in.readUnsignedShort();
+        switch (type) {
+            case ADDRESS_RESOLVED:
+                return new InetSocketAddress(InetAddress.getByAddress(host), port);
+            case ADDRESS_UNRESOLVED:
+                return InetSocketAddress.createUnresolved(new String(host, StandardCharsets.UTF_8), port);
+            default:
+                throw new IOException("Invalid exporter address type " + type + " in IPFIX template snapshot");
+        }
+    }
+
+    /**
+     * Checks a count or length read from the file against the bytes left in it, so a corrupt snapshot cannot make us
+     * allocate arbitrarily large arrays or maps.
+     *
+     * @param value        the count or length
+     * @param bytesPerItem the minimum number of bytes each counted item takes up in the file
+     * @param remaining    the number of bytes left in the file
+     * @param what         what has been read, for the error message
+     * @return the value
+     * @throws IOException if the value is negative or the rest of the file is too short for it
+     */
+    private static int checkLength(int value, int bytesPerItem, LongSupplier remaining, String what) throws IOException {
+        final long remainingBytes = remaining.getAsLong();
+        if (value < 0 || (long) value * bytesPerItem > remainingBytes) {
+            throw new IOException("Invalid " + what + " " + value + " in IPFIX template snapshot with "
+                                  + remainingBytes + " bytes left");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.assistedinject.Assisted;
+import org.graylog.integrations.ipfix.codecs.IpfixCodec;
+import org.graylog.integrations.ipfix.transports.IpfixTcpTransport;
+import org.graylog2.plugin.DocsHelper;
+import org.graylog2.plugin.LocalMetricRegistry;
+import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.MisfireException;
+import org.graylog2.plugin.inputs.annotations.ConfigClass;
+import org.graylog2.plugin.inputs.annotations.FactoryClass;
+
+import javax.inject.Inject;
+import java.io.IOException;
+
+public class IpfixTcpInput extends MessageInput {
+    private static final String NAME = "IPFIX TCP";
+
+    private final IpfixCodec codec;
+
+    @Inject
+    public IpfixTcpInput(MetricRegistry metricRegistry,
+                         @Assisted Configuration configuration,
+                         IpfixTcpTransport transport,
+                         LocalMetricRegistry localRegistry,
+                         IpfixCodec codec,
+                         Config config,
+                         Descriptor descriptor,
+                         ServerStatus serverStatus) {
+        super(metricRegistry, configuration, transport, localRegistry, codec, config, descriptor, serverStatus);
+        this.codec = codec;
+        localRegistry.register("ipfix", codec.getMetricRegistry());
+    }
+
+    @Override
+    public void launch(InputBuffer buffer) throws MisfireException {
+        try {
+            codec.launch(getId(), this::processRawMessage);
+            super.launch(buffer);
+        } catch (IOException e) {
+            codec.stop();
+            throw new MisfireException("Unable to load the IPFIX field definitions.", e);
+        } catch (MisfireException | RuntimeException e) {
+            codec.stop();
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        codec.stop();
+    }
+
+    @FactoryClass
+    public interface Factory extends MessageInput.Factory<IpfixTcpInput> {
+        @Override
+        IpfixTcpInput create(Configuration configuration);
+
+        @Override
+        Config getConfig();
+
+        @Override
+        Descriptor getDescriptor();
+    }
+
+    public static class Descriptor extends MessageInput.Descriptor {
+        @Inject
+        public Descriptor() {
+            super(NAME, false, DocsHelper.PAGE_SENDING_IPFIXPATH.toString());
+        }
+    }
+
+    @ConfigClass
+    public static class Config extends MessageInput.Config {
+        @Inject
+        public Config(IpfixTcpTransport.Factory transport, IpfixCodec.Factory codec) {
+            super(transport.getConfig(), codec.getConfig());
+        }
+    }
+
+}
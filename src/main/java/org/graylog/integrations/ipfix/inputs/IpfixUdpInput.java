@@ -23,16 +23,21 @@ import org.graylog.integrations.ipfix.transports.IpfixUdpTransport;
 import org.graylog2.plugin.DocsHelper;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.MisfireException;
 import org.graylog2.plugin.inputs.annotations.ConfigClass;
 import org.graylog2.plugin.inputs.annotations.FactoryClass;
 
 import javax.inject.Inject;
+import java.io.IOException;
 
 public class IpfixUdpInput extends MessageInput {
     private static final String NAME = "IPFIX UDP";
 
+    private final IpfixCodec codec;
+
     @Inject
     public IpfixUdpInput(MetricRegistry metricRegistry,
                          @Assisted Configuration configuration,
@@ -43,6 +48,28 @@ public class IpfixUdpInput extends MessageInput {
                          Descriptor descriptor,
                          ServerStatus serverStatus) {
         super(metricRegistry, configuration, transport, localRegistry, codec, config, descriptor, serverStatus);
+        this.codec = codec;
+        localRegistry.register("ipfix", codec.getMetricRegistry());
+    }
+
+    @Override
+    public void launch(InputBuffer buffer) throws MisfireException {
+        try {
+            codec.launch(getId(), this::processRawMessage);
+            super.launch(buffer);
+        } catch (IOException e) {
+            codec.stop();
+            throw new MisfireException("Unable to load the IPFIX field definitions.", e);
+        } catch (MisfireException | RuntimeException e) {
+            codec.stop();
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        codec.stop();
     }
 
     @FactoryClass
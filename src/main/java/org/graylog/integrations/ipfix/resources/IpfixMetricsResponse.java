@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.resources;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+
+import java.util.Map;
+
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class IpfixMetricsResponse {
+
+    private static final String METRICS = "metrics";
+    private static final String TOTAL = "total";
+
+    /**
+     * @return the values of each metric, keyed by its name within the input, e.g. {@code exporters.10_0_0_1.packets}
+     */
+    @JsonProperty(METRICS)
+    public abstract Map<String, Map<String, Object>> metrics();
+
+    @JsonProperty(TOTAL)
+    public abstract long total();
+
+    public static IpfixMetricsResponse create(@JsonProperty(METRICS) Map<String, Map<String, Object>> metrics,
+                                              @JsonProperty(TOTAL) long total) {
+        return new AutoValue_IpfixMetricsResponse(metrics, total);
+    }
+}
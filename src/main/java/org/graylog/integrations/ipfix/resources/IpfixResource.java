@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+import com.google.common.collect.ImmutableMap;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+import org.graylog.integrations.ipfix.codecs.ExporterMetrics;
+import org.graylog2.plugin.rest.PluginRestResource;
+import org.graylog2.shared.rest.resources.RestResource;
+import org.graylog2.shared.security.RestPermissions;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Web endpoints for the IPFIX inputs.
+ * Full base URL for requests in this class: http://api/plugins/org.graylog.integrations/ipfix/
+ */
+@Api(value = "IPFIX", description = "IPFIX inputs")
+@Path("/ipfix")
+@RequiresAuthentication
+@Produces(MediaType.APPLICATION_JSON)
+public class IpfixResource extends RestResource implements PluginRestResource {
+    // the codec metrics are registered with the input's metrics under this name
+    private static final String CODEC_METRICS = "ipfix";
+
+    private final MetricRegistry metricRegistry;
+
+    @Inject
+    public IpfixResource(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @GET
+    @Timed
+    @Path("/inputs/{inputId}/metrics")
+    @ApiOperation(value = "Get the per-exporter and per-template metrics of an IPFIX input running on this node.")
+    public IpfixMetricsResponse getMetrics(@ApiParam(name = "inputId", required = true) @PathParam("inputId") String inputId,
+                                           @ApiParam(name = "exporter", value = "Only return the metrics of the exporter with this address.")
+                                           @QueryParam("exporter") @Nullable String exporter) {
+        checkPermission(RestPermissions.INPUTS_READ, inputId);
+
+        // the metrics of an input are registered as <input class>.<input id>.<metric>
+        final String inputPrefix = "." + inputId + "." + CODEC_METRICS + ".";
+        final Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        metricRegistry.getMetrics().forEach((name, metric) -> {
+            final int index = name.indexOf(inputPrefix);
+            if (index < 0) {
+                return;
+            }
+            final String inputMetricName = name.substring(index + inputPrefix.length());
+            if (isExporterMetric(inputMetricName, exporter)) {
+                final Map<String, Object> values = values(metric);
+                if (values != null) {
+                    metrics.put(inputMetricName, values);
+                }
+            }
+        });
+        return IpfixMetricsResponse.create(metrics, metrics.size());
+    }
+
+    private static boolean isExporterMetric(String inputMetricName, @Nullable String exporter) {
+        final String exporterPart = exporter == null ? "" : ExporterMetrics.metricName(exporter) + ".";
+        return inputMetricName.startsWith(ExporterMetrics.EXPORTERS + "." + exporterPart) ||
+               inputMetricName.startsWith(ExporterMetrics.TEMPLATES + "." + exporterPart);
+    }
+
+    @Nullable
+    private static Map<String, Object> values(Metric metric) {
+        if (metric instanceof Meter) {
+            final Meter meter = (Meter) metric;
+            return ImmutableMap.of("count", meter.getCount(),
+                                   "one_minute_rate", meter.getOneMinuteRate(),
+                                   "mean_rate", meter.getMeanRate());
+        }
+        if (metric instanceof Timer) {
+            final Timer timer = (Timer) metric;
+            final Snapshot snapshot = timer.getSnapshot();
+            return ImmutableMap.<String, Object>builder()
+                               .put("count", timer.getCount())
+                               .put("one_minute_rate", timer.getOneMinuteRate())
+                               .put("duration_unit", "microseconds")
+                               .put("mean", toMicros(snapshot.getMean()))
+                               .put("median", toMicros(snapshot.getMedian()))
+                               .put("95th_percentile", toMicros(snapshot.get95thPercentile()))
+                               .put("99th_percentile", toMicros(snapshot.get99thPercentile()))
+                               .put("max", toMicros(snapshot.getMax()))
+                               .build();
+        }
+        return null;
+    }
+
+    private static double toMicros(double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
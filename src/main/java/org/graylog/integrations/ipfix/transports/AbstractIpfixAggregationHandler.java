@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the IPFIX messages of a channel to the channel's own aggregator shard and forwards the resulting journal
+ * entries, regardless of how the messages arrive.
+ *
+ * @param <I> the type of the inbound messages
+ */
+abstract class AbstractIpfixAggregationHandler<I> extends SimpleChannelInboundHandler<I> {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractIpfixAggregationHandler.class);
+
+    private final IpfixAggregator aggregator;
+    private final Timer aggregationTimer;
+    private final Meter invalidChunksMeter;
+    // pending flush of the aggregator's batches, only accessed from the channel's event loop
+    private ScheduledFuture<?> batchFlush;
+
+    AbstractIpfixAggregationHandler(IpfixAggregator aggregator, MetricRegistry metricRegistry) {
+        this.aggregator = aggregator;
+        aggregationTimer = metricRegistry.timer("aggregationTime");
+        invalidChunksMeter = metricRegistry.meter("invalidMessages");
+    }
+
+    /**
+     * Aggregates a single IPFIX message and forwards the journal entries which are complete.
+     *
+     * @param ctx           the channel the message arrived on
+     * @param message       the IPFIX message
+     * @param remoteAddress the address of the exporter
+     * @return false if the message was not valid and has been discarded
+     */
+    boolean aggregate(ChannelHandlerContext ctx, ByteBuf message, InetSocketAddress remoteAddress) {
+        final IpfixAggregator.JournalEntries result;
+        try (Timer.Context ignored = aggregationTimer.time()) {
+            result = aggregator.addChunks(message, remoteAddress);
+        }
+        if (!result.messages().isEmpty()) {
+            forward(ctx, result.messages(), remoteAddress);
+        } else if (result.isValid()) {
+            LOG.debug("More chunks necessary to complete this message");
+        } else {
+            invalidChunksMeter.mark();
+            LOG.debug("Message chunk was not valid and discarded.");
+        }
+        scheduleBatchFlush(ctx);
+        return result.isValid();
+    }
+
+    /**
+     * Passes a complete journal entry on to the next handler.
+     *
+     * @param ctx             the channel the entry belongs to
+     * @param completeMessage the journal entry
+     * @param remoteAddress   the address of the exporter
+     */
+    abstract void forward(ChannelHandlerContext ctx, ByteBuf completeMessage, InetSocketAddress remoteAddress);
+
+    void markInvalid() {
+        invalidChunksMeter.mark();
+    }
+
+    private void forward(ChannelHandlerContext ctx, List<ByteBuf> messages, InetSocketAddress remoteAddress) {
+        // large batches are split into several journal entries, so they are decoded by several processors
+        for (ByteBuf completeMessage : messages) {
+            LOG.debug("Message aggregation completion, forwarding [{}]", completeMessage);
+            forward(ctx, completeMessage, remoteAddress);
+        }
+    }
+
+    private void flushBatches(ChannelHandlerContext ctx, boolean all) {
+        for (IpfixAggregator.JournalEntries entries : aggregator.flushBatches(all)) {
+            forward(ctx, entries.messages(), (InetSocketAddress) entries.remoteAddress());
+        }
+    }
+
+    /**
+     * Makes sure the batches the aggregator holds back are journaled once they have waited for the batching delay,
+     * even if their exporters do not send anything else. The flush runs on the channel's event loop, so it never
+     * races with the aggregation of new packets.
+     */
+    private void scheduleBatchFlush(ChannelHandlerContext ctx) {
+        if (batchFlush != null) {
+            return;
+        }
+        final long delayNanos = aggregator.nanosUntilNextBatchFlush();
+        if (delayNanos < 0) {
+            return;
+        }
+        batchFlush = ctx.executor().schedule(() -> {
+            batchFlush = null;
+            flushBatches(ctx, false);
+            scheduleBatchFlush(ctx);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // journal what the aggregator still holds back instead of losing it
+        flushBatches(ctx, true);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (batchFlush != null) {
+            batchFlush.cancel(false);
+            batchFlush = null;
+        }
+        // the aggregator shard belongs to this channel only, give back the packets it still buffers
+        aggregator.discardBufferedPackets();
+        super.handlerRemoved(ctx);
+    }
+}
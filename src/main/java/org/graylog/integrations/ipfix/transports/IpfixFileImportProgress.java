@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.google.common.base.Splitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The progress of an IPFIX file import, so that a restarted input skips the files and segments it has imported before.
+ * <p>
+ * The progress file is a text file which is only ever appended to, one line per completed segment or file. Files are
+ * identified by their path, size and modification time, so a file which has been replaced is imported again. A segment
+ * is only recorded once all of its messages have been written to the journal, an interrupted segment is read again
+ * from its start.
+ * </p>
+ */
+class IpfixFileImportProgress {
+    private static final Logger LOG = LoggerFactory.getLogger(IpfixFileImportProgress.class);
+
+    private static final String SEGMENT = "segment";
+    private static final String FILE = "file";
+    private static final Splitter FIELD_SPLITTER = Splitter.on('\t').limit(2);
+
+    private final Path progressFile;
+    // the completed segment starts of the files which have not been completed, keyed by file id
+    private final Map<String, Set<Long>> completedSegments = new HashMap<>();
+    private final Set<String> completedFiles = new HashSet<>();
+
+    private IpfixFileImportProgress(Path progressFile) {
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Reads the progress recorded so far, lines which cannot be parsed are ignored.
+     *
+     * @param progressFile the progress file, which does not need to exist yet
+     * @return the progress
+     * @throws IOException if the progress file exists but cannot be read
+     */
+    static IpfixFileImportProgress load(Path progressFile) throws IOException {
+        final IpfixFileImportProgress progress = new IpfixFileImportProgress(progressFile);
+        if (!Files.exists(progressFile)) {
+            return progress;
+        }
+        for (String line : Files.readAllLines(progressFile, StandardCharsets.UTF_8)) {
+            // the file id comes last, as the path it ends with may contain anything
+            final List<String> fields = FIELD_SPLITTER.splitToList(line);
+            if (fields.size() == 2 && FILE.equals(fields.get(0))) {
+                progress.completedFiles.add(fields.get(1));
+            } else if (fields.size() == 2 && SEGMENT.equals(fields.get(0))) {
+                final List<String> segment = FIELD_SPLITTER.splitToList(fields.get(1));
+                try {
+                    progress.completedSegments.computeIfAbsent(segment.get(1), fileId -> new HashSet<>())
+                                              .add(Long.parseLong(segment.get(0)));
+                } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                    LOG.debug("Ignoring invalid line <{}> of IPFIX import progress file <{}>", line, progressFile);
+                }
+            } else if (!line.isEmpty()) {
+                LOG.debug("Ignoring invalid line <{}> of IPFIX import progress file <{}>", line, progressFile);
+            }
+        }
+        progress.completedSegments.keySet().removeAll(progress.completedFiles);
+        return progress;
+    }
+
+    /**
+     * @param file the file to import
+     * @return the id of the file in its current state
+     * @throws IOException if the file's attributes cannot be read
+     */
+    static String fileId(Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis() + ":" + file.toAbsolutePath().normalize();
+    }
+
+    synchronized boolean isComplete(String fileId) {
+        return completedFiles.contains(fileId);
+    }
+
+    /**
+     * @param fileId the id of a file
+     * @return the starts of the segments of the file which have been imported already
+     */
+    synchronized Set<Long> completedSegments(String fileId) {
+        final Set<Long> segments = completedSegments.get(fileId);
+        return segments == null ? Collections.emptySet() : new HashSet<>(segments);
+    }
+
+    synchronized void segmentCompleted(String fileId, long segmentStart) throws IOException {
+        append(SEGMENT + "\t" + segmentStart + "\t" + fileId);
+        completedSegments.computeIfAbsent(fileId, id -> new HashSet<>()).add(segmentStart);
+    }
+
+    synchronized void fileCompleted(String fileId) throws IOException {
+        append(FILE + "\t" + fileId);
+        completedFiles.add(fileId);
+        completedSegments.remove(fileId);
+    }
+
+    private void append(String line) throws IOException {
+        Files.write(progressFile, Collections.singletonList(line), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
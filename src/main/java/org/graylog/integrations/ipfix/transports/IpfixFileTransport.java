@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.assistedinject.Assisted;
+import io.netty.buffer.ByteBufUtil;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
+import org.graylog.integrations.ipfix.codecs.IpfixFileReader;
+import org.graylog2.plugin.InputFailureRecorder;
+import org.graylog2.plugin.LocalMetricRegistry;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.configuration.ConfigurationRequest;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.NumberField;
+import org.graylog2.plugin.configuration.fields.TextField;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.MisfireException;
+import org.graylog2.plugin.inputs.annotations.ConfigClass;
+import org.graylog2.plugin.inputs.annotations.FactoryClass;
+import org.graylog2.plugin.inputs.codecs.CodecAggregator;
+import org.graylog2.plugin.inputs.transports.ThrottleableTransport;
+import org.graylog2.plugin.inputs.transports.ThrottleableTransport2;
+import org.graylog2.plugin.inputs.transports.Transport;
+import org.graylog2.plugin.journal.RawMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports IPFIX files (RFC 5655) written by collectors or capture tools, e.g. to backfill flows recorded during an
+ * outage.
+ * <p>
+ * The files are memory mapped and split into segments, which are aggregated in parallel by a pool of reader threads.
+ * The messages are written to the journal like the messages received by the network inputs, so decoding happens in
+ * the processing buffer as usual, and the readers stop while the input is throttled.
+ * </p>
+ * <p>
+ * The imported files and segments are recorded in a progress file, so a restarted input continues where it stopped
+ * instead of importing everything again.
+ * </p>
+ */
+public class IpfixFileTransport extends ThrottleableTransport2 {
+    private static final Logger LOG = LoggerFactory.getLogger(IpfixFileTransport.class);
+
+    static final String CK_FILE_PATH = "ipfix_file_path";
+    static final String CK_EXPORTER_ADDRESS = "ipfix_file_exporter_address";
+    static final String CK_READER_THREADS = "ipfix_file_reader_threads";
+    static final String CK_SEGMENT_MB = "ipfix_file_segment_mb";
+    static final String CK_PROGRESS_FILE = "ipfix_file_progress_file";
+
+    private static final int DEFAULT_SEGMENT_MB = 64;
+    private static final long THROTTLE_WAIT_SECONDS = 1;
+
+    private final Configuration configuration;
+    private final LocalMetricRegistry localRegistry;
+    private final Meter importedFiles;
+    private final Meter importedSegments;
+    private final Meter importedMessages;
+    private final Meter failedSegments;
+
+    private IpfixAggregator aggregator;
+    private ExecutorService scanner;
+    private ExecutorService readers;
+
+    @Inject
+    public IpfixFileTransport(@Assisted Configuration configuration,
+                              EventBus serverEventBus,
+                              LocalMetricRegistry localRegistry) {
+        super(serverEventBus, configuration);
+        this.configuration = configuration;
+        this.localRegistry = localRegistry;
+        this.importedFiles = localRegistry.meter("importedFiles");
+        this.importedSegments = localRegistry.meter("importedSegments");
+        this.importedMessages = localRegistry.meter("importedMessages");
+        this.failedSegments = localRegistry.meter("failedSegments");
+    }
+
+    @Override
+    public void handleChangedThrottledState(boolean isThrottled) {
+        LOG.info("IPFIX file import {}", isThrottled ? "throttled" : "unthrottled");
+    }
+
+    @Override
+    public void doLaunch(MessageInput input, InputFailureRecorder inputFailureRecorder) throws MisfireException {
+        if (aggregator == null) {
+            throw new MisfireException("The IPFIX file import requires the IPFIX codec aggregator.");
+        }
+        final Path path = Paths.get(configuration.getString(CK_FILE_PATH, ""));
+        final List<Path> files = listFiles(path);
+        final IpfixFileImportProgress progress = loadProgress(path);
+        final InetSocketAddress exporterAddress = exporterAddress(configuration.getString(CK_EXPORTER_ADDRESS));
+        final long segmentBytes = configuration.getInt(CK_SEGMENT_MB, DEFAULT_SEGMENT_MB) * 1024L * 1024L;
+        final IpfixFileReader reader;
+        try {
+            reader = new IpfixFileReader(aggregator, exporterAddress, segmentBytes);
+        } catch (IllegalArgumentException e) {
+            throw new MisfireException(e.getMessage(), e);
+        }
+        final int readerThreads = configuration.getInt(CK_READER_THREADS, Runtime.getRuntime().availableProcessors());
+
+        readers = Executors.newFixedThreadPool(Math.max(1, readerThreads), new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ipfix-file-reader-%d")
+                .setUncaughtExceptionHandler((t, e) -> LOG.error("Uncaught exception in IPFIX file reader.", e))
+                .build());
+        scanner = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ipfix-file-scanner-%d")
+                .setUncaughtExceptionHandler((t, e) -> LOG.error("Uncaught exception in IPFIX file scanner.", e))
+                .build());
+
+        // Splitting a file reads all of its template sets, so it happens in the background, one file after the other.
+        // The segments of a file are read as soon as it is split, while the next file is being split.
+        scanner.submit(() -> {
+            for (Path file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final String fileId = IpfixFileImportProgress.fileId(file);
+                    if (progress.isComplete(fileId)) {
+                        LOG.debug("Skipping IPFIX file <{}>, it has been imported before", file);
+                        continue;
+                    }
+                    // the segments only depend on the file and the segment size, so they match the ones of earlier runs
+                    final Set<Long> completedSegments = progress.completedSegments(fileId);
+                    final List<IpfixFileReader.Segment> segments = reader.segments(channel).stream()
+                            .filter(segment -> !completedSegments.contains(segment.start()))
+                            .collect(Collectors.toList());
+                    LOG.info("Importing {} segments of IPFIX file <{}>, {} segments have been imported before",
+                             segments.size(), file, completedSegments.size());
+                    if (segments.isEmpty()) {
+                        progress.fileCompleted(fileId);
+                    }
+                    final AtomicInteger remainingSegments = new AtomicInteger(segments.size());
+                    for (IpfixFileReader.Segment segment : segments) {
+                        readers.submit(() -> readSegment(reader, file, segment, exporterAddress, input, inputFailureRecorder,
+                                                         progress, fileId, remainingSegments));
+                    }
+                    importedFiles.mark();
+                } catch (IOException e) {
+                    LOG.error("Unable to read IPFIX file <{}>", file, e);
+                    inputFailureRecorder.setFailing(getClass(), "Unable to read IPFIX file " + file, e);
+                }
+            }
+        });
+    }
+
+    private void readSegment(IpfixFileReader reader, Path file, IpfixFileReader.Segment segment,
+                             InetSocketAddress exporterAddress, MessageInput input, InputFailureRecorder inputFailureRecorder,
+                             IpfixFileImportProgress progress, String fileId, AtomicInteger remainingSegments) {
+        // every segment opens the file itself, the mapped regions stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long messages = reader.read(channel, segment, journalEntry -> {
+                while (isThrottled() && !Thread.currentThread().isInterrupted()) {
+                    blockUntilUnthrottled(THROTTLE_WAIT_SECONDS, TimeUnit.SECONDS);
+                }
+                input.processRawMessage(new RawMessage(ByteBufUtil.getBytes(journalEntry), exporterAddress));
+            });
+            importedMessages.mark(messages);
+            importedSegments.mark();
+        } catch (InterruptedIOException e) {
+            LOG.debug("Stopped reading IPFIX file <{}> at offset {}", file, segment.start());
+            return;
+        } catch (IOException e) {
+            failedSegments.mark();
+            LOG.error("Unable to read IPFIX file <{}> at offset {}", file, segment.start(), e);
+            inputFailureRecorder.setFailing(getClass(), "Unable to read IPFIX file " + file + " at offset " + segment.start(), e);
+            return;
+        }
+        try {
+            progress.segmentCompleted(fileId, segment.start());
+            if (remainingSegments.decrementAndGet() == 0) {
+                progress.fileCompleted(fileId);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to record the import progress of IPFIX file <{}>, it will be imported again", file, e);
+        }
+    }
+
+    private IpfixFileImportProgress loadProgress(Path path) throws MisfireException {
+        final String configured = configuration.getString(CK_PROGRESS_FILE);
+        // next to the imported file or directory by default, so it is not imported itself
+        final Path progressFile = configured == null || configured.trim().isEmpty()
+                ? Paths.get(path.toAbsolutePath().normalize() + ".progress") : Paths.get(configured.trim());
+        try {
+            return IpfixFileImportProgress.load(progressFile);
+        } catch (IOException e) {
+            throw new MisfireException("Unable to read the IPFIX import progress file <" + progressFile + ">", e);
+        }
+    }
+
+    private static List<Path> listFiles(Path path) throws MisfireException {
+        if (Files.isRegularFile(path)) {
+            return Collections.singletonList(path);
+        }
+        if (!Files.isDirectory(path)) {
+            throw new MisfireException("IPFIX file or directory <" + path + "> does not exist.");
+        }
+        // the files of a directory are imported in name order, which is time order for the usual rotating file names
+        try (Stream<Path> children = Files.list(path)) {
+            return children.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new MisfireException("Unable to list IPFIX files in <" + path + ">", e);
+        }
+    }
+
+    private static InetSocketAddress exporterAddress(String address) throws MisfireException {
+        try {
+            final InetAddress exporter = address == null || address.trim().isEmpty()
+                    ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address.trim());
+            return new InetSocketAddress(exporter, 0);
+        } catch (UnknownHostException e) {
+            throw new MisfireException("Invalid IPFIX exporter address <" + address + ">", e);
+        }
+    }
+
+    @Override
+    public void doStop() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        if (readers != null) {
+            readers.shutdownNow();
+        }
+    }
+
+    @Override
+    public void setMessageAggregator(CodecAggregator aggregator) {
+        this.aggregator = aggregator instanceof IpfixAggregator ? (IpfixAggregator) aggregator : null;
+    }
+
+    @Override
+    public MetricSet getMetricSet() {
+        return localRegistry;
+    }
+
+    @FactoryClass
+    public interface Factory extends Transport.Factory<IpfixFileTransport> {
+        @Override
+        IpfixFileTransport create(Configuration configuration);
+
+        @Override
+        Config getConfig();
+    }
+
+    @ConfigClass
+    public static class Config extends ThrottleableTransport.Config {
+        @Override
+        public ConfigurationRequest getRequestedConfiguration() {
+            final ConfigurationRequest r = super.getRequestedConfiguration();
+
+            r.addField(new TextField(
+                    CK_FILE_PATH,
+                    "IPFIX file path",
+                    "",
+                    "An IPFIX file (RFC 5655), or a directory whose files are imported in name order.",
+                    ConfigurationField.Optional.NOT_OPTIONAL
+            ));
+
+            r.addField(new TextField(
+                    CK_EXPORTER_ADDRESS,
+                    "Exporter address",
+                    "",
+                    "The address of the exporter the flows are recorded from, the files do not contain it. Defaults to the loopback address.",
+                    ConfigurationField.Optional.OPTIONAL
+            ));
+
+            r.addField(new NumberField(
+                    CK_READER_THREADS,
+                    "Reader threads",
+                    Runtime.getRuntime().availableProcessors(),
+                    "The number of file segments read in parallel.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE));
+
+            r.addField(new TextField(
+                    CK_PROGRESS_FILE,
+                    "Progress file",
+                    "",
+                    "The file recording which files and segments have been imported, so a restarted input skips them. Defaults to the file path with a .progress suffix.",
+                    ConfigurationField.Optional.OPTIONAL
+            ));
+
+            r.addField(new NumberField(
+                    CK_SEGMENT_MB,
+                    "Segment size (MB)",
+                    DEFAULT_SEGMENT_MB,
+                    "The size of the file segments which are read in parallel.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE));
+
+            return r;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Aggregates the IPFIX messages of a single TCP connection, framed by their message header length.
+ * <p>
+ * A broken message means the position of the following message headers in the stream is lost as well, so instead of
+ * decoding garbage the connection is closed, and the exporter reconnects and starts over with its templates.
+ * </p>
+ */
+public class IpfixStreamAggregationHandler extends AbstractIpfixAggregationHandler<ByteBuf> {
+    private static final Logger LOG = LoggerFactory.getLogger(IpfixStreamAggregationHandler.class);
+
+    public IpfixStreamAggregationHandler(IpfixAggregator aggregator, MetricRegistry metricRegistry) {
+        super(aggregator, metricRegistry);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+        final InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        if (!aggregate(ctx, msg, remoteAddress)) {
+            LOG.warn("Received an invalid IPFIX message from {}, closing the connection.", remoteAddress);
+            ctx.close();
+        }
+    }
+
+    @Override
+    void forward(ChannelHandlerContext ctx, ByteBuf completeMessage, InetSocketAddress remoteAddress) {
+        // the raw message handler of TCP transports takes the remote address from the channel
+        ctx.fireChannelRead(completeMessage);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (cause instanceof DecoderException) {
+            // the frame decoder rejected a message length, e.g. one shorter than the message header
+            markInvalid();
+            LOG.warn("Could not frame the IPFIX messages from {}, closing the connection.", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+            return;
+        }
+        super.exceptionCaught(ctx, cause);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.google.inject.assistedinject.Assisted;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
+import org.graylog2.configuration.TLSProtocolsConfiguration;
+import org.graylog2.inputs.transports.AbstractTcpTransport;
+import org.graylog2.inputs.transports.NettyTransportConfiguration;
+import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
+import org.graylog2.plugin.LocalMetricRegistry;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.annotations.ConfigClass;
+import org.graylog2.plugin.inputs.annotations.FactoryClass;
+import org.graylog2.plugin.inputs.transports.Transport;
+import org.graylog2.plugin.inputs.util.ThroughputCounter;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Receives IPFIX messages over TCP, as described in RFC 7011, section 10.4.
+ * <p>
+ * The stream is split into messages by the length field of the message headers. Unlike with UDP, the exporter keeps
+ * its templates for the lifetime of the connection, so every connection gets an aggregator shard of its own which goes
+ * away with the connection. A slow input does not lose messages either, it simply stops reading from the connections,
+ * and TCP flow control makes the exporters wait.
+ * </p>
+ */
+public class IpfixTcpTransport extends AbstractTcpTransport {
+    // the message length is an unsigned 16 bit number
+    private static final int MAX_MESSAGE_LENGTH = 65535;
+    // the version number precedes the message length
+    private static final int LENGTH_FIELD_OFFSET = 2;
+    private static final int LENGTH_FIELD_LENGTH = 2;
+
+    @Inject
+    public IpfixTcpTransport(@Assisted Configuration configuration,
+                             EventLoopGroup eventLoopGroup,
+                             EventLoopGroupFactory eventLoopGroupFactory,
+                             NettyTransportConfiguration nettyTransportConfiguration,
+                             ThroughputCounter throughputCounter,
+                             LocalMetricRegistry localRegistry,
+                             TLSProtocolsConfiguration tlsConfiguration) {
+        super(configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration);
+    }
+
+    @Override
+    protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getCustomChildChannelHandlers(MessageInput input) {
+        final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlers = new LinkedHashMap<>();
+
+        handlers.put("ipfix-framer", IpfixTcpTransport::newFrameDecoder);
+        handlers.putAll(super.getCustomChildChannelHandlers(input));
+
+        return handlers;
+    }
+
+    /**
+     * @return a decoder splitting the stream of a connection into IPFIX messages
+     */
+    static LengthFieldBasedFrameDecoder newFrameDecoder() {
+        // the message length covers the whole message, including the version and length fields in front of it
+        return new LengthFieldBasedFrameDecoder(MAX_MESSAGE_LENGTH, LENGTH_FIELD_OFFSET,
+                LENGTH_FIELD_LENGTH, -(LENGTH_FIELD_OFFSET + LENGTH_FIELD_LENGTH), 0);
+    }
+
+    @Override
+    protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getChildChannelHandlers(MessageInput input) {
+        final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlers = new LinkedHashMap<>(super.getChildChannelHandlers(input));
+
+        // Replace the default "codec-aggregator" handler with one that keeps the templates of each connection apart.
+        final IpfixAggregator aggregator = (IpfixAggregator) getAggregator();
+        handlers.replace("codec-aggregator", () -> new IpfixStreamAggregationHandler(aggregator.newSessionShard(), localRegistry));
+
+        return handlers;
+    }
+
+    @FactoryClass
+    public interface Factory extends Transport.Factory<IpfixTcpTransport> {
+        @Override
+        IpfixTcpTransport create(Configuration configuration);
+
+        @Override
+        Config getConfig();
+    }
+
+    @ConfigClass
+    public static class Config extends AbstractTcpTransport.Config {
+    }
+}
@@ -18,7 +18,7 @@ package org.graylog.integrations.ipfix.transports;
 
 import com.google.inject.assistedinject.Assisted;
 import io.netty.channel.ChannelHandler;
-import org.graylog.plugins.netflow.codecs.RemoteAddressCodecAggregator;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
 import org.graylog2.inputs.transports.NettyTransportConfiguration;
 import org.graylog2.inputs.transports.UdpTransport;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
@@ -48,9 +48,11 @@ public class IpfixUdpTransport extends UdpTransport {
     protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getChannelHandlers(MessageInput input) {
         final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlers = new LinkedHashMap<>(super.getChannelHandlers(input));
 
-        // Replace the default "codec-aggregator" handler with one that passes the remote address
-        final RemoteAddressCodecAggregator aggregator = (RemoteAddressCodecAggregator) getAggregator();
-        handlers.replace("codec-aggregator", () -> new IpfixMessageAggregationHandler(aggregator, localRegistry));
+        // Replace the default "codec-aggregator" handler with one that passes the remote address.
+        // The handlers are created for each channel, and with epoll the transport binds one channel per worker thread
+        // using SO_REUSEPORT, so every channel gets its own aggregator shard which is only used by its event loop.
+        final IpfixAggregator aggregator = (IpfixAggregator) getAggregator();
+        handlers.replace("codec-aggregator", () -> new IpfixMessageAggregationHandler(aggregator.newShard(), localRegistry));
         handlers.remove("udp-datagram");
 
         return handlers;
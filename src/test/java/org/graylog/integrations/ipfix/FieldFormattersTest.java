@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FieldFormattersTest {
+
+    @Test
+    public void ipv4MatchesInetAddress() throws Exception {
+        final byte[][] addresses = {
+                {0, 0, 0, 0},
+                {(byte) 192, (byte) 168, 1, 10},
+                {(byte) 255, (byte) 255, (byte) 255, (byte) 255},
+                {10, 100, 0, 9}
+        };
+        for (byte[] address : addresses) {
+            assertThat(FieldFormatters.ipv4(Unpooled.wrappedBuffer(address).readInt()))
+                    .isEqualTo(InetAddress.getByAddress(address).getHostAddress());
+        }
+    }
+
+    @Test
+    public void ipv6MatchesInetAddress() throws Exception {
+        final byte[][] addresses = {
+                new byte[16],
+                {0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0x12, 0x34},
+                {(byte) 0xfe, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0x02, 0x1b, 0x21, (byte) 0xff, (byte) 0xfe, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc},
+                // IPv4-mapped addresses are printed as IPv4 addresses
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff, 10, 0, 0, 1}
+        };
+        for (byte[] address : addresses) {
+            final ByteBuf buffer = Unpooled.wrappedBuffer(address);
+            assertThat(FieldFormatters.ipv6(buffer.readLong(), buffer.readLong()))
+                    .isEqualTo(InetAddress.getByAddress(address).getHostAddress());
+        }
+        assertThat(FieldFormatters.ipv6(0, 0)).isEqualTo("0:0:0:0:0:0:0:0");
+    }
+
+    @Test
+    public void addressCacheReturnsSameValues() {
+        final AddressCache addressCache = AddressCache.create(4);
+        for (int i = 0; i < 100; i++) {
+            assertThat(addressCache.ipv4(i % 7)).isEqualTo(FieldFormatters.ipv4(i % 7));
+            assertThat(addressCache.ipv6(i % 5, i % 3)).isEqualTo(FieldFormatters.ipv6(i % 5, i % 3));
+        }
+        assertThat(addressCache.ipv4(0x0a000001)).isSameAs(addressCache.ipv4(0x0a000001));
+    }
+
+    @Test
+    public void parsersShareTheAddressCacheOfTheirSize() {
+        assertThat(AddressCache.shared(1000)).isSameAs(AddressCache.shared(1024));
+        assertThat(AddressCache.shared(1024)).isNotSameAs(AddressCache.shared(2048));
+
+        final IpfixParser parser = new IpfixParser(InformationElementDefinitions.empty(), 1024, FieldFilter.ALL);
+        final IpfixParser otherParser = new IpfixParser(InformationElementDefinitions.empty(), 1024, FieldFilter.ALL);
+        assertThat(parser.addressCache().ipv4(0x0a000001)).isSameAs(otherParser.addressCache().ipv4(0x0a000001));
+    }
+
+    @Test
+    public void mac() {
+        final ByteBuf buffer = Unpooled.wrappedBuffer(new byte[]{0x00, 0x1b, 0x21, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, 0x42});
+        assertThat(FieldFormatters.mac(buffer)).isEqualTo("00:1b:21:aa:bb:cc");
+        assertThat(buffer.readerIndex()).isEqualTo(6);
+    }
+
+    @Test
+    public void octetArray() {
+        final byte[] bytes = {0x00, 0x7f, (byte) 0x80, (byte) 0xff, 0x10};
+        final ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
+        assertThat(FieldFormatters.hex(buffer, 4)).isEqualTo(Hex.encodeHexString(new byte[]{0x00, 0x7f, (byte) 0x80, (byte) 0xff}));
+        assertThat(buffer.readerIndex()).isEqualTo(4);
+    }
+
+    @Test
+    public void stringRemovesNulPadding() {
+        final ByteBuf ascii = Unpooled.wrappedBuffer("example.int.\0\0\0".getBytes(StandardCharsets.UTF_8));
+        assertThat(FieldFormatters.string(ascii, ascii.readableBytes())).isEqualTo("example.int.");
+        assertThat(ascii.isReadable()).isFalse();
+
+        final ByteBuf utf8 = Unpooled.wrappedBuffer("gr\u00fc\u00dfe\0".getBytes(StandardCharsets.UTF_8));
+        assertThat(FieldFormatters.string(utf8, utf8.readableBytes())).isEqualTo("gr\u00fc\u00dfe");
+        assertThat(utf8.isReadable()).isFalse();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates {@link IanaInformationElements} from {@code ipfix-iana-elements.json}.
+ * <p>
+ * Run it from the project directory after updating the definition file, optionally passing the path of the source file
+ * to write: {@code java -cp <test classpath> org.graylog.integrations.ipfix.IanaInformationElementsGenerator}.
+ * </p>
+ */
+public class IanaInformationElementsGenerator {
+    static final Path SOURCE_FILE = Paths.get("src/main/java/org/graylog/integrations/ipfix/IanaInformationElements.java");
+
+    private static final String HEADER = "/*\n" +
+            " * Copyright (C) 2020 Graylog, Inc.\n" +
+            " *\n" +
+            " * This program is free software: you can redistribute it and/or modify\n" +
+            " * it under the terms of the Server Side Public License, version 1,\n" +
+            " * as published by MongoDB, Inc.\n" +
+            " *\n" +
+            " * This program is distributed in the hope that it will be useful,\n" +
+            " * but WITHOUT ANY WARRANTY; without even the implied warranty of\n" +
+            " * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the\n" +
+            " * Server Side Public License for more details.\n" +
+            " *\n" +
+            " * You should have received a copy of the Server Side Public License\n" +
+            " * along with this program. If not, see\n" +
+            " * <http://www.mongodb.com/licensing/server-side-public-license>.\n" +
+            " */\n";
+
+    private static final String PREAMBLE = "package org.graylog.integrations.ipfix;\n" +
+            "\n" +
+            "import com.google.common.collect.ImmutableMap;\n" +
+            "import org.graylog.integrations.ipfix.InformationElementDefinition.DataType;\n" +
+            "\n" +
+            "/**\n" +
+            " * The IANA assigned information element definitions (private enterprise number 0).\n" +
+            " * <p>\n" +
+            " * Generated from {@code ipfix-iana-elements.json} by {@code IanaInformationElementsGenerator}, so that the standard\n" +
+            " * definitions do not have to be parsed from JSON whenever an input starts. {@code IanaInformationElementsTest} verifies\n" +
+            " * that both stay in sync.\n" +
+            " * </p>\n" +
+            " */\n" +
+            "final class IanaInformationElements {\n" +
+            "\n" +
+            "    static final ImmutableMap<Integer, InformationElementDefinition> DEFINITIONS = definitions();\n" +
+            "\n" +
+            "    private IanaInformationElements() {\n" +
+            "    }\n" +
+            "\n" +
+            "    private static void add(ImmutableMap.Builder<Integer, InformationElementDefinition> builder, int id, String fieldName, DataType dataType) {\n" +
+            "        builder.put(id, InformationElementDefinition.create(dataType, fieldName, id));\n" +
+            "    }\n" +
+            "\n" +
+            "    private static ImmutableMap<Integer, InformationElementDefinition> definitions() {\n" +
+            "        final ImmutableMap.Builder<Integer, InformationElementDefinition> builder = ImmutableMap.builder();\n";
+
+    private static final String EPILOGUE = "        return builder.build();\n" +
+            "    }\n" +
+            "}\n";
+
+    public static void main(String[] args) throws IOException {
+        final Path sourceFile = args.length > 0 ? Paths.get(args[0]) : SOURCE_FILE;
+        final JsonNode definitions = new ObjectMapper().readTree(Resources.getResource("ipfix-iana-elements.json"));
+        Files.write(sourceFile, generate(definitions).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + sourceFile.toAbsolutePath());
+    }
+
+    /**
+     * @param definitions the parsed definition file
+     * @return the source of {@link IanaInformationElements}
+     */
+    static String generate(JsonNode definitions) {
+        if (definitions.path("enterprise_number").asLong() != 0L) {
+            throw new IllegalArgumentException("Not the IANA information element definitions");
+        }
+        // ordered by element id, a duplicate id replaces the earlier definition like it does when parsing the file
+        final Map<Integer, InformationElementDefinition> elements = new TreeMap<>();
+        definitions.path("information_elements").elements().forEachRemaining(ied -> {
+            final int elementId = ied.get("element_id").asInt();
+            elements.put(elementId, InformationElementDefinition.create(ied.get("data_type").asText(), ied.get("name").asText(), elementId));
+        });
+
+        final StringBuilder source = new StringBuilder(HEADER).append(PREAMBLE);
+        for (InformationElementDefinition element : elements.values()) {
+            source.append("        add(builder, ")
+                  .append(element.id())
+                  .append(", \"")
+                  .append(element.fieldName())
+                  .append("\", DataType.")
+                  .append(element.dataType().name())
+                  .append(");\n");
+        }
+        return source.append(EPILOGUE).toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IanaInformationElementsTest {
+
+    @Test
+    public void matchesDefinitionFile() throws IOException {
+        final JsonNode jsonNode = new ObjectMapper().readTree(Resources.getResource("ipfix-iana-elements.json"));
+        assertThat(jsonNode.get("enterprise_number").asLong()).isEqualTo(0L);
+
+        final Map<Integer, InformationElementDefinition> expected = new HashMap<>();
+        jsonNode.path("information_elements").elements()
+                .forEachRemaining(ied -> {
+                    final int elementId = ied.get("element_id").asInt();
+                    expected.put(elementId, InformationElementDefinition.create(ied.get("data_type").asText(), ied.get("name").asText(), elementId));
+                });
+
+        assertThat(IanaInformationElements.DEFINITIONS)
+                .describedAs("IanaInformationElements must be regenerated with IanaInformationElementsGenerator")
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void generatorReproducesTheSource() throws IOException {
+        final JsonNode jsonNode = new ObjectMapper().readTree(Resources.getResource("ipfix-iana-elements.json"));
+
+        assertThat(IanaInformationElementsGenerator.generate(jsonNode))
+                .describedAs("IanaInformationElements must be regenerated with IanaInformationElementsGenerator")
+                .isEqualTo(new String(Files.readAllBytes(IanaInformationElementsGenerator.SOURCE_FILE), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void standardDefinitionsAreBuiltIn() {
+        final InformationElementDefinitions definitions = InformationElementDefinitions.withStandardDefinitions();
+
+        final InformationElementDefinition definition = definitions.getDefinition(8, 0);
+        assertThat(definition.fieldName()).isEqualTo("sourceIPv4Address");
+        assertThat(definition.dataType()).isEqualTo(InformationElementDefinition.DataType.IPV4ADDRESS);
+        assertThat(definitions.estimatedSizeBytes()).isPositive();
+    }
+}
@@ -32,6 +32,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class InformationElementDefinitionsTest {
 
@@ -61,4 +64,30 @@ public class InformationElementDefinitionsTest {
     @Test
     public void testBuildPenToIedsMap() {
     }
+
+    @Test
+    public void getDefinition() {
+        InformationElementDefinitions definitions = new InformationElementDefinitions(
+                Resources.getResource("ipfix-iana-elements.json"),
+                Resources.getResource("ixia-ied.json")
+        );
+
+        assertEquals("destinationTransportPort", definitions.getDefinition(11, 0).fieldName());
+        assertEquals(InformationElementDefinition.DataType.UNSIGNED16, definitions.getDefinition(11, 0).dataType());
+        assertEquals("l7ApplicationName", definitions.getDefinition(111, 3054).fieldName());
+        // the same id with a different enterprise number is a different element
+        assertNotEquals("l7ApplicationName", definitions.getDefinition(111, 0).fieldName());
+    }
+
+    @Test
+    public void getDefinitionOfUnknownElement() {
+        InformationElementDefinitions definitions = new InformationElementDefinitions(
+                Resources.getResource("ipfix-iana-elements.json")
+        );
+
+        assertTrue(definitions.getDefinition(32767, 0).isUnknown());
+        assertTrue(definitions.getDefinition(111, 3054).isUnknown());
+        assertSame(InformationElementDefinition.UNKNOWN, definitions.getDefinition(111, 3054));
+        assertTrue(InformationElementDefinitions.empty().getDefinition(1, 0).isUnknown());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates IPFIX messages resembling the traffic of a real exporter, for benchmarks and load tests.
+ * <p>
+ * The templates cover the usual IANA flow keys and counters for IPv4 and IPv6, variable length strings, enterprise
+ * specific elements (Ixia, private enterprise number 3054, see {@code ixia-ied.json}) and a subTemplateList.
+ * The field values are random, but drawn from small pools of hosts and applications like in real traffic, and the
+ * messages are reproducible for a given seed.
+ * </p>
+ */
+public class IpfixPacketGenerator {
+    public static final int IPV4_TEMPLATE_ID = 256;
+    public static final int IPV6_TEMPLATE_ID = 257;
+    public static final int APPLICATION_TEMPLATE_ID = 258;
+    public static final int PATH_TEMPLATE_ID = 259;
+    // the template of the hops in the subTemplateList of the path template, it has no data sets of its own
+    public static final int HOP_TEMPLATE_ID = 260;
+    // every data message contains one data set for each of these templates
+    public static final int[] DATA_TEMPLATE_IDS = {IPV4_TEMPLATE_ID, IPV6_TEMPLATE_ID, APPLICATION_TEMPLATE_ID, PATH_TEMPLATE_ID};
+    public static final int IXIA_ENTERPRISE_NUMBER = 3054;
+
+    private static final int VERSION = 10;
+    private static final int MAX_MESSAGE_LENGTH = 65535;
+    private static final int TEMPLATE_SET_ID = 2;
+    private static final int VARIABLE_LENGTH = 65535;
+    private static final int SEMANTIC_ORDERED = 4;
+
+    // field specifiers as {element id, length} or {element id, length, private enterprise number}
+    private static final int[][] IPV4_FIELDS = {
+            {8, 4}, {12, 4}, {7, 2}, {11, 2}, {4, 1}, {1, 8}, {2, 8}, {152, 8}, {153, 8}, {10, 4}, {14, 4}};
+    private static final int[][] IPV6_FIELDS = {
+            {27, 16}, {28, 16}, {7, 2}, {11, 2}, {4, 1}, {1, 8}, {2, 8}, {152, 8}, {153, 8}, {31, 4}};
+    private static final int[][] APPLICATION_FIELDS = {
+            {8, 4}, {12, 4}, {7, 2}, {11, 2}, {4, 1}, {1, 8}, {2, 8}, {96, VARIABLE_LENGTH},
+            {110, 4, IXIA_ENTERPRISE_NUMBER}, {111, VARIABLE_LENGTH, IXIA_ENTERPRISE_NUMBER}};
+    private static final int[][] PATH_FIELDS = {
+            {8, 4}, {12, 4}, {7, 2}, {11, 2}, {4, 1}, {1, 8}, {2, 8}, {292, VARIABLE_LENGTH}};
+    private static final int[][] HOP_FIELDS = {
+            {15, 4}, {10, 4}, {14, 4}};
+
+    private static final String[] APPLICATIONS = {
+            "http", "https", "dns", "ssh", "smtp", "imaps", "ntp", "stun", "microsoft-teams", "office365-sharepoint-online"};
+    private static final int[] SERVER_PORTS = {80, 443, 53, 22, 25, 993, 123, 3478, 443, 443};
+    private static final int HOSTS = 256;
+    private static final int MAX_HOPS = 4;
+
+    private final Random random;
+    private final long observationDomainId;
+    private final int[] ipv4Hosts = new int[HOSTS];
+    private final byte[][] ipv6Hosts = new byte[HOSTS][16];
+    // the number of data records sent so far, the sequence number of the next message
+    private long sequenceNumber = 0;
+    // added to all template ids, to emulate an exporter that changes its templates
+    private int templateIdOffset = 0;
+
+    /**
+     * @param seed                the seed of the random field values
+     * @param observationDomainId the observation domain id of the messages
+     */
+    public IpfixPacketGenerator(long seed, long observationDomainId) {
+        this.random = new Random(seed);
+        this.observationDomainId = observationDomainId;
+        for (int i = 0; i < HOSTS; i++) {
+            // 10.0.0.0/16
+            ipv4Hosts[i] = 0x0a000000 | random.nextInt(0x10000);
+            // 2001:db8::/32
+            random.nextBytes(ipv6Hosts[i]);
+            ipv6Hosts[i][0] = 0x20;
+            ipv6Hosts[i][1] = 0x01;
+            ipv6Hosts[i][2] = 0x0d;
+            ipv6Hosts[i][3] = (byte) 0xb8;
+        }
+    }
+
+    /**
+     * Moves all templates to new template ids, like an exporter that is reconfigured. The templates have to be sent
+     * again, with {@link #templateMessage()}, before the data sets using the new ids can be decoded.
+     *
+     * @param templateIdOffset the offset added to the template ids, e.g. {@code 0} for the original template ids
+     */
+    public void renumberTemplates(int templateIdOffset) {
+        if (templateIdOffset < 0 || HOP_TEMPLATE_ID + templateIdOffset > 0xffff) {
+            throw new IllegalArgumentException("Template id offset out of range: " + templateIdOffset);
+        }
+        this.templateIdOffset = templateIdOffset;
+    }
+
+    /**
+     * @return a message containing the template set with all templates, but no data sets
+     */
+    public byte[] templateMessage() {
+        final ByteBuf message = beginMessage();
+        final int setStart = beginSet(message, TEMPLATE_SET_ID);
+        writeTemplate(message, IPV4_TEMPLATE_ID, IPV4_FIELDS);
+        writeTemplate(message, IPV6_TEMPLATE_ID, IPV6_FIELDS);
+        writeTemplate(message, APPLICATION_TEMPLATE_ID, APPLICATION_FIELDS);
+        writeTemplate(message, PATH_TEMPLATE_ID, PATH_FIELDS);
+        writeTemplate(message, HOP_TEMPLATE_ID, HOP_FIELDS);
+        endSet(message, setStart);
+        return endMessage(message);
+    }
+
+    /**
+     * @param recordsPerDataSet the number of data records in each data set
+     * @return a message containing one data set for each of the {@link #DATA_TEMPLATE_IDS}
+     * @throws IllegalArgumentException if the message would exceed the maximum IPFIX message length
+     */
+    public byte[] dataMessage(int recordsPerDataSet) {
+        final ByteBuf message = beginMessage();
+        for (int templateId : DATA_TEMPLATE_IDS) {
+            final int setStart = beginSet(message, templateId + templateIdOffset);
+            for (int i = 0; i < recordsPerDataSet; i++) {
+                writeRecord(message, templateId);
+            }
+            endSet(message, setStart);
+        }
+        sequenceNumber += flowsPerDataMessage(recordsPerDataSet);
+        return endMessage(message);
+    }
+
+    /**
+     * @param recordsPerDataSet the number of data records in each data set
+     * @return the number of flows in a data message, the hops of a subTemplateList are part of their flow
+     */
+    public static int flowsPerDataMessage(int recordsPerDataSet) {
+        return DATA_TEMPLATE_IDS.length * recordsPerDataSet;
+    }
+
+    private ByteBuf beginMessage() {
+        final ByteBuf message = Unpooled.buffer();
+        message.writeShort(VERSION);
+        // length, set once the message is complete
+        message.writeShort(0);
+        message.writeInt((int) (System.currentTimeMillis() / 1000));
+        message.writeInt((int) sequenceNumber);
+        message.writeInt((int) observationDomainId);
+        return message;
+    }
+
+    private static byte[] endMessage(ByteBuf message) {
+        if (message.writerIndex() > MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("IPFIX message of " + message.writerIndex() + " bytes exceeds the maximum length, use fewer records");
+        }
+        message.setShort(2, message.writerIndex());
+        return ByteBufUtil.getBytes(message);
+    }
+
+    private static int beginSet(ByteBuf message, int setId) {
+        final int setStart = message.writerIndex();
+        message.writeShort(setId);
+        message.writeShort(0);
+        return setStart;
+    }
+
+    private static void endSet(ByteBuf message, int setStart) {
+        message.setShort(setStart + 2, message.writerIndex() - setStart);
+    }
+
+    private void writeTemplate(ByteBuf message, int templateId, int[][] fields) {
+        message.writeShort(templateId + templateIdOffset);
+        message.writeShort(fields.length);
+        for (int[] field : fields) {
+            if (field.length > 2) {
+                message.writeShort(0x8000 | field[0]);
+                message.writeShort(field[1]);
+                message.writeInt(field[2]);
+            } else {
+                message.writeShort(field[0]);
+                message.writeShort(field[1]);
+            }
+        }
+    }
+
+    private void writeRecord(ByteBuf message, int templateId) {
+        final int application = random.nextInt(APPLICATIONS.length);
+        final int serverPort = SERVER_PORTS[application];
+        final int protocol = serverPort == 53 || serverPort == 123 || serverPort == 3478 ? 17 : 6;
+        final long packets = 1 + random.nextInt(1000);
+        final long flowEnd = System.currentTimeMillis() - random.nextInt(60_000);
+        switch (templateId) {
+            case IPV4_TEMPLATE_ID:
+                writeFlowKeys(message, serverPort, protocol);
+                writeCounters(message, packets);
+                message.writeLong(flowEnd - random.nextInt(300_000));
+                message.writeLong(flowEnd);
+                message.writeInt(1 + random.nextInt(48));
+                message.writeInt(1 + random.nextInt(48));
+                break;
+            case IPV6_TEMPLATE_ID:
+                message.writeBytes(ipv6Hosts[random.nextInt(HOSTS)]);
+                message.writeBytes(ipv6Hosts[random.nextInt(HOSTS)]);
+                message.writeShort(49152 + random.nextInt(16384));
+                message.writeShort(serverPort);
+                message.writeByte(protocol);
+                writeCounters(message, packets);
+                message.writeLong(flowEnd - random.nextInt(300_000));
+                message.writeLong(flowEnd);
+                message.writeInt(random.nextInt(0x100000));
+                break;
+            case APPLICATION_TEMPLATE_ID:
+                writeFlowKeys(message, serverPort, protocol);
+                writeCounters(message, packets);
+                writeString(message, APPLICATIONS[application]);
+                message.writeInt(application);
+                writeString(message, APPLICATIONS[application].toUpperCase(Locale.ROOT));
+                break;
+            case PATH_TEMPLATE_ID:
+                writeFlowKeys(message, serverPort, protocol);
+                writeCounters(message, packets);
+                writeHops(message, 1 + random.nextInt(MAX_HOPS));
+                break;
+            default:
+                throw new IllegalArgumentException("No data records for template " + templateId);
+        }
+    }
+
+    private void writeFlowKeys(ByteBuf message, int serverPort, int protocol) {
+        message.writeInt(ipv4Hosts[random.nextInt(HOSTS)]);
+        message.writeInt(ipv4Hosts[random.nextInt(HOSTS)]);
+        message.writeShort(49152 + random.nextInt(16384));
+        message.writeShort(serverPort);
+        message.writeByte(protocol);
+    }
+
+    private void writeCounters(ByteBuf message, long packets) {
+        message.writeLong(packets * (40 + random.nextInt(1460)));
+        message.writeLong(packets);
+    }
+
+    private void writeHops(ByteBuf message, int hops) {
+        // the list length includes the semantic and the template id, always in the three byte variable length format
+        final int hopLength = 12;
+        message.writeByte(255);
+        message.writeShort(3 + hops * hopLength);
+        message.writeByte(SEMANTIC_ORDERED);
+        message.writeShort(HOP_TEMPLATE_ID + templateIdOffset);
+        for (int i = 0; i < hops; i++) {
+            message.writeInt(0x0afe0000 | i);
+            message.writeInt(1 + random.nextInt(48));
+            message.writeInt(1 + random.nextInt(48));
+        }
+    }
+
+    private static void writeString(ByteBuf message, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 255) {
+            message.writeByte(bytes.length);
+        } else {
+            message.writeByte(255);
+            message.writeShort(bytes.length);
+        }
+        message.writeBytes(bytes);
+    }
+}
@@ -17,15 +17,18 @@
 package org.graylog.integrations.ipfix;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
+import java.util.Set;
 
 import static com.google.common.collect.Maps.immutableEntry;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -93,6 +96,21 @@ public class IpfixParserTest {
                 .extracting(ShallowDataSet::templateId).containsExactly(256);
     }
 
+    @Test
+    public void shallowParseDoesNotCopySets() throws IOException {
+        final ByteBuf packet = Utils.readPacket("templates-data.ipfix");
+
+        final IpfixParser.MessageDescription description = new IpfixParser(definitions).shallowParseMessage(packet);
+
+        assertThat(description.dataSets()).allSatisfy(dataSet -> assertThat(dataSet.content().unwrap()).isSameAs(packet));
+        assertThat(description.templateRecords()).allSatisfy(record -> assertThat(record.getRecordBytes().unwrap()).isSameAs(packet));
+
+        final ShallowDataSet retained = description.dataSets().iterator().next().retain();
+        assertThat(packet.refCnt()).isEqualTo(2);
+        retained.release();
+        assertThat(packet.refCnt()).isEqualTo(1);
+    }
+
     //@Ignore("Missing ied for private enterprise number 3054 failure.")
     @Test
     public void parseDataSet() throws IOException {
@@ -244,8 +262,8 @@ public class IpfixParserTest {
                 immutableEntry("bgpDestinationAsNumber", 17974L),
                 immutableEntry("icmpTypeCodeIPv4", 0L),
                 immutableEntry("flowEndReason", 1L),
-                immutableEntry("flowStartMilliseconds", ZonedDateTime.of(2018, 9, 13, 21, 39, 13, 249_000_000, ZoneOffset.UTC)),
-                immutableEntry("flowEndMilliseconds", ZonedDateTime.of(2018, 9, 13, 21, 39, 13, 249_000_000, ZoneOffset.UTC)),
+                immutableEntry("flowStartMilliseconds", new DateTime(2018, 9, 13, 21, 39, 13, 249, DateTimeZone.UTC)),
+                immutableEntry("flowEndMilliseconds", new DateTime(2018, 9, 13, 21, 39, 13, 249, DateTimeZone.UTC)),
                 immutableEntry("l7ApplicationId", 1L),
                 immutableEntry("l7ApplicationName", "domain"),
                 immutableEntry("sourceIpCountryCode", "ID"),
@@ -284,4 +302,153 @@ public class IpfixParserTest {
         );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void parseDataSetWithFieldFilter() throws IOException {
+        final ByteBuf packet = Utils.readPacket("templates-data.ipfix");
+        final InformationElementDefinitions infoElementDefs = new InformationElementDefinitions(Resources.getResource("ipfix-iana-elements.json"),
+                                                                                                Resources.getResource("ixia-ied.json"));
+        final FieldFilter fieldFilter = FieldFilter.of(ImmutableList.of("octetDeltaCount", " sourceIPv4Address", "3054:111", "11"));
+
+        final IpfixMessage ipfixMessage = new IpfixParser(infoElementDefs, IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE, fieldFilter).parseMessage(packet);
+
+        assertThat(ipfixMessage.flows()).hasSize(1);
+        assertThat(ipfixMessage.flows().get(0).fields()).containsExactly(
+                immutableEntry("octetDeltaCount", 103L),
+                immutableEntry("sourceIPv4Address", "36.83.97.149"),
+                immutableEntry("destinationTransportPort", 30297L),
+                immutableEntry("l7ApplicationName", "domain")
+        );
+    }
+
+    @Test
+    public void skippedFieldsDoNotNeedDefinitions() throws IOException {
+        final ByteBuf packet = Utils.readPacket("templates-data.ipfix");
+        // the enterprise specific information elements are unknown, but they are skipped anyway
+        final FieldFilter fieldFilter = FieldFilter.of(ImmutableList.of("protocolIdentifier"));
+
+        final IpfixMessage ipfixMessage = new IpfixParser(definitions, IpfixParser.DEFAULT_ADDRESS_CACHE_SIZE, fieldFilter).parseMessage(packet);
+
+        assertThat(ipfixMessage.flows()).hasSize(1);
+        assertThat(ipfixMessage.flows().get(0).fields()).containsExactly(immutableEntry("protocolIdentifier", 17L));
+    }
+
+    @Test
+    public void emptyFieldFilterKeepsAllFields() {
+        assertThat(FieldFilter.of(null)).isSameAs(FieldFilter.ALL);
+        assertThat(FieldFilter.of(ImmutableList.of(" ", ""))).isSameAs(FieldFilter.ALL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFieldFilterEntry() {
+        FieldFilter.of(ImmutableList.of("3054:foo"));
+    }
+
+    @Test
+    public void parseStructuredDataTypes() {
+        final TemplateRecord sourcePorts = TemplateRecord.builder().templateId(301)
+                .addInformationElement(InformationElement.create(7, 2, 0)).build();
+        final TemplateRecord destinationPorts = TemplateRecord.builder().templateId(302)
+                .addInformationElement(InformationElement.create(11, 2, 0)).build();
+        final ImmutableList<InformationElement> fields = ImmutableList.of(
+                InformationElement.create(291, FieldDecoder.VARIABLE_LENGTH, 0),
+                InformationElement.create(293, FieldDecoder.VARIABLE_LENGTH, 0));
+        final ByteBuf dataRecord = Unpooled.buffer();
+        // basicList of two sourceTransportPort elements
+        dataRecord.writeByte(9).writeByte(3).writeShort(7).writeShort(2).writeShort(80).writeShort(443);
+        // subTemplateMultiList with two records of template 301 and one record of template 302
+        dataRecord.writeByte(15).writeByte(3)
+                  .writeShort(301).writeShort(8).writeShort(1000).writeShort(1001)
+                  .writeShort(302).writeShort(6).writeShort(53);
+
+        final Set<Flow> flows = new IpfixParser(definitions).parseDataSet(fields, ImmutableMap.of(301, sourcePorts, 302, destinationPorts), dataRecord);
+
+        assertThat(flows).hasSize(1);
+        assertThat(flows.iterator().next().fields()).containsOnly(
+                immutableEntry("basicList_0_sourceTransportPort", 80L),
+                immutableEntry("basicList_1_sourceTransportPort", 443L),
+                immutableEntry("subTemplateMultiList_0_sourceTransportPort", 1000L),
+                immutableEntry("subTemplateMultiList_1_sourceTransportPort", 1001L),
+                immutableEntry("subTemplateMultiList_2_destinationTransportPort", 53L)
+        );
+    }
+
+    @Test
+    public void parseNtpTimestamps() {
+        // flowStartMicroseconds, flowEndMicroseconds, flowStartNanoseconds and flowEndNanoseconds
+        final ImmutableList<InformationElement> fields = ImmutableList.of(
+                InformationElement.create(154, 8, 0),
+                InformationElement.create(155, 8, 0),
+                InformationElement.create(156, 8, 0),
+                InformationElement.create(157, 8, 0));
+        // 2020-01-01T00:00:00Z is 3786825600 (0xE1B65F80) seconds after the NTP epoch
+        final long seconds = 0xE1B65F80L;
+        final ByteBuf dataRecord = Unpooled.buffer();
+        // a fraction of 0xC0000000 is 0.75 seconds
+        dataRecord.writeInt((int) seconds).writeInt(0xC0000000);
+        // 0x418938 is the smallest fraction of at least one millisecond, but only because of its bottom 11 bits,
+        // which have to be ignored for microseconds
+        dataRecord.writeInt((int) seconds).writeInt(0x418938);
+        dataRecord.writeInt((int) seconds).writeInt(0xC0000000);
+        dataRecord.writeInt((int) seconds).writeInt(0x418938);
+
+        final Set<Flow> flows = new IpfixParser(definitions).parseDataSet(fields, ImmutableMap.of(), dataRecord);
+
+        assertThat(flows).hasSize(1);
+        assertThat(flows.iterator().next().fields()).containsOnly(
+                immutableEntry("flowStartMicroseconds", new DateTime(2020, 1, 1, 0, 0, 0, 750, DateTimeZone.UTC)),
+                immutableEntry("flowEndMicroseconds", new DateTime(2020, 1, 1, 0, 0, 0, 0, DateTimeZone.UTC)),
+                immutableEntry("flowStartNanoseconds", new DateTime(2020, 1, 1, 0, 0, 0, 750, DateTimeZone.UTC)),
+                immutableEntry("flowEndNanoseconds", new DateTime(2020, 1, 1, 0, 0, 0, 1, DateTimeZone.UTC))
+        );
+    }
+
+    @Test
+    public void listElementDecodersFollowTheTemplates() {
+        final IpfixParser parser = new IpfixParser(definitions);
+        final ImmutableList<InformationElement> fields = ImmutableList.of(InformationElement.create(292, FieldDecoder.VARIABLE_LENGTH, 0));
+        final TemplateRecord sourcePorts = TemplateRecord.builder().templateId(301)
+                .addInformationElement(InformationElement.create(7, 2, 0)).build();
+        final TemplateRecord destinationPorts = TemplateRecord.builder().templateId(301)
+                .addInformationElement(InformationElement.create(11, 2, 0)).build();
+        final TemplateRecord protocols = TemplateRecord.builder().templateId(305)
+                .addInformationElement(InformationElement.create(4, 1, 0)).build();
+
+        // the same list field, with a redefined template and with another template that ends up in the same slot
+        assertThat(parser.parseDataSet(fields, ImmutableMap.of(301, sourcePorts), subTemplateList(301, 80)).iterator().next().fields())
+                .containsOnly(immutableEntry("subTemplateList_0_sourceTransportPort", 80L));
+        assertThat(parser.parseDataSet(fields, ImmutableMap.of(301, destinationPorts), subTemplateList(301, 53)).iterator().next().fields())
+                .containsOnly(immutableEntry("subTemplateList_0_destinationTransportPort", 53L));
+        final ByteBuf protocolList = Unpooled.buffer().writeByte(4).writeByte(3).writeShort(305).writeByte(6);
+        assertThat(parser.parseDataSet(fields, ImmutableMap.of(305, protocols), protocolList).iterator().next().fields())
+                .containsOnly(immutableEntry("subTemplateList_0_protocolIdentifier", 6L));
+    }
+
+    private static ByteBuf subTemplateList(int templateId, int port) {
+        return Unpooled.buffer().writeByte(5).writeByte(3).writeShort(templateId).writeShort(port);
+    }
+
+    @Test(expected = IpfixException.class)
+    public void recursiveSubTemplateListsAreRejected() {
+        // the template contains a subTemplateList of its own records
+        final TemplateRecord recursive = TemplateRecord.builder().templateId(310)
+                .addInformationElement(InformationElement.create(292, FieldDecoder.VARIABLE_LENGTH, 0)).build();
+        ByteBuf dataRecord = Unpooled.buffer().writeByte(3).writeByte(3).writeShort(310);
+        for (int i = 0; i <= FieldDecoder.MAX_LIST_DEPTH; i++) {
+            final ByteBuf outer = Unpooled.buffer().writeByte(3 + dataRecord.readableBytes()).writeByte(3).writeShort(310);
+            dataRecord = outer.writeBytes(dataRecord);
+        }
+
+        new IpfixParser(definitions).parseDataSet(recursive.informationElements(), ImmutableMap.of(310, recursive), dataRecord);
+    }
+
+    @Test(expected = IpfixException.class)
+    public void oversizedListsAreRejected() {
+        final ImmutableList<InformationElement> fields = ImmutableList.of(InformationElement.create(291, FieldDecoder.VARIABLE_LENGTH, 0));
+        // basicList of protocolIdentifier elements, one more than allowed
+        final int elements = FieldDecoder.MAX_LIST_ELEMENTS + 1;
+        final ByteBuf dataRecord = Unpooled.buffer().writeByte(255).writeShort(5 + elements).writeByte(3).writeShort(4).writeShort(1);
+        dataRecord.writeZero(elements);
+
+        new IpfixParser(definitions).parseDataSet(fields, ImmutableMap.of(), dataRecord);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.base.Ticker;
+import org.graylog2.plugin.Message;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DuplicateFlowFilterTest {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    private static Message flow(String exporter, String src, long flowStart) {
+        final Message message = new Message("", exporter, DateTime.now());
+        message.addField("sourceIPv4Address", src);
+        message.addField("destinationIPv4Address", "192.168.1.2");
+        message.addField("sourceTransportPort", 40000);
+        message.addField("destinationTransportPort", 443);
+        message.addField("protocolIdentifier", (short) 6);
+        message.addField("flowStartMilliseconds", flowStart);
+        return message;
+    }
+
+    private DuplicateFlowFilter filter() {
+        return new DuplicateFlowFilter(DuplicateFlowFilter.DEFAULT_KEY_FIELDS, 64 * 1024, WINDOW_NANOS, ticker);
+    }
+
+    @Test
+    public void suppressesFlowsReportedByAnotherExporter() {
+        final DuplicateFlowFilter filter = filter();
+
+        assertThat(filter.isDuplicate(flow("10.0.0.1", "192.168.1.1", 1000L))).isFalse();
+        assertThat(filter.isDuplicate(flow("10.0.0.2", "192.168.1.1", 1000L))).isTrue();
+        assertThat(filter.isDuplicate(flow("10.0.0.3", "192.168.1.1", 1000L))).isTrue();
+
+        // a different flow start or tuple is a different flow
+        assertThat(filter.isDuplicate(flow("10.0.0.2", "192.168.1.1", 2000L))).isFalse();
+        assertThat(filter.isDuplicate(flow("10.0.0.2", "192.168.1.9", 1000L))).isFalse();
+    }
+
+    @Test
+    public void keepsRepeatedRecordsOfTheSameExporter() {
+        final DuplicateFlowFilter filter = filter();
+
+        // e.g. the interim records of a long-lived flow, which all share the flow start
+        assertThat(filter.isDuplicate(flow("10.0.0.1", "192.168.1.1", 1000L))).isFalse();
+        assertThat(filter.isDuplicate(flow("10.0.0.1", "192.168.1.1", 1000L))).isFalse();
+    }
+
+    @Test
+    public void forgetsFlowsAfterTwoWindows() {
+        final DuplicateFlowFilter filter = filter();
+        assertThat(filter.isDuplicate(flow("10.0.0.1", "192.168.1.1", 1000L))).isFalse();
+
+        // still known from the previous generation
+        ticker.advance(WINDOW_NANOS);
+        assertThat(filter.isDuplicate(flow("10.0.0.2", "192.168.1.1", 1000L))).isTrue();
+
+        ticker.advance(WINDOW_NANOS);
+        ticker.advance(WINDOW_NANOS);
+        assertThat(filter.isDuplicate(flow("10.0.0.2", "192.168.1.1", 1000L))).isFalse();
+    }
+
+    @Test
+    public void estimatesFalsePositiveRate() {
+        final DuplicateFlowFilter filter = filter();
+        assertThat(filter.estimatedFalsePositiveRate()).isZero();
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.isDuplicate(flow("10.0.0.1", "192.168.1.1", i));
+        }
+
+        assertThat(filter.estimatedFalsePositiveRate()).isBetween(0.0001, 0.1);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        void advance(long deltaNanos) {
+            nanos += deltaNanos;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
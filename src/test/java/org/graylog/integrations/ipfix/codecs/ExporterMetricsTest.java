@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExporterMetricsTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void countsLostRecordsFromSequenceNumbers() {
+        final ExporterMetrics.Exporter exporter = new ExporterMetrics(metricRegistry, 10, 10).exporter("10.0.0.1");
+        final TemplateKey domain1 = TemplateKey.idForExporter(new InetSocketAddress("10.0.0.1", 4739), 1L);
+        final TemplateKey domain2 = TemplateKey.idForExporter(new InetSocketAddress("10.0.0.1", 4739), 2L);
+        final TemplateKey domain3 = TemplateKey.idForExporter(new InetSocketAddress("10.0.0.1", 4739), 3L);
+
+        exporter.sequence(domain1, 100L, 10);
+        exporter.sequence(domain1, 110L, 5);
+        assertThat(exporter.lostRecords.getCount()).isZero();
+
+        // 20 records missing between the two messages
+        exporter.sequence(domain1, 135L, 5);
+        assertThat(exporter.lostRecords.getCount()).isEqualTo(20);
+
+        // a late message is not a loss, and the observation domains are tracked separately
+        exporter.sequence(domain1, 115L, 5);
+        exporter.sequence(domain2, 0L, 5);
+        exporter.sequence(domain1, 140L, 5);
+        assertThat(exporter.lostRecords.getCount()).isEqualTo(20);
+
+        // sequence numbers wrap around
+        exporter.sequence(domain3, 0xfffffffeL, 4);
+        exporter.sequence(domain3, 2L, 1);
+        assertThat(exporter.lostRecords.getCount()).isEqualTo(20);
+
+        // without the record count of a message, the next one cannot be checked
+        exporter.sequence(domain1, 145L, -1);
+        exporter.sequence(domain1, 1000L, 1);
+        assertThat(exporter.lostRecords.getCount()).isEqualTo(20);
+    }
+
+    @Test
+    public void tracksSequenceNumbersOfEachExporterPortSeparately() {
+        final ExporterMetrics.Exporter exporter = new ExporterMetrics(metricRegistry, 10, 10).exporter("10.0.0.1");
+        // two exporting processes on the same host, using the same observation domain
+        final TemplateKey first = TemplateKey.idForExporter(new InetSocketAddress("10.0.0.1", 50000), 1L);
+        final TemplateKey second = TemplateKey.idForExporter(new InetSocketAddress("10.0.0.1", 50001), 1L);
+
+        exporter.sequence(first, 1000L, 10);
+        exporter.sequence(second, 0L, 10);
+        exporter.sequence(first, 1010L, 10);
+        exporter.sequence(second, 10L, 10);
+
+        assertThat(exporter.lostRecords.getCount()).isZero();
+    }
+
+    @Test
+    public void boundsNumberOfMetrics() {
+        final ExporterMetrics exporterMetrics = new ExporterMetrics(metricRegistry, 2, 2);
+        for (int i = 1; i <= 10; i++) {
+            exporterMetrics.exporter(new InetSocketAddress("10.0.0." + i, 4739)).packets.mark();
+            exporterMetrics.decodeTime("10.0.0." + i, 256).update(1, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(metricRegistry.getNames())
+                .filteredOn(name -> name.startsWith(ExporterMetrics.EXPORTERS + ".") && name.endsWith(".packets"))
+                .hasSizeLessThanOrEqualTo(2)
+                .contains("exporters.10_0_0_10.packets");
+        assertThat(metricRegistry.getNames())
+                .filteredOn(name -> name.startsWith(ExporterMetrics.TEMPLATES + "."))
+                .hasSizeLessThanOrEqualTo(2)
+                .contains("templates.10_0_0_10.256.decodeTime");
+    }
+
+    @Test
+    public void evictionKeepsMetricsOfExportersWithTheSamePrefix() {
+        final ExporterMetrics exporterMetrics = new ExporterMetrics(metricRegistry, 2, 2);
+        exporterMetrics.exporter("10.0.0.1");
+        exporterMetrics.exporter("10.0.0.10");
+        exporterMetrics.exporter("10.0.0.2");
+
+        assertThat(metricRegistry.getNames())
+                .doesNotContain("exporters.10_0_0_1.packets")
+                .contains("exporters.10_0_0_10.packets", "exporters.10_0_0_2.packets");
+    }
+
+    @Test
+    public void countsDataRecordsOfFixedLengthTemplates() {
+        // template 256 with an IPv4 address (4 bytes) and an enterprise specific counter (8 bytes)
+        final ExporterTemplates.Template fixed = new ExporterTemplates.Template(ByteString.copyFrom(new byte[]{
+                0x01, 0x00, 0x00, 0x02,
+                0x00, 0x08, 0x00, 0x04,
+                (byte) 0x80, 0x01, 0x00, 0x08, 0x00, 0x00, 0x00, 0x09}), false);
+        assertThat(fixed.dataRecords(36)).isEqualTo(3);
+        // padding is ignored
+        assertThat(fixed.dataRecords(38)).isEqualTo(3);
+
+        // a variable length string
+        final ExporterTemplates.Template variable = new ExporterTemplates.Template(ByteString.copyFrom(new byte[]{
+                0x01, 0x01, 0x00, 0x01,
+                0x00, 0x52, (byte) 0xff, (byte) 0xff}), false);
+        assertThat(variable.dataRecords(36)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExporterTemplatesTest {
+
+    private static ByteBuf record(int templateId, int size) {
+        final ByteBuf buf = Unpooled.buffer(size);
+        buf.writeShort(templateId);
+        buf.writeZero(size - 2);
+        return buf;
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedTemplatesOverBudget() {
+        final Meter evicted = new Meter();
+        // room for two templates of 100 bytes plus overhead
+        final ExporterTemplates templates = new ExporterTemplates(2 * (100 + 96), evicted);
+
+        templates.put(256, record(256, 100), false);
+        templates.put(257, record(257, 100), false);
+        // touch 256 so 257 becomes the eldest
+        assertThat(templates.get(256)).isNotNull();
+        templates.put(258, record(258, 100), false);
+
+        assertThat(templates.contains(256)).isTrue();
+        assertThat(templates.contains(257)).isFalse();
+        assertThat(templates.contains(258)).isTrue();
+        assertThat(templates.bytes()).isEqualTo(2 * (100 + 96));
+        assertThat(evicted.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void keepsTemplateLargerThanBudget() {
+        final Meter evicted = new Meter();
+        final ExporterTemplates templates = new ExporterTemplates(10, evicted);
+
+        templates.put(256, record(256, 100), false);
+
+        assertThat(templates.contains(256)).isTrue();
+        assertThat(evicted.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void unchangedTemplateIsNotReplaced() {
+        final ExporterTemplates templates = new ExporterTemplates(1024, new Meter());
+
+        templates.put(256, record(256, 20), false);
+        final ExporterTemplates.Template first = templates.get(256);
+        templates.put(256, record(256, 20), true);
+
+        assertThat(templates.get(256)).isSameAs(first);
+        assertThat(templates.size()).isEqualTo(1);
+    }
+}
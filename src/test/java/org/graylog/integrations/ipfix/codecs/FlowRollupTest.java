@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.graylog.integrations.ipfix.IpfixJournal;
+import org.graylog2.plugin.Message;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlowRollupTest {
+    private static final List<String> KEY_FIELDS = ImmutableList.of("sourceIPv4Address", "destinationIPv4Address", "protocolIdentifier");
+    private static final long MINUTE = 60_000L;
+
+    private final Meter evictedKeys = new Meter();
+
+    private static Message flow(long timestamp, String src, String dst, long octets, long packets) {
+        return flow("10.0.0.1", timestamp, src, dst, octets, packets);
+    }
+
+    private static Message flow(String exporter, long timestamp, String src, String dst, long octets, long packets) {
+        final Message message = new Message("", exporter, new DateTime(timestamp, DateTimeZone.UTC));
+        message.addField("sourceIPv4Address", src);
+        message.addField("destinationIPv4Address", dst);
+        message.addField("protocolIdentifier", (short) 6);
+        message.addField("sourceTransportPort", 40000 + (int) (timestamp % 1000));
+        message.addField("octetDeltaCount", octets);
+        message.addField("packetDeltaCount", packets);
+        return message;
+    }
+
+    @Test
+    public void sumsFlowsPerKeyAndWindow() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+
+        assertThat(rollup.add(ImmutableList.of(
+                flow(10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow(20, "192.168.1.1", "192.168.1.2", 200, 2),
+                flow(30, "192.168.1.3", "192.168.1.2", 50, 1)))).isEmpty();
+        assertThat(rollup.add(ImmutableList.of(flow(MINUTE - 1, "192.168.1.1", "192.168.1.2", 300, 3)))).isEmpty();
+        assertThat(rollup.size()).isEqualTo(2);
+
+        // the first flow of the next window completes the previous one
+        final List<Message> complete = rollup.add(ImmutableList.of(flow(MINUTE, "192.168.1.1", "192.168.1.2", 1, 1)));
+
+        assertThat(complete).hasSize(2);
+        final Message first = complete.get(0);
+        assertThat(first.getField("sourceIPv4Address")).isEqualTo("192.168.1.1");
+        assertThat(first.getField("octetDeltaCount")).isEqualTo(600L);
+        assertThat(first.getField("packetDeltaCount")).isEqualTo(6L);
+        assertThat(first.getField(FlowRollup.FIELD_FLOW_COUNT)).isEqualTo(3L);
+        assertThat(first.getTimestamp().getMillis()).isZero();
+        assertThat(first.getField(FlowRollup.FIELD_WINDOW_END)).isEqualTo(new DateTime(MINUTE, DateTimeZone.UTC));
+        // fields which are not part of the key are not carried over
+        assertThat(first.hasField("sourceTransportPort")).isFalse();
+        assertThat(first.getMessage()).contains("pkts:6 bytes:600");
+        assertThat(complete.get(1).getField("octetDeltaCount")).isEqualTo(50L);
+        assertThat(rollup.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void lateFlowsStartANewRollup() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+        rollup.add(ImmutableList.of(flow(10, "192.168.1.1", "192.168.1.2", 100, 1)));
+        assertThat(rollup.add(ImmutableList.of(flow(MINUTE + 10, "192.168.1.1", "192.168.1.2", 100, 1)))).hasSize(1);
+
+        // a flow of the already completed window is not dropped
+        assertThat(rollup.add(ImmutableList.of(flow(20, "192.168.1.1", "192.168.1.2", 7, 1)))).isEmpty();
+        final List<Message> complete = rollup.add(ImmutableList.of(flow(2 * MINUTE, "192.168.1.1", "192.168.1.2", 1, 1)));
+
+        assertThat(complete).extracting(message -> message.getField("octetDeltaCount")).containsExactlyInAnyOrder(100L, 7L);
+    }
+
+    @Test
+    public void emitsLeastActiveRollupWhenFull() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 2, evictedKeys);
+        rollup.add(ImmutableList.of(
+                flow(10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow(20, "192.168.1.3", "192.168.1.2", 200, 1),
+                // touches the first rollup, so the second one is the least active
+                flow(30, "192.168.1.1", "192.168.1.2", 100, 1)));
+
+        final List<Message> evicted = rollup.add(ImmutableList.of(flow(40, "192.168.1.5", "192.168.1.2", 300, 1)));
+
+        assertThat(evicted).hasSize(1);
+        assertThat(evicted.get(0).getField("sourceIPv4Address")).isEqualTo("192.168.1.3");
+        assertThat(evicted.get(0).getField("octetDeltaCount")).isEqualTo(200L);
+        assertThat(evictedKeys.getCount()).isEqualTo(1);
+        assertThat(rollup.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void emitsRollupsOfTheLeastRecentlyUpdatedExporterWhenFull() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 2, evictedKeys);
+        rollup.add(ImmutableList.of(
+                flow("10.0.0.1", 10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow("10.0.0.2", 20, "192.168.1.3", "192.168.1.2", 200, 1)));
+
+        // the new exporter has no rollups to give up, the one updated the longest time ago does
+        final List<Message> evicted = rollup.add(ImmutableList.of(flow("10.0.0.3", 30, "192.168.1.5", "192.168.1.2", 300, 1)));
+
+        assertThat(evicted).extracting(Message::getSource).containsExactly("10.0.0.1");
+        assertThat(evicted.get(0).getField("octetDeltaCount")).isEqualTo(100L);
+        assertThat(evictedKeys.getCount()).isEqualTo(1);
+        assertThat(rollup.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void rollupsReadBackFromTheJournalKeepTheirFields() throws InvalidProtocolBufferException {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+        rollup.add(ImmutableList.of(flow(10, "192.168.1.1", "192.168.1.2", 100, 1), flow(20, "192.168.1.1", "192.168.1.2", 200, 2)));
+        final IpfixJournal.RawIpfix entry = IpfixJournal.RawIpfix.newBuilder().addAllRollups(rollup.flushAll()).build();
+
+        final IpfixJournal.RawIpfix journaled = IpfixJournal.RawIpfix.parseFrom(entry.toByteArray());
+
+        assertThat(journaled.getRollupsCount()).isEqualTo(1);
+        final Message message = FlowRollup.toMessage(journaled.getRollups(0));
+        assertThat(message.getSource()).isEqualTo("10.0.0.1");
+        assertThat(message.getTimestamp().getMillis()).isZero();
+        assertThat(message.getField("sourceIPv4Address")).isEqualTo("192.168.1.1");
+        assertThat(message.getField("protocolIdentifier")).isEqualTo(6);
+        assertThat(message.getField("octetDeltaCount")).isEqualTo(300L);
+        assertThat(message.getField("packetDeltaCount")).isEqualTo(3L);
+        assertThat(message.getField(FlowRollup.FIELD_FLOW_COUNT)).isEqualTo(2L);
+        assertThat(message.getField(FlowRollup.FIELD_WINDOW_END)).isEqualTo(new DateTime(MINUTE, DateTimeZone.UTC));
+        assertThat(message.getMessage()).contains("pkts:3 bytes:300");
+    }
+
+    @Test
+    public void exportersHaveWindowsOfTheirOwn() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+        rollup.add(ImmutableList.of(
+                flow("10.0.0.1", 10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow("10.0.0.2", 10, "192.168.1.1", "192.168.1.2", 200, 1)));
+
+        // a later window of one exporter does not complete the window of the other one
+        final List<Message> complete = rollup.add(ImmutableList.of(flow("10.0.0.1", MINUTE, "192.168.1.1", "192.168.1.2", 1, 1)));
+
+        assertThat(complete).extracting(Message::getSource).containsExactly("10.0.0.1");
+        assertThat(rollup.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void flushesExpiredWindows() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+        rollup.add(ImmutableList.of(
+                flow("10.0.0.1", 10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow("10.0.0.2", MINUTE + 10, "192.168.1.1", "192.168.1.2", 200, 1)));
+
+        // windows are only expired once they have been over for another window
+        assertThat(rollup.flushExpired(2 * MINUTE - 1)).isEmpty();
+        assertThat(rollup.flushExpired(2 * MINUTE)).extracting(IpfixJournal.Rollup::getOctetDeltaCount).containsExactly(100L);
+        assertThat(rollup.size()).isEqualTo(1);
+
+        // the idle exporter starts over with new windows
+        assertThat(rollup.add(ImmutableList.of(flow("10.0.0.1", 20, "192.168.1.1", "192.168.1.2", 7, 1)))).isEmpty();
+        assertThat(rollup.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void flushAllEmitsEverythingAndLaterFlowsRightAway() {
+        final FlowRollup rollup = new FlowRollup(KEY_FIELDS, MINUTE, 1000, evictedKeys);
+        rollup.add(ImmutableList.of(
+                flow("10.0.0.1", 10, "192.168.1.1", "192.168.1.2", 100, 1),
+                flow("10.0.0.2", MINUTE + 10, "192.168.1.1", "192.168.1.2", 200, 1)));
+
+        assertThat(rollup.flushAll()).extracting(IpfixJournal.Rollup::getOctetDeltaCount).containsExactlyInAnyOrder(100L, 200L);
+        assertThat(rollup.size()).isZero();
+
+        // nobody flushes the rollups anymore, so flows added concurrently with the flush are not kept
+        final List<Message> late = rollup.add(ImmutableList.of(flow("10.0.0.1", 20, "192.168.1.1", "192.168.1.2", 7, 1)));
+        assertThat(late).extracting(message -> message.getField("octetDeltaCount")).containsExactly(7L);
+        assertThat(rollup.size()).isZero();
+    }
+}
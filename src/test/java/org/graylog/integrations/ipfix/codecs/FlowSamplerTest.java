@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.base.Ticker;
+import com.google.common.net.InetAddresses;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlowSamplerTest {
+    // sourceIPv4Address, destinationIPv4Address, sourceTransportPort, destinationTransportPort, protocolIdentifier and
+    // octetDeltaCount, in records of 21 bytes
+    private static final ByteString TEMPLATE = template(8, 4, 12, 4, 7, 2, 11, 2, 4, 1, 1, 8);
+    private static final FlowSampler.FlowKey FLOW_KEY = FlowSampler.FlowKey.of(TEMPLATE);
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    private static ByteString template(int... fields) {
+        final ByteBuf template = Unpooled.buffer();
+        template.writeShort(256);
+        template.writeShort(fields.length / 2);
+        for (int field : fields) {
+            template.writeShort(field);
+        }
+        return ByteString.copyFrom(template.nioBuffer());
+    }
+
+    private static ByteBuf flow(ByteBuf dataRecords, String src, int srcPort, String dst, int dstPort) {
+        return dataRecords.writeBytes(InetAddresses.forString(src).getAddress())
+                          .writeBytes(InetAddresses.forString(dst).getAddress())
+                          .writeShort(srcPort)
+                          .writeShort(dstPort)
+                          .writeByte(6)
+                          .writeLong(srcPort * 100L);
+    }
+
+    private static ByteBuf flow(String src, int srcPort, String dst, int dstPort) {
+        return flow(Unpooled.buffer(), src, srcPort, dst, dstPort);
+    }
+
+    @Test
+    public void findsTheFlowKeyOfFixedLengthRecords() {
+        assertThat(FLOW_KEY).isNotNull();
+        assertThat(FLOW_KEY.recordLength()).isEqualTo(21);
+        // variable length fields
+        assertThat(FlowSampler.FlowKey.of(template(8, 4, 12, 4, 82, 65535))).isNull();
+        // no addresses
+        assertThat(FlowSampler.FlowKey.of(template(7, 2, 11, 2, 1, 8))).isNull();
+    }
+
+    @Test
+    public void bothDirectionsHashTheSame() {
+        for (int port = 1024; port < 2048; port++) {
+            assertThat(FlowSampler.flowHash(flow("192.168.1.1", port, "10.1.1.1", 443), 0, FLOW_KEY))
+                    .isEqualTo(FlowSampler.flowHash(flow("10.1.1.1", 443, "192.168.1.1", port), 0, FLOW_KEY));
+        }
+    }
+
+    @Test
+    public void keepsOneInNFlows() {
+        final FlowSampler sampler = new FlowSampler(8, 0, ticker);
+        final ByteBuf dataRecords = Unpooled.buffer();
+        for (int port = 0; port < 16_000; port++) {
+            flow(dataRecords, "192.168.1.1", port, "10.1.1.1", 443);
+        }
+        // padding
+        dataRecords.writeZero(3);
+
+        final ByteBuf kept = sampler.sample(dataRecords, FLOW_KEY, sampler.update(0));
+
+        assertThat(dataRecords.readableBytes()).isEqualTo(16_000 * 21 + 3);
+        assertThat(kept.readableBytes() % 21).isZero();
+        assertThat(kept.readableBytes() / 21).isBetween(1_600, 2_400);
+        for (int record = 0; record < kept.readableBytes(); record += 21) {
+            final int port = kept.getUnsignedShort(record + 8);
+            // the decision is the same for the reverse direction
+            assertThat(sampler.sample(flow("10.1.1.1", 443, "192.168.1.1", port), FLOW_KEY, 8).readableBytes()).isEqualTo(21);
+        }
+    }
+
+    @Test
+    public void adaptsRateToLag() {
+        final FlowSampler sampler = new FlowSampler(1, 5_000, ticker);
+
+        // falling behind doubles the rate, at most once per second
+        assertThat(sampler.update(10_000)).isEqualTo(2);
+        assertThat(sampler.update(10_000)).isEqualTo(2);
+        ticker.advance(TimeUnit.SECONDS.toNanos(1));
+        assertThat(sampler.update(10_000)).isEqualTo(4);
+
+        // a lag between half and the full maximum keeps the rate
+        ticker.advance(TimeUnit.SECONDS.toNanos(1));
+        assertThat(sampler.update(4_000)).isEqualTo(4);
+
+        ticker.advance(TimeUnit.SECONDS.toNanos(1));
+        assertThat(sampler.update(100)).isEqualTo(2);
+        ticker.advance(TimeUnit.SECONDS.toNanos(1));
+        assertThat(sampler.update(100)).isEqualTo(1);
+        ticker.advance(TimeUnit.SECONDS.toNanos(1));
+        assertThat(sampler.update(100)).isEqualTo(1);
+    }
+
+    @Test
+    public void flowsKeptAtHigherRatesAreKeptAtLowerRates() {
+        final FlowSampler sampler = new FlowSampler(1, 5_000, ticker);
+        final ByteBuf dataRecords = Unpooled.buffer();
+        for (int port = 0; port < 4_000; port++) {
+            flow(dataRecords, "192.168.1.1", port, "10.1.1.1", 443);
+        }
+
+        final ByteBuf keptAtHigherRate = sampler.sample(dataRecords, FLOW_KEY, 16);
+
+        assertThat(sampler.sample(keptAtHigherRate, FLOW_KEY, 4)).isEqualTo(keptAtHigherRate);
+        assertThat(sampler.sample(dataRecords, FLOW_KEY, 1)).isSameAs(dataRecords);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        void advance(long deltaNanos) {
+            nanos += deltaNanos;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -16,17 +16,26 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
+import com.google.protobuf.InvalidProtocolBufferException;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.pkts.Pcap;
 import io.pkts.packet.UDPPacket;
 import io.pkts.protocol.Protocol;
 import org.assertj.core.util.Lists;
 import org.graylog.integrations.ipfix.InformationElementDefinitions;
+import org.graylog.integrations.ipfix.IpfixJournal;
 import org.graylog.integrations.ipfix.IpfixMessage;
+import org.graylog.integrations.ipfix.IpfixPacketGenerator;
 import org.graylog.integrations.ipfix.IpfixParser;
+import org.graylog.integrations.ipfix.ShallowDataSet;
+import org.graylog.integrations.ipfix.ShallowTemplateSet;
 import org.graylog.integrations.ipfix.Utils;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.configuration.Configuration;
@@ -48,6 +57,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -186,6 +200,288 @@ public class IpfixAggregatorTest {
 
     }
 
+    @Test
+    public void splitsLargeBatchesIntoSeveralJournalEntries() throws IOException {
+        final IpfixAggregator ipfixAggregator = new IpfixAggregator();
+        final ExporterTemplates exporterTemplates = new ExporterTemplates(Long.MAX_VALUE, new Meter());
+        final IpfixParser.MessageDescription description = new IpfixParser(standardDefinition).shallowParseMessage(Utils.readPacket("templates-data.ipfix"));
+        for (ShallowTemplateSet.Record record : description.templateRecords()) {
+            exporterTemplates.put(record.getTemplateId(), record.getRecordBytes(), false);
+        }
+        final List<ShallowDataSet> dataSets = ImmutableList.of(
+                ShallowDataSet.create(256, 1L, Unpooled.wrappedBuffer(new byte[100])),
+                ShallowDataSet.create(256, 2L, Unpooled.wrappedBuffer(new byte[40])),
+                ShallowDataSet.create(257, 3L, Unpooled.wrappedBuffer(new byte[100])),
+                ShallowDataSet.create(256, 4L, Unpooled.wrappedBuffer(new byte[200])));
+
+        final List<IpfixJournal.RawIpfix> entries = ipfixAggregator.buildJournalEntries(dataSets, exporterTemplates, 150);
+
+        assertThat(entries).hasSize(3);
+        assertThat(entries.get(0).getDataSetsList()).extracting(IpfixJournal.DataSet::getTimestampEpochSeconds).containsExactly(1L, 2L);
+        assertThat(entries.get(0).getTemplatesMap()).containsOnlyKeys(256);
+        assertThat(entries.get(1).getDataSetsList()).extracting(IpfixJournal.DataSet::getTimestampEpochSeconds).containsExactly(3L);
+        assertThat(entries.get(1).getTemplatesMap()).containsOnlyKeys(257);
+        // a data set larger than the limit cannot be split and gets an entry of its own
+        assertThat(entries.get(2).getDataSetsList()).extracting(IpfixJournal.DataSet::getTimestampEpochSeconds).containsExactly(4L);
+        assertThat(entries.get(2).getTemplatesMap()).containsOnlyKeys(256);
+
+        assertThat(ipfixAggregator.buildJournalEntries(dataSets, exporterTemplates, Long.MAX_VALUE)).hasSize(1);
+    }
+
+    @Test
+    public void samplesFixedLengthDataRecordsBeforeJournaling() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final IpfixAggregator ipfixAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().samplingRate(8).build(),
+                                                                    standardDefinition, metricRegistry);
+        final ExporterTemplates exporterTemplates = new ExporterTemplates(Long.MAX_VALUE, new Meter());
+        // sourceIPv4Address, destinationIPv4Address, sourceTransportPort, destinationTransportPort, protocolIdentifier
+        final ByteBuf template = Unpooled.buffer().writeShort(256).writeShort(5)
+                                         .writeShort(8).writeShort(4).writeShort(12).writeShort(4)
+                                         .writeShort(7).writeShort(2).writeShort(11).writeShort(2)
+                                         .writeShort(4).writeShort(1);
+        exporterTemplates.put(256, template, false);
+        final ByteBuf dataRecords = Unpooled.buffer();
+        for (int port = 0; port < 8_000; port++) {
+            dataRecords.writeInt(0xc0a80101).writeInt(0x0a010101).writeShort(port).writeShort(443).writeByte(6);
+        }
+
+        final List<IpfixJournal.RawIpfix> entries = ipfixAggregator.buildJournalEntries(
+                ImmutableList.of(ShallowDataSet.create(256, 1L, dataRecords)), exporterTemplates, Long.MAX_VALUE);
+
+        assertThat(entries).hasSize(1);
+        final IpfixJournal.DataSet dataSet = entries.get(0).getDataSets(0);
+        assertThat(dataSet.getSamplingRate()).isEqualTo(8);
+        final int keptRecords = dataSet.getDataRecords().size() / 17;
+        assertThat(keptRecords).isBetween(800, 1_200);
+        assertThat(metricRegistry.meter("sampledOutFlows").getCount()).isEqualTo(8_000 - keptRecords);
+        // the data records are left alone
+        assertThat(dataRecords.readableBytes()).isEqualTo(8_000 * 17);
+
+        // no entry is journaled if all of its data records are sampled out
+        final ByteBuf sampledOutRecord = Unpooled.buffer();
+        for (int port = 0; !sampledOutRecord.isReadable(); port++) {
+            final ByteBuf record = Unpooled.buffer().writeInt(0xc0a80101).writeInt(0x0a010101).writeShort(port).writeShort(443).writeByte(6);
+            if (Integer.remainderUnsigned(FlowSampler.flowHash(record, 0, exporterTemplates.get(256).flowKey()), 8) != 0) {
+                sampledOutRecord.writeBytes(record);
+            }
+        }
+        assertThat(ipfixAggregator.buildJournalEntries(
+                ImmutableList.of(ShallowDataSet.create(256, 1L, sampledOutRecord)), exporterTemplates, Long.MAX_VALUE)).isEmpty();
+
+        // adaptive sampling which has not kicked in yet journals the data sets unchanged
+        final IpfixAggregator adaptiveAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().samplingMaxLagSeconds(5).build(),
+                                                                       standardDefinition, new MetricRegistry());
+        final IpfixJournal.DataSet unsampled = adaptiveAggregator.buildJournalEntries(
+                ImmutableList.of(ShallowDataSet.create(256, 1L, dataRecords)), exporterTemplates, Long.MAX_VALUE).get(0).getDataSets(0);
+        assertThat(unsampled.hasSamplingRate()).isFalse();
+        assertThat(unsampled.getDataRecords().size()).isEqualTo(8_000 * 17);
+    }
+
+    @Test
+    public void cachesAreLimitedToTheMaximumNumberOfExporters() throws IOException {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final IpfixAggregator ipfixAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().maxExporters(1).maxPendingExporters(1).build(),
+                                                                    standardDefinition, metricRegistry);
+        final InetSocketAddress otherAddress = InetSocketAddress.createUnresolved("192.168.1.2", 999);
+
+        // the pending data sets of the first exporter are dropped to make room for the second one
+        final ByteBuf pendingPacket = Utils.readPacket("dataset-only.ipfix");
+        final int pendingDataSets = new IpfixParser(standardDefinition).shallowParseMessage(pendingPacket.duplicate()).dataSets().size();
+        assertThat(ipfixAggregator.addChunk(pendingPacket, someAddress).getMessage()).isNull();
+        assertThat(ipfixAggregator.addChunk(Utils.readPacket("dataset-only.ipfix"), otherAddress).getMessage()).isNull();
+        assertThat(metricRegistry.meter("evictedDataSets").getCount()).isEqualTo(pendingDataSets);
+
+        // as are the templates of the first exporter
+        final MetricRegistry templateMetrics = new MetricRegistry();
+        final IpfixAggregator templateAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().maxExporters(1).build(),
+                                                                       standardDefinition, templateMetrics);
+        assertThat(templateAggregator.addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage()).isNotNull();
+        assertThat(templateAggregator.addChunk(Utils.readPacket("templates-data.ipfix"), otherAddress).getMessage()).isNotNull();
+        assertThat(templateMetrics.meter("evictedExporters").getCount()).isEqualTo(1L);
+        assertThat(templateAggregator.templateSnapshot()).hasSize(1);
+    }
+
+    @Test
+    public void batchesDataSetsOfAnExporterIntoOneJournalEntry() throws IOException {
+        final IpfixAggregator ipfixAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().batchDelayMillis(50).build(),
+                                                                    standardDefinition, new MetricRegistry());
+        final IpfixParser shallowParser = new IpfixParser(standardDefinition);
+        final int templatesDataSets = shallowParser.shallowParseMessage(Utils.readPacket("templates-data.ipfix")).dataSets().size();
+        final int dataOnlyDataSets = shallowParser.shallowParseMessage(Utils.readPacket("dataset-only.ipfix")).dataSets().size();
+
+        // the ready data sets are held back until the batch is full or old enough
+        final ByteBuf firstPacket = Utils.readPacket("templates-data.ipfix");
+        final IpfixAggregator.JournalEntries first = ipfixAggregator.addChunks(firstPacket, someAddress);
+        assertThat(first.isValid()).isTrue();
+        assertThat(first.messages()).isEmpty();
+        final ByteBuf secondPacket = Utils.readPacket("dataset-only.ipfix");
+        final IpfixAggregator.JournalEntries second = ipfixAggregator.addChunks(secondPacket, someAddress);
+        assertThat(second.isValid()).isTrue();
+        assertThat(second.messages()).isEmpty();
+        // the batch copies the records, it doesn't keep the packets alive after the channel handler let go of them
+        firstPacket.release();
+        secondPacket.release();
+        assertThat(firstPacket.refCnt()).isZero();
+        assertThat(secondPacket.refCnt()).isZero();
+        assertThat(ipfixAggregator.nanosUntilNextBatchFlush()).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(ipfixAggregator.flushBatches(false)).isEmpty();
+
+        final List<IpfixAggregator.JournalEntries> flushed = ipfixAggregator.flushBatches(true);
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0).remoteAddress()).isEqualTo(someAddress);
+        assertThat(flushed.get(0).messages()).hasSize(1);
+        final IpfixJournal.RawIpfix rawIpfix = IpfixJournal.RawIpfix.parseFrom(ByteBufUtil.getBytes(flushed.get(0).messages().get(0)));
+        // the templates are written once for the data sets of both packets
+        assertThat(rawIpfix.getDataSetsCount()).isEqualTo(templatesDataSets + dataOnlyDataSets);
+        assertThat(rawIpfix.getTemplatesMap()).containsKeys(256, 257);
+        assertThat(ipfixAggregator.nanosUntilNextBatchFlush()).isEqualTo(-1L);
+    }
+
+    @Test
+    public void discardedBatchesAreNotJournaled() throws IOException {
+        final IpfixAggregator ipfixAggregator = new IpfixAggregator(IpfixAggregatorSettings.builder().batchDelayMillis(50).build(),
+                                                                    standardDefinition, new MetricRegistry());
+        final ByteBuf packet = Utils.readPacket("templates-data.ipfix");
+        assertThat(ipfixAggregator.addChunks(packet, someAddress).messages()).isEmpty();
+        packet.release();
+        assertThat(ipfixAggregator.nanosUntilNextBatchFlush()).isNotEqualTo(-1L);
+
+        ipfixAggregator.discardBufferedPackets();
+        assertThat(ipfixAggregator.nanosUntilNextBatchFlush()).isEqualTo(-1L);
+        assertThat(ipfixAggregator.flushBatches(true)).isEmpty();
+    }
+
+    @Test
+    public void shardsKeepTheirOwnTemplates() throws IOException {
+        final IpfixAggregator prototype = new IpfixAggregator();
+        final IpfixAggregator shard = prototype.newShard();
+        final IpfixAggregator otherShard = prototype.newShard();
+
+        assertThat(shard.addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage()).isNotNull();
+
+        // the templates are known to the shard that received them
+        final CodecAggregator.Result sameShard = shard.addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress);
+        assertThat(sameShard.isValid()).isTrue();
+        assertThat(sameShard.getMessage()).isNotNull();
+
+        // but not to the other shards, which have to buffer the data sets
+        final CodecAggregator.Result otherShardResult = otherShard.addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress);
+        assertThat(otherShardResult.isValid()).isTrue();
+        assertThat(otherShardResult.getMessage()).isNull();
+        otherShard.discardBufferedPackets();
+    }
+
+    @Test
+    public void restoredTemplatesAreUsedRightAway() throws IOException {
+        final IpfixAggregator before = new IpfixAggregator();
+        assertThat(before.newShard().addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage()).isNotNull();
+        final File snapshotFile = temporaryFolder.newFile();
+        TemplateSnapshot.write(snapshotFile.toPath(), before.templateSnapshot());
+
+        final IpfixAggregator restarted = new IpfixAggregator();
+        final IpfixAggregator existingShard = restarted.newShard();
+        restarted.restoreTemplates(TemplateSnapshot.read(snapshotFile.toPath()));
+        final IpfixAggregator laterShard = restarted.newShard();
+
+        // all shards know the restored templates, no matter which one the exporter's packets arrive on
+        for (IpfixAggregator shard : ImmutableList.of(existingShard, laterShard)) {
+            final CodecAggregator.Result result = shard.addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress);
+            assertThat(result.isValid()).isTrue();
+            assertThat(result.getMessage()).isNotNull();
+        }
+    }
+
+    @Test
+    public void sessionShardsKeepTheirTemplatesToThemselves() throws IOException {
+        final IpfixAggregator aggregator = new IpfixAggregator();
+        final IpfixAggregator session = aggregator.newSessionShard();
+        assertThat(session.addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage()).isNotNull();
+
+        // templates are scoped to the session they were sent in
+        assertThat(aggregator.templateSnapshot()).isEmpty();
+        final CodecAggregator.Result otherSession = aggregator.newSessionShard().addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress);
+        assertThat(otherSession.isValid()).isTrue();
+        assertThat(otherSession.getMessage()).isNull();
+
+        final CodecAggregator.Result sameSession = session.addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress);
+        assertThat(sameSession.isValid()).isTrue();
+        assertThat(sameSession.getMessage()).isNotNull();
+    }
+
+    @Test
+    public void generatedMessagesDecodeToFlows() throws IOException {
+        final IpfixCodec codec = new IpfixCodec(new Configuration(getIxiaConfigmap()), null);
+        final IpfixAggregator ipfixAggregator = (IpfixAggregator) codec.getAggregator();
+        final IpfixPacketGenerator generator = new IpfixPacketGenerator(42, 1);
+
+        assertThat(ipfixAggregator.addChunks(Unpooled.wrappedBuffer(generator.templateMessage()), someAddress).isValid()).isTrue();
+        final List<ByteBuf> entries = ipfixAggregator.addChunks(Unpooled.wrappedBuffer(generator.dataMessage(5)), someAddress).messages();
+        final List<Message> messages = Lists.newArrayList();
+        for (ByteBuf entry : entries) {
+            messages.addAll(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(entry))));
+        }
+
+        assertThat(messages).hasSize(IpfixPacketGenerator.flowsPerDataMessage(5));
+        assertThat(messages).filteredOn(message -> message.hasField("sourceIPv6Address")).hasSize(5);
+        assertThat(messages).filteredOn(message -> message.hasField("applicationName") && message.hasField("l7ApplicationName")).hasSize(5);
+        assertThat(messages).filteredOn(message -> message.hasField("subTemplateList_0_ipNextHopIPv4Address")).hasSize(5);
+        codec.stop();
+    }
+
+    @Test
+    public void noDataSetsAreStrandedUnderContention() throws Exception {
+        final byte[] templatesPacket = ByteBufUtil.getBytes(Utils.readPacket("templates-data.ipfix"));
+        final byte[] dataPacket = ByteBufUtil.getBytes(Utils.readPacket("dataset-only.ipfix"));
+        final int threads = 8;
+        final int packetsPerThread = 50;
+        final int expectedDataSets = threads * packetsPerThread * dataSetCount(dataPacket) + dataSetCount(templatesPacket);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            for (int round = 0; round < 20; round++) {
+                final IpfixAggregator aggregator = new IpfixAggregator();
+                final AtomicInteger journaledDataSets = new AtomicInteger();
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<?>> futures = Lists.newArrayList();
+                for (int i = 0; i < threads; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int packet = 0; packet < packetsPerThread; packet++) {
+                            journaledDataSets.addAndGet(journaledDataSets(aggregator.addChunk(Unpooled.wrappedBuffer(dataPacket), someAddress)));
+                        }
+                        return null;
+                    }));
+                }
+                // the templates arrive while the data sets referencing them are being buffered
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    journaledDataSets.addAndGet(journaledDataSets(aggregator.addChunk(Unpooled.wrappedBuffer(templatesPacket), someAddress)));
+                    return null;
+                }));
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                assertThat(journaledDataSets.get()).describedAs("journaled data sets in round " + round).isEqualTo(expectedDataSets);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int dataSetCount(byte[] packet) {
+        return new IpfixParser(InformationElementDefinitions.empty()).shallowParseMessage(Unpooled.wrappedBuffer(packet)).dataSets().size();
+    }
+
+    private static int journaledDataSets(CodecAggregator.Result result) throws InvalidProtocolBufferException {
+        assertThat(result.isValid()).isTrue();
+        if (result.getMessage() == null) {
+            return 0;
+        }
+        return IpfixJournal.RawIpfix.parseFrom(ByteBufUtil.getBytes(result.getMessage())).getDataSetsCount();
+    }
+
     private Map<String, Object> getIxiaConfigmap() {
         final File filePath = new File(Resources.getResource("ixia-ied.json").getFile());
         final Map<String, Object> configMap = Maps.newHashMap();
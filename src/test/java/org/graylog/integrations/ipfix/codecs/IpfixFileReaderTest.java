@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import io.netty.buffer.ByteBufUtil;
+import org.graylog.integrations.ipfix.IpfixPacketGenerator;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IpfixFileReaderTest {
+    private static final int RECORDS_PER_DATA_SET = 5;
+    private static final int DATA_MESSAGES_PER_TEMPLATE = 10;
+    private static final int TEMPLATE_CHANGES = 3;
+    private static final int EXPECTED_FLOWS = TEMPLATE_CHANGES * DATA_MESSAGES_PER_TEMPLATE
+            * IpfixPacketGenerator.flowsPerDataMessage(RECORDS_PER_DATA_SET);
+
+    private final InetSocketAddress exporterAddress = new InetSocketAddress("127.0.0.1", 0);
+    private final IpfixCodec codec = new IpfixCodec(new Configuration(Collections.singletonMap(IpfixCodec.CK_IPFIX_DEFINITION_PATH,
+            Collections.singletonList(new File(Resources.getResource("ixia-ied.json").getFile()).getAbsolutePath()))), null);
+    private final IpfixAggregator aggregator = (IpfixAggregator) codec.getAggregator();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        codec.stop();
+    }
+
+    @Test
+    public void segmentsCarryTheTemplatesInEffectAtTheirStart() throws IOException {
+        final byte[] content = ipfixFile();
+        final Path file = write(content);
+        final IpfixFileReader reader = new IpfixFileReader(aggregator, exporterAddress, 1024);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final List<IpfixFileReader.Segment> segments = reader.segments(channel);
+            assertThat(segments.size()).isGreaterThan(TEMPLATE_CHANGES);
+            assertThat(segments.stream().mapToLong(IpfixFileReader.Segment::length).sum()).isEqualTo(content.length);
+
+            // every segment can be read on its own, in any order
+            assertThat(decode(reader, channel, Lists.reverse(segments))).hasSize(EXPECTED_FLOWS);
+        }
+        // the template tracking of the file stays out of the input's templates
+        assertThat(aggregator.templateSnapshot()).isEmpty();
+    }
+
+    @Test
+    public void truncatedTailIsIgnored() throws IOException {
+        final byte[] content = ipfixFile();
+        final byte[] truncatedMessage = new IpfixPacketGenerator(7, 1).dataMessage(RECORDS_PER_DATA_SET);
+        final byte[] truncated = Arrays.copyOf(content, content.length + truncatedMessage.length / 2);
+        System.arraycopy(truncatedMessage, 0, truncated, content.length, truncatedMessage.length / 2);
+        final IpfixFileReader reader = new IpfixFileReader(aggregator, exporterAddress, 1024 * 1024);
+
+        try (FileChannel channel = FileChannel.open(write(truncated), StandardOpenOption.READ)) {
+            final List<IpfixFileReader.Segment> segments = reader.segments(channel);
+            assertThat(segments).hasSize(1);
+            assertThat(segments.get(0).length()).isEqualTo(content.length);
+            assertThat(decode(reader, channel, segments)).hasSize(EXPECTED_FLOWS);
+        }
+    }
+
+    @Test
+    public void fileChangedAfterSegmentingEndsTheSegment() throws IOException {
+        final byte[] content = ipfixFile();
+        final Path file = write(content);
+        final IpfixFileReader reader = new IpfixFileReader(aggregator, exporterAddress, 1024 * 1024);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final List<IpfixFileReader.Segment> segments = reader.segments(channel);
+            // the message following the first template message no longer claims a valid length
+            final int secondMessage = new IpfixPacketGenerator(42, 1).templateMessage().length;
+            content[secondMessage + 2] = 0;
+            content[secondMessage + 3] = 0;
+            Files.write(file, content);
+
+            final List<Message> messages = Lists.newArrayList();
+            assertThat(reader.read(channel, segments.get(0), entry -> messages.addAll(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(entry))))))
+                    .isEqualTo(1);
+            assertThat(messages).isEmpty();
+        }
+    }
+
+    @Test
+    public void rejectsInvalidSegmentSizes() {
+        assertThatThrownBy(() -> new IpfixFileReader(aggregator, exporterAddress, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IpfixFileReader(aggregator, exporterAddress, Integer.MAX_VALUE)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] ipfixFile() throws IOException {
+        final IpfixPacketGenerator generator = new IpfixPacketGenerator(42, 1);
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (int i = 0; i < TEMPLATE_CHANGES; i++) {
+            // the exporter is reconfigured, the data sets of each segment need the templates of the right generation
+            generator.renumberTemplates(i * 10);
+            file.write(generator.templateMessage());
+            for (int j = 0; j < DATA_MESSAGES_PER_TEMPLATE; j++) {
+                file.write(generator.dataMessage(RECORDS_PER_DATA_SET));
+            }
+        }
+        return file.toByteArray();
+    }
+
+    private Path write(byte[] content) throws IOException {
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+        return file;
+    }
+
+    private List<Message> decode(IpfixFileReader reader, FileChannel channel, List<IpfixFileReader.Segment> segments) throws IOException {
+        final List<Message> messages = Lists.newArrayList();
+        for (IpfixFileReader.Segment segment : segments) {
+            reader.read(channel, segment, entry -> messages.addAll(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(entry)))));
+        }
+        return messages;
+    }
+}
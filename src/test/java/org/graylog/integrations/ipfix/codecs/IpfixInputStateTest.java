@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.graylog.integrations.ipfix.Utils;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.plugin.system.SimpleNodeId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IpfixInputStateTest {
+    private final InetSocketAddress someAddress = InetSocketAddress.createUnresolved("192.168.1.1", 999);
+    private final NodeId nodeId = new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void templateSnapshotsFollowTheInputLifecycle() throws IOException {
+        final Path snapshotFile = temporaryFolder.getRoot().toPath().resolve("templates.bin");
+        final Configuration configuration = new Configuration(ImmutableMap.of(IpfixCodec.CK_TEMPLATE_SNAPSHOT_FILE, snapshotFile.toString()));
+
+        // codecs which are not started by an input, like the ones decoding the journal, never touch the snapshot
+        final IpfixCodec decodingCodec = new IpfixCodec(configuration, null);
+        assertThat(decodingCodec.getAggregator()).isNotNull();
+        assertThat(snapshotFile).doesNotExist();
+
+        final IpfixCodec inputCodec = new IpfixCodec(configuration, null);
+        inputCodec.launch("input-1", rawMessage -> {});
+        final IpfixAggregator aggregator = (IpfixAggregator) inputCodec.getAggregator();
+        assertThat(aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage()).isNotNull();
+        inputCodec.stop();
+        assertThat(snapshotFile).exists();
+
+        // the restarted input restores the templates, so the exporter's data can be decoded right away
+        final IpfixCodec restartedCodec = new IpfixCodec(configuration, null);
+        assertThat(((IpfixAggregator) restartedCodec.getAggregator()).templateSnapshot()).isEmpty();
+        restartedCodec.launch("input-1", rawMessage -> {});
+        try {
+            final IpfixAggregator restartedAggregator = (IpfixAggregator) restartedCodec.getAggregator();
+            assertThat(restartedAggregator.templateSnapshot()).containsOnlyKeys(aggregator.templateSnapshot().keySet());
+            assertThat(restartedAggregator.addChunk(Utils.readPacket("dataset-only.ipfix"), someAddress).getMessage()).isNotNull();
+        } finally {
+            restartedCodec.stop();
+        }
+    }
+
+    @Test
+    public void decodingCodecsDoNotAcquireTheDefinitions() throws IOException {
+        final String definitionsFile = new File(Resources.getResource("ixia-ied.json").getFile()).getAbsolutePath();
+        final Configuration configuration = new Configuration(ImmutableMap.of(IpfixCodec.CK_IPFIX_DEFINITION_PATH,
+                                                                              ImmutableList.of(definitionsFile)));
+        final IpfixCodec inputCodec = new IpfixCodec(configuration, null);
+        inputCodec.launch("input-1", rawMessage -> {});
+        try {
+            final Gauge<?> references = inputCodec.getMetricRegistry().getGauges().get("sharedDefinitionsReferences");
+            assertThat(references.getValue()).isEqualTo(1);
+            for (int i = 0; i < 3; i++) {
+                final IpfixCodec decodingCodec = new IpfixCodec(configuration, null);
+                assertThat(decodingCodec.getInfoElementDefs()).isSameAs(inputCodec.getInfoElementDefs());
+            }
+            assertThat(references.getValue()).isEqualTo(1);
+        } finally {
+            inputCodec.stop();
+        }
+        assertThat(inputCodec.getMetricRegistry().getGauges()).doesNotContainKey("sharedDefinitionsReferences");
+    }
+
+    @Test
+    public void failedStartReleasesTheDefinitions() throws IOException {
+        final String definitionsFile = new File(Resources.getResource("ixia-ied.json").getFile()).getAbsolutePath();
+        final Configuration configuration = new Configuration(ImmutableMap.of(
+                IpfixCodec.CK_IPFIX_DEFINITION_PATH, ImmutableList.of(definitionsFile),
+                IpfixCodec.CK_ROLLUP_WINDOW_SECONDS, 60));
+        // a gauge of the input is registered already, so starting it fails after its executor has been created
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.register("startupTime", (Gauge<Long>) () -> 0L);
+
+        assertThatThrownBy(() -> IpfixInputState.start("input-1", rawMessage -> {}, configuration, metricRegistry, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(IpfixInputState.running("input-1")).isNull();
+        assertThat(metricRegistry.getGauges()).containsOnlyKeys("startupTime");
+
+        final IpfixCodec inputCodec = new IpfixCodec(configuration, null);
+        inputCodec.launch("input-2", rawMessage -> {});
+        try {
+            final Gauge<?> references = inputCodec.getMetricRegistry().getGauges().get("sharedDefinitionsReferences");
+            assertThat(references.getValue()).isEqualTo(1);
+        } finally {
+            inputCodec.stop();
+        }
+    }
+
+    @Test
+    public void codecsOfStoppedInputsShareTheirDetachedState() throws IOException {
+        final Configuration configuration = new Configuration(ImmutableMap.of(IpfixCodec.CK_ADDRESS_CACHE_SIZE, 16));
+        final IpfixInputState state = IpfixInputState.detached("input-1", configuration);
+
+        assertThat(IpfixInputState.detached("input-1", new Configuration(ImmutableMap.of(IpfixCodec.CK_ADDRESS_CACHE_SIZE, 16))))
+                .isSameAs(state);
+        assertThat(IpfixInputState.detached("input-2", configuration)).isNotSameAs(state);
+        // a reconfigured input does not decode its entries with the old state
+        assertThat(IpfixInputState.detached("input-1", new Configuration(ImmutableMap.of(IpfixCodec.CK_ADDRESS_CACHE_SIZE, 8))))
+                .isNotSameAs(state);
+    }
+
+    @Test
+    public void decodingCodecsShareTheParsedTemplatesOfTheirInput() throws IOException {
+        final IpfixCodec inputCodec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, null);
+        inputCodec.launch("input-1", rawMessage -> {});
+        try {
+            final IpfixAggregator aggregator = (IpfixAggregator) inputCodec.getAggregator();
+            final ByteBuf entry = aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), someAddress).getMessage();
+            assertThat(entry).isNotNull();
+            final byte[] payload = ByteBufUtil.getBytes(entry);
+
+            for (int i = 0; i < 2; i++) {
+                final RawMessage rawMessage = new RawMessage(payload);
+                rawMessage.addSourceNode("input-1", nodeId);
+                assertThat(new IpfixCodec(Configuration.EMPTY_CONFIGURATION, null).decodeMessages(rawMessage)).isNotEmpty();
+            }
+
+            final Map<String, Meter> meters = inputCodec.getMetricRegistry().getMeters();
+            assertThat(meters.get("templateCacheMisses").getCount()).isPositive();
+            assertThat(meters.get("templateCacheHits").getCount()).isEqualTo(meters.get("templateCacheMisses").getCount());
+        } finally {
+            inputCodec.stop();
+        }
+    }
+
+    @Test
+    public void decodingCodecsRecordTheExporterMetricsOfTheirInput() throws IOException {
+        final InetSocketAddress exporter = new InetSocketAddress(InetAddress.getLoopbackAddress(), 4739);
+        final IpfixCodec inputCodec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, null);
+        inputCodec.launch("input-1", rawMessage -> {});
+        try {
+            final IpfixAggregator aggregator = (IpfixAggregator) inputCodec.getAggregator();
+            final ByteBuf entry = aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), exporter).getMessage();
+            assertThat(entry).isNotNull();
+
+            // like Graylog's processing, which creates a new codec for the raw message of the input
+            final RawMessage rawMessage = new RawMessage(ByteBufUtil.getBytes(entry), exporter);
+            rawMessage.addSourceNode("input-1", nodeId);
+            final IpfixCodec decodingCodec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, null);
+            final int flows = decodingCodec.decodeMessages(rawMessage).size();
+            assertThat(flows).isPositive();
+
+            final String exporterName = ExporterMetrics.metricName(ExporterMetrics.exporterName(exporter));
+            final MetricRegistry inputRegistry = inputCodec.getMetricRegistry();
+            assertThat(inputRegistry.getMeters().get(MetricRegistry.name(ExporterMetrics.EXPORTERS, exporterName, "flows")).getCount())
+                    .isEqualTo(flows);
+            assertThat(inputRegistry.getTimers((name, metric) -> name.startsWith(MetricRegistry.name(ExporterMetrics.TEMPLATES, exporterName))))
+                    .isNotEmpty()
+                    .allSatisfy((name, timer) -> assertThat(timer.getCount()).isPositive());
+            assertThat(decodingCodec.getMetricRegistry().getTimers()).isEmpty();
+        } finally {
+            inputCodec.stop();
+        }
+    }
+
+    @Test
+    public void decodingCodecsShareTheDuplicateFlowFilterOfTheirInput() throws IOException {
+        final Configuration configuration = new Configuration(ImmutableMap.of(IpfixCodec.CK_DUPLICATE_WINDOW_SECONDS, 60));
+        final IpfixCodec inputCodec = new IpfixCodec(configuration, null);
+        inputCodec.launch("input-1", rawMessage -> {});
+        try {
+            final IpfixAggregator aggregator = (IpfixAggregator) inputCodec.getAggregator();
+            final InetSocketAddress router = new InetSocketAddress(InetAddress.getLoopbackAddress(), 4739);
+            final InetSocketAddress otherRouter = new InetSocketAddress(InetAddress.getLoopbackAddress(), 4740);
+            final ByteBuf entry = aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), router).getMessage();
+            final ByteBuf otherEntry = aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), otherRouter).getMessage();
+
+            final RawMessage rawMessage = new RawMessage(ByteBufUtil.getBytes(entry), router);
+            rawMessage.addSourceNode("input-1", nodeId);
+            final int flows = new IpfixCodec(configuration, null).decodeMessages(rawMessage).size();
+            assertThat(flows).isPositive();
+
+            // the other router reports the same flows, which another codec recognizes as duplicates
+            final RawMessage otherRawMessage = new RawMessage(ByteBufUtil.getBytes(otherEntry), otherRouter);
+            otherRawMessage.addSourceNode("input-1", nodeId);
+            assertThat(new IpfixCodec(configuration, null).decodeMessages(otherRawMessage)).isEmpty();
+            assertThat(inputCodec.getMetricRegistry().getMeters().get("suppressedDuplicateFlows").getCount()).isEqualTo(flows);
+        } finally {
+            inputCodec.stop();
+        }
+        assertThat(inputCodec.getMetricRegistry().getGauges()).doesNotContainKey("duplicateFlowFalsePositiveRate");
+    }
+
+    @Test
+    public void openRollupsAreWrittenWhenTheInputStops() throws IOException {
+        final Configuration configuration = new Configuration(ImmutableMap.of(IpfixCodec.CK_ROLLUP_WINDOW_SECONDS, 3600));
+        final List<RawMessage> written = new ArrayList<>();
+        final IpfixCodec inputCodec = new IpfixCodec(configuration, null);
+        inputCodec.launch("input-1", written::add);
+        final IpfixAggregator aggregator = (IpfixAggregator) inputCodec.getAggregator();
+        final InetSocketAddress router = new InetSocketAddress(InetAddress.getLoopbackAddress(), 4739);
+        final RawMessage rawMessage = new RawMessage(ByteBufUtil.getBytes(aggregator.addChunk(Utils.readPacket("templates-data.ipfix"), router).getMessage()), router);
+        rawMessage.addSourceNode("input-1", nodeId);
+        // the flows of the current window stay in their rollups
+        assertThat(new IpfixCodec(configuration, null).decodeMessages(rawMessage)).isEmpty();
+        assertThat(written).isEmpty();
+
+        inputCodec.stop();
+
+        // the input writes the open rollups to its journal, so any codec emits them even though the input stopped
+        assertThat(written).hasSize(1);
+        final RawMessage rollupEntry = written.get(0);
+        rollupEntry.addSourceNode("input-1", nodeId);
+        final Collection<Message> rollups = new IpfixCodec(configuration, null).decodeMessages(rollupEntry);
+        assertThat(rollups).isNotEmpty().allSatisfy(message -> assertThat(message.hasField(FlowRollup.FIELD_FLOW_COUNT)).isTrue());
+        assertThat(rollups.stream().mapToLong(message -> (Long) message.getField(FlowRollup.FIELD_FLOW_COUNT)).sum())
+                .isEqualTo(inputCodec.getMetricRegistry().getMeters().get("rolledUpFlows").getCount());
+        // the entry carries the rollups themselves, so replaying it after a restart emits them again
+        assertThat(new IpfixCodec(configuration, null).decodeMessages(new RawMessage(rollupEntry.getPayload())))
+                .extracting(Message::getMessage)
+                .containsExactlyElementsOf(rollups.stream().map(Message::getMessage).collect(Collectors.toList()));
+    }
+}
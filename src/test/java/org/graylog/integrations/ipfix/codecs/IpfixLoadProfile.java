@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The load {@link IpfixUdpLoadGenerator} puts on an IPFIX UDP input.
+ */
+@AutoValue
+public abstract class IpfixLoadProfile {
+    /**
+     * @return the number of exporters, each sending from its own socket
+     */
+    public abstract int exporters();
+
+    /**
+     * @return the number of packets per second sent by all exporters together, templates included
+     */
+    public abstract int packetsPerSecond();
+
+    public abstract int durationSeconds();
+
+    /**
+     * @return the number of data records in each data set, which determines the packet size
+     */
+    public abstract int recordsPerDataSet();
+
+    /**
+     * @return the number of data packets after which an exporter sends its templates again, like exporters do over UDP
+     */
+    public abstract int templateRefreshPackets();
+
+    /**
+     * @return the number of data packets after which an exporter moves to new template ids, 0 to never change them
+     */
+    public abstract int templateChurnPackets();
+
+    /**
+     * @return the share of template packets which are not sent, to emulate their loss
+     */
+    public abstract double templateLossRate();
+
+    /**
+     * @return the number of data packets an exporter sends before its first templates
+     */
+    public abstract int lateTemplatePackets();
+
+    public abstract int senderThreads();
+
+    /**
+     * @return the number of threads decoding the journal entries, like the processors of a Graylog node
+     */
+    public abstract int decoderThreads();
+
+    public abstract int receiveBufferBytes();
+
+    /**
+     * @return additional configuration of the input, e.g. the aggregator settings of {@link IpfixCodec}
+     */
+    public abstract ImmutableMap<String, Object> inputConfiguration();
+
+    public abstract long seed();
+
+    public static Builder builder() {
+        return new AutoValue_IpfixLoadProfile.Builder()
+                .exporters(200)
+                .packetsPerSecond(10_000)
+                .durationSeconds(10)
+                .recordsPerDataSet(5)
+                .templateRefreshPackets(100)
+                .templateChurnPackets(0)
+                .templateLossRate(0)
+                .lateTemplatePackets(0)
+                .senderThreads(4)
+                .decoderThreads(4)
+                .receiveBufferBytes(4 * 1024 * 1024)
+                .inputConfiguration(ImmutableMap.of())
+                .seed(42);
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder exporters(int exporters);
+
+        public abstract Builder packetsPerSecond(int packetsPerSecond);
+
+        public abstract Builder durationSeconds(int durationSeconds);
+
+        public abstract Builder recordsPerDataSet(int recordsPerDataSet);
+
+        public abstract Builder templateRefreshPackets(int templateRefreshPackets);
+
+        public abstract Builder templateChurnPackets(int templateChurnPackets);
+
+        public abstract Builder templateLossRate(double templateLossRate);
+
+        public abstract Builder lateTemplatePackets(int lateTemplatePackets);
+
+        public abstract Builder senderThreads(int senderThreads);
+
+        public abstract Builder decoderThreads(int decoderThreads);
+
+        public abstract Builder receiveBufferBytes(int receiveBufferBytes);
+
+        public abstract Builder inputConfiguration(ImmutableMap<String, Object> inputConfiguration);
+
+        public abstract Builder seed(long seed);
+
+        public abstract IpfixLoadProfile build();
+    }
+}
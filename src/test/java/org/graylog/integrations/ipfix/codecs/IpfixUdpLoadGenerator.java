@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.graylog.integrations.ipfix.IpfixPacketGenerator;
+import org.graylog.integrations.ipfix.transports.IpfixUdpTransport;
+import org.graylog2.inputs.transports.NettyTransportConfiguration;
+import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
+import org.graylog2.plugin.LocalMetricRegistry;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.transports.NettyTransport;
+import org.graylog2.plugin.inputs.util.ThroughputCounter;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.plugin.system.NodeId;
+import org.graylog2.plugin.system.SimpleNodeId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Emulates many IPFIX exporters sending to a real {@link IpfixUdpTransport} over loopback, to find out how many flows
+ * per second an input sustains before it drops packets.
+ * <p>
+ * The exporters send the messages of {@link IpfixPacketGenerator}, each from its own socket, at the rate and with the
+ * template behaviour of the {@link IpfixLoadProfile}. The transport hands the journal entries to a pool of decoder
+ * threads, which decode each of them with a new codec created from the input configuration, like the processors of a
+ * Graylog node. If the decoders fall behind, the transport decodes on its own event loop, just like a full input
+ * buffer blocks it, and the socket's receive buffer overflows.
+ * </p>
+ * Run it with, e.g.:
+ * <pre>
+ * mvn -Dskip.web.build test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.graylog.integrations.ipfix.codecs.IpfixUdpLoadGenerator \
+ *     -Dexec.args="exporters=500 packetsPerSecond=50000 durationSeconds=30 journal_batch_delay_ms=50"
+ * </pre>
+ * Arguments which are not settings of the profile are passed on to the input configuration.
+ */
+public class IpfixUdpLoadGenerator {
+    // the journal entries waiting for a decoder, like the input buffer of a Graylog node
+    private static final int DECODER_QUEUE_SIZE = 4096;
+    // the time the input gets to drain its buffers once the exporters stop sending
+    private static final long SETTLE_MILLIS = 2000;
+    private static final String INPUT_ID = "ipfix-load";
+    private static final NodeId NODE_ID = new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000");
+    private static final List<String> AGGREGATOR_METERS = ImmutableList.of(
+            "bufferedDataSets", "releasedDataSets", "overflowDroppedDataSets", "expiredDataSets", "evictedDataSets", "evictedTemplates",
+            "evictedExporters");
+
+    public static void main(String[] args) throws Exception {
+        final IpfixLoadProfile.Builder profile = IpfixLoadProfile.builder();
+        final ImmutableMap.Builder<String, Object> inputConfiguration = ImmutableMap.builder();
+        for (String arg : args) {
+            final String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            final String value = keyValue[1];
+            switch (keyValue[0]) {
+                case "exporters":
+                    profile.exporters(Integer.parseInt(value));
+                    break;
+                case "packetsPerSecond":
+                    profile.packetsPerSecond(Integer.parseInt(value));
+                    break;
+                case "durationSeconds":
+                    profile.durationSeconds(Integer.parseInt(value));
+                    break;
+                case "recordsPerDataSet":
+                    profile.recordsPerDataSet(Integer.parseInt(value));
+                    break;
+                case "templateRefreshPackets":
+                    profile.templateRefreshPackets(Integer.parseInt(value));
+                    break;
+                case "templateChurnPackets":
+                    profile.templateChurnPackets(Integer.parseInt(value));
+                    break;
+                case "templateLossRate":
+                    profile.templateLossRate(Double.parseDouble(value));
+                    break;
+                case "lateTemplatePackets":
+                    profile.lateTemplatePackets(Integer.parseInt(value));
+                    break;
+                case "senderThreads":
+                    profile.senderThreads(Integer.parseInt(value));
+                    break;
+                case "decoderThreads":
+                    profile.decoderThreads(Integer.parseInt(value));
+                    break;
+                case "receiveBufferBytes":
+                    profile.receiveBufferBytes(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    profile.seed(Long.parseLong(value));
+                    break;
+                default:
+                    inputConfiguration.put(keyValue[0], value.matches("-?\\d+") ? (Object) Integer.parseInt(value) : value);
+            }
+        }
+        System.out.println(run(profile.inputConfiguration(inputConfiguration.build()).build()));
+    }
+
+    /**
+     * Sends the load of the profile to a new input and waits for the input to process it.
+     *
+     * @param profile the load to generate
+     * @return what was sent and what the input made of it
+     */
+    public static Report run(IpfixLoadProfile profile) throws Exception {
+        // the input's own codec, it aggregates the packets and holds the state of the input
+        final IpfixCodec codec = new IpfixCodec(new Configuration(profile.inputConfiguration()), null);
+        final NettyTransportConfiguration nettyConfiguration = new NettyTransportConfiguration("nio", "jdk", 1);
+        final NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+        final LocalMetricRegistry localRegistry = new LocalMetricRegistry();
+        final IpfixUdpTransport transport = new IpfixUdpTransport(
+                new Configuration(ImmutableMap.of(
+                        NettyTransport.CK_BIND_ADDRESS, "127.0.0.1",
+                        NettyTransport.CK_PORT, 0,
+                        NettyTransport.CK_RECV_BUFFER_SIZE, profile.receiveBufferBytes(),
+                        NettyTransport.CK_NUMBER_WORKER_THREADS, 1)),
+                new EventLoopGroupFactory(nettyConfiguration), nettyConfiguration, new ThroughputCounter(eventLoopGroup), localRegistry);
+
+        final LongAdder decodedFlows = new LongAdder();
+        final ThreadPoolExecutor decoders = new ThreadPoolExecutor(profile.decoderThreads(), profile.decoderThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(DECODER_QUEUE_SIZE),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ipfix-load-decoder-%d").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        final MessageInput input = mock(MessageInput.class);
+        when(input.getId()).thenReturn(INPUT_ID);
+        when(input.getUniqueReadableId()).thenReturn("IpfixUdpLoadGenerator." + INPUT_ID);
+        doAnswer(invocation -> {
+            final RawMessage rawMessage = invocation.getArgument(0);
+            // the input records itself as the source of the message, which is how the decoding codecs find its state
+            rawMessage.addSourceNode(INPUT_ID, NODE_ID);
+            decoders.execute(() -> {
+                final IpfixCodec decodingCodec = new IpfixCodec(new Configuration(profile.inputConfiguration()), null);
+                final Collection<?> messages = decodingCodec.decodeMessages(rawMessage);
+                decodedFlows.add(messages == null ? 0 : messages.size());
+            });
+            return null;
+        }).when(input).processRawMessage(any(RawMessage.class));
+
+        final List<SyntheticExporter> exporters = new ArrayList<>(profile.exporters());
+        try {
+            codec.launch(INPUT_ID, input::processRawMessage);
+            transport.setMessageAggregator(codec.getAggregator());
+            transport.launch(input);
+            final InetSocketAddress target = (InetSocketAddress) transport.getLocalAddress();
+            for (int i = 0; i < profile.exporters(); i++) {
+                exporters.add(new SyntheticExporter(profile, i, new UdpSender(target)));
+            }
+
+            final long startNanos = System.nanoTime();
+            final List<Thread> senders = new ArrayList<>(profile.senderThreads());
+            for (int i = 0; i < profile.senderThreads(); i++) {
+                final List<SyntheticExporter> assigned = new ArrayList<>();
+                for (int j = i; j < exporters.size(); j += profile.senderThreads()) {
+                    assigned.add(exporters.get(j));
+                }
+                final Thread sender = new Thread(() -> send(assigned, profile), "ipfix-load-sender-" + i);
+                sender.start();
+                senders.add(sender);
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            final double sendSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+            Thread.sleep(SETTLE_MILLIS);
+            // closing the channel journals the batches the aggregator still holds back, stopping the codec writes the
+            // open flow rollups
+            transport.stop();
+            codec.stop();
+            decoders.shutdown();
+            decoders.awaitTermination(1, TimeUnit.MINUTES);
+
+            final Map<String, Long> aggregatorCounts = new LinkedHashMap<>();
+            final Map<String, Meter> meters = codec.getMetricRegistry().getMeters();
+            for (String name : AGGREGATOR_METERS) {
+                final Meter meter = meters.get(name);
+                aggregatorCounts.put(name, meter == null ? 0 : meter.getCount());
+            }
+            aggregatorCounts.put("invalidMessages", localRegistry.meter("invalidMessages").getCount());
+            return new Report(profile, exporters, decodedFlows.sum(), sendSeconds, aggregatorCounts);
+        } finally {
+            for (SyntheticExporter exporter : exporters) {
+                exporter.close();
+            }
+            decoders.shutdownNow();
+            eventLoopGroup.shutdownGracefully();
+            codec.stop();
+        }
+    }
+
+    /**
+     * Sends the packets of the exporters in turn, spreading the thread's share of the packet rate evenly.
+     */
+    private static void send(List<SyntheticExporter> exporters, IpfixLoadProfile profile) {
+        if (exporters.isEmpty()) {
+            return;
+        }
+        final long intervalNanos = TimeUnit.SECONDS.toNanos(1) * profile.senderThreads() / profile.packetsPerSecond();
+        final long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(profile.durationSeconds());
+        long nextNanos = System.nanoTime();
+        int next = 0;
+        while (nextNanos < endNanos) {
+            final long waitNanos = nextNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            exporters.get(next).sendNext();
+            next = (next + 1) % exporters.size();
+            nextNanos += intervalNanos;
+        }
+    }
+
+    /**
+     * Where an exporter sends its messages to.
+     */
+    interface PacketSender extends Closeable {
+        void send(byte[] message) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Sends the messages of an exporter from a socket of its own.
+     */
+    private static class UdpSender implements PacketSender {
+        private final DatagramChannel channel;
+
+        UdpSender(InetSocketAddress target) throws IOException {
+            channel = DatagramChannel.open();
+            channel.bind(new InetSocketAddress(target.getAddress(), 0));
+            channel.connect(target);
+        }
+
+        @Override
+        public void send(byte[] message) throws IOException {
+            channel.write(ByteBuffer.wrap(message));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * A single exporter, only ever used by one sender thread.
+     */
+    static class SyntheticExporter {
+        // the template ids of the exporter's generations of templates are this far apart
+        private static final int TEMPLATE_ID_STRIDE = 8;
+        private static final int TEMPLATE_GENERATIONS = 1000;
+
+        private final IpfixLoadProfile profile;
+        private final IpfixPacketGenerator generator;
+        private final Random random;
+        private final PacketSender sender;
+        private boolean templatesDue;
+        private int templateGeneration = 0;
+        private long dataPackets = 0;
+        private long templatePackets = 0;
+        private long lostTemplatePackets = 0;
+        private long sentFlows = 0;
+        private long sendErrors = 0;
+
+        SyntheticExporter(IpfixLoadProfile profile, int index, PacketSender sender) {
+            this.profile = profile;
+            this.generator = new IpfixPacketGenerator(profile.seed() + index, index);
+            this.random = new Random(profile.seed() + index);
+            this.sender = sender;
+            this.templatesDue = profile.lateTemplatePackets() == 0;
+        }
+
+        void sendNext() {
+            if (templatesDue) {
+                templatesDue = false;
+                if (random.nextDouble() < profile.templateLossRate()) {
+                    lostTemplatePackets++;
+                } else {
+                    templatePackets++;
+                    send(generator.templateMessage());
+                }
+                return;
+            }
+            send(generator.dataMessage(profile.recordsPerDataSet()));
+            sentFlows += IpfixPacketGenerator.flowsPerDataMessage(profile.recordsPerDataSet());
+            dataPackets++;
+            if (profile.templateChurnPackets() > 0 && dataPackets % profile.templateChurnPackets() == 0) {
+                templateGeneration = (templateGeneration + 1) % TEMPLATE_GENERATIONS;
+                generator.renumberTemplates(templateGeneration * TEMPLATE_ID_STRIDE);
+                templatesDue = true;
+            }
+            if (dataPackets == profile.lateTemplatePackets()
+                    || (profile.templateRefreshPackets() > 0 && dataPackets % profile.templateRefreshPackets() == 0)) {
+                templatesDue = true;
+            }
+        }
+
+        private void send(byte[] message) {
+            try {
+                sender.send(message);
+            } catch (IOException e) {
+                sendErrors++;
+            }
+        }
+
+        long sentFlows() {
+            return sentFlows;
+        }
+
+        void close() {
+            try {
+                sender.close();
+            } catch (IOException ignored) {
+                // nothing left to send
+            }
+        }
+    }
+
+    /**
+     * What the exporters sent and what the input made of it.
+     */
+    public static class Report {
+        private final IpfixLoadProfile profile;
+        private final long dataPackets;
+        private final long templatePackets;
+        private final long lostTemplatePackets;
+        private final long sendErrors;
+        private final long sentFlows;
+        private final long decodedFlows;
+        private final double sendSeconds;
+        private final Map<String, Long> aggregatorCounts;
+
+        Report(IpfixLoadProfile profile, List<SyntheticExporter> exporters, long decodedFlows, double sendSeconds,
+               Map<String, Long> aggregatorCounts) {
+            this.profile = profile;
+            this.dataPackets = exporters.stream().mapToLong(exporter -> exporter.dataPackets).sum();
+            this.templatePackets = exporters.stream().mapToLong(exporter -> exporter.templatePackets).sum();
+            this.lostTemplatePackets = exporters.stream().mapToLong(exporter -> exporter.lostTemplatePackets).sum();
+            this.sendErrors = exporters.stream().mapToLong(exporter -> exporter.sendErrors).sum();
+            this.sentFlows = exporters.stream().mapToLong(exporter -> exporter.sentFlows).sum();
+            this.decodedFlows = decodedFlows;
+            this.sendSeconds = sendSeconds;
+            this.aggregatorCounts = aggregatorCounts;
+        }
+
+        public long sentFlows() {
+            return sentFlows;
+        }
+
+        public long decodedFlows() {
+            return decodedFlows;
+        }
+
+        public double sentFlowsPerSecond() {
+            return sentFlows / sendSeconds;
+        }
+
+        public double decodedFlowsPerSecond() {
+            return decodedFlows / sendSeconds;
+        }
+
+        /**
+         * @return the share of the sent flows which were not decoded, because their packets were dropped or their
+         * templates never arrived
+         */
+        public double lossRate() {
+            return sentFlows == 0 ? 0 : 1 - (double) decodedFlows / sentFlows;
+        }
+
+        /**
+         * @param name the name of an aggregator meter, e.g. {@code bufferedDataSets}
+         * @return the count of the meter
+         */
+        public long aggregatorCount(String name) {
+            return aggregatorCounts.getOrDefault(name, 0L);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s%n" +
+                    "sent:     %d data packets, %d template packets (%d lost on purpose), %d send errors in %.1f s%n" +
+                    "flows:    %d sent (%.0f/s), %d decoded (%.0f/s), loss rate %.4f%n" +
+                    "input:    %s",
+                    profile, dataPackets, templatePackets, lostTemplatePackets, sendErrors, sendSeconds,
+                    sentFlows, sentFlowsPerSecond(), decodedFlows, decodedFlowsPerSecond(), lossRate(),
+                    aggregatorCounts);
+        }
+    }
+}
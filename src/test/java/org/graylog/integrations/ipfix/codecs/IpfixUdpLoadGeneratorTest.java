@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.graylog.integrations.ipfix.transports.IpfixMessageAggregationHandler;
+import org.graylog2.inputs.transports.netty.SenderEnvelope;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays the packets of the load generator's exporters through the handler of the UDP transport, without sockets
+ * and without the clock, so the outcome only depends on the profile.
+ */
+public class IpfixUdpLoadGeneratorTest {
+    private static final InetSocketAddress INPUT = new InetSocketAddress("127.0.0.1", 4739);
+
+    @Test
+    public void lateTemplatesAreBufferedAndTheFlowsDecoded() {
+        final IpfixLoadProfile profile = IpfixLoadProfile.builder()
+                .exporters(10)
+                .lateTemplatePackets(2)
+                .build();
+        final IpfixCodec codec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, null);
+        final IpfixAggregator aggregator = (IpfixAggregator) codec.getAggregator();
+        final MetricRegistry transportRegistry = new MetricRegistry();
+        final EmbeddedChannel channel = new EmbeddedChannel(new IpfixMessageAggregationHandler(aggregator.newShard(), transportRegistry));
+
+        final List<IpfixUdpLoadGenerator.SyntheticExporter> exporters = new ArrayList<>();
+        for (int i = 0; i < profile.exporters(); i++) {
+            final InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 50000 + i);
+            exporters.add(new IpfixUdpLoadGenerator.SyntheticExporter(profile, i, message ->
+                    channel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(message), INPUT, sender))));
+        }
+        // every exporter sends its late data messages, its templates and then a few more data messages
+        for (int packet = 0; packet < 5; packet++) {
+            exporters.forEach(IpfixUdpLoadGenerator.SyntheticExporter::sendNext);
+        }
+        // closing the channel journals the batches the aggregator still holds back
+        channel.close();
+
+        long decodedFlows = 0;
+        SenderEnvelope<ByteBuf, InetSocketAddress> entry;
+        while ((entry = channel.readInbound()) != null) {
+            try {
+                decodedFlows += codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(entry.message()), entry.sender())).size();
+            } finally {
+                entry.message().release();
+            }
+        }
+        codec.stop();
+
+        final long sentFlows = exporters.stream().mapToLong(IpfixUdpLoadGenerator.SyntheticExporter::sentFlows).sum();
+        assertThat(sentFlows).isPositive();
+        assertThat(decodedFlows).isEqualTo(sentFlows);
+        // the data sets sent before the templates waited for them
+        final long bufferedDataSets = codec.getMetricRegistry().meter("bufferedDataSets").getCount();
+        assertThat(bufferedDataSets).isPositive();
+        assertThat(codec.getMetricRegistry().meter("releasedDataSets").getCount()).isEqualTo(bufferedDataSets);
+        assertThat(transportRegistry.meter("invalidMessages").getCount()).isZero();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Ticker;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.graylog.integrations.ipfix.ShallowDataSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PendingDataSetsTest {
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Meter buffered = new Meter();
+    private final Meter released = new Meter();
+    private final Meter overflowDropped = new Meter();
+    private final Meter expired = new Meter();
+    private FakeTicker ticker;
+
+    @Before
+    public void setUp() {
+        ticker = new FakeTicker();
+    }
+
+    private PendingDataSets pendingDataSets(long maxBytes) {
+        return new PendingDataSets(maxBytes, MAX_AGE_NANOS, ticker, buffered, released, overflowDropped, expired);
+    }
+
+    private static ExporterTemplates templates(int... templateIds) {
+        final ExporterTemplates templates = new ExporterTemplates(Long.MAX_VALUE, new Meter());
+        for (int templateId : templateIds) {
+            final ByteBuf record = Unpooled.buffer(4);
+            record.writeShort(templateId);
+            record.writeShort(0);
+            templates.put(templateId, record, false);
+        }
+        return templates;
+    }
+
+    @Test
+    public void dropsOldestDataSetsOverBudget() {
+        // room for two data sets of 100 bytes plus overhead
+        final PendingDataSets pendingDataSets = pendingDataSets(2 * (100 + 96));
+        final ByteBuf first = Unpooled.buffer(100).writeZero(100);
+        final ByteBuf second = Unpooled.buffer(100).writeZero(100);
+        final ByteBuf third = Unpooled.buffer(100).writeZero(100);
+
+        pendingDataSets.add(ShallowDataSet.create(256, 0, first));
+        pendingDataSets.add(ShallowDataSet.create(257, 0, second));
+        pendingDataSets.add(ShallowDataSet.create(258, 0, third));
+
+        assertThat(pendingDataSets.size()).isEqualTo(2);
+        assertThat(pendingDataSets.bytes()).isEqualTo(2 * (100 + 96));
+        assertThat(buffered.getCount()).isEqualTo(3);
+        assertThat(overflowDropped.getCount()).isEqualTo(1);
+        // the data sets are copied, the packet buffers are not retained
+        assertThat(first.refCnt()).isEqualTo(1);
+        assertThat(third.refCnt()).isEqualTo(1);
+
+        final List<ShallowDataSet> ready = new ArrayList<>();
+        pendingDataSets.drainReady(templates(256, 257, 258), ready);
+        assertThat(ready).extracting(ShallowDataSet::templateId).containsExactly(257, 258);
+    }
+
+    @Test
+    public void parkedDataSetsDoNotPinTheirPacket() {
+        final PendingDataSets pendingDataSets = pendingDataSets(Long.MAX_VALUE);
+        final ByteBuf packet = Unpooled.buffer(65536).writeZero(65536);
+
+        pendingDataSets.add(ShallowDataSet.create(256, 0, packet.slice(100, 10)));
+        packet.release();
+
+        assertThat(packet.refCnt()).isZero();
+        assertThat(pendingDataSets.bytes()).isEqualTo(10 + 96);
+        final List<ShallowDataSet> ready = new ArrayList<>();
+        pendingDataSets.drainReady(templates(256), ready);
+        assertThat(ready).hasSize(1);
+        assertThat(ready.get(0).content().readableBytes()).isEqualTo(10);
+        assertThat(ready.get(0).content().capacity()).isEqualTo(10);
+        ready.get(0).release();
+        assertThat(ready.get(0).content().refCnt()).isZero();
+    }
+
+    @Test
+    public void dropsDataSetLargerThanBudget() {
+        final PendingDataSets pendingDataSets = pendingDataSets(100);
+        final ByteBuf content = Unpooled.buffer(100).writeZero(100);
+
+        pendingDataSets.add(ShallowDataSet.create(256, 0, content));
+
+        assertThat(pendingDataSets.size()).isZero();
+        assertThat(overflowDropped.getCount()).isEqualTo(1);
+        assertThat(content.refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    public void expiresDataSetsOlderThanMaximumAge() {
+        final PendingDataSets pendingDataSets = pendingDataSets(Long.MAX_VALUE);
+        final ByteBuf old = Unpooled.buffer(10).writeZero(10);
+        pendingDataSets.add(ShallowDataSet.create(256, 0, old));
+        ticker.advance(TimeUnit.SECONDS.toNanos(30));
+        pendingDataSets.add(ShallowDataSet.create(257, 0, Unpooled.buffer(10).writeZero(10)));
+
+        ticker.advance(TimeUnit.SECONDS.toNanos(31));
+        pendingDataSets.expire();
+
+        assertThat(pendingDataSets.size()).isEqualTo(1);
+        assertThat(expired.getCount()).isEqualTo(1);
+        assertThat(old.refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    public void drainsReadyDataSetsInArrivalOrder() {
+        final PendingDataSets pendingDataSets = pendingDataSets(Long.MAX_VALUE);
+        pendingDataSets.add(ShallowDataSet.create(256, 0, Unpooled.buffer(10).writeZero(10)));
+        pendingDataSets.add(ShallowDataSet.create(300, 0, Unpooled.buffer(10).writeZero(10)));
+        pendingDataSets.add(ShallowDataSet.create(257, 0, Unpooled.buffer(10).writeZero(10)));
+        pendingDataSets.add(ShallowDataSet.create(256, 1, Unpooled.buffer(10).writeZero(10)));
+
+        final List<ShallowDataSet> ready = new ArrayList<>();
+        assertThat(pendingDataSets.drainReady(templates(256, 257), ready)).isEqualTo(3);
+
+        assertThat(ready).extracting(ShallowDataSet::templateId).containsExactly(256, 257, 256);
+        assertThat(ready).extracting(ShallowDataSet::epochSeconds).containsExactly(0L, 0L, 1L);
+        assertThat(pendingDataSets.size()).isEqualTo(1);
+        assertThat(pendingDataSets.bytes()).isEqualTo(10 + 96);
+        assertThat(released.getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void closeReleasesAllDataSets() {
+        final PendingDataSets pendingDataSets = pendingDataSets(Long.MAX_VALUE);
+        final ByteBuf content = Unpooled.buffer(10).writeZero(10);
+        pendingDataSets.add(ShallowDataSet.create(256, 0, content));
+
+        pendingDataSets.close(expired);
+
+        assertThat(pendingDataSets.size()).isZero();
+        assertThat(pendingDataSets.bytes()).isZero();
+        assertThat(expired.getCount()).isEqualTo(1);
+        assertThat(content.refCnt()).isEqualTo(1);
+
+        // data sets arriving after the exporter has been removed are not buffered anymore
+        pendingDataSets.add(ShallowDataSet.create(256, 0, content));
+        assertThat(pendingDataSets.size()).isZero();
+        assertThat(content.refCnt()).isEqualTo(1);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        void advance(long deltaNanos) {
+            nanos += deltaNanos;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedDefinitionsTest {
+
+    private static final String DEFINITIONS = "{ \"enterprise_number\": 3054, \"information_elements\": [ { \"element_id\": 111, \"name\": \"l7ApplicationName\", \"data_type\": \"string\" } ] }";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sharesDefinitionsOfSameFiles() throws IOException {
+        final File file = temporaryFolder.newFile("custom.json");
+        FileUtils.writeStringToFile(file, DEFINITIONS, StandardCharsets.UTF_8);
+
+        final SharedDefinitions first = SharedDefinitions.acquire(ImmutableList.of(file.getAbsolutePath()));
+        final SharedDefinitions second = SharedDefinitions.acquire(ImmutableList.of(" " + file.getAbsolutePath()));
+        try {
+            assertThat(second).isSameAs(first);
+            assertThat(first.references()).isEqualTo(2);
+            assertThat(first.definitions().getDefinition(111, 3054).fieldName()).isEqualTo("l7ApplicationName");
+            assertThat(first.definitions().getDefinition(8, 0).fieldName()).isEqualTo("sourceIPv4Address");
+        } finally {
+            first.release();
+            second.release();
+        }
+        assertThat(first.references()).isZero();
+
+        // once released, the definitions are loaded again
+        final SharedDefinitions third = SharedDefinitions.acquire(ImmutableList.of(file.getAbsolutePath()));
+        try {
+            assertThat(third).isNotSameAs(first);
+        } finally {
+            third.release();
+        }
+    }
+
+    @Test
+    public void reloadsModifiedFiles() throws IOException {
+        final File file = temporaryFolder.newFile("custom.json");
+        FileUtils.writeStringToFile(file, DEFINITIONS, StandardCharsets.UTF_8);
+
+        final SharedDefinitions first = SharedDefinitions.acquire(ImmutableList.of(file.getAbsolutePath()));
+        try {
+            assertThat(file.setLastModified(file.lastModified() - 10_000)).isTrue();
+            final SharedDefinitions second = SharedDefinitions.acquire(ImmutableList.of(file.getAbsolutePath()));
+            try {
+                assertThat(second).isNotSameAs(first);
+            } finally {
+                second.release();
+            }
+        } finally {
+            first.release();
+        }
+    }
+
+    @Test
+    public void lookupDoesNotAcquireTheDefinitions() throws IOException {
+        final File file = temporaryFolder.newFile("custom.json");
+        FileUtils.writeStringToFile(file, DEFINITIONS, StandardCharsets.UTF_8);
+
+        // nothing acquired yet, the definitions are loaded without registering them
+        assertThat(SharedDefinitions.lookup(ImmutableList.of(file.getAbsolutePath())).getDefinition(111, 3054).fieldName())
+                .isEqualTo("l7ApplicationName");
+
+        final SharedDefinitions shared = SharedDefinitions.acquire(ImmutableList.of(file.getAbsolutePath()));
+        try {
+            assertThat(SharedDefinitions.lookup(ImmutableList.of(" " + file.getAbsolutePath()))).isSameAs(shared.definitions());
+            assertThat(shared.references()).isEqualTo(1);
+        } finally {
+            shared.release();
+        }
+        assertThat(shared.references()).isZero();
+    }
+
+    @Test
+    public void standardDefinitionsOnly() throws IOException {
+        final SharedDefinitions shared = SharedDefinitions.acquire(Collections.emptyList());
+        try {
+            assertThat(shared.definitions().getDefinition(1, 0).fieldName()).isEqualTo("octetDeltaCount");
+            assertThat(shared.estimatedSizeBytes()).isPositive();
+        } finally {
+            shared.release();
+        }
+    }
+}
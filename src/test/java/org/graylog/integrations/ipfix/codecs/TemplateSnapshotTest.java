@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.codecs;
+
+import com.google.protobuf.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TemplateSnapshotTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        final TemplateKey ipv4Exporter = TemplateKey.idForExporter(new InetSocketAddress(InetAddress.getByName("10.0.0.1"), 4739), 1L);
+        final TemplateKey ipv6Exporter = TemplateKey.idForExporter(new InetSocketAddress(InetAddress.getByName("2001:db8::1"), 50000), 0xffffffffL);
+        final TemplateKey unresolvedExporter = TemplateKey.idForExporter(InetSocketAddress.createUnresolved("exporter.example.org", 999), 0L);
+
+        final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> templates = new HashMap<>();
+        templates.put(ipv4Exporter, templates(256, 257));
+        templates.put(ipv6Exporter, templates(300));
+        templates.put(unresolvedExporter, templates(65535));
+
+        final Path file = temporaryFolder.getRoot().toPath().resolve("snapshots").resolve("templates.bin");
+        assertThat(TemplateSnapshot.write(file, templates)).isEqualTo(4);
+        assertThat(file.resolveSibling("templates.bin.tmp")).doesNotExist();
+
+        final Map<TemplateKey, Map<Integer, ExporterTemplates.Template>> restored = TemplateSnapshot.read(file);
+        assertThat(restored).containsOnlyKeys(ipv4Exporter, ipv6Exporter, unresolvedExporter);
+        templates.forEach((exporterKey, exporterTemplates) -> {
+            assertThat(restored.get(exporterKey)).containsOnlyKeys(exporterTemplates.keySet());
+            exporterTemplates.forEach((templateId, template) -> {
+                final ExporterTemplates.Template restoredTemplate = restored.get(exporterKey).get(templateId);
+                assertThat(restoredTemplate.recordBytes()).isEqualTo(template.recordBytes());
+                assertThat(restoredTemplate.referencesTemplates()).isEqualTo(template.referencesTemplates());
+            });
+        });
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThatThrownBy(() -> TemplateSnapshot.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an IPFIX template snapshot");
+    }
+
+    @Test
+    public void rejectsCountsLargerThanTheFile() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x49504654);
+        out.writeInt(1);
+        out.writeInt(Integer.MAX_VALUE);
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, bytes.toByteArray());
+
+        assertThatThrownBy(() -> TemplateSnapshot.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Invalid exporter count");
+    }
+
+    @Test
+    public void rejectsTemplateLengthsLargerThanTheFile() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x49504654);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeByte(0);
+        out.writeShort(4);
+        out.write(new byte[]{10, 0, 0, 1});
+        out.writeShort(4739);
+        out.writeLong(1L);
+        out.writeInt(1);
+        out.writeInt(256);
+        out.writeBoolean(false);
+        out.writeInt(Integer.MAX_VALUE);
+        out.write(new byte[8]);
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, bytes.toByteArray());
+
+        assertThatThrownBy(() -> TemplateSnapshot.read(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Invalid template length");
+    }
+
+    private static Map<Integer, ExporterTemplates.Template> templates(int... templateIds) {
+        final Map<Integer, ExporterTemplates.Template> templates = new HashMap<>();
+        for (int templateId : templateIds) {
+            final ByteString recordBytes = ByteString.copyFrom(new byte[]{(byte) (templateId >> 8), (byte) templateId, 0, 1, 0, 8, 0, 4});
+            templates.put(templateId, new ExporterTemplates.Template(recordBytes, templateId % 2 == 1));
+        }
+        return templates;
+    }
+}
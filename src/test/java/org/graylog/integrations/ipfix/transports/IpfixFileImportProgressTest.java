@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IpfixFileImportProgressTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void restoresTheRecordedProgress() throws IOException {
+        final Path progressFile = temporaryFolder.getRoot().toPath().resolve("import.progress");
+        final String completeFile = IpfixFileImportProgress.fileId(ipfixFile("complete.ipfix"));
+        final String partialFile = IpfixFileImportProgress.fileId(ipfixFile("partial\tname.ipfix"));
+
+        final IpfixFileImportProgress progress = IpfixFileImportProgress.load(progressFile);
+        assertThat(progress.isComplete(completeFile)).isFalse();
+        assertThat(progress.completedSegments(completeFile)).isEmpty();
+        progress.segmentCompleted(completeFile, 0L);
+        progress.segmentCompleted(completeFile, 1024L);
+        progress.fileCompleted(completeFile);
+        progress.segmentCompleted(partialFile, 2048L);
+
+        final IpfixFileImportProgress restored = IpfixFileImportProgress.load(progressFile);
+        assertThat(restored.isComplete(completeFile)).isTrue();
+        assertThat(restored.completedSegments(completeFile)).isEmpty();
+        assertThat(restored.isComplete(partialFile)).isFalse();
+        assertThat(restored.completedSegments(partialFile)).containsExactly(2048L);
+    }
+
+    @Test
+    public void ignoresInvalidLines() throws IOException {
+        final Path progressFile = temporaryFolder.getRoot().toPath().resolve("import.progress");
+        final String fileId = IpfixFileImportProgress.fileId(ipfixFile("flows.ipfix"));
+        Files.write(progressFile, ("segment\tnot-a-number\t" + fileId + "\nsegment\n\nsomething else\nsegment\t512\t" + fileId + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        final IpfixFileImportProgress progress = IpfixFileImportProgress.load(progressFile);
+
+        assertThat(progress.isComplete(fileId)).isFalse();
+        assertThat(progress.completedSegments(fileId)).containsExactly(512L);
+    }
+
+    @Test
+    public void changedFilesAreImportedAgain() throws IOException {
+        final Path file = ipfixFile("flows.ipfix");
+        final String fileId = IpfixFileImportProgress.fileId(file);
+
+        Files.write(file, new byte[16], StandardOpenOption.APPEND);
+        assertThat(IpfixFileImportProgress.fileId(file)).isNotEqualTo(fileId);
+
+        final String appendedId = IpfixFileImportProgress.fileId(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertThat(IpfixFileImportProgress.fileId(file)).isNotEqualTo(appendedId);
+    }
+
+    private Path ipfixFile(String name) throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve(name);
+        Files.write(file, new byte[64]);
+        return file;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.ipfix.transports;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.graylog.integrations.ipfix.InformationElementDefinitions;
+import org.graylog.integrations.ipfix.IpfixJournal;
+import org.graylog.integrations.ipfix.Utils;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregator;
+import org.graylog.integrations.ipfix.codecs.IpfixAggregatorSettings;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IpfixTcpTransportTest {
+    private static final InetSocketAddress EXPORTER = new InetSocketAddress("127.0.0.1", 4739);
+
+    private final MetricRegistry aggregatorRegistry = new MetricRegistry();
+    private final MetricRegistry transportRegistry = new MetricRegistry();
+    private byte[] templatesPacket;
+    private byte[] dataOnlyPacket;
+
+    @Before
+    public void setUp() throws IOException {
+        templatesPacket = ByteBufUtil.getBytes(Utils.readPacket("templates-data.ipfix"));
+        dataOnlyPacket = ByteBufUtil.getBytes(Utils.readPacket("dataset-only.ipfix"));
+    }
+
+    private IpfixAggregator aggregator(long batchDelayMillis) {
+        return new IpfixAggregator(IpfixAggregatorSettings.builder().batchDelayMillis(batchDelayMillis).build(),
+                                   InformationElementDefinitions.withStandardDefinitions(), aggregatorRegistry);
+    }
+
+    // the same handlers the transport adds to the pipeline of every connection
+    private EmbeddedChannel connection(IpfixAggregator sessionShard) {
+        return new EmbeddedChannel(IpfixTcpTransport.newFrameDecoder(),
+                                   new IpfixStreamAggregationHandler(sessionShard, transportRegistry)) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return EXPORTER;
+            }
+        };
+    }
+
+    @Test
+    public void framesMessagesSplitAcrossReads() {
+        final EmbeddedChannel channel = connection(aggregator(0).newSessionShard());
+
+        // the first read ends in the middle of the message length
+        channel.writeInbound(Unpooled.wrappedBuffer(templatesPacket, 0, 3));
+        channel.writeInbound(Unpooled.wrappedBuffer(templatesPacket, 3, 10));
+        assertThat(channel.inboundMessages()).isEmpty();
+        channel.writeInbound(Unpooled.wrappedBuffer(templatesPacket, 13, templatesPacket.length - 13));
+
+        assertThat(journalEntries(channel)).hasSize(1);
+        assertThat(channel.isOpen()).isTrue();
+    }
+
+    @Test
+    public void framesMessagesCoalescedIntoOneRead() {
+        final EmbeddedChannel channel = connection(aggregator(0).newSessionShard());
+
+        // two complete messages and the start of a third one
+        channel.writeInbound(Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(templatesPacket), Unpooled.wrappedBuffer(dataOnlyPacket),
+                                                     Unpooled.wrappedBuffer(dataOnlyPacket, 0, 5)));
+        assertThat(journalEntries(channel)).hasSize(2);
+
+        channel.writeInbound(Unpooled.wrappedBuffer(dataOnlyPacket, 5, dataOnlyPacket.length - 5));
+        final List<IpfixJournal.RawIpfix> entries = journalEntries(channel);
+        assertThat(entries).hasSize(1);
+        // the data sets of the last message are decodable with the templates of the first one
+        assertThat(entries.get(0).getTemplatesCount()).isPositive();
+        assertThat(entries.get(0).getDataSetsCount()).isPositive();
+        assertThat(channel.isOpen()).isTrue();
+    }
+
+    @Test
+    public void closesTheConnectionOnAnInvalidMessage() {
+        final EmbeddedChannel channel = connection(aggregator(0).newSessionShard());
+        // a NetFlow v9 header in place of an IPFIX message header
+        final byte[] notIpfix = templatesPacket.clone();
+        notIpfix[1] = 9;
+
+        channel.writeInbound(Unpooled.wrappedBuffer(notIpfix));
+
+        assertThat(channel.inboundMessages()).isEmpty();
+        assertThat(channel.isOpen()).isFalse();
+        assertThat(transportRegistry.meter("invalidMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void closesTheConnectionOnAMessageLengthShorterThanTheHeader() {
+        final EmbeddedChannel channel = connection(aggregator(0).newSessionShard());
+
+        // version 10 with a message length of 2, which doesn't even cover the length field
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{0, 10, 0, 2}));
+
+        assertThat(channel.inboundMessages()).isEmpty();
+        assertThat(channel.isOpen()).isFalse();
+        assertThat(transportRegistry.meter("invalidMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void closesTheConnectionOnATruncatedHeader() {
+        final EmbeddedChannel channel = connection(aggregator(0).newSessionShard());
+
+        // a message length of 8 frames a message which is shorter than the 16 bytes of the message header
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{0, 10, 0, 8, 0, 0, 0, 0}));
+
+        assertThat(channel.inboundMessages()).isEmpty();
+        assertThat(channel.isOpen()).isFalse();
+        assertThat(transportRegistry.meter("invalidMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void releasesTheSessionShardWhenTheConnectionCloses() {
+        final IpfixAggregator sessionShard = aggregator(0).newSessionShard();
+        final EmbeddedChannel channel = connection(sessionShard);
+
+        // the data sets wait for their templates in the session shard
+        channel.writeInbound(Unpooled.wrappedBuffer(dataOnlyPacket));
+        assertThat(channel.inboundMessages()).isEmpty();
+        assertThat(aggregatorRegistry.meter("bufferedDataSets").getCount()).isPositive();
+
+        channel.close();
+
+        // the buffered data sets are gone with the connection, the templates arriving later do not release any
+        final IpfixAggregator.JournalEntries entries = sessionShard.addChunks(Unpooled.wrappedBuffer(templatesPacket), EXPORTER);
+        assertThat(entries.isValid()).isTrue();
+        assertThat(aggregatorRegistry.meter("releasedDataSets").getCount()).isZero();
+    }
+
+    @Test
+    public void journalsHeldBackBatchesWhenTheConnectionCloses() {
+        final EmbeddedChannel channel = connection(aggregator(60_000).newSessionShard());
+
+        channel.writeInbound(Unpooled.wrappedBuffer(templatesPacket));
+        assertThat(channel.inboundMessages()).isEmpty();
+
+        channel.close();
+
+        assertThat(journalEntries(channel)).hasSize(1);
+    }
+
+    private static List<IpfixJournal.RawIpfix> journalEntries(EmbeddedChannel channel) {
+        final List<IpfixJournal.RawIpfix> entries = new ArrayList<>();
+        ByteBuf entry;
+        while ((entry = channel.readInbound()) != null) {
+            try {
+                entries.add(IpfixJournal.RawIpfix.parseFrom(ByteBufUtil.getBytes(entry)));
+            } catch (IOException e) {
+                throw new AssertionError("Not a journal entry", e);
+            } finally {
+                entry.release();
+            }
+        }
+        return entries;
+    }
+}